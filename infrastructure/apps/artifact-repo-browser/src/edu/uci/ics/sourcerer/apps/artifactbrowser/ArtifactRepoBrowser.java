@@ -18,7 +18,12 @@
 package edu.uci.ics.sourcerer.apps.artifactbrowser;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -34,7 +39,7 @@ import edu.uci.ics.sourcerer.tools.java.model.types.Component;
 import edu.uci.ics.sourcerer.tools.java.model.types.ComponentRelation;
 import edu.uci.ics.sourcerer.tools.java.model.types.Project;
 import edu.uci.ics.sourcerer.tools.java.model.types.Type;
-import edu.uci.ics.sourcerer.util.TimeoutManager;
+import edu.uci.ics.sourcerer.util.ResourcePool;
 import edu.uci.ics.sourcerer.util.io.arguments.ArgumentManager;
 import edu.uci.ics.sourcerer.utils.db.DatabaseConnection;
 import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
@@ -51,18 +56,8 @@ import edu.uci.ics.sourcerer.utils.servlet.ServletUtils;
  */
 @SuppressWarnings("serial")
 public class ArtifactRepoBrowser extends HttpServlet {
-  private TimeoutManager<DatabaseConnection> db =
-      new TimeoutManager<DatabaseConnection>(new TimeoutManager.Instantiator<DatabaseConnection>() {
-        @Override
-        public DatabaseConnection create() {
-          DatabaseConnection conn = DatabaseConnectionFactory.INSTANCE.create();
-          if (conn.open()) {
-            return conn;
-          } else {
-            return null;
-          }
-        }
-      }, 10 * 60 * 1000);
+  private ResourcePool<DatabaseConnection> db;
+  private FragmentCache fragments;
   
   @Override
   public void init() throws ServletException {
@@ -70,7 +65,51 @@ public class ArtifactRepoBrowser extends HttpServlet {
     DatabaseConnectionFactory.DATABASE_URL.permit();
     DatabaseConnectionFactory.DATABASE_USER.permit();
     DatabaseConnectionFactory.DATABASE_PASSWORD.permit();
+    FragmentCache.FRAGMENT_CACHE_SIZE.permit();
+    FragmentCache.FRAGMENT_CACHE_VERSION_INTERVAL.permit();
     ArgumentManager.initializeProperties();
+    // The pool reads its size from the properties, so it must be created after them
+    db = ResourcePool.create("artifact_browser.connections", new ResourcePool.Instantiator<DatabaseConnection>() {
+      @Override
+      public DatabaseConnection create() {
+        DatabaseConnection conn = DatabaseConnectionFactory.INSTANCE.create();
+        if (conn.open()) {
+          return conn;
+        } else {
+          return null;
+        }
+      }
+    }, 10 * 60 * 1000);
+    fragments = FragmentCache.create();
+  }
+  
+  @Override
+  public void destroy() {
+    if (db != null) {
+      db.destroy();
+    }
+  }
+  
+  private static final String[] FRAGMENT_KEYS = { "libraryID", "libraryVersionID", "clusterID", "clusterVersionID", "jarID", "fqnID", "fqnVersionID" };
+  
+  /**
+   * Pages describing a single component are cached under that component's
+   * id. Listing pages are not cached.
+   */
+  private static String getFragmentKey(HttpServletRequest request) {
+    for (String name : FRAGMENT_KEYS) {
+      Integer id = ServletUtils.getIntValue(request, name);
+      if (id != null) {
+        return name + "=" + id;
+      }
+    }
+    String group = request.getParameter("group");
+    String artifact = request.getParameter("artifact");
+    if (group != null && artifact != null) {
+      return "maven=" + group + ":" + artifact;
+    } else {
+      return null;
+    }
   }
   
   private static void appendJarName(TypedQueryResult result, StringBuilder builder) {
@@ -98,11 +137,9 @@ public class ArtifactRepoBrowser extends HttpServlet {
         "</ul>");
   }
   
-  private void serveLibraryList(StringBuilder html) {
+  private void serveLibraryList(QueryExecutor exec, StringBuilder html) {
     html.append("<p><a href=\"./\">main</a></p>");
 
-    QueryExecutor exec = db.get().getExecutor();
-    
     try (SelectQuery query = exec.createSelectQuery(ComponentsTable.TABLE)) {
       query.addSelect(ComponentsTable.COMPONENT_ID);
       query.andWhere(ComponentsTable.TYPE.compareEquals(Component.LIBRARY));
@@ -117,77 +154,63 @@ public class ArtifactRepoBrowser extends HttpServlet {
     }
   }
   
-  private void serveLibrary(Integer libraryID, StringBuilder html) {
+  private void serveLibrary(QueryExecutor exec, Integer libraryID, StringBuilder html) {
     html.append("<p><a href=\"./\">main</a>/<a href=\"./libraries\">libraries</a></p>");
     
-    QueryExecutor exec = db.get().getExecutor();
-    
     html.append("<h3>Library ").append(libraryID).append("</h3>");
     
-    // Library Versions
-    try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TABLE);
-         SelectQuery inner = exec.createSelectQuery(ComponentRelationsTable.SOURCE_ID.compareEquals(ProjectsTable.PROJECT_ID))) {
-      query.addSelect(ComponentRelationsTable.TARGET_ID);
-      query.andWhere(ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.LIBRARY_CONTAINS_LIBRARY_VERSION), ComponentRelationsTable.SOURCE_ID.compareEquals(libraryID));
-      query.orderBy(ComponentRelationsTable.TARGET_ID, true);
-      
-      inner.addSelect(ProjectsTable.PROJECT_ID, ProjectsTable.NAME, ProjectsTable.GROUP, ProjectsTable.VERSION);
-      ConstantCondition<Integer> innerCond = ComponentRelationsTable.TARGET_ID.compareEquals();
-      inner.andWhere(innerCond.and(ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.JAR_MATCHES_LIBRARY_VERSION)));
-      
-      int libraryVersionCount = 0;
-      StringBuilder temp = new StringBuilder();
-      TypedQueryResult result = query.select();
-      while (result.next()) {
-        Integer libraryVersionID = result.getResult(ComponentRelationsTable.TARGET_ID);
-        temp.append("<li>");
-        temp.append("<a href=\"./libraries?libraryVersionID=").append(libraryVersionID).append("\">Library Version ").append(libraryVersionID).append("</a>");
+    { // Library versions, and the jars matching each
+      Map<Integer, StringBuilder> versionJars = new LinkedHashMap<>();
+      try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TABLE)) {
+        query.addSelect(ComponentRelationsTable.TARGET_ID);
+        query.andWhere(ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.LIBRARY_CONTAINS_LIBRARY_VERSION), ComponentRelationsTable.SOURCE_ID.compareEquals(libraryID));
+        query.orderBy(ComponentRelationsTable.TARGET_ID, true);
         
-        temp.append("<ul>");
-        innerCond.setValue(libraryVersionID);
-        TypedQueryResult innerResult = inner.select();
-        while (innerResult.next()) {
-          Integer jarID = innerResult.getResult(ProjectsTable.PROJECT_ID);
-          temp.append("<li><a href=\"./jars?jarID=").append(jarID).append("\">");
-          appendJarName(innerResult, temp);
-          temp.append("</a></li>");
+        TypedQueryResult result = query.select();
+        while (result.next()) {
+          versionJars.put(result.getResult(ComponentRelationsTable.TARGET_ID), new StringBuilder());
+        }
+      }
+      
+      // Fetch the jars for every library version at once
+      StringBuilder jars = new StringBuilder();
+      int jarCount = 0;
+      if (!versionJars.isEmpty()) {
+        try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.SOURCE_ID.compareEquals(ProjectsTable.PROJECT_ID))) {
+          query.addSelect(ComponentRelationsTable.TARGET_ID, ProjectsTable.PROJECT_ID, ProjectsTable.NAME, ProjectsTable.GROUP, ProjectsTable.VERSION);
+          query.andWhere(ComponentRelationsTable.TARGET_ID.compareIn(versionJars.keySet()), ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.JAR_MATCHES_LIBRARY_VERSION));
+          query.orderBy(ProjectsTable.GROUP, true);
+          query.orderBy(ProjectsTable.NAME, true);
+          query.orderBy(ProjectsTable.VERSION, true);
+          
+          TypedQueryResult result = query.select();
+          while (result.next()) {
+            Integer jarID = result.getResult(ProjectsTable.PROJECT_ID);
+            StringBuilder temp = new StringBuilder();
+            temp.append("<li><a href=\"./jars?jarID=").append(jarID).append("\">");
+            appendJarName(result, temp);
+            temp.append("</a></li>");
+            versionJars.get(result.getResult(ComponentRelationsTable.TARGET_ID)).append(temp);
+            jars.append(temp);
+            jarCount++;
+          }
         }
-        temp.append("</ul></li>");
-        libraryVersionCount++;
       }
       
-      html.append("<h4>").append(libraryVersionCount).append(" Library Versions</h4>");
+      html.append("<h4>").append(versionJars.size()).append(" Library Versions</h4>");
       html.append("<ul>");
-      html.append(temp.toString());
+      for (Map.Entry<Integer, StringBuilder> entry : versionJars.entrySet()) {
+        Integer libraryVersionID = entry.getKey();
+        html.append("<li>");
+        html.append("<a href=\"./libraries?libraryVersionID=").append(libraryVersionID).append("\">Library Version ").append(libraryVersionID).append("</a>");
+        html.append("<ul>").append(entry.getValue()).append("</ul></li>");
+      }
       html.append("</ul>");
-    }
-    
-    { // Jars
-      QualifiedTable l2lv = ComponentRelationsTable.TABLE.qualify("a");
-      QualifiedTable j2lv = ComponentRelationsTable.TABLE.qualify("b");
       
-      try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TARGET_ID.qualify(l2lv).compareEquals(ComponentRelationsTable.TARGET_ID.qualify(j2lv)), ComponentRelationsTable.SOURCE_ID.qualify(j2lv).compareEquals(ProjectsTable.PROJECT_ID))) {
-        query.addSelect(ProjectsTable.NAME, ProjectsTable.GROUP, ProjectsTable.VERSION, ProjectsTable.PROJECT_ID);
-        query.andWhere(ComponentRelationsTable.SOURCE_ID.qualify(l2lv).compareEquals(libraryID), ComponentRelationsTable.TYPE.qualify(l2lv).compareEquals(ComponentRelation.LIBRARY_CONTAINS_LIBRARY_VERSION), ComponentRelationsTable.TYPE.qualify(j2lv).compareEquals(ComponentRelation.JAR_MATCHES_LIBRARY_VERSION));
-        query.orderBy(ProjectsTable.GROUP, true);
-        query.orderBy(ProjectsTable.NAME, true);
-        query.orderBy(ProjectsTable.VERSION, true);
-        
-        StringBuilder temp = new StringBuilder();
-        Integer jarCount = 0;
-        TypedQueryResult result = query.select();
-        while (result.next()) {
-          Integer jarID = result.getResult(ProjectsTable.PROJECT_ID);
-          temp.append("<li><a href=\"./jars?jarID=").append(jarID).append("\">");
-          appendJarName(result, temp);
-          temp.append("</a></li>");
-          jarCount++;
-        }
-        html.append("<h4>").append(jarCount).append(" Jars</h4>");
-        html.append("<ul>");
-        html.append(temp.toString());
-        html.append("</ul>");
-      }
+      html.append("<h4>").append(jarCount).append(" Jars</h4>");
+      html.append("<ul>");
+      html.append(jars);
+      html.append("</ul>");
     }
  
     // Contained by Libraries
@@ -259,9 +282,7 @@ public class ArtifactRepoBrowser extends HttpServlet {
     }
   }
   
-  private void serveLibraryVersion(Integer libraryVersionID, StringBuilder html) {
-    QueryExecutor exec = db.get().getExecutor();
-    
+  private void serveLibraryVersion(QueryExecutor exec, Integer libraryVersionID, StringBuilder html) {
     try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TABLE)) {
       query.addSelect(ComponentRelationsTable.SOURCE_ID);
       query.andWhere(ComponentRelationsTable.TARGET_ID.compareEquals(libraryVersionID), ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.LIBRARY_CONTAINS_LIBRARY_VERSION));
@@ -394,10 +415,8 @@ public class ArtifactRepoBrowser extends HttpServlet {
     }
   }
   
-  private void serveClusterList(StringBuilder html) {
+  private void serveClusterList(QueryExecutor exec, StringBuilder html) {
     html.append("<p><a href=\"./\">main</a></p>");
-    QueryExecutor exec = db.get().getExecutor();
-    
     try (SelectQuery query = exec.createSelectQuery(ComponentsTable.TABLE)) {
       query.addSelect(ComponentsTable.COMPONENT_ID);
       query.andWhere(ComponentsTable.TYPE.compareEquals(Component.CLUSTER));
@@ -411,11 +430,9 @@ public class ArtifactRepoBrowser extends HttpServlet {
     }
   }
   
-  private void serveCluster(Integer clusterID, StringBuilder html) {
+  private void serveCluster(QueryExecutor exec, Integer clusterID, StringBuilder html) {
     html.append("<p><a href=\"./\">main</a>/<a href=\"./clusters\">clusters</a></p>");
     
-    QueryExecutor exec = db.get().getExecutor();
-    
     html.append("<h3>Cluster ").append(clusterID).append("</h3>");
 
     { // Jars
@@ -539,9 +556,7 @@ public class ArtifactRepoBrowser extends HttpServlet {
     }
   }
   
-  private void serveClusterVersion(Integer clusterVersionID, StringBuilder html) {
-    QueryExecutor exec = db.get().getExecutor();
-    
+  private void serveClusterVersion(QueryExecutor exec, Integer clusterVersionID, StringBuilder html) {
     try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.TABLE)) {
       query.addSelect(ComponentRelationsTable.SOURCE_ID);
       query.andWhere(ComponentRelationsTable.TARGET_ID.compareEquals(clusterVersionID), ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.CLUSTER_CONTAINS_CLUSTER_VERSION));
@@ -613,10 +628,8 @@ public class ArtifactRepoBrowser extends HttpServlet {
     }
   }
   
-  private void serveJarList(StringBuilder html) {
+  private void serveJarList(QueryExecutor exec, StringBuilder html) {
     html.append("<p><a href=\"./\">main</a></p>");
-    QueryExecutor exec = db.get().getExecutor();
-    
     try (SelectQuery query = exec.createSelectQuery(ProjectsTable.TABLE)) {
       query.addSelect(ProjectsTable.PROJECT_ID, ProjectsTable.GROUP, ProjectsTable.VERSION, ProjectsTable.NAME);
       query.andWhere(ProjectsTable.PROJECT_TYPE.compareIn(EnumSet.of(Project.JAR, Project.MAVEN)));
@@ -636,10 +649,8 @@ public class ArtifactRepoBrowser extends HttpServlet {
     }
   }
   
-  private void serveJar(Integer jarID, StringBuilder html) {
+  private void serveJar(QueryExecutor exec, Integer jarID, StringBuilder html) {
     html.append("<p><a href=\"./\">main</a>/<a href=\"./jars\">jars</a></p>");
-    QueryExecutor exec = db.get().getExecutor();
-    
     try (SelectQuery query = exec.createSelectQuery(ProjectsTable.TABLE)) {
       query.addSelect(ProjectsTable.NAME, ProjectsTable.GROUP, ProjectsTable.VERSION);
       query.andWhere(ProjectsTable.PROJECT_ID.compareEquals(jarID));
@@ -712,11 +723,9 @@ public class ArtifactRepoBrowser extends HttpServlet {
     }
   }
   
-  private void serveFqnList(StringBuilder html) {
+  private void serveFqnList(QueryExecutor exec, StringBuilder html) {
     html.append("<p><a href=\"./\">main</a></p>");
     
-    QueryExecutor exec = db.get().getExecutor();
-    
     try (SelectQuery query = exec.createSelectQuery(TypesTable.TABLE)) {
       query.addSelect(TypesTable.TYPE_ID, TypesTable.FQN);
       query.orderBy(TypesTable.FQN, true);
@@ -732,11 +741,9 @@ public class ArtifactRepoBrowser extends HttpServlet {
     }
   }
   
-  private void serveFqn(Integer fqnID, StringBuilder html) {
+  private void serveFqn(QueryExecutor exec, Integer fqnID, StringBuilder html) {
     html.append("<p><a href=\"./\">main</a>/<a href=\"./fqns\">fqns</a></p>");
     
-    QueryExecutor exec = db.get().getExecutor();
-    
     try (SelectQuery query = exec.createSelectQuery(TypesTable.TABLE)) {
       query.addSelect(TypesTable.FQN);
       query.andWhere(TypesTable.TYPE_ID.compareEquals(fqnID));
@@ -748,54 +755,67 @@ public class ArtifactRepoBrowser extends HttpServlet {
       QualifiedTable lv2tv = ComponentRelationsTable.TABLE.qualify("a");
       QualifiedTable l2lv = ComponentRelationsTable.TABLE.qualify("b");
       
-      try (SelectQuery query = exec.createSelectQuery(TypeVersionsTable.TYPE_VERSION_ID.compareEquals(ComponentRelationsTable.TARGET_ID.qualify(lv2tv)), ComponentRelationsTable.SOURCE_ID.qualify(lv2tv).compareEquals(ComponentRelationsTable.TARGET_ID.qualify(l2lv)));
-           SelectQuery inner = exec.createSelectQuery(ComponentRelationsTable.SOURCE_ID.compareEquals(ProjectsTable.PROJECT_ID))) {
+      List<Integer> libraryIDs = new ArrayList<>();
+      Map<Integer, StringBuilder> versionJars = new LinkedHashMap<>();
+      try (SelectQuery query = exec.createSelectQuery(TypeVersionsTable.TYPE_VERSION_ID.compareEquals(ComponentRelationsTable.TARGET_ID.qualify(lv2tv)), ComponentRelationsTable.SOURCE_ID.qualify(lv2tv).compareEquals(ComponentRelationsTable.TARGET_ID.qualify(l2lv)))) {
         query.addSelect(ComponentRelationsTable.SOURCE_ID.qualify(l2lv), ComponentRelationsTable.TARGET_ID.qualify(l2lv));
         query.andWhere(TypeVersionsTable.TYPE_ID.compareEquals(fqnID), ComponentRelationsTable.TYPE.qualify(lv2tv).compareEquals(ComponentRelation.LIBRARY_VERSION_CONTAINS_TYPE_VERSION), ComponentRelationsTable.TYPE.qualify(l2lv).compareEquals(ComponentRelation.LIBRARY_CONTAINS_LIBRARY_VERSION));
         query.orderBy(ComponentRelationsTable.TARGET_ID.qualify(l2lv), true);
         
-        inner.addSelect(ProjectsTable.PROJECT_ID, ProjectsTable.GROUP, ProjectsTable.VERSION, ProjectsTable.NAME);
-        ConstantCondition<Integer> innerCond = ComponentRelationsTable.TARGET_ID.compareEquals();
-        inner.andWhere(innerCond.and(ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.JAR_MATCHES_LIBRARY_VERSION)));
-        inner.orderBy(ProjectsTable.GROUP, true);
-        inner.orderBy(ProjectsTable.NAME, true);
-        inner.orderBy(ProjectsTable.VERSION, true);
-
-        int libraryCount = 0;
-        Integer lastLibrary = null;
-        StringBuilder temp = new StringBuilder();
         TypedQueryResult result = query.select();
         while (result.next()) {
-          Integer libraryID = result.getResult(ComponentRelationsTable.SOURCE_ID.qualify(l2lv));
           Integer libraryVersionID = result.getResult(ComponentRelationsTable.TARGET_ID.qualify(l2lv));
-          if (lastLibrary == null || !lastLibrary.equals(libraryID)) {
-            if (lastLibrary != null) {
-              temp.append("</ul></li>");
-            }
-            temp.append("<li><a href=\"./libraries?libraryID=").append(libraryID).append("\">").append("Library ").append(libraryID).append("</a><ul>");
-            lastLibrary = libraryID;
-            libraryCount++;
+          if (!versionJars.containsKey(libraryVersionID)) {
+            libraryIDs.add(result.getResult(ComponentRelationsTable.SOURCE_ID.qualify(l2lv)));
+            versionJars.put(libraryVersionID, new StringBuilder());
           }
-          temp.append("<li><a href=\"./libraries?libraryVersionID=").append(libraryVersionID).append("\">").append("Library Version ").append(libraryID).append(".").append(libraryVersionID).append("</a>");
-
-          innerCond.setValue(libraryVersionID);
-          TypedQueryResult innerResult = inner.select();
-          temp.append("<ul>");
-          while (innerResult.next()) {
-            Integer jarID = innerResult.getResult(ProjectsTable.PROJECT_ID);
+        }
+      }
+      
+      // Fetch the jars for every library version at once
+      if (!versionJars.isEmpty()) {
+        try (SelectQuery query = exec.createSelectQuery(ComponentRelationsTable.SOURCE_ID.compareEquals(ProjectsTable.PROJECT_ID))) {
+          query.addSelect(ComponentRelationsTable.TARGET_ID, ProjectsTable.PROJECT_ID, ProjectsTable.GROUP, ProjectsTable.VERSION, ProjectsTable.NAME);
+          query.andWhere(ComponentRelationsTable.TARGET_ID.compareIn(versionJars.keySet()), ComponentRelationsTable.TYPE.compareEquals(ComponentRelation.JAR_MATCHES_LIBRARY_VERSION));
+          query.orderBy(ProjectsTable.GROUP, true);
+          query.orderBy(ProjectsTable.NAME, true);
+          query.orderBy(ProjectsTable.VERSION, true);
+          
+          TypedQueryResult result = query.select();
+          while (result.next()) {
+            StringBuilder temp = versionJars.get(result.getResult(ComponentRelationsTable.TARGET_ID));
+            Integer jarID = result.getResult(ProjectsTable.PROJECT_ID);
             temp.append("<li><a href=\"./jars?jarID=").append(jarID).append("\">");
-            appendJarName(innerResult, temp);
+            appendJarName(result, temp);
             temp.append("</a></li>");
           }
-          temp.append("</ul>");
         }
-        if (lastLibrary != null) {
-          temp.append("</ul></li>");
+      }
+
+      int libraryCount = 0;
+      Integer lastLibrary = null;
+      StringBuilder temp = new StringBuilder();
+      Iterator<Integer> libraries = libraryIDs.iterator();
+      for (Map.Entry<Integer, StringBuilder> entry : versionJars.entrySet()) {
+        Integer libraryID = libraries.next();
+        Integer libraryVersionID = entry.getKey();
+        if (lastLibrary == null || !lastLibrary.equals(libraryID)) {
+          if (lastLibrary != null) {
+            temp.append("</ul></li>");
+          }
+          temp.append("<li><a href=\"./libraries?libraryID=").append(libraryID).append("\">").append("Library ").append(libraryID).append("</a><ul>");
+          lastLibrary = libraryID;
+          libraryCount++;
         }
-        temp.append("</ul>");
-        html.append("<h4>" + libraryCount + " Libraries</h4>");
-        html.append(temp.toString()); 
+        temp.append("<li><a href=\"./libraries?libraryVersionID=").append(libraryVersionID).append("\">").append("Library Version ").append(libraryID).append(".").append(libraryVersionID).append("</a>");
+        temp.append("<ul>").append(entry.getValue()).append("</ul>");
+      }
+      if (lastLibrary != null) {
+        temp.append("</ul></li>");
       }
+      temp.append("</ul>");
+      html.append("<h4>" + libraryCount + " Libraries</h4>");
+      html.append(temp.toString()); 
     }
 
     // Jars
@@ -861,9 +881,7 @@ public class ArtifactRepoBrowser extends HttpServlet {
     }
   }
   
-  private void serveFqnVersion(Integer fqnVersionID, StringBuilder html) {
-    QueryExecutor exec = db.get().getExecutor();
-    
+  private void serveFqnVersion(QueryExecutor exec, Integer fqnVersionID, StringBuilder html) {
     try (SelectQuery query = exec.createSelectQuery(TypeVersionsTable.TYPE_ID.compareEquals(TypesTable.TYPE_ID))) {
       query.addSelect(TypesTable.FQN, TypesTable.TYPE_ID);
       query.andWhere(TypeVersionsTable.TYPE_VERSION_ID.compareEquals(fqnVersionID));
@@ -949,11 +967,9 @@ public class ArtifactRepoBrowser extends HttpServlet {
     }
   }
   
-  private void serveMavenArtifactList(StringBuilder html) {
+  private void serveMavenArtifactList(QueryExecutor exec, StringBuilder html) {
     html.append("<p><a href=\"./\">main</a></p>");
 
-    QueryExecutor exec = db.get().getExecutor();
-    
     try (SelectQuery query = exec.createSelectQuery(ProjectsTable.TABLE)) {
       query.addSelect(ProjectsTable.GROUP, ProjectsTable.NAME);
       query.setDistinct(true);
@@ -972,11 +988,9 @@ public class ArtifactRepoBrowser extends HttpServlet {
     }
   }
   
-  private void serveMavenArtifact(String group, String artifact, StringBuilder html) {
+  private void serveMavenArtifact(QueryExecutor exec, String group, String artifact, StringBuilder html) {
     html.append("<p><a href=\"./\">main</a>/<a href=\"./maven\">maven</a></p>");
     
-    QueryExecutor exec = db.get().getExecutor();
-    
     html.append("<h3>").append(group).append(".").append(artifact).append("</h3>");
     
     {
@@ -1037,12 +1051,7 @@ public class ArtifactRepoBrowser extends HttpServlet {
     }
   }
   
-  @Override
-  public void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
-    StringBuilder html = new StringBuilder(
-        "<html>" +
-        "<head><title>Sourcerer Artifact Repository</title></head>" +
-        "<body>");
+  private void render(QueryExecutor exec, HttpServletRequest request, StringBuilder html) {
     switch (request.getPathInfo()) {
       case "/libraries":
         {
@@ -1050,13 +1059,13 @@ public class ArtifactRepoBrowser extends HttpServlet {
           if (libraryID == null) {
             Integer libraryVersionID = ServletUtils.getIntValue(request, "libraryVersionID");
             if (libraryVersionID == null) {
-              serveLibraryList(html);
+              serveLibraryList(exec, html);
             } else {
-              serveLibraryVersion(libraryVersionID, html);
+              serveLibraryVersion(exec, libraryVersionID, html);
             }
             
           } else {
-            serveLibrary(libraryID, html);
+            serveLibrary(exec, libraryID, html);
           }
         }
         break;
@@ -1066,13 +1075,13 @@ public class ArtifactRepoBrowser extends HttpServlet {
           if (clusterID == null) {
             Integer clusterVersionID = ServletUtils.getIntValue(request, "clusterVersionID");
             if (clusterVersionID == null) {
-              serveClusterList(html);
+              serveClusterList(exec, html);
             } else {
-              serveClusterVersion(clusterVersionID, html);
+              serveClusterVersion(exec, clusterVersionID, html);
             }
             
           } else {
-            serveCluster(clusterID, html);
+            serveCluster(exec, clusterID, html);
           }
         }
         break;
@@ -1080,9 +1089,9 @@ public class ArtifactRepoBrowser extends HttpServlet {
         {
           Integer jarID = ServletUtils.getIntValue(request, "jarID");
           if (jarID == null) {
-            serveJarList(html);
+            serveJarList(exec, html);
           } else {
-            serveJar(jarID, html);
+            serveJar(exec, jarID, html);
           }
         }
         break;
@@ -1092,12 +1101,12 @@ public class ArtifactRepoBrowser extends HttpServlet {
           if (fqnID == null) {
             Integer fqnVersionID = ServletUtils.getIntValue(request, "fqnVersionID");
             if (fqnVersionID == null) {
-              serveFqnList(html);
+              serveFqnList(exec, html);
             } else {
-              serveFqnVersion(fqnVersionID, html);
+              serveFqnVersion(exec, fqnVersionID, html);
             }
           } else {
-            serveFqn(fqnID, html);
+            serveFqn(exec, fqnID, html);
           }
         }
         break;
@@ -1106,16 +1115,49 @@ public class ArtifactRepoBrowser extends HttpServlet {
           String group = request.getParameter("group");
           String artifact = request.getParameter("artifact");
           if (group == null || artifact == null) {
-            serveMavenArtifactList(html);
+            serveMavenArtifactList(exec, html);
           } else {
-            serveMavenArtifact(group, artifact, html);
+            serveMavenArtifact(exec, group, artifact, html);
           }
         }
         break;
       default:
         serveMain(html);
     }
-    html.append("</body></html>");
-    ServletUtils.writeString(response, null, html.toString(), true);
+  }
+  
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+    try (ResourcePool.Lease<DatabaseConnection> lease = db.lease()) {
+      if (lease == null) {
+        ServletUtils.writeErrorMsg(response, "Unable to connect to the database");
+        return;
+      }
+      QueryExecutor exec = lease.get().getExecutor();
+      
+      StringBuilder html = new StringBuilder(
+          "<html>" +
+          "<head><title>Sourcerer Artifact Repository</title></head>" +
+          "<body>");
+      String key = getFragmentKey(request);
+      String version = null;
+      if (key != null) {
+        key = request.getPathInfo() + "?" + key;
+        version = fragments.checkVersion(exec);
+        String fragment = fragments.get(key);
+        if (fragment != null) {
+          html.append(fragment).append("</body></html>");
+          ServletUtils.writeString(response, null, html.toString(), true);
+          return;
+        }
+      }
+      int start = html.length();
+      render(exec, request, html);
+      if (key != null) {
+        fragments.put(key, html.substring(start), version);
+      }
+      html.append("</body></html>");
+      ServletUtils.writeString(response, null, html.toString(), true);
+    }
   }
 }
@@ -0,0 +1,103 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.apps.artifactbrowser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import edu.uci.ics.sourcerer.tools.java.db.schema.DatabaseVersionTable;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
+
+/**
+ * LRU cache of rendered page fragments, keyed by the component they
+ * describe. The whole cache is tied to the database version the
+ * importers bump, and is dropped when that version changes.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class FragmentCache {
+  public static final Argument<Integer> FRAGMENT_CACHE_SIZE = new IntegerArgument("fragment-cache-size", 1024, "Number of rendered pages to cache.");
+  public static final Argument<Integer> FRAGMENT_CACHE_VERSION_INTERVAL = new IntegerArgument("fragment-cache-version-interval", 60, "Seconds between checks of the database version.");
+  
+  private static final String VERSION_QUERY = "SELECT MAX(" + DatabaseVersionTable.VERSION.getName() + ") FROM " + DatabaseVersionTable.TABLE.toSql();
+  
+  private final Map<String, String> fragments;
+  private final long interval;
+  
+  private String version;
+  private long nextCheck;
+  
+  private FragmentCache(final int capacity, long interval) {
+    this.fragments = new LinkedHashMap<String, String>(16, .75f, true) {
+      private static final long serialVersionUID = 1L;
+      
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+        return size() > capacity;
+      }
+    };
+    this.interval = interval;
+  }
+  
+  static FragmentCache create() {
+    return new FragmentCache(FRAGMENT_CACHE_SIZE.getValue(), FRAGMENT_CACHE_VERSION_INTERVAL.getValue() * 1000l);
+  }
+  
+  /**
+   * Drops every cached fragment if the database version has changed
+   * since they were rendered. Only one request per interval consults
+   * the database, and it does so without holding the cache's lock.
+   * 
+   * @return the version to pass to {@link #put} for a fragment
+   * rendered after this call
+   */
+  String checkVersion(QueryExecutor exec) {
+    synchronized (this) {
+      long now = System.currentTimeMillis();
+      if (now < nextCheck) {
+        return version;
+      }
+      nextCheck = now + interval;
+    }
+    String current = exec.executeSingle(VERSION_QUERY);
+    synchronized (this) {
+      if (current == null || !current.equals(version)) {
+        fragments.clear();
+        version = current;
+      }
+      return current;
+    }
+  }
+  
+  synchronized String get(String key) {
+    return fragments.get(key);
+  }
+  
+  /**
+   * Caches the fragment unless the version changed while it was being
+   * rendered, in which case it may show data from before the change.
+   */
+  synchronized void put(String key, String fragment, String renderedVersion) {
+    if (Objects.equals(version, renderedVersion)) {
+      fragments.put(key, fragment);
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.apps.artifactbrowser;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.FileArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.util.io.metrics.LatencyHistogram;
+
+/**
+ * Load test for a running browser. Replays a log of page requests and
+ * reports the latency percentiles of each page type. The first pass runs
+ * against a cold fragment cache, so comparing it with later passes shows
+ * what the cache saves.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class PageReplayer {
+  public static final Argument<String> REPLAY_URL = new StringArgument("replay-url", "Base URL of the deployed browser, such as http://localhost:8080/artifact-repo-browser.");
+  public static final Argument<File> REPLAY_LOG = new FileArgument("replay-log", "File with one request per line, as path and query string, such as /libraries?libraryID=12.");
+  public static final Argument<Integer> REPLAY_PASSES = new IntegerArgument("replay-passes", 2, "Number of times the log is replayed.");
+  public static final Argument<Integer> REPLAY_THREADS = new IntegerArgument("replay-threads", 4, "Number of concurrent clients.");
+  
+  private PageReplayer() {}
+  
+  public static void replay() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    
+    List<String> requests = new ArrayList<>();
+    try (BufferedReader reader = IOUtils.createBufferedReader(REPLAY_LOG.getValue())) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        line = line.trim();
+        if (!line.isEmpty()) {
+          requests.add(line);
+        }
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to read request log", e);
+      return;
+    }
+    
+    String base = REPLAY_URL.getValue();
+    int passes = REPLAY_PASSES.getValue();
+    int threadCount = REPLAY_THREADS.getValue();
+    
+    task.start("Replaying " + requests.size() + " requests " + passes + " times");
+    for (int pass = 1; pass <= passes; pass++) {
+      task.start("Pass " + pass);
+      Map<String, LatencyHistogram> histograms = new TreeMap<>();
+      for (String request : requests) {
+        String page = getPage(request);
+        if (!histograms.containsKey(page)) {
+          histograms.put(page, LatencyHistogram.create(page));
+        }
+      }
+      LatencyHistogram total = LatencyHistogram.create("total");
+      
+      AtomicInteger next = new AtomicInteger();
+      AtomicInteger failures = new AtomicInteger();
+      List<Thread> threads = new ArrayList<>(threadCount);
+      for (int i = 0; i < threadCount; i++) {
+        Thread thread = new Thread(new Client(base, requests, next, failures, histograms, total));
+        thread.start();
+        threads.add(thread);
+      }
+      for (Thread thread : threads) {
+        try {
+          thread.join();
+        } catch (InterruptedException e) {
+          logger.log(Level.SEVERE, "Interrupted while replaying", e);
+        }
+      }
+      
+      for (LatencyHistogram histogram : histograms.values()) {
+        report(task, histogram);
+      }
+      report(task, total);
+      if (failures.get() > 0) {
+        task.report(failures.get() + " requests failed");
+      }
+      task.finish();
+    }
+    task.finish();
+  }
+  
+  private static String getPage(String request) {
+    int query = request.indexOf('?');
+    return query == -1 ? request : request.substring(0, query);
+  }
+  
+  private static void report(TaskProgressLogger task, LatencyHistogram histogram) {
+    task.report(String.format("%s: p50 %.3fms, p99 %.3fms, mean %.3fms, max %.3fms over %d requests",
+        histogram.getName(),
+        histogram.getPercentile(.5) / 1e6,
+        histogram.getPercentile(.99) / 1e6,
+        histogram.getMean() / 1e6,
+        histogram.getMax() / 1e6,
+        histogram.getCount()));
+  }
+  
+  private static class Client implements Runnable {
+    private final String base;
+    private final List<String> requests;
+    private final AtomicInteger next;
+    private final AtomicInteger failures;
+    private final Map<String, LatencyHistogram> histograms;
+    private final LatencyHistogram total;
+    
+    private Client(String base, List<String> requests, AtomicInteger next, AtomicInteger failures, Map<String, LatencyHistogram> histograms, LatencyHistogram total) {
+      this.base = base;
+      this.requests = requests;
+      this.next = next;
+      this.failures = failures;
+      this.histograms = histograms;
+      this.total = total;
+    }
+    
+    @Override
+    public void run() {
+      byte[] buff = new byte[8192];
+      for (int i = next.getAndIncrement(); i < requests.size(); i = next.getAndIncrement()) {
+        String request = requests.get(i);
+        long start = System.nanoTime();
+        try (InputStream in = new URL(base + request).openStream()) {
+          while (in.read(buff) != -1) {
+            // Read the whole page, as a browser would
+          }
+        } catch (IOException e) {
+          logger.log(Level.WARNING, "Request failed: " + request, e);
+          failures.incrementAndGet();
+          continue;
+        }
+        histograms.get(getPage(request)).recordSince(start);
+        total.recordSince(start);
+      }
+    }
+  }
+}
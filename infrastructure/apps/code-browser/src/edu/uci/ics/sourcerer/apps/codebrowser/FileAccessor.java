@@ -48,7 +48,7 @@ import edu.uci.ics.sourcerer.tools.java.repo.model.JavaFileSet;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaProject;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepository;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
-import edu.uci.ics.sourcerer.util.TimeoutManager;
+import edu.uci.ics.sourcerer.util.ResourcePool;
 import edu.uci.ics.sourcerer.util.io.FileUtils;
 import edu.uci.ics.sourcerer.util.io.IOUtils;
 import edu.uci.ics.sourcerer.utils.db.DatabaseConnection;
@@ -62,8 +62,8 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class FileAccessor {
-  private static TimeoutManager<FileDatabaseAccessor> accessorManager = 
-      new TimeoutManager<FileDatabaseAccessor>(new TimeoutManager.Instantiator<FileDatabaseAccessor>() {
+  private static ResourcePool<FileDatabaseAccessor> accessors = 
+      ResourcePool.create("code_browser.accessors", new ResourcePool.Instantiator<FileDatabaseAccessor>() {
         @Override
         public FileDatabaseAccessor create() {
           return new FileDatabaseAccessor();
@@ -203,22 +203,24 @@ public class FileAccessor {
   }
   
   public static Result lookupResultByProjectID(Integer projectID) {
-    FileDatabaseAccessor db = accessorManager.get();
+    try (ResourcePool.Lease<FileDatabaseAccessor> lease = accessors.lease()) {
+      FileDatabaseAccessor db = lease.get();
 
-    TypedQueryResult result = db.selectByProjectID(projectID);
-    if (result.next()) {
-      Project type = result.getResult(ProjectsTable.PROJECT_TYPE);
-      if (type == Project.SYSTEM) {
-        return new Result(projectID + " is a SYSTEM project");
-      } else if (type == Project.JAR || type == Project.MAVEN || type == Project.JAVA_LIBRARY) {
-        return getJarFile(projectID, null, result.getResult(ProjectsTable.HASH));
-      } else if (type == Project.CRAWLED) {
-        return new Result("Crawled projects not supported: " + projectID);
+      TypedQueryResult result = db.selectByProjectID(projectID);
+      if (result.next()) {
+        Project type = result.getResult(ProjectsTable.PROJECT_TYPE);
+        if (type == Project.SYSTEM) {
+          return new Result(projectID + " is a SYSTEM project");
+        } else if (type == Project.JAR || type == Project.MAVEN || type == Project.JAVA_LIBRARY) {
+          return getJarFile(projectID, null, result.getResult(ProjectsTable.HASH));
+        } else if (type == Project.CRAWLED) {
+          return new Result("Crawled projects not supported: " + projectID);
+        } else {
+          return new Result("Unknown project type: " + type + " for " + projectID);
+        }
       } else {
-        return new Result("Unknown project type: " + type + " for " + projectID);
+        return new Result("Unable to find project: " + projectID);
       }
-    } else {
-      return new Result("Unable to find project: " + projectID);
     }
   }
   
@@ -227,20 +229,22 @@ public class FileAccessor {
   }
   
   public static Result lookupResultByFileID(Integer fileID) { 
-    FileDatabaseAccessor db = accessorManager.get();
-    
-    TypedQueryResult result = db.selectByFileID(fileID);
-    if (result.next()) {
-      File type = result.getResult(FilesTable.FILE_TYPE);
-      if (type == File.JAR) {
-        return getJarFile(null, fileID, result.getResult(FilesTable.HASH));
-      } else if (type == File.SOURCE) {
-        return getSourceFile(db, result.getResult(FilesTable.PROJECT_ID), fileID, result.getResult(FilesTable.PATH), null, null);
+    try (ResourcePool.Lease<FileDatabaseAccessor> lease = accessors.lease()) {
+      FileDatabaseAccessor db = lease.get();
+    
+      TypedQueryResult result = db.selectByFileID(fileID);
+      if (result.next()) {
+        File type = result.getResult(FilesTable.FILE_TYPE);
+        if (type == File.JAR) {
+          return getJarFile(null, fileID, result.getResult(FilesTable.HASH));
+        } else if (type == File.SOURCE) {
+          return getSourceFile(db, result.getResult(FilesTable.PROJECT_ID), fileID, result.getResult(FilesTable.PATH), null, null);
+        } else {
+          return new Result("file " + fileID + " is a class file with no corresponding source");
+        }
       } else {
-        return new Result("file " + fileID + " is a class file with no corresponding source");
+        return new Result("Unable to find file: " + fileID);
       }
-    } else {
-      return new Result("Unable to find file: " + fileID);
     }
   }
   
@@ -249,19 +253,21 @@ public class FileAccessor {
   }
   
   public static Result lookupResultByEntityID(Integer entityID) {
-    FileDatabaseAccessor db = accessorManager.get();
-    
-    TypedQueryResult result = db.selectByEntityID(entityID);
-    if (result.next()) {
-      Integer fileID = result.getResult(EntitiesTable.FILE_ID);
-      if (fileID == null) {
-        return new Result("Entity " + entityID + " has no associated file"); 
+    try (ResourcePool.Lease<FileDatabaseAccessor> lease = accessors.lease()) {
+      FileDatabaseAccessor db = lease.get();
+    
+      TypedQueryResult result = db.selectByEntityID(entityID);
+      if (result.next()) {
+        Integer fileID = result.getResult(EntitiesTable.FILE_ID);
+        if (fileID == null) {
+          return new Result("Entity " + entityID + " has no associated file"); 
+        } else {
+          TypedQueryResult fileInfo = db.selectByFileID(fileID);
+          return getSourceFile(db, result.getResult(EntitiesTable.PROJECT_ID), fileID, fileInfo.getResult(FilesTable.PATH), result.getResult(EntitiesTable.OFFSET), result.getResult(EntitiesTable.LENGTH));
+        }
       } else {
-        TypedQueryResult fileInfo = db.selectByFileID(fileID);
-        return getSourceFile(db, result.getResult(EntitiesTable.PROJECT_ID), fileID, fileInfo.getResult(FilesTable.PATH), result.getResult(EntitiesTable.OFFSET), result.getResult(EntitiesTable.LENGTH));
+        return new Result("Entity " + entityID + " does not exist");
       }
-    } else {
-      return new Result("Entity " + entityID + " does not exist");
     }
   }
   
@@ -270,19 +276,21 @@ public class FileAccessor {
   }
   
   public static Result lookupResultByRelationID(Integer relationID) {
-    FileDatabaseAccessor db = accessorManager.get();
-    
-    TypedQueryResult result = db.selectByRelationID(relationID);
-    if (result.next()) {
-      Integer fileID = result.getResult(RelationsTable.FILE_ID);
-      if (fileID == null) {
-        return new Result("Relation " + relationID + " has no associated file"); 
+    try (ResourcePool.Lease<FileDatabaseAccessor> lease = accessors.lease()) {
+      FileDatabaseAccessor db = lease.get();
+    
+      TypedQueryResult result = db.selectByRelationID(relationID);
+      if (result.next()) {
+        Integer fileID = result.getResult(RelationsTable.FILE_ID);
+        if (fileID == null) {
+          return new Result("Relation " + relationID + " has no associated file"); 
+        } else {
+          TypedQueryResult fileInfo = db.selectByFileID(fileID);
+          return getSourceFile(db, result.getResult(RelationsTable.PROJECT_ID), fileID, fileInfo.getResult(FilesTable.PATH), result.getResult(RelationsTable.OFFSET), result.getResult(RelationsTable.LENGTH));
+        }
       } else {
-        TypedQueryResult fileInfo = db.selectByFileID(fileID);
-        return getSourceFile(db, result.getResult(RelationsTable.PROJECT_ID), fileID, fileInfo.getResult(FilesTable.PATH), result.getResult(RelationsTable.OFFSET), result.getResult(RelationsTable.LENGTH));
+        return new Result("Relation " + relationID + " does not exist");
       }
-    } else {
-      return new Result("Relation " + relationID + " does not exist");
     }
   }
   
@@ -291,19 +299,21 @@ public class FileAccessor {
   }
   
   public static Result lookupResultByCommentID(Integer commentID) {
-    FileDatabaseAccessor db = accessorManager.get();
-    
-    TypedQueryResult result = db.selectByCommentID(commentID);
-    if (result.next()) {
-      Integer fileID = result.getResult(RelationsTable.FILE_ID);
-      if (fileID == null) {
-        return new Result("Comment " + commentID + " has no associated file"); 
+    try (ResourcePool.Lease<FileDatabaseAccessor> lease = accessors.lease()) {
+      FileDatabaseAccessor db = lease.get();
+    
+      TypedQueryResult result = db.selectByCommentID(commentID);
+      if (result.next()) {
+        Integer fileID = result.getResult(RelationsTable.FILE_ID);
+        if (fileID == null) {
+          return new Result("Comment " + commentID + " has no associated file"); 
+        } else {
+          TypedQueryResult fileInfo = db.selectByFileID(fileID);
+          return getSourceFile(db, result.getResult(CommentsTable.PROJECT_ID), fileID, fileInfo.getResult(FilesTable.PATH), result.getResult(CommentsTable.OFFSET), result.getResult(CommentsTable.LENGTH));
+        }
       } else {
-        TypedQueryResult fileInfo = db.selectByFileID(fileID);
-        return getSourceFile(db, result.getResult(CommentsTable.PROJECT_ID), fileID, fileInfo.getResult(FilesTable.PATH), result.getResult(CommentsTable.OFFSET), result.getResult(CommentsTable.LENGTH));
+        return new Result("Comment " + commentID + " does not exist");
       }
-    } else {
-      return new Result("Comment " + commentID + " does not exist");
     }
   }
   
@@ -390,36 +400,42 @@ public class FileAccessor {
   }
   
   public static Collection<Link> getImportsByFileID(Integer fileID) {
-    FileDatabaseAccessor db = accessorManager.get();
+    try (ResourcePool.Lease<FileDatabaseAccessor> lease = accessors.lease()) {
+      FileDatabaseAccessor db = lease.get();
     
-    ArrayList<Link> links = new ArrayList<>();
-    TypedQueryResult result = db.selectImportLinks(fileID);
-    while (result.next()) {
-      links.add(new Link(result.getResult(ImportsTable.EID), result.getResult(ImportsTable.OFFSET), result.getResult(ImportsTable.LENGTH)));
+      ArrayList<Link> links = new ArrayList<>();
+      TypedQueryResult result = db.selectImportLinks(fileID);
+      while (result.next()) {
+        links.add(new Link(result.getResult(ImportsTable.EID), result.getResult(ImportsTable.OFFSET), result.getResult(ImportsTable.LENGTH)));
+      }
+      return links;
     }
-    return links;
   }
   
   public static Collection<Link> getFieldsByFileID(Integer fileID) {
-    FileDatabaseAccessor db = accessorManager.get();
+    try (ResourcePool.Lease<FileDatabaseAccessor> lease = accessors.lease()) {
+      FileDatabaseAccessor db = lease.get();
     
-    ArrayList<Link> links = new ArrayList<>();
-    TypedQueryResult result = db.selectFields(fileID);
-    while (result.next()) {
-      links.add(new Link(result.getResult(EntitiesTable.OFFSET), result.getResult(EntitiesTable.LENGTH)));
+      ArrayList<Link> links = new ArrayList<>();
+      TypedQueryResult result = db.selectFields(fileID);
+      while (result.next()) {
+        links.add(new Link(result.getResult(EntitiesTable.OFFSET), result.getResult(EntitiesTable.LENGTH)));
+      }
+      return links;
     }
-    return links;
   }
   
   public static Collection<Link> getRelationLinksByFileID(Integer fileID) {
-    FileDatabaseAccessor db = accessorManager.get();
+    try (ResourcePool.Lease<FileDatabaseAccessor> lease = accessors.lease()) {
+      FileDatabaseAccessor db = lease.get();
     
-    ArrayList<Link> links = new ArrayList<>();
-    TypedQueryResult result = db.selectRelationLinks(fileID);
-    while (result.next()) {
-      links.add(new Link(result.getResult(EntitiesTable.ENTITY_ID), result.getResult(EntitiesTable.FQN), result.getResult(RelationsTable.OFFSET), result.getResult(RelationsTable.LENGTH), result.getResult(RelationsTable.RELATION_TYPE)));
+      ArrayList<Link> links = new ArrayList<>();
+      TypedQueryResult result = db.selectRelationLinks(fileID);
+      while (result.next()) {
+        links.add(new Link(result.getResult(EntitiesTable.ENTITY_ID), result.getResult(EntitiesTable.FQN), result.getResult(RelationsTable.OFFSET), result.getResult(RelationsTable.LENGTH), result.getResult(RelationsTable.RELATION_TYPE)));
+      }
+      return links;
     }
-    return links;
   }
 
   public static void testConsole() {
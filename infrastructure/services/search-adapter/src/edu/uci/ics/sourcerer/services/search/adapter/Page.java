@@ -0,0 +1,53 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.services.search.adapter;
+
+import java.util.List;
+
+/**
+ * One page of results for a query.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class Page {
+  private final List<SingleResult> results;
+  private final int numFound;
+  private final int queryTime;
+  
+  Page(List<SingleResult> results, int numFound, int queryTime) {
+    this.results = results;
+    this.numFound = numFound;
+    this.queryTime = queryTime;
+  }
+  
+  Page fromCache() {
+    return new Page(results, numFound, 0);
+  }
+  
+  List<SingleResult> getResults() {
+    return results;
+  }
+  
+  int getNumFound() {
+    return numFound;
+  }
+  
+  int getQueryTime() {
+    return queryTime;
+  }
+}
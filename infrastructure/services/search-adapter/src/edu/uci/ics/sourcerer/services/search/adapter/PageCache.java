@@ -0,0 +1,76 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.services.search.adapter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small LRU cache of recent result pages, each valid for a fixed time.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class PageCache {
+  private final Map<String, Entry> pages;
+  private final long ttl;
+  
+  PageCache(final int capacity, long ttl) {
+    this.pages = new LinkedHashMap<String, Entry>(16, .75f, true) {
+      private static final long serialVersionUID = 1L;
+      
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > capacity;
+      }
+    };
+    this.ttl = ttl;
+  }
+  
+  private static String getKey(String query, int start, int rows) {
+    return start + ":" + rows + ":" + query;
+  }
+  
+  synchronized Page get(String query, int start, int rows) {
+    String key = getKey(query, start, rows);
+    Entry entry = pages.get(key);
+    if (entry == null) {
+      return null;
+    } else if (entry.expires < System.currentTimeMillis()) {
+      pages.remove(key);
+      return null;
+    } else {
+      return entry.page;
+    }
+  }
+  
+  synchronized void put(String query, int start, int rows, Page page) {
+    if (ttl > 0) {
+      pages.put(getKey(query, start, rows), new Entry(page, System.currentTimeMillis() + ttl));
+    }
+  }
+  
+  private static class Entry {
+    private final Page page;
+    private final long expires;
+    
+    private Entry(Page page, long expires) {
+      this.page = page;
+      this.expires = expires;
+    }
+  }
+}
@@ -17,7 +17,27 @@
  */
 package edu.uci.ics.sourcerer.services.search.adapter;
 
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.BinaryResponseParser;
+import org.apache.solr.client.solrj.impl.HttpSolrServer;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
 import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
 
 
@@ -26,21 +46,115 @@ import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
  */
 public class SearchAdapter {
   public static final Argument<String> SEARCH_URL = new StringArgument("search-url", "URL for Sourcerer Solr Search Server");
-  private final String url;
+  public static final Argument<Integer> SEARCH_MAX_CONNECTIONS = new IntegerArgument("search-max-connections", 16, "Maximum number of pooled connections to the search server.");
+  public static final Argument<Integer> SEARCH_PAGE_CACHE_SIZE = new IntegerArgument("search-page-cache-size", 128, "Number of recent result pages to cache.");
+  public static final Argument<Integer> SEARCH_PAGE_CACHE_TTL = new IntegerArgument("search-page-cache-ttl", 300, "Seconds a cached result page remains valid.");
+  public static final Argument<Boolean> SEARCH_PREFETCH = new BooleanArgument("search-prefetch", true, "Fetch the next page of results in the background.");
+  
+  private final HttpSolrServer server;
+  private final PageCache cache;
+  private final ExecutorService prefetcher;
   
-  private SearchAdapter(String url) {
-    this.url = url;
+  private SearchAdapter(String url, int maxConnections, int cacheSize, int cacheTTL, boolean prefetch) {
+    server = new HttpSolrServer(url + "/solr");
+    server.setParser(new BinaryResponseParser());
+    server.setMaxTotalConnections(maxConnections);
+    server.setDefaultMaxConnectionsPerHost(maxConnections);
+    cache = new PageCache(cacheSize, cacheTTL * 1000l);
+    if (prefetch) {
+      prefetcher = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "search-prefetch");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    } else {
+      prefetcher = null;
+    }
   }
   
   public static SearchAdapter create() {
-    return new SearchAdapter(SEARCH_URL.getValue());
+    return new SearchAdapter(SEARCH_URL.getValue(), SEARCH_MAX_CONNECTIONS.getValue(), SEARCH_PAGE_CACHE_SIZE.getValue(), SEARCH_PAGE_CACHE_TTL.getValue(), SEARCH_PREFETCH.getValue());
   }
   
   public static SearchAdapter create(String url) {
-    return new SearchAdapter(url);
+    return new SearchAdapter(url, SEARCH_MAX_CONNECTIONS.getDefaultValue(), SEARCH_PAGE_CACHE_SIZE.getDefaultValue(), SEARCH_PAGE_CACHE_TTL.getDefaultValue(), SEARCH_PREFETCH.getDefaultValue());
   }
   
   public SearchResult search(String query) {
-    return new SearchResult(url, query);
+    return new SearchResult(this, query);
+  }
+  
+  public void shutdown() {
+    if (prefetcher != null) {
+      prefetcher.shutdownNow();
+    }
+    server.shutdown();
+  }
+  
+  boolean isPrefetching() {
+    return prefetcher != null;
+  }
+  
+  /**
+   * Returns the requested page, or <tt>null</tt> if the search failed.
+   */
+  Page fetch(String query, int start, int rows) {
+    Page page = cache.get(query, start, rows);
+    if (page == null) {
+      try {
+        page = query(query, start, rows);
+        cache.put(query, start, rows, page);
+      } catch (SolrServerException e) {
+        logger.log(Level.SEVERE, "Unable to perform search", e);
+      }
+      return page;
+    } else {
+      return page.fromCache();
+    }
+  }
+  
+  Future<Page> prefetch(final String query, final int start, final int rows) {
+    return prefetcher.submit(new Callable<Page>() {
+      @Override
+      public Page call() {
+        return fetch(query, start, rows);
+      }
+    });
+  }
+  
+  private Page query(String query, int start, int rows) throws SolrServerException {
+    SolrQuery solrQuery = new SolrQuery(query);
+    solrQuery.setStart(start);
+    solrQuery.setRows(rows);
+    solrQuery.setFields("*", "score");
+    QueryResponse response = server.query(solrQuery);
+    
+    SolrDocumentList docs = response.getResults();
+    ArrayList<SingleResult> results = new ArrayList<>(docs.size());
+    int rank = start;
+    for (SolrDocument doc : docs) {
+      SingleResult result = new SingleResult();
+      result.setRank(rank++);
+      Object value = doc.getFieldValue("score");
+      if (value != null) {
+        result.setScore(((Number) value).floatValue());
+      }
+      value = doc.getFieldValue("entity_id");
+      if (value != null) {
+        result.setEntityID(((Number) value).longValue());
+      }
+      value = doc.getFieldValue("param_count");
+      if (value != null) {
+        result.setParamCount(((Number) value).intValue());
+      }
+      result.setFqn((String) doc.getFieldValue("fqn"));
+      result.setParams((String) doc.getFieldValue("params"));
+      result.setReturnFqn((String) doc.getFieldValue("return_fqn"));
+      results.add(result);
+    }
+    return new Page(results, (int) docs.getNumFound(), response.getQTime());
   }
 }
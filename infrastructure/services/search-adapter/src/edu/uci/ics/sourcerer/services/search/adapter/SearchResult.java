@@ -19,71 +19,83 @@ package edu.uci.ics.sourcerer.services.search.adapter;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
-import java.io.InputStream;
-import java.net.URL;
-import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-
-import org.xml.sax.Attributes;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
-
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class SearchResult {
+  private final SearchAdapter adapter;
   private final String query;
-  private final String url;
-  private ArrayList<SingleResult> results;
+  private final ArrayList<SingleResult> results;
 
   private int lastQueryTime;
   private int numFound = -1;
   
-  private final SAXParser parser;
-  private final SaxHandler handler;
+  private int prefetchStart = -1;
+  private Future<Page> prefetch;
   
-  protected SearchResult(String url, String query) {
-    try {
-      this.query = URLEncoder.encode(query, "UTF-8");
-      this.url = url + "/solr/select/?q=%s&start=%d&rows=%d&fl=score";
-      SAXParserFactory fact = SAXParserFactory.newInstance();
-      parser = fact.newSAXParser();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-    handler = new SaxHandler();
+  protected SearchResult(SearchAdapter adapter, String query) {
+    this.adapter = adapter;
+    this.query = query;
+    this.results = new ArrayList<>();
   }
   
   /**
    * Returns up to the specified number of <tt>SingleResult</tt>s, starting
    * with the result specified.
+   * 
+   * If prefetching is enabled, the following page of the same size is
+   * requested in the background before returning.
    *
    * @param firstResult the index of the first result to return
    * @param numResults the number of results to return
    */
   public List<SingleResult> getResults(int firstResult, int numResults) {
     int lastExclusive = firstResult + numResults;
-    if (results == null) {
-      results = new ArrayList<>(lastExclusive);
+    lastQueryTime = 0;
+    while (numFound == -1 || results.size() < Math.min(lastExclusive, numFound)) {
+      Page page = nextPage(Math.max(lastExclusive - results.size(), 0));
+      if (page == null) {
+        break;
+      }
+      numFound = page.getNumFound();
+      lastQueryTime += page.getQueryTime();
+      results.addAll(page.getResults());
+      if (page.getResults().isEmpty()) {
+        break;
+      }
+    }
+    if (adapter.isPrefetching() && numResults > 0 && prefetch == null && results.size() < numFound) {
+      prefetchStart = results.size();
+      prefetch = adapter.prefetch(query, prefetchStart, numResults);
     }
-    if (results.size() < lastExclusive || numFound == -1) {
-      int numToFetch = lastExclusive - results.size(); 
-      try (InputStream ins = new URL(String.format(url, query, results.size(), numToFetch)).openStream()) {
-        handler.reset();
-        parser.parse(ins, handler);
-      } catch (Exception e) {
-        logger.log(Level.SEVERE, "Unable to perform search", e);
+    return Collections.unmodifiableList(new ArrayList<>(results.subList(Math.min(firstResult, results.size()), Math.min(lastExclusive, results.size()))));
+  }
+  
+  private Page nextPage(int rows) {
+    if (prefetch != null) {
+      Future<Page> pending = prefetch;
+      prefetch = null;
+      if (prefetchStart == results.size()) {
+        try {
+          Page page = pending.get();
+          if (page != null) {
+            return page;
+          }
+        } catch (InterruptedException | ExecutionException e) {
+          logger.log(Level.SEVERE, "Unable to prefetch results", e);
+        }
+      } else {
+        pending.cancel(true);
       }
-    } else {
-      lastQueryTime = 0;
     }
-    return Collections.unmodifiableList(new ArrayList<>(results.subList(firstResult, lastExclusive > results.size() ? results.size() : lastExclusive)));
+    return adapter.fetch(query, results.size(), rows);
   }
   
   public long getLastQueryTime() {
@@ -96,140 +108,4 @@ public class SearchResult {
     }
     return numFound;
   }
-  
-  private static enum State {
-    START,
-    QUERY_TIME,
-    RESULT,
-    DOC,
-    DOC_SCORE,
-    DOC_ENTITY_ID,
-    DOC_FQN,
-    DOC_PARAMS,
-    DOC_PARAM_COUNT,
-    DOC_RETURN_FQN,
-    DONE,
-    ;
-  }
-  
-  private class SaxHandler extends DefaultHandler {
-    private State state = State.START;
-    private SingleResult result = null;
-
-    public void reset() {
-      state = State.START;
-      result = null;
-    }
-    
-    @Override
-    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
-      switch (state) {
-        case START:
-        {
-          String name = attributes.getValue("name");
-          if ("int".equals(qName) && "QTime".equals(name)) {
-            state = State.QUERY_TIME;
-          } else if ("result".equals(qName) && "response".equals(name)) {
-            state = State.RESULT;
-            numFound = Integer.valueOf(attributes.getValue("numFound"));
-          }
-        }
-        break;
-        case RESULT:
-        {
-          if ("doc".equals(qName)) {
-            state = State.DOC;
-            result = new SingleResult();
-          }
-        }
-        break;
-        case DOC:
-        {
-          String name = attributes.getValue("name");
-          if ("long".equals(qName) && "entity_id".equals(name)) {
-            state = State.DOC_ENTITY_ID;
-          } else if ("int".equals(qName)) {
-            state = State.DOC_PARAM_COUNT;
-          } else if ("float".equals(qName)){
-            state = State.DOC_SCORE;
-          } else if ("str".equals(qName)) {
-            if ("fqn".equals(name)) {
-              state = State.DOC_FQN;
-            } else if ("params".equals(name)) {
-              state = State.DOC_PARAMS;
-            } else if ("return_fqn".equals(name)) {
-              state = State.DOC_RETURN_FQN;
-            }
-          }
-        }
-	default: System.err.println("Switch clause with unmatched clauses");
-		break;
-      }
-    }
-    
-    @Override
-    public void endElement(String uri, String localName, String qName) throws SAXException {
-      switch (state) {
-        case QUERY_TIME:
-          if ("int".equals(qName)) {
-            state = State.START;
-          }
-          break;
-        case RESULT:
-          if ("result".equals(qName)) {
-            state = State.DONE;
-          }
-          break;
-        case DOC:
-          if ("doc".equals(qName)) {
-            state = State.RESULT;
-            result.setRank(results.size());
-            results.add(result);
-            result = null;
-          }
-          break;
-        case DOC_SCORE:
-          if ("float".equals(qName)) {
-            state = State.DOC;
-          }
-          break;
-        case DOC_ENTITY_ID:
-          if ("long".equals(qName)) {
-            state = State.DOC;
-          }
-          break;
-        case DOC_PARAM_COUNT:
-          if ("int".equals(qName)) {
-            state = State.DOC;
-          }
-          break;
-        case DOC_FQN:
-        case DOC_PARAMS:
-        case DOC_RETURN_FQN:
-          if ("str".equals(qName)) {
-            state = State.DOC;
-          }
-          break;
-	default: System.err.println("Switch clause with unmatched clauses");
-		break;
-      }
-    }
-
-
-
-    @Override
-    public void characters(char[] ch, int start, int length) throws SAXException {
-      switch (state) {
-        case QUERY_TIME: lastQueryTime = Integer.parseInt(new String(ch, start, length)); break;
-        case DOC_SCORE: result.setScore(Float.parseFloat(new String(ch, start, length))); break;
-        case DOC_ENTITY_ID: result.setEntityID(Long.parseLong(new String(ch, start, length))); break;
-        case DOC_FQN: result.setFqn(new String(ch, start, length)); break; 
-        case DOC_PARAM_COUNT: result.setParamCount(Integer.parseInt(new String(ch, start, length))); break;
-        case DOC_PARAMS: result.setParams(new String(ch, start, length)); break;
-        case DOC_RETURN_FQN: result.setReturnFqn(new String(ch, start, length)); break;
-	default: System.err.println("Switch clause with unmatched clauses");
-		break;
-      }
-    }
-  };
 }
@@ -0,0 +1,224 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.services.slice;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.services.slicer.model.Slice;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.FileArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+
+/**
+ * Caches computed slices by their sorted seed entity ids, and optionally
+ * their finished zip files on disk. Zip files are evicted least recently
+ * used first once they take up more than the configured disk size.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class SliceCache {
+  public static final Argument<Integer> SLICE_CACHE_SIZE = new IntegerArgument("slice-cache-size", 256, "Number of computed slices kept in memory.");
+  public static final Argument<File> SLICE_CACHE_DIR = new FileArgument("slice-cache-dir", "Directory for caching finished slice zip files. Zip files are not cached if unset.");
+  public static final Argument<Integer> SLICE_CACHE_DISK_SIZE = new IntegerArgument("slice-cache-disk-size", 1024, "Megabytes of zip files kept in the slice cache directory.");
+  
+  private static final FileFilter ZIP_FILES = new FileFilter() {
+    @Override
+    public boolean accept(File file) {
+      return file.isFile() && file.getName().endsWith(".zip");
+    }
+  };
+  
+  private final Map<String, Slice> slices;
+  private final File dir;
+  private final long diskCapacity;
+  
+  private SliceCache(final int capacity, File dir, long diskCapacity) {
+    this.slices = new LinkedHashMap<String, Slice>(16, .75f, true) {
+      private static final long serialVersionUID = 1L;
+      
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Slice> eldest) {
+        return size() > capacity;
+      }
+    };
+    this.dir = dir;
+    this.diskCapacity = diskCapacity;
+  }
+  
+  static SliceCache create() {
+    File dir = null;
+    if (SLICE_CACHE_DIR.hasValue()) {
+      dir = SLICE_CACHE_DIR.getValue();
+      if (!dir.isDirectory() && !dir.mkdirs()) {
+        logger.severe("Unable to create slice cache directory: " + dir.getPath());
+        dir = null;
+      }
+    }
+    return new SliceCache(SLICE_CACHE_SIZE.getValue(), dir, (long) SLICE_CACHE_DISK_SIZE.getValue() << 20);
+  }
+  
+  static String getKey(Collection<Integer> seeds) {
+    List<Integer> sorted = new ArrayList<>(seeds);
+    Collections.sort(sorted);
+    StringBuilder key = new StringBuilder();
+    for (Integer seed : sorted) {
+      if (key.length() > 0) {
+        key.append('_');
+      }
+      key.append(seed);
+    }
+    return key.toString();
+  }
+  
+  synchronized Slice getSlice(String key) {
+    return slices.get(key);
+  }
+  
+  /**
+   * Failed slices are never cached, as a null entry would be returned as
+   * a hit.
+   */
+  synchronized void putSlice(String key, Slice slice) {
+    if (slice == null) {
+      slices.remove(key);
+    } else {
+      slices.put(key, slice);
+    }
+  }
+  
+  File getZipFile(String key) {
+    if (dir == null) {
+      return null;
+    } else {
+      File file = new File(dir, key + ".zip");
+      if (file.isFile()) {
+        // Track use for eviction
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+      } else {
+        return null;
+      }
+    }
+  }
+  
+  /**
+   * Streams the zip file to out, keeping a copy on disk if it came out
+   * complete.
+   */
+  void writeZipFile(String key, Slice slice, OutputStream out) throws IOException {
+    if (dir == null) {
+      slice.writeZipFile(out);
+      return;
+    }
+    File temp = File.createTempFile(key, ".part", dir);
+    boolean complete = false;
+    boolean cached = false;
+    try (OutputStream copy = new BufferedOutputStream(new FileOutputStream(temp))) {
+      complete = slice.writeZipFile(new TeeOutputStream(out, copy));
+    } finally {
+      cached = complete && temp.renameTo(new File(dir, key + ".zip"));
+      if (!cached) {
+        if (!temp.delete()) {
+          logger.log(Level.WARNING, "Unable to delete: " + temp.getPath());
+        }
+      }
+    }
+    if (cached) {
+      evict();
+    }
+  }
+  
+  /**
+   * Deletes the least recently used zip files until the rest fit in the
+   * disk capacity.
+   */
+  private synchronized void evict() {
+    File[] zips = dir.listFiles(ZIP_FILES);
+    if (zips == null) {
+      return;
+    }
+    // Snapshot the use times, as hits may touch them while sorting
+    final Map<File, Long> used = new HashMap<>();
+    long total = 0;
+    for (File zip : zips) {
+      used.put(zip, zip.lastModified());
+      total += zip.length();
+    }
+    if (total > diskCapacity) {
+      Arrays.sort(zips, new Comparator<File>() {
+        @Override
+        public int compare(File o1, File o2) {
+          return used.get(o1).compareTo(used.get(o2));
+        }
+      });
+      for (int i = 0; i < zips.length && total > diskCapacity; i++) {
+        long length = zips[i].length();
+        if (zips[i].delete()) {
+          total -= length;
+        } else {
+          logger.log(Level.WARNING, "Unable to evict: " + zips[i].getPath());
+        }
+      }
+    }
+  }
+  
+  private static class TeeOutputStream extends OutputStream {
+    private final OutputStream first;
+    private final OutputStream second;
+    
+    private TeeOutputStream(OutputStream first, OutputStream second) {
+      this.first = first;
+      this.second = second;
+    }
+    
+    @Override
+    public void write(int b) throws IOException {
+      first.write(b);
+      second.write(b);
+    }
+    
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      first.write(b, off, len);
+      second.write(b, off, len);
+    }
+    
+    @Override
+    public void flush() throws IOException {
+      first.flush();
+      second.flush();
+    }
+  }
+}
@@ -19,7 +19,9 @@ package edu.uci.ics.sourcerer.services.slice;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collections;
 import java.util.logging.Level;
 
@@ -29,8 +31,12 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import edu.uci.ics.sourcerer.services.slicer.SlicerFactory;
+import edu.uci.ics.sourcerer.services.slicer.model.Slice;
+import edu.uci.ics.sourcerer.services.slicer.model.Slicer;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
 import edu.uci.ics.sourcerer.util.io.arguments.ArgumentManager;
+import edu.uci.ics.sourcerer.util.io.metrics.Instrumentation;
 import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
 import edu.uci.ics.sourcerer.utils.servlet.ServletUtils;
 
@@ -39,32 +45,61 @@ import edu.uci.ics.sourcerer.utils.servlet.ServletUtils;
  */
 @SuppressWarnings("serial")
 public class SliceServer extends HttpServlet {
+  private SliceCache cache;
+  private Slicer slicer;
+  
   @Override
   public void init() throws ServletException {
     ArgumentManager.PROPERTIES_STREAM.setValue(getServletContext().getResourceAsStream("/WEB-INF/lib/slice-server.properties"));
     JavaRepositoryFactory.INPUT_REPO.permit();
     SlicerFactory.FILE_SERVER_URL.permit();
+    SlicerFactory.FETCH_THREADS.permit();
+    SliceCache.SLICE_CACHE_SIZE.permit();
+    SliceCache.SLICE_CACHE_DIR.permit();
+    SliceCache.SLICE_CACHE_DISK_SIZE.permit();
     DatabaseConnectionFactory.DATABASE_URL.permit();
     DatabaseConnectionFactory.DATABASE_USER.permit();
     DatabaseConnectionFactory.DATABASE_PASSWORD.permit();
     ArgumentManager.initializeProperties();
+    Instrumentation.initialize(null);
+    cache = SliceCache.create();
+    slicer = SlicerFactory.createLongRunningSlicer();
   }
   
   @Override
   public void destroy() {
     logger.log(Level.INFO, "Destroying");
+    IOUtils.close(slicer);
+    SlicerFactory.shutdown();
+    Instrumentation.shutdown();
   }
   
   @Override
   public void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
     Integer entityID = ServletUtils.getIntValue(request, "entityID");
     if (entityID != null) {
-      byte[] result = SlicerFactory.createSlicer().slice(Collections.singleton(entityID)).toZipFile();
-      if (result == null) {
-        ServletUtils.writeErrorMsg(response, "Unable to slice: " + entityID);
+      long start = System.nanoTime();
+      String key = SliceCache.getKey(Collections.singleton(entityID));
+      File zip = cache.getZipFile(key);
+      if (zip != null) {
+        ServletUtils.writeFile(response, entityID + ".zip", zip);
       } else {
-        ServletUtils.writeByteArray(response, entityID + ".zip", result);
+        Slice slice = cache.getSlice(key);
+        if (slice == null) {
+          slice = slicer.slice(Collections.singleton(entityID));
+          if (slice != null) {
+            cache.putSlice(key, slice);
+          }
+        }
+        if (slice == null) {
+          ServletUtils.writeErrorMsg(response, "Unable to slice " + entityID);
+        } else {
+          try (OutputStream out = ServletUtils.openOutputStream(response, entityID + ".zip")) {
+            cache.writeZipFile(key, slice, out);
+          }
+        }
       }
+      Instrumentation.histogram("slices.slice").recordSince(start);
     } else {
       ServletUtils.writeErrorMsg(response, "Please provide an entityID");
     }
@@ -17,9 +17,11 @@
  */
 package edu.uci.ics.sourcerer.services.slicer;
 
+import edu.uci.ics.sourcerer.services.slicer.internal.LongRunningSlicerImpl;
 import edu.uci.ics.sourcerer.services.slicer.internal.SlicerImpl;
 import edu.uci.ics.sourcerer.services.slicer.model.Slicer;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
 import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
 
 /**
@@ -27,8 +29,23 @@ import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
  */
 public class SlicerFactory {
   public static final Argument<String> FILE_SERVER_URL = new StringArgument("file-server-url", "URL for the file server");
+  public static final Argument<Integer> FETCH_THREADS = new IntegerArgument("slice-fetch-threads", 8, "Number of threads fetching file contents, shared by all slices");
   
   public static Slicer createSlicer() {
     return SlicerImpl.create();
   }
+  
+  /**
+   * Creates a thread safe slicer that pools its database connections.
+   */
+  public static Slicer createLongRunningSlicer() {
+    return LongRunningSlicerImpl.create();
+  }
+  
+  /**
+   * Stops the threads fetching file contents for slices.
+   */
+  public static void shutdown() {
+    SlicerImpl.shutdown();
+  }
 }
@@ -35,11 +35,8 @@ public abstract class AbstractSlicerImpl implements Slicer {
   
   AbstractSlicerImpl() {}
   
-  protected abstract SlicerDatabaseAccessor getAccessor();
-  
-  @Override
-  public Slice slice(Set<Integer> seeds) {
-    return new SlicerInstance(seeds).slice();
+  protected final Slice slice(SlicerDatabaseAccessor db, Set<Integer> seeds) {
+    return new SlicerInstance(db, seeds).slice();
   }
     
   private class SlicerInstance {
@@ -47,8 +44,8 @@ public abstract class AbstractSlicerImpl implements Slicer {
     private final SliceImpl slice;
     private final NovelQueue queue;
     
-    public SlicerInstance(Set<Integer> seeds) {
-      db = getAccessor();
+    public SlicerInstance(SlicerDatabaseAccessor db, Set<Integer> seeds) {
+      this.db = db;
       slice = new SliceImpl();
       queue = new NovelQueue(seeds);
     }
@@ -17,29 +17,48 @@
  */
 package edu.uci.ics.sourcerer.services.slicer.internal;
 
-import edu.uci.ics.sourcerer.util.TimeoutManager;
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.Set;
+
+import edu.uci.ics.sourcerer.services.slicer.model.Slice;
+import edu.uci.ics.sourcerer.util.ResourcePool;
 
 /**
+ * Slicer that may be shared among threads. Each slice leases its own
+ * accessor from a pool, so concurrent slices do not share a connection.
+ * 
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class LongRunningSlicerImpl extends AbstractSlicerImpl {
-  private TimeoutManager<SlicerDatabaseAccessor> accessorManager =
-      new TimeoutManager<SlicerDatabaseAccessor>(new TimeoutManager.Instantiator<SlicerDatabaseAccessor>() {
+  private final ResourcePool<SlicerDatabaseAccessor> accessors =
+      ResourcePool.create("slicer.accessors", new ResourcePool.Instantiator<SlicerDatabaseAccessor>() {
         @Override
         public SlicerDatabaseAccessor create() {
           return SlicerDatabaseAccessor.create();
         }
       }, 10 * 60 * 1000);
   
+  private LongRunningSlicerImpl() {}
+  
+  public static LongRunningSlicerImpl create() {
+    return new LongRunningSlicerImpl();
+  }
 
   @Override
-  protected SlicerDatabaseAccessor getAccessor() {
-    return accessorManager.get();
+  public Slice slice(Set<Integer> seeds) {
+    try (ResourcePool.Lease<SlicerDatabaseAccessor> lease = accessors.lease()) {
+      if (lease == null) {
+        logger.severe("Unable to connect to the database");
+        return null;
+      } else {
+        return slice(lease.get(), seeds);
+      }
+    }
   }
   
   @Override
   public void close() {
-    accessorManager.destroy();
-
+    accessors.destroy();
   }
 }
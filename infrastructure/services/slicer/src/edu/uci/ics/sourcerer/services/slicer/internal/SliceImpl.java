@@ -21,13 +21,24 @@ import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -38,12 +49,15 @@ import edu.uci.ics.sourcerer.services.slicer.model.Slice;
 import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
 import edu.uci.ics.sourcerer.tools.java.model.types.Modifier;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
+import edu.uci.ics.sourcerer.util.Pair;
 import edu.uci.ics.sourcerer.util.io.IOUtils;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 class SliceImpl implements Slice {
+  private static ExecutorService fetchers;
+  
   private final Set<Integer> projects;
   private final Map<Integer, SlicedEntityImpl> internalEntities;
   private final Map<Integer, SlicedEntityImpl> externalEntities;
@@ -130,6 +144,34 @@ class SliceImpl implements Slice {
     return files.values();
   }
   
+  /**
+   * File contents are fetched on a single pool shared by every slice,
+   * so concurrent requests cannot multiply the number of fetches.
+   */
+  private static synchronized ExecutorService getFetchers() {
+    if (fetchers == null) {
+      fetchers = Executors.newFixedThreadPool(Math.max(1, SlicerFactory.FETCH_THREADS.getValue()), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "slice-fetcher");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return fetchers;
+  }
+  
+  /**
+   * Stops the shared fetch pool. A later slice starts a new one.
+   */
+  static synchronized void shutdownFetchers() {
+    if (fetchers != null) {
+      fetchers.shutdownNow();
+      fetchers = null;
+    }
+  }
+  
   private byte[] getContents(Integer fileID) {
     if (SlicerFactory.FILE_SERVER_URL.hasValue()) {
       return IOUtils.wget(SlicerFactory.FILE_SERVER_URL.getValue() + "?fileID=" + fileID); 
@@ -143,107 +185,157 @@ class SliceImpl implements Slice {
   @Override
   public byte[] toZipFile() {
     ByteArrayOutputStream bos = new ByteArrayOutputStream();
-    try (ZipOutputStream zos = new ZipOutputStream(bos)) {
-      // For each file
-      for (SlicedFileImpl file : files.values()) {
-        
+    try {
+      writeZipFile(bos);
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Error in writing slice to zip file", e);
+    }
+    return bos.toByteArray();
+  }
+  
+  @Override
+  public boolean writeZipFile(OutputStream out) throws IOException {
+    if (files.isEmpty()) {
+      new ZipOutputStream(out).finish();
+      return true;
+    }
+    // Fetch on the shared pool, and write the files in whatever order they arrive
+    CompletionService<Pair<SlicedFileImpl, byte[]>> fetches = new ExecutorCompletionService<>(getFetchers());
+    List<Future<Pair<SlicedFileImpl, byte[]>>> futures = new ArrayList<>(files.size());
+    try {
+      for (final SlicedFileImpl file : files.values()) {
+        futures.add(fetches.submit(new Callable<Pair<SlicedFileImpl, byte[]>>() {
+          @Override
+          public Pair<SlicedFileImpl, byte[]> call() {
+            return new Pair<>(file, getContents(file.getFileID()));
+          }
+        }));
+      }
+      
+      StringBuilder missing = new StringBuilder();
+      ZipOutputStream zos = new ZipOutputStream(out);
+      for (int i = 0, max = files.size(); i < max; i++) {
+        Pair<SlicedFileImpl, byte[]> fetched = fetches.take().get();
+        SlicedFileImpl file = fetched.getFirst();
         // The first entry should always be a declared type
         String fqn = file.getEntities().iterator().next().getFqn();
+        if (fetched.getSecond() == null) {
+          logger.severe("Unable to get contents of file: " + file.getFileID());
+          missing.append(fqn).append(" (file ").append(file.getFileID()).append(")\n");
+        } else {
+          zos.putNextEntry(new ZipEntry(fqn.replace('.', '/') + ".java"));
+          zos.write(buildSource(file, fqn, fetched.getSecond()));
+          zos.closeEntry();
+          zos.flush();
+        }
+      }
+      // Entries have already been sent, so report the missing ones in the zip itself
+      if (missing.length() > 0) {
+        zos.putNextEntry(new ZipEntry(MISSING_FILES_ENTRY));
+        zos.write(missing.toString().getBytes());
+        zos.closeEntry();
+      }
+      zos.finish();
+      return missing.length() == 0;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while fetching file contents", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Error fetching file contents", e.getCause());
+    } finally {
+      for (Future<?> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+  
+  private byte[] buildSource(SlicedFileImpl file, String fqn, byte[] rawContents) {
+    char[] contents = new String(rawContents).toCharArray();
+    
+    StringBuilder builder = new StringBuilder();
+    
+    // Add the package
+    int idx = fqn.lastIndexOf('.');
+    builder.append("package ").append(fqn.substring(0, idx)).append(";\n\n");
 
-        // Get the file contents
-        char[] contents = new String(getContents(file.getFileID())).toCharArray();
-        
-        StringBuilder builder = new StringBuilder();
-        
-        // Add the package
-        int idx = fqn.lastIndexOf('.');
-        builder.append("package ").append(fqn.substring(0, idx)).append(";\n\n");
-
-        // Add the imports
-        for (SlicedImportImpl imp : file.getImports()) {
-          // Is the imported entity in the slice?
-          if (contains(imp.getEid())) {
-            builder.append(contents, imp.getOffset(), imp.getLength()).append('\n');
-          }
+    // Add the imports
+    for (SlicedImportImpl imp : file.getImports()) {
+      // Is the imported entity in the slice?
+      if (contains(imp.getEid())) {
+        builder.append(contents, imp.getOffset(), imp.getLength()).append('\n');
+      }
+    }
+    
+    builder.append('\n');
+    
+    Deque<Integer> endDeclared = new LinkedList<>();
+    
+    for (SlicedEntityImpl entity: file.getEntities()) {
+      // Is the start of this after the last declared?
+      if (!endDeclared.isEmpty() && entity.getOffset() > endDeclared.peek()) {
+        builder.append("}\n");
+        endDeclared.pop();
+      }
+      if (entity.getEntityType().isDeclaredType()) {
+        // Add the modifiers
+        for (Modifier mod : entity.getModifiers()) {
+          builder.append(mod).append(' ');
         }
-        
-        builder.append('\n');
-        
-        Deque<Integer> endDeclared = new LinkedList<>();
-        
-        for (SlicedEntityImpl entity: file.getEntities()) {
-          // Is the start of this after the last declared?
-          if (!endDeclared.isEmpty() && entity.getOffset() > endDeclared.peek()) {
-            builder.append("}\n");
-            endDeclared.pop();
+          
+        // Add the type name
+        builder.append(entity.getEntityType()).append(' ').append(fqn.substring(idx + 1));
+          
+        ModeledTypeImpl type = typeModel.get(entity.getEntityID());
+          
+        if (entity.getEntityType() == Entity.CLASS) {
+          // Add the superclass
+          ModeledTypeImpl superclassType = type.getSuperclass();
+          // Ignore it if it's java.lang.Object
+          if (superclassType.getSuperclass() != null && contains(superclassType.getEntityID())) {
+            builder.append(" extends ").append(get(superclassType.getEntityID()).getFqn()).append(' ');
           }
-          if (entity.getEntityType().isDeclaredType()) {
-            // Add the modifiers
-            for (Modifier mod : entity.getModifiers()) {
-              builder.append(mod).append(' ');
-            }
-              
-            // Add the type name
-            builder.append(entity.getEntityType()).append(' ').append(fqn.substring(idx + 1));
-              
-            ModeledTypeImpl type = typeModel.get(entity.getEntityID());
-              
-            if (entity.getEntityType() == Entity.CLASS) {
-              // Add the superclass
-              ModeledTypeImpl superclassType = type.getSuperclass();
-              // Ignore it if it's java.lang.Object
-              if (superclassType.getSuperclass() != null && contains(superclassType.getEntityID())) {
-                builder.append(" extends ").append(get(superclassType.getEntityID()).getFqn()).append(' ');
+          
+          // Add the superinterfaces
+          boolean first = true;
+          for (ModeledTypeImpl superInterfaceType : type.getSuperInterfaces()) {
+            if (contains(superInterfaceType.getEntityID())) {
+              if (first) {
+                builder.append(" implements ");
+                first = false;
+              } else {
+                builder.append(", ");
               }
-              
-              // Add the superinterfaces
-              boolean first = true;
-              for (ModeledTypeImpl superInterfaceType : type.getSuperInterfaces()) {
-                if (contains(superInterfaceType.getEntityID())) {
-                  if (first) {
-                    builder.append(" implements ");
-                    first = false;
-                  } else {
-                    builder.append(", ");
-                  }
-                  builder.append(get(superInterfaceType.getEntityID()).getFqn());
-                }
-              }
-            } else if (entity.getEntityType() == Entity.INTERFACE) {
-              // Add the superinterfaces
-              boolean first = true;
-              for (ModeledTypeImpl superInterfaceType : type.getSuperInterfaces()) {
-                if (contains(superInterfaceType.getEntityID())) {
-                  if (first) {
-                    builder.append(" extends ");
-                    first = false;
-                  } else {
-                    builder.append(", ");
-                  }
-                  builder.append(get(superInterfaceType.getEntityID()).getFqn());
-                }
+              builder.append(get(superInterfaceType.getEntityID()).getFqn());
+            }
+          }
+        } else if (entity.getEntityType() == Entity.INTERFACE) {
+          // Add the superinterfaces
+          boolean first = true;
+          for (ModeledTypeImpl superInterfaceType : type.getSuperInterfaces()) {
+            if (contains(superInterfaceType.getEntityID())) {
+              if (first) {
+                builder.append(" extends ");
+                first = false;
+              } else {
+                builder.append(", ");
               }
+              builder.append(get(superInterfaceType.getEntityID()).getFqn());
             }
-            
-            builder.append(" {\n");
-            endDeclared.push(entity.getOffset() + entity.getLength());
-          } else {
-            // Add this entity
-            builder.append(contents, entity.getOffset(), entity.getLength()).append("\n");
           }
         }
         
-        while (!endDeclared.isEmpty()) {
-          builder.append("}\n");
-          endDeclared.pop();
-        }
-        zos.putNextEntry(new ZipEntry(fqn.replace('.', '/') + ".java"));
-        zos.write(builder.toString().getBytes());
-        zos.closeEntry();
+        builder.append(" {\n");
+        endDeclared.push(entity.getOffset() + entity.getLength());
+      } else {
+        // Add this entity
+        builder.append(contents, entity.getOffset(), entity.getLength()).append("\n");
       }
-    } catch (IOException e) {
-      logger.log(Level.SEVERE, "Error in writing slice to zip file");
     }
-    return bos.toByteArray();
+    
+    while (!endDeclared.isEmpty()) {
+      builder.append("}\n");
+      endDeclared.pop();
+    }
+    return builder.toString().getBytes();
   }
 }
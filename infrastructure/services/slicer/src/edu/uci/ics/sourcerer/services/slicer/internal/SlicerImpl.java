@@ -17,6 +17,9 @@
  */
 package edu.uci.ics.sourcerer.services.slicer.internal;
 
+import java.util.Set;
+
+import edu.uci.ics.sourcerer.services.slicer.model.Slice;
 import edu.uci.ics.sourcerer.util.io.IOUtils;
 
 /**
@@ -32,10 +35,14 @@ public class SlicerImpl extends AbstractSlicerImpl {
   public static SlicerImpl create() {
     return new SlicerImpl();
   }
+  
+  public static void shutdown() {
+    SliceImpl.shutdownFetchers();
+  }
 
   @Override
-  protected SlicerDatabaseAccessor getAccessor() {
-    return db;
+  public Slice slice(Set<Integer> seeds) {
+    return slice(db, seeds);
   }
   
   @Override
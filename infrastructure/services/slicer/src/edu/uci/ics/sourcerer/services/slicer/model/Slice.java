@@ -17,15 +17,33 @@
  */
 package edu.uci.ics.sourcerer.services.slicer.model;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Collection;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 public interface Slice {
+  /**
+   * Name of the zip entry listing the files whose contents could not be
+   * fetched, if there were any.
+   */
+  public static final String MISSING_FILES_ENTRY = "MISSING_FILES.txt";
+  
   public Collection<? extends SlicedEntity> getInternalEntities();
   
   public Collection<? extends SlicedEntity> getExternalEntities();
   
   public byte[] toZipFile();
+  
+  /**
+   * Streams the slice as a zip file, writing each entry as soon as its
+   * contents are fetched. Files whose contents could not be fetched are
+   * listed in the {@link #MISSING_FILES_ENTRY} entry. Does not close the
+   * stream.
+   * 
+   * @return false if the contents of some files could not be fetched
+   */
+  public boolean writeZipFile(OutputStream out) throws IOException;
 }
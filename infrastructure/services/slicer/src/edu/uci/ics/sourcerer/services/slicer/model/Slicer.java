@@ -24,5 +24,8 @@ import java.util.Set;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public interface Slicer extends Closeable {
+  /**
+   * Returns <tt>null</tt> if the database could not be reached.
+   */
   public Slice slice(Set<Integer> seeds);
 }
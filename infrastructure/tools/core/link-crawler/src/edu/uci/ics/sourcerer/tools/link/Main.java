@@ -20,6 +20,7 @@ package edu.uci.ics.sourcerer.tools.link;
 import edu.uci.ics.sourcerer.tools.core.repo.model.RepositoryFactory;
 import edu.uci.ics.sourcerer.tools.link.crawler.flossmole.FlossmoleCrawler;
 import edu.uci.ics.sourcerer.tools.link.crawler.sourceforge.SourceForgeCrawler;
+import edu.uci.ics.sourcerer.tools.link.downloader.DownloadEngine;
 import edu.uci.ics.sourcerer.tools.link.downloader.RepoBuilder;
 import edu.uci.ics.sourcerer.tools.link.downloader.Subversion;
 import edu.uci.ics.sourcerer.util.io.arguments.Arguments;
@@ -45,7 +46,7 @@ public class Main {
     protected void action() {
       Subversion.filterSubversionLinksForJava(FlossmoleCrawler.GOOGLE_CODE_LIST, GOOGLE_CODE_JAVA_LIST);
     }
-  }.setProperties(Arguments.INPUT, FlossmoleCrawler.GOOGLE_CODE_LIST.asInput(), GOOGLE_CODE_JAVA_LIST.asOutput(), Subversion.FAST_CONTAINS_JAVA);
+  }.setProperties(Arguments.INPUT, FlossmoleCrawler.GOOGLE_CODE_LIST.asInput(), GOOGLE_CODE_JAVA_LIST.asOutput(), Subversion.FAST_CONTAINS_JAVA, DownloadEngine.DOWNLOAD_THREADS, DownloadEngine.MAX_DOWNLOADS_PER_HOST, DownloadEngine.HOST_REQUEST_INTERVAL);
   
   public static final Command ADD_JAVA_GC_PROJECTS_TO_REPO = new Command("add-java-gc-projects-to-repo", "Adds the Java Google Code projects to the repository.") {
     @Override
@@ -66,7 +67,7 @@ public class Main {
     protected void action() {
       RepoBuilder.downloadProjectContent();
     }
-  }.setProperties(RepositoryFactory.INPUT_REPO);
+  }.setProperties(RepositoryFactory.INPUT_REPO, DownloadEngine.DOWNLOAD_THREADS, DownloadEngine.MAX_DOWNLOADS_PER_HOST, DownloadEngine.HOST_REQUEST_INTERVAL, DownloadEngine.MAX_DOWNLOAD_ATTEMPTS, DownloadEngine.DOWNLOAD_RETRY_BACKOFF, DownloadEngine.DOWNLOAD_REPORT_INTERVAL);
   
   public static final Command INTERACTIVE_REPO_ADDER = new Command("interactive-repo-adder", "Tool for manually adding projects to the repository.") {
     @Override
@@ -0,0 +1,256 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.link.downloader;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.tools.core.repo.model.DownloadState;
+import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceProject;
+import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceProject.ContentAdder;
+import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceProject.DeletionFilter;
+import edu.uci.ics.sourcerer.tools.core.repo.model.RepoFile;
+import edu.uci.ics.sourcerer.tools.core.repo.model.SourceProjectProperties;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+
+/**
+ * Downloads project content with a bounded pool of workers.
+ * <p>
+ * Requests to a single host are limited in number and spaced out, and
+ * failed downloads are retried with exponential backoff. Each project's
+ * download state is kept in its properties, so an interrupted run
+ * resumes where it stopped, continuing partial svn checkouts.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class DownloadEngine {
+  public static final Argument<Integer> DOWNLOAD_THREADS = new IntegerArgument("download-threads", 8, "Number of projects downloaded at once.");
+  public static final Argument<Integer> MAX_DOWNLOADS_PER_HOST = new IntegerArgument("max-downloads-per-host", 4, "Number of projects downloaded at once from a single host.");
+  public static final Argument<Integer> HOST_REQUEST_INTERVAL = new IntegerArgument("host-request-interval", 250, "Minimum milliseconds between starting downloads from a single host.");
+  public static final Argument<Integer> MAX_DOWNLOAD_ATTEMPTS = new IntegerArgument("max-download-attempts", 4, "Number of times a download is attempted before giving up.");
+  public static final Argument<Integer> DOWNLOAD_RETRY_BACKOFF = new IntegerArgument("download-retry-backoff", 5000, "Milliseconds before the first retry, doubling with each further attempt.");
+  public static final Argument<Integer> DOWNLOAD_REPORT_INTERVAL = new IntegerArgument("download-report-interval", 60, "Seconds between throughput reports.");
+  
+  private static final DeletionFilter VERSIONING_FILTER = new DeletionFilter() {
+    @Override
+    public boolean shouldDelete(RepoFile file) {
+      if (file.isDirectory()) {
+        String name = file.getName();
+        return name.equals("branches") || name.equals("tags") || name.equals(".svn") || name.equals("CVS") || name.equals("CVSROOT");
+      } else {
+        return false;
+      }
+    }
+  };
+  
+  private final ScheduledThreadPoolExecutor pool;
+  private final HostLimiter limiter;
+  private final int maxAttempts;
+  private final long backoff;
+  
+  private CountDownLatch remaining;
+  private final AtomicInteger completed = new AtomicInteger();
+  private final AtomicInteger failed = new AtomicInteger();
+  private final AtomicInteger retries = new AtomicInteger();
+  private final AtomicLong bytes = new AtomicLong();
+  
+  private DownloadEngine() {
+    pool = new ScheduledThreadPoolExecutor(DOWNLOAD_THREADS.getValue());
+    limiter = new HostLimiter(MAX_DOWNLOADS_PER_HOST.getValue(), HOST_REQUEST_INTERVAL.getValue(), pool);
+    maxAttempts = MAX_DOWNLOAD_ATTEMPTS.getValue();
+    backoff = DOWNLOAD_RETRY_BACKOFF.getValue();
+  }
+  
+  public static DeletionFilter getVersioningFilter() {
+    return VERSIONING_FILTER;
+  }
+  
+  public static void download(Iterable<? extends ModifiableSourceProject> projects) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    
+    task.start("Finding projects to download");
+    Collection<ModifiableSourceProject> pending = new ArrayList<>();
+    for (ModifiableSourceProject project : projects) {
+      if (!project.hasContent() || project.getProperties().DOWNLOAD_DATE.getValue() == null) {
+        pending.add(project);
+      }
+    }
+    task.report(pending.size() + " projects to download");
+    task.finish();
+    
+    DownloadEngine engine = new DownloadEngine();
+    task.start("Downloading projects with " + DOWNLOAD_THREADS.getValue() + " threads");
+    long start = System.currentTimeMillis();
+    engine.remaining = new CountDownLatch(pending.size());
+    for (ModifiableSourceProject project : pending) {
+      engine.new DownloadTask(project).submit();
+    }
+    try {
+      while (!engine.remaining.await(DOWNLOAD_REPORT_INTERVAL.getValue(), TimeUnit.SECONDS)) {
+        engine.report(task, start);
+      }
+    } catch (InterruptedException e) {
+      logger.log(Level.SEVERE, "Interrupted while downloading.", e);
+    } finally {
+      engine.pool.shutdownNow();
+    }
+    engine.report(task, start);
+    task.finish();
+  }
+  
+  private void report(TaskProgressLogger task, long start) {
+    double minutes = Math.max(System.currentTimeMillis() - start, 1) / 60000.;
+    int done = completed.get();
+    task.report(String.format("%d downloaded, %d failed, %d retries, %d remaining (%.1f projects/min, %.1f MB/min)", 
+        done, failed.get(), retries.get(), remaining.getCount(), done / minutes, bytes.get() / (1024. * 1024.) / minutes));
+  }
+  
+  private static long computeSize(File file) {
+    if (file.isDirectory()) {
+      long size = 0;
+      File[] children = file.listFiles();
+      if (children != null) {
+        for (File child : children) {
+          size += computeSize(child);
+        }
+      }
+      return size;
+    } else {
+      return file.length();
+    }
+  }
+  
+  private class DownloadTask implements Runnable {
+    private final ModifiableSourceProject project;
+    private Downloader.Type type;
+    private String url;
+    private String host;
+    private int attempt;
+    private File contentDir;
+    
+    private final Runnable retry = new Runnable() {
+      @Override
+      public void run() {
+        limiter.submit(host, DownloadTask.this);
+      }
+    };
+    
+    private DownloadTask(ModifiableSourceProject project) {
+      this.project = project;
+    }
+    
+    /**
+     * Queues the task on its host. The task is only run once the host 
+     * has a free slot, so no worker ever waits on a busy host.
+     */
+    private void submit() {
+      SourceProjectProperties props = project.getProperties();
+      url = props.SVN_URL.getValue();
+      if (url != null) {
+        type = Downloader.Type.SVN;
+      } else {
+        url = props.CVS_URL.getValue();
+        type = Downloader.Type.CVS;
+      }
+      if (url == null) {
+        logger.severe("No url for " + project);
+        failed.incrementAndGet();
+        remaining.countDown();
+      } else {
+        host = HostLimiter.getHostName(url);
+        limiter.submit(host, this);
+      }
+    }
+    
+    @Override
+    public void run() {
+      boolean success = false;
+      try {
+        attempt++;
+        success = download(project.getProperties(), type, url);
+      } catch (RuntimeException e) {
+        logger.log(Level.SEVERE, "Error downloading " + project, e);
+      } finally {
+        limiter.release(host);
+      }
+      
+      if (success) {
+        completed.incrementAndGet();
+        remaining.countDown();
+      } else if (attempt < maxAttempts && !pool.isShutdown()) {
+        retries.incrementAndGet();
+        pool.schedule(retry, backoff << (attempt - 1), TimeUnit.MILLISECONDS);
+      } else {
+        logger.severe("Giving up on " + project + " after " + attempt + " attempts");
+        failed.incrementAndGet();
+        remaining.countDown();
+      }
+    }
+    
+    private boolean download(SourceProjectProperties props, final Downloader.Type type, final String url) {
+      // A partial svn checkout is continued rather than started over
+      final boolean resume = type == Downloader.Type.SVN && props.DOWNLOAD_STATE.getValue() != null && project.hasContent();
+      if (!resume && project.hasContent()) {
+        project.deleteContent();
+      }
+      
+      Integer attempts = props.DOWNLOAD_ATTEMPTS.getValue();
+      props.DOWNLOAD_ATTEMPTS.setValue(attempts == null ? 1 : attempts + 1);
+      props.DOWNLOAD_STATE.setValue(DownloadState.IN_PROGRESS);
+      props.save();
+      
+      ContentAdder adder = new ContentAdder() {
+        @Override
+        public boolean addContent(File file) {
+          contentDir = file;
+          if (resume) {
+            return Subversion.resume(url, file);
+          } else {
+            return Downloader.download(type, url, file);
+          }
+        }
+      };
+      if (project.addContent(adder)) {
+        // Delete the extra stuff
+        project.delete(VERSIONING_FILTER);
+        bytes.addAndGet(computeSize(contentDir));
+        props.DOWNLOAD_DATE.setValue(new SimpleDateFormat("MMM-dd-yyyy").format(new Date()).toLowerCase());
+        props.DOWNLOAD_STATE.setValue(null);
+        props.save();
+        return true;
+      } else {
+        props.DOWNLOAD_STATE.setValue(DownloadState.FAILED);
+        props.save();
+        return false;
+      }
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.link.downloader;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the number of simultaneous requests to each host, and spaces
+ * out the start of those requests.
+ * <p>
+ * No thread ever waits on a busy host. A request that cannot start yet
+ * is kept in its host's queue, and is handed to the scheduler once a
+ * slot frees up, delayed until the host's next start time.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class HostLimiter {
+  private final int maxPerHost;
+  private final long interval;
+  private final ScheduledExecutorService scheduler;
+  private final Map<String, Host> hosts;
+  
+  private static class Host {
+    private int active;
+    private long nextStart;
+    private final Deque<Runnable> waiting = new ArrayDeque<>();
+  }
+  
+  HostLimiter(int maxPerHost, long interval, ScheduledExecutorService scheduler) {
+    this.maxPerHost = Math.max(1, maxPerHost);
+    this.interval = interval;
+    this.scheduler = scheduler;
+    this.hosts = new HashMap<>();
+  }
+  
+  private Host getHost(String name) {
+    Host host = hosts.get(name);
+    if (host == null) {
+      host = new Host();
+      hosts.put(name, host);
+    }
+    return host;
+  }
+  
+  /**
+   * Takes a slot on the host, and returns how long to wait before
+   * starting so that starts stay an interval apart.
+   */
+  private long reserve(Host host) {
+    host.active++;
+    long now = System.currentTimeMillis();
+    long start = Math.max(now, host.nextStart);
+    host.nextStart = start + interval;
+    return start - now;
+  }
+  
+  /**
+   * Runs <tt>request</tt> on the scheduler once the host has a free
+   * slot. The request must call {@link #release(String)} when it is
+   * done with the host.
+   */
+  void submit(String name, Runnable request) {
+    long delay;
+    synchronized (this) {
+      Host host = getHost(name);
+      if (host.active >= maxPerHost) {
+        host.waiting.add(request);
+        return;
+      } else {
+        delay = reserve(host);
+      }
+    }
+    schedule(request, delay);
+  }
+  
+  /**
+   * Frees a slot on the host, passing it to the next queued request.
+   */
+  void release(String name) {
+    Runnable next;
+    long delay = 0;
+    synchronized (this) {
+      Host host = getHost(name);
+      host.active--;
+      next = host.waiting.poll();
+      if (next != null) {
+        delay = reserve(host);
+      }
+    }
+    if (next != null) {
+      schedule(next, delay);
+    }
+  }
+  
+  private void schedule(Runnable request, long delay) {
+    try {
+      scheduler.schedule(request, delay, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // The scheduler is shutting down, so the request is dropped
+    }
+  }
+  
+  /**
+   * Handles both URLs and CVS roots, such as
+   * <tt>:pserver:anonymous@cvs.example.net:/cvsroot/project</tt>.
+   */
+  static String getHostName(String url) {
+    try {
+      String host = new URI(url).getHost();
+      if (host != null) {
+        return host;
+      }
+    } catch (URISyntaxException e) {}
+    int at = url.lastIndexOf('@');
+    if (at >= 0) {
+      int colon = url.indexOf(':', at);
+      return colon > at ? url.substring(at + 1, colon) : url.substring(at + 1);
+    } else {
+      return "";
+    }
+  }
+}
@@ -17,18 +17,10 @@
  */
 package edu.uci.ics.sourcerer.tools.link.downloader;
 
-import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
-
-import java.io.File;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-
 import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceBatch;
 import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceProject;
-import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceProject.ContentAdder;
 import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceProject.DeletionFilter;
 import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceRepository;
-import edu.uci.ics.sourcerer.tools.core.repo.model.RepoFile;
 import edu.uci.ics.sourcerer.tools.core.repo.model.RepositoryFactory;
 import edu.uci.ics.sourcerer.tools.core.repo.model.SourceProjectProperties;
 import edu.uci.ics.sourcerer.util.LetterCounter;
@@ -86,57 +78,7 @@ public final class RepoBuilder {
   public static void downloadProjectContent() {
     ModifiableSourceRepository repo = RepositoryFactory.INSTANCE.loadModifiableSourceRepository(RepositoryFactory.INPUT_REPO);
     
-    TaskProgressLogger task = TaskProgressLogger.get();
-    task.start("Downloading projects", "projects downloaded");
-    
-    SimpleDateFormat format = new SimpleDateFormat("MMM-dd-yyyy");
-
-    DeletionFilter deleter = new DeletionFilter() {
-      @Override
-      public boolean shouldDelete(RepoFile file) {
-        if (file.isDirectory()) {
-          String name = file.getName();
-          return name.equals("branches") || name.equals("tags") || name.equals(".svn") || name.equals("CVS") || name.equals("CVSROOT");
-        } else {
-          return false;
-        }
-      }
-    };
-    
-    for (final ModifiableSourceProject project : repo.getProjects()) {
-      if (!project.hasContent() || project.getProperties().DOWNLOAD_DATE.getValue() == null) {
-        task.start("Downloading content for " + project.getProperties().NAME.getValue() + " (" + project.getLocation() + ")");
-        if (project.hasContent()) {
-          project.deleteContent();
-        }
-        ContentAdder adder = new ContentAdder() {
-          @Override
-          public boolean addContent(File file) {
-            String url = project.getProperties().SVN_URL.getValue(); 
-            if (url != null) {
-              return Downloader.download(Downloader.Type.SVN, url, file);
-            } 
-            url = project.getProperties().CVS_URL.getValue();
-            if (url != null) {
-              return Downloader.download(Downloader.Type.CVS, url, file);
-            }
-            logger.severe("No url for " + project);
-            return false;
-          }
-        };
-        if (project.addContent(adder)) {
-          // Delete the extra stuff
-          task.start("Cleaning out extra stuff");
-          project.delete(deleter);
-          task.finish();
-          project.getProperties().DOWNLOAD_DATE.setValue(format.format(new Date()).toLowerCase());
-          project.getProperties().save();
-        }
-        task.finish();
-      }
-      task.progress();
-    }
-    task.finish();
+    DownloadEngine.download(repo.getProjects());
   }
   
   public static void cleanVersioningContent() {
@@ -144,17 +86,7 @@ public final class RepoBuilder {
     task.start("Cleaning versioning content");
     ModifiableSourceRepository repo = RepositoryFactory.INSTANCE.loadModifiableSourceRepository(RepositoryFactory.INPUT_REPO);
     
-    DeletionFilter filter = new DeletionFilter() {
-      @Override
-      public boolean shouldDelete(RepoFile file) {
-        if (file.isDirectory()) {
-          String name = file.getName();
-          return name.equals("branches") || name.equals("tags") || name.equals(".svn") || name.equals("CVS") || name.equals("CVSROOT");
-        } else {
-          return false;
-        }
-      }
-    };
+    DeletionFilter filter = DownloadEngine.getVersioningFilter();
     
     task.start("Cleaning projects", "projects cleaned", 1);
     for (ModifiableSourceProject project : repo.getProjects()) {
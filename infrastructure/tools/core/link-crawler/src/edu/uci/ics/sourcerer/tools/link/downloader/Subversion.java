@@ -27,6 +27,9 @@ import java.util.Collections;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.tmatesoft.svn.core.SVNDepth;
@@ -35,6 +38,8 @@ import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNNodeKind;
 import org.tmatesoft.svn.core.SVNURL;
 import org.tmatesoft.svn.core.internal.io.dav.DAVRepositoryFactory;
+import org.tmatesoft.svn.core.internal.io.fs.FSRepositoryFactory;
+import org.tmatesoft.svn.core.internal.io.svn.SVNRepositoryFactoryImpl;
 import org.tmatesoft.svn.core.io.SVNRepository;
 import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
 import org.tmatesoft.svn.core.wc.SVNClientManager;
@@ -61,11 +66,37 @@ public final class Subversion {
   
   private Subversion() {}
   
+  static enum Result {
+    WITH_JAVA,
+    WITHOUT_JAVA,
+    NO_SVN,
+    UNEXPECTED,
+    SVN_ERROR,
+    ;
+  }
+  
+  /**
+   * Receives the result of each probe, from the probing threads.
+   */
+  static interface ProbeListener {
+    void examined(Project project, Result result);
+  }
+  
+  /**
+   * Registers the http, svn and file protocols, so that local
+   * stand-in repositories may be used in place of remote ones.
+   */
+  static synchronized void setup() {
+    DAVRepositoryFactory.setup();
+    SVNRepositoryFactoryImpl.setup();
+    FSRepositoryFactory.setup();
+  }
+  
   public static void filterSubversionLinksForJava(DualFileArgument in, DualFileArgument out) {
     logger.info("Filtering " + in + " for Java projects...");
     Set<String> resume = Logging.initializeResumeLogger();
     
-    DAVRepositoryFactory.setup();
+    setup();
       
     SimpleSerializer writer = null;
     EntryWriter<Project> ew = null;
@@ -73,70 +104,58 @@ public final class Subversion {
       writer = IOUtils.resumeSimpleSerializer(out);
       ew = writer.getEntryWriter(Project.class);
       
-      int noSVN = 0;
-      int withoutJava = 0;
-      int withJava = 0;
+      final AtomicInteger noSVN = new AtomicInteger();
+      final AtomicInteger withoutJava = new AtomicInteger();
+      final AtomicInteger withJava = new AtomicInteger();
       
-      TimeCounter timer = new TimeCounter(25, 2, "projects processed");
+      final TimeCounter timer = new TimeCounter(25, 2, "projects processed");
       if (!resume.isEmpty()) {
         timer.setCount(resume.size());
         timer.logTimeAndCount(0, "projects already processed");
         timer.lap();
       }
       
-      SVNRepository repo = null;
-      boolean fast = FAST_CONTAINS_JAVA.getValue();
+      final EntryWriter<Project> javaWriter = ew;
       
-      for (Project project : IOUtils.deserialize(Project.class, in, true)) {
-        if (!resume.contains(project.getName())) {
+      examineAll(IOUtils.deserialize(Project.class, in, false), resume, FAST_CONTAINS_JAVA.getValue(), new ProbeListener() {
+        @Override
+        public void examined(Project project, Result result) {
           try {
-            logger.info("Examining " + project.getName());
-            repo = SVNRepositoryFactory.create(SVNURL.parseURIDecoded(project.getUrl()));
-            SVNNodeKind nodeKind = repo.checkPath("", -1);
-            if (nodeKind == SVNNodeKind.DIR) {
-              Collection<String> trunks = findTrunks(repo);
-              if (trunks == null) {
-                logger.log(Level.WARNING, "Unable to find trunk for " + project.getName());
-                trunks = Collections.singleton("");
-              } else {
-                logger.info("  Trunk(s) located");
-              }
-              boolean containsJava = false;
-              if (fast) {
-                containsJava = fastContainsJava(repo, trunks);
-              } else {
-                containsJava = containsJava(repo, trunks);
-              }
-              if (containsJava) {
-                ew.write(project);
-                ew.flush();
-                withJava++;
-              } else {
-                withoutJava++;
-              }
-            } else if (nodeKind == SVNNodeKind.NONE) {
-              logger.info("  No SVN");
-              noSVN++;
-            } else {
-              logger.log(Level.SEVERE, "Unexpected node kind: " + nodeKind + " for " + project.getName());
+            switch (result) {
+              case WITH_JAVA:
+                synchronized (javaWriter) {
+                  javaWriter.write(project);
+                  javaWriter.flush();
+                }
+                withJava.incrementAndGet();
+                break;
+              case WITHOUT_JAVA:
+                withoutJava.incrementAndGet();
+                break;
+              case NO_SVN:
+              case SVN_ERROR:
+                noSVN.incrementAndGet();
+                break;
+              case UNEXPECTED:
+                break;
             }
-            logger.log(Logging.RESUME, project.getName());
-          } catch (SVNException e) {
-            logger.log(Level.SEVERE, "SVN Exception", e);
-            noSVN++;
-          } finally {
-            if (repo != null) {
-              repo.closeSession();
+            // Only once a Java project has been written out may it be skipped on resume
+            if (result != Result.SVN_ERROR) {
+              logger.log(Logging.RESUME, project.getName());
             }
+          } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error writing " + project.getName(), e);
+          }
+          synchronized (timer) {
+            timer.increment();
           }
-          timer.increment();
         }
-      }
+      });
       
       timer.logTotalTimeAndCount(0, "projects processed");
-      logger.info(withJava + " Java projects.");
-      logger.info(withoutJava + " non-Java projects.");
-      logger.info(noSVN + " projects with no svn.");
+      logger.info(withJava.get() + " Java projects.");
+      logger.info(withoutJava.get() + " non-Java projects.");
+      logger.info(noSVN.get() + " projects with no svn.");
     } catch (IOException e) {
       logger.log(Level.SEVERE, "Error reading from file system.", e);
     } finally {
@@ -144,6 +163,85 @@ public final class Subversion {
     }
   }
   
+  /**
+   * Probes the projects in parallel, a few at a time per host. Probes 
+   * waiting on a busy host are queued by the {@link HostLimiter} rather 
+   * than holding a thread, and the number of projects read ahead of the 
+   * probes is bounded.
+   */
+  static void examineAll(Iterable<Project> projects, Set<String> skip, final boolean fast, final ProbeListener listener) {
+    int threads = DownloadEngine.DOWNLOAD_THREADS.getValue();
+    ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(threads);
+    final HostLimiter limiter = new HostLimiter(DownloadEngine.MAX_DOWNLOADS_PER_HOST.getValue(), DownloadEngine.HOST_REQUEST_INTERVAL.getValue(), pool);
+    final int maxPending = threads * 4;
+    final Semaphore pending = new Semaphore(maxPending);
+    
+    try {
+      for (final Project project : projects) {
+        if (!skip.contains(project.getName())) {
+          pending.acquire();
+          final String host = HostLimiter.getHostName(project.getUrl());
+          limiter.submit(host, new Runnable() {
+            @Override
+            public void run() {
+              try {
+                listener.examined(project, examine(project, fast));
+              } finally {
+                limiter.release(host);
+                pending.release();
+              }
+            }
+          });
+        }
+      }
+      // Every permit is back once the last probe is done
+      pending.acquire(maxPending);
+    } catch (InterruptedException e) {
+      logger.log(Level.SEVERE, "Interrupted while filtering.", e);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+  
+  static Result examine(Project project, boolean fast) {
+    SVNRepository repo = null;
+    try {
+      logger.info("Examining " + project.getName());
+      repo = SVNRepositoryFactory.create(SVNURL.parseURIDecoded(project.getUrl()));
+      SVNNodeKind nodeKind = repo.checkPath("", -1);
+      Result result = Result.UNEXPECTED;
+      if (nodeKind == SVNNodeKind.DIR) {
+        Collection<String> trunks = findTrunks(repo);
+        if (trunks == null) {
+          logger.log(Level.WARNING, "Unable to find trunk for " + project.getName());
+          trunks = Collections.singleton("");
+        } else {
+          logger.info("  Trunk(s) located for " + project.getName());
+        }
+        boolean containsJava = false;
+        if (fast) {
+          containsJava = fastContainsJava(repo, trunks);
+        } else {
+          containsJava = containsJava(repo, trunks);
+        }
+        result = containsJava ? Result.WITH_JAVA : Result.WITHOUT_JAVA;
+      } else if (nodeKind == SVNNodeKind.NONE) {
+        logger.info("  No SVN for " + project.getName());
+        result = Result.NO_SVN;
+      } else {
+        logger.log(Level.SEVERE, "Unexpected node kind: " + nodeKind + " for " + project.getName());
+      }
+      return result;
+    } catch (SVNException e) {
+      logger.log(Level.SEVERE, "SVN Exception", e);
+      return Result.SVN_ERROR;
+    } finally {
+      if (repo != null) {
+        repo.closeSession();
+      }
+    }
+  }
+  
   @SuppressWarnings("unchecked")
   private static Collection<String> findTrunks(SVNRepository repo) throws SVNException {
     Collection<SVNDirEntry> entries = repo.getDir("", -1, null, (Collection<?>)null);
@@ -233,7 +331,7 @@ public final class Subversion {
   
   @SuppressWarnings("unchecked")
   public static boolean download(String url, File target) {
-    DAVRepositoryFactory.setup();
+    setup();
     
     SVNRepository repo = null;
     try {
@@ -290,7 +388,7 @@ public final class Subversion {
   }
   
   public static boolean checkout(String url, File target) {
-    DAVRepositoryFactory.setup();
+    setup();
     
     SVNClientManager manager = SVNClientManager.newInstance();
     try {
@@ -305,4 +403,29 @@ public final class Subversion {
     }
     return false;
   }
+  
+  /**
+   * Continues an interrupted checkout, cleaning up the working copy's
+   * locks before bringing it up to date.
+   */
+  public static boolean resume(String url, File target) {
+    if (!new File(target, ".svn").isDirectory()) {
+      FileUtils.delete(target);
+      return checkout(url, target);
+    }
+    
+    setup();
+    
+    SVNClientManager manager = SVNClientManager.newInstance();
+    try {
+      manager.getWCClient().doCleanup(target);
+      manager.getUpdateClient().doCheckout(SVNURL.parseURIDecoded(url), target, SVNRevision.HEAD, SVNRevision.HEAD, SVNDepth.INFINITY, true);
+      return true;
+    } catch (SVNException e) {
+      logger.log(Level.SEVERE, "Error resuming checkout of project.", e);
+    } finally {
+      manager.dispose();
+    }
+    return false;
+  }
 }
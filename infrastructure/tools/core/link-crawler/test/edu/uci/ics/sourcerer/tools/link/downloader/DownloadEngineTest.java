@@ -0,0 +1,251 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.link.downloader;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import edu.uci.ics.sourcerer.tools.core.repo.model.DownloadState;
+import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceBatch;
+import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceProject;
+import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceRepository;
+import edu.uci.ics.sourcerer.tools.core.repo.model.RepositoryFactory;
+import edu.uci.ics.sourcerer.tools.core.repo.model.SourceProjectProperties;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Command;
+
+/**
+ * Runs the engine against an in-process http server that fails every
+ * request, reached under two host names, and a local file:// repository.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class DownloadEngineTest {
+  public static final Command COMMAND = new Command("test", "Run a junit test.") {
+    @Override
+    protected void action() {
+    }
+  }.setProperties(RepositoryFactory.INPUT_REPO, DownloadEngine.DOWNLOAD_THREADS, DownloadEngine.MAX_DOWNLOADS_PER_HOST, DownloadEngine.HOST_REQUEST_INTERVAL, DownloadEngine.MAX_DOWNLOAD_ATTEMPTS, DownloadEngine.DOWNLOAD_RETRY_BACKOFF, DownloadEngine.DOWNLOAD_REPORT_INTERVAL);
+  
+  private static final int MAX_PER_HOST = 2;
+  private static final int INTERVAL = 50;
+  private static final int ATTEMPTS = 3;
+  
+  private File root;
+  private HttpServer server;
+  private ExecutorService handlers;
+  
+  // Requests in flight and the most ever in flight, by host
+  private final Map<String, AtomicInteger> active = new ConcurrentHashMap<>();
+  private final Map<String, AtomicInteger> maxActive = new ConcurrentHashMap<>();
+  // Paths requested, in order, by host
+  private final Map<String, List<String>> requested = new ConcurrentHashMap<>();
+  
+  @BeforeClass
+  public static void initialize() {
+    // Initializes the logging
+    Command.execute(new String[] { "--test" }, DownloadEngineTest.class);
+  }
+  
+  @Before
+  public void startServer() throws IOException {
+    root = File.createTempFile("download", "");
+    root.delete();
+    root.mkdirs();
+    
+    DownloadEngine.DOWNLOAD_THREADS.setValue(8);
+    DownloadEngine.MAX_DOWNLOADS_PER_HOST.setValue(MAX_PER_HOST);
+    DownloadEngine.HOST_REQUEST_INTERVAL.setValue(INTERVAL);
+    DownloadEngine.MAX_DOWNLOAD_ATTEMPTS.setValue(ATTEMPTS);
+    DownloadEngine.DOWNLOAD_RETRY_BACKOFF.setValue(10);
+    
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    // Handle requests concurrently, or the server itself would serialize the hosts
+    handlers = Executors.newCachedThreadPool();
+    server.setExecutor(handlers);
+    server.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        host = host.substring(0, host.lastIndexOf(':'));
+        AtomicInteger count = getCounter(active, host);
+        int now = count.incrementAndGet();
+        AtomicInteger max = getCounter(maxActive, host);
+        for (int seen = max.get(); now > seen && !max.compareAndSet(seen, now); seen = max.get()) {
+        }
+        getRequested(host).add(exchange.getRequestURI().getPath());
+        try {
+          // Hold the request long enough for the others to pile up
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          count.decrementAndGet();
+        }
+        exchange.sendResponseHeaders(503, -1);
+        exchange.close();
+      }
+    });
+    server.start();
+  }
+  
+  private static AtomicInteger getCounter(Map<String, AtomicInteger> counters, String host) {
+    AtomicInteger counter = counters.get(host);
+    if (counter == null) {
+      counters.put(host, new AtomicInteger());
+      counter = counters.get(host);
+    }
+    return counter;
+  }
+  
+  private synchronized List<String> getRequested(String host) {
+    List<String> paths = requested.get(host);
+    if (paths == null) {
+      paths = new CopyOnWriteArrayList<>();
+      requested.put(host, paths);
+    }
+    return paths;
+  }
+  
+  @After
+  public void stopServer() {
+    server.stop(0);
+    handlers.shutdownNow();
+    FileUtils.delete(root);
+  }
+  
+  private String createRepository(String name, String path, String contents) throws IOException, SVNException {
+    File content = new File(root, name + "-content");
+    File file = new File(content, path);
+    file.getParentFile().mkdirs();
+    try (BufferedWriter writer = IOUtils.makeBufferedWriter(file)) {
+      writer.write(contents);
+    }
+    
+    Subversion.setup();
+    SVNURL url = SVNRepositoryFactory.createLocalRepository(new File(root, name), true, false);
+    SVNClientManager manager = SVNClientManager.newInstance();
+    try {
+      manager.getCommitClient().doImport(content, url, "Initial import", null, false, false, SVNDepth.INFINITY);
+    } finally {
+      manager.dispose();
+    }
+    return url.toString();
+  }
+  
+  private static ModifiableSourceProject createProject(ModifiableSourceBatch batch, String url) {
+    ModifiableSourceProject project = batch.createProject();
+    project.getProperties().SVN_URL.setValue(url);
+    project.getProperties().save();
+    return project;
+  }
+  
+  @Test
+  public void testDownload() throws IOException, SVNException {
+    String base = "http://%s:" + server.getAddress().getPort() + "/%s/trunk";
+    String javaUrl = createRepository("java", "trunk/src/foo/Foo.java", "package foo;\nclass Foo {}\n");
+    
+    RepositoryFactory.INPUT_REPO.setValue(new File(root, "repo"));
+    ModifiableSourceRepository repo = RepositoryFactory.INSTANCE.loadModifiableSourceRepository(RepositoryFactory.INPUT_REPO);
+    ModifiableSourceBatch batch = repo.createBatch();
+    
+    Collection<ModifiableSourceProject> failing = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      failing.add(createProject(batch, String.format(base, "localhost", "local" + i)));
+      failing.add(createProject(batch, String.format(base, "127.0.0.1", "loopback" + i)));
+    }
+    // A project that already failed in an earlier run keeps counting its attempts
+    ModifiableSourceProject resumed = createProject(batch, String.format(base, "localhost", "resumed"));
+    resumed.getProperties().DOWNLOAD_STATE.setValue(DownloadState.FAILED);
+    resumed.getProperties().DOWNLOAD_ATTEMPTS.setValue(5);
+    resumed.getProperties().save();
+    ModifiableSourceProject java = createProject(batch, javaUrl + "/trunk");
+    
+    DownloadEngine.download(repo.getProjects());
+    
+    // Requests to each host were queued, rather than all sent at once
+    Assert.assertEquals(2, requested.size());
+    Assert.assertEquals(MAX_PER_HOST, maxActive.get("localhost").get());
+    Assert.assertEquals(MAX_PER_HOST, maxActive.get("127.0.0.1").get());
+    
+    for (ModifiableSourceProject project : failing) {
+      // Every attempt reached the server, though an attempt may make several requests
+      String url = project.getProperties().SVN_URL.getValue();
+      String prefix = url.substring(url.indexOf('/', url.indexOf("//") + 2), url.lastIndexOf('/'));
+      int requests = 0;
+      for (String path : requested.get(HostLimiter.getHostName(url))) {
+        if (path.startsWith(prefix + "/")) {
+          requests++;
+        }
+      }
+      Assert.assertTrue(url + " was requested " + requests + " times", requests >= ATTEMPTS);
+      
+      SourceProjectProperties props = project.getProperties();
+      Assert.assertEquals(DownloadState.FAILED, props.DOWNLOAD_STATE.getValue());
+      Assert.assertEquals(Integer.valueOf(ATTEMPTS), props.DOWNLOAD_ATTEMPTS.getValue());
+      Assert.assertNull(props.DOWNLOAD_DATE.getValue());
+    }
+    
+    Assert.assertEquals(DownloadState.FAILED, resumed.getProperties().DOWNLOAD_STATE.getValue());
+    Assert.assertEquals(Integer.valueOf(5 + ATTEMPTS), resumed.getProperties().DOWNLOAD_ATTEMPTS.getValue());
+    
+    // The local project succeeds on its first attempt
+    SourceProjectProperties props = java.getProperties();
+    Assert.assertNull(props.DOWNLOAD_STATE.getValue());
+    Assert.assertEquals(Integer.valueOf(1), props.DOWNLOAD_ATTEMPTS.getValue());
+    Assert.assertNotNull(props.DOWNLOAD_DATE.getValue());
+    Assert.assertTrue(java.hasContent());
+    
+    // The state survives a reload, so the next run resumes from it
+    ModifiableSourceRepository reloaded = RepositoryFactory.INSTANCE.loadModifiableSourceRepository(RepositoryFactory.INPUT_REPO);
+    int reloadedFailures = 0;
+    for (ModifiableSourceProject project : reloaded.getProjects()) {
+      if (project.getProperties().DOWNLOAD_STATE.getValue() == DownloadState.FAILED) {
+        reloadedFailures++;
+      }
+    }
+    Assert.assertEquals(failing.size() + 1, reloadedFailures);
+  }
+}
@@ -0,0 +1,147 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.link.downloader;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class HostLimiterTest {
+  private ScheduledThreadPoolExecutor pool;
+  
+  @Before
+  public void createPool() {
+    pool = new ScheduledThreadPoolExecutor(1);
+  }
+  
+  @After
+  public void shutdownPool() {
+    pool.shutdownNow();
+  }
+  
+  @Test
+  public void testBusyHostHoldsNoThread() throws InterruptedException {
+    final HostLimiter limiter = new HostLimiter(1, 0, pool);
+    final List<String> started = new CopyOnWriteArrayList<>();
+    final CountDownLatch first = new CountDownLatch(2);
+    final CountDownLatch second = new CountDownLatch(1);
+    
+    // The first request keeps its slot on a until released below
+    limiter.submit("a", new Runnable() {
+      @Override
+      public void run() {
+        started.add("a1");
+        first.countDown();
+      }
+    });
+    limiter.submit("a", new Runnable() {
+      @Override
+      public void run() {
+        started.add("a2");
+        limiter.release("a");
+        second.countDown();
+      }
+    });
+    // With a single thread, this only runs if a2 waits without holding it
+    limiter.submit("b", new Runnable() {
+      @Override
+      public void run() {
+        started.add("b1");
+        limiter.release("b");
+        first.countDown();
+      }
+    });
+    
+    Assert.assertTrue(first.await(5, TimeUnit.SECONDS));
+    Assert.assertFalse(started.contains("a2"));
+    
+    limiter.release("a");
+    Assert.assertTrue(second.await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(3, started.size());
+  }
+  
+  @Test
+  public void testConcurrencyBound() throws InterruptedException {
+    pool.setCorePoolSize(4);
+    final HostLimiter limiter = new HostLimiter(2, 0, pool);
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger peak = new AtomicInteger();
+    final CountDownLatch done = new CountDownLatch(20);
+    
+    for (int i = 0; i < 20; i++) {
+      limiter.submit("a", new Runnable() {
+        @Override
+        public void run() {
+          int now = active.incrementAndGet();
+          synchronized (peak) {
+            peak.set(Math.max(peak.get(), now));
+          }
+          try {
+            Thread.sleep(5);
+          } catch (InterruptedException e) {}
+          active.decrementAndGet();
+          limiter.release("a");
+          done.countDown();
+        }
+      });
+    }
+    
+    Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    Assert.assertEquals(2, peak.get());
+  }
+  
+  @Test
+  public void testSpacing() throws InterruptedException {
+    final HostLimiter limiter = new HostLimiter(4, 200, pool);
+    final List<Long> starts = new CopyOnWriteArrayList<>();
+    final CountDownLatch done = new CountDownLatch(3);
+    
+    for (int i = 0; i < 3; i++) {
+      limiter.submit("a", new Runnable() {
+        @Override
+        public void run() {
+          starts.add(System.currentTimeMillis());
+          limiter.release("a");
+          done.countDown();
+        }
+      });
+    }
+    
+    Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    // Allow for the timer's granularity
+    Assert.assertTrue(starts.get(1) - starts.get(0) >= 190);
+    Assert.assertTrue(starts.get(2) - starts.get(1) >= 190);
+  }
+  
+  @Test
+  public void testHostName() {
+    Assert.assertEquals("code.google.com", HostLimiter.getHostName("http://code.google.com/p/foo/source"));
+    Assert.assertEquals("svn.apache.org", HostLimiter.getHostName("svn://svn.apache.org/repos/asf"));
+  }
+}
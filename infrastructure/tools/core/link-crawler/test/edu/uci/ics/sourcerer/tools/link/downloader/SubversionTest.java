@@ -0,0 +1,155 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.link.downloader;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tmatesoft.svn.core.SVNDepth;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.SVNClientManager;
+
+import edu.uci.ics.sourcerer.tools.link.downloader.Subversion.ProbeListener;
+import edu.uci.ics.sourcerer.tools.link.downloader.Subversion.Result;
+import edu.uci.ics.sourcerer.tools.link.model.Project;
+import edu.uci.ics.sourcerer.tools.link.model.Source;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Command;
+
+/**
+ * Runs the probes and downloads against a local file:// repository.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class SubversionTest {
+  public static final Command COMMAND = new Command("test", "Run a junit test.") {
+    @Override
+    protected void action() {
+    }
+  }.setProperties(DownloadEngine.DOWNLOAD_THREADS, DownloadEngine.MAX_DOWNLOADS_PER_HOST, DownloadEngine.HOST_REQUEST_INTERVAL);
+  
+  private File root;
+  private String javaUrl;
+  private String otherUrl;
+  private String missingUrl;
+  
+  @BeforeClass
+  public static void initialize() {
+    // Initializes the logging and the pool sizes
+    Command.execute(new String[] { "--test" }, SubversionTest.class);
+  }
+  
+  @Before
+  public void createRepositories() throws IOException, SVNException {
+    root = File.createTempFile("svn", "");
+    root.delete();
+    root.mkdirs();
+    
+    Subversion.setup();
+    javaUrl = createRepository("java", "trunk/src/foo/Foo.java", "package foo;\nclass Foo {}\n");
+    otherUrl = createRepository("other", "trunk/README", "Nothing to see here.\n");
+    missingUrl = SVNURL.fromFile(new File(root, "missing")).toString();
+  }
+  
+  private String createRepository(String name, String path, String contents) throws IOException, SVNException {
+    File content = new File(root, name + "-content");
+    File file = new File(content, path);
+    file.getParentFile().mkdirs();
+    try (BufferedWriter writer = IOUtils.makeBufferedWriter(file)) {
+      writer.write(contents);
+    }
+    
+    SVNURL url = SVNRepositoryFactory.createLocalRepository(new File(root, name), true, false);
+    SVNClientManager manager = SVNClientManager.newInstance();
+    try {
+      manager.getCommitClient().doImport(content, url, "Initial import", null, false, false, SVNDepth.INFINITY);
+    } finally {
+      manager.dispose();
+    }
+    return url.toString();
+  }
+  
+  @After
+  public void deleteRepositories() {
+    FileUtils.delete(root);
+  }
+  
+  @Test
+  public void testExamine() {
+    Assert.assertEquals(Result.WITH_JAVA, Subversion.examine(new Project("java", javaUrl, Source.GOOGLE_CODE), false));
+    Assert.assertEquals(Result.WITH_JAVA, Subversion.examine(new Project("java", javaUrl, Source.GOOGLE_CODE), true));
+    Assert.assertEquals(Result.WITHOUT_JAVA, Subversion.examine(new Project("other", otherUrl, Source.GOOGLE_CODE), false));
+    Assert.assertEquals(Result.SVN_ERROR, Subversion.examine(new Project("missing", missingUrl, Source.GOOGLE_CODE), false));
+  }
+  
+  @Test
+  public void testExamineAll() {
+    final Map<String, Result> results = new ConcurrentHashMap<>();
+    Subversion.examineAll(Arrays.asList(
+        new Project("java", javaUrl, Source.GOOGLE_CODE),
+        new Project("other", otherUrl, Source.GOOGLE_CODE),
+        new Project("missing", missingUrl, Source.GOOGLE_CODE),
+        new Project("skipped", javaUrl, Source.GOOGLE_CODE)),
+        Collections.singleton("skipped"), false, new ProbeListener() {
+          @Override
+          public void examined(Project project, Result result) {
+            results.put(project.getName(), result);
+          }
+        });
+    
+    Assert.assertEquals(3, results.size());
+    Assert.assertEquals(Result.WITH_JAVA, results.get("java"));
+    Assert.assertEquals(Result.WITHOUT_JAVA, results.get("other"));
+    Assert.assertEquals(Result.SVN_ERROR, results.get("missing"));
+  }
+  
+  @Test
+  public void testDownload() {
+    File target = new File(root, "download");
+    Assert.assertTrue(Subversion.download(javaUrl, target));
+    Assert.assertTrue(new File(target, "trunk/src/foo/Foo.java").isFile());
+    
+    File failed = new File(root, "failed-download");
+    Assert.assertFalse(Subversion.download(missingUrl, failed));
+    Assert.assertFalse(failed.exists());
+  }
+  
+  @Test
+  public void testCheckout() {
+    File target = new File(root, "checkout");
+    Assert.assertTrue(Subversion.checkout(javaUrl + "/trunk", target));
+    Assert.assertTrue(new File(target, "src/foo/Foo.java").isFile());
+    Assert.assertTrue(new File(target, ".svn").isDirectory());
+    Assert.assertTrue(Subversion.resume(javaUrl + "/trunk", target));
+    
+    Assert.assertFalse(Subversion.checkout(missingUrl, new File(root, "failed-checkout")));
+  }
+}
@@ -17,6 +17,8 @@
  */
 package edu.uci.ics.sourcerer.tools.core.repo.model;
 
+import edu.uci.ics.sourcerer.util.io.properties.EnumProperty;
+import edu.uci.ics.sourcerer.util.io.properties.IntProperty;
 import edu.uci.ics.sourcerer.util.io.properties.Property;
 import edu.uci.ics.sourcerer.util.io.properties.StringProperty;
 
@@ -30,6 +32,8 @@ public class SourceProjectProperties extends ProjectProperties {
   public Property<String> SVN_URL = new StringProperty("svn-url", this);
   public Property<String> CVS_URL = new StringProperty("cvs-url", this);
   public Property<String> DOWNLOAD_DATE = new StringProperty("download-date", this);
+  public Property<DownloadState> DOWNLOAD_STATE = new EnumProperty<DownloadState>("download-state", DownloadState.class, this);
+  public Property<Integer> DOWNLOAD_ATTEMPTS = new IntProperty("download-attempts", this);
   
   public SourceProjectProperties(RepoFile file) {
     super(file);
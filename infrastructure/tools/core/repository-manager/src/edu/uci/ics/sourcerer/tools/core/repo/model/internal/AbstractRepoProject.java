@@ -33,7 +33,9 @@ public abstract class AbstractRepoProject<Repo extends AbstractRepository<?, ?>,
   private CachedReference<Properties> properties = new CachedReference<Properties>() {
     @Override
     protected Properties create() {
-      return makeProperties(propFile);
+      Properties properties = makeProperties(propFile);
+      properties.setCatalog(repo.getCatalog(), loc.toString());
+      return properties;
     }
   };
   
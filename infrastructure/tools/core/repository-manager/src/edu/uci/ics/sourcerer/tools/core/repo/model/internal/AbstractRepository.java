@@ -20,32 +20,35 @@ package edu.uci.ics.sourcerer.tools.core.repo.model.internal;
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
 import java.io.File;
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.logging.Level;
+import java.util.Collections;
+import java.util.Set;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import edu.uci.ics.sourcerer.tools.core.repo.model.ProjectLocation;
 import edu.uci.ics.sourcerer.tools.core.repo.model.RepositoryProperties;
-import edu.uci.ics.sourcerer.util.io.EntryWriter;
-import edu.uci.ics.sourcerer.util.io.IOUtils;
-import edu.uci.ics.sourcerer.util.io.SimpleSerializer;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
 import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
 import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
+import edu.uci.ics.sourcerer.util.io.properties.PropertiesCatalog;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 public abstract class AbstractRepository<Project extends AbstractRepoProject<? extends AbstractRepository<Project, Batch>, ?>, Batch extends BatchImpl<Project>> {
   public static final Argument<String> REPO_PROPERTIES = new StringArgument("repo-properties-file", "repo.properties", "File name for repo properties file.").permit();
-  public static final Argument<String> PROJECT_CACHE = new StringArgument("project-cache-file", "project-cache.txt", "File containing a cached list of the projects.").permit();
+  public static final Argument<String> REPO_CATALOG = new StringArgument("repo-catalog-file", "catalog.txt", "File containing the catalog of project and jar properties.").permit();
   public static final Argument<Boolean> CLEAR_CACHES = new BooleanArgument("clear-caches", false, "Clear all repository caches.").permit();
   
   protected RepoFileImpl repoRoot;
   protected RepositoryProperties properties;
   
-  private RepoFileImpl cache;
+  private static final Pattern PROJECT_KEY = Pattern.compile("(\\d+)/(\\d+)");
+  private static final String PROJECTS_INDEXED = "#projects-indexed";
+  
+  private PropertiesCatalog catalog;
   private BatchSetImpl<Project, Batch> batchSet;
   
   protected AbstractRepository(RepoFileImpl repoRoot) {
@@ -54,54 +57,61 @@ public abstract class AbstractRepository<Project extends AbstractRepoProject<? e
     properties = new RepositoryProperties(repoRoot.getChild(REPO_PROPERTIES));
   }
   
-  protected void clearCache() {
-    cache.delete();
+  protected final synchronized PropertiesCatalog getCatalog() {
+    if (catalog == null) {
+      RepoFileImpl file = repoRoot.getChild(REPO_CATALOG.getValue());
+      if (CLEAR_CACHES.getValue()) {
+        file.delete();
+      }
+      catalog = PropertiesCatalog.open(file.toFile());
+    }
+    return catalog;
   }
   
   protected abstract Project createProject(ProjectLocationImpl loc);
 
   protected Project addProject(Integer batch, Integer checkout) {
-    return batchSet.add(batch, checkout);
+    Project project = batchSet.add(batch, checkout);
+    registerProject(project);
+    return project;
+  }
+  
+  private void registerProject(Project project) {
+    // Attaching the properties imports any existing properties file
+    project.getProperties();
+    String key = project.getLocation().toString();
+    PropertiesCatalog catalog = getCatalog();
+    if (!catalog.contains(key)) {
+      catalog.put(key, Collections.<String, String>emptyMap());
+    }
   }
   
   private final void populateProjects() {
     if (batchSet == null) {
       batchSet = new BatchSetImpl<Project, Batch>(this);
-      cache = repoRoot.getChild(PROJECT_CACHE.getValue());
       if (repoRoot.exists()) {
-        if (cache.exists() && !CLEAR_CACHES.getValue()) {
-          try {
-            for (ProjectLocationImpl loc : IOUtils.deserialize(ProjectLocationImpl.class, cache.toFile(), true)) {
-              batchSet.add(loc.getBatchNumber(), loc.getCheckoutNumber());
+        PropertiesCatalog catalog = getCatalog();
+        if (catalog.contains(PROJECTS_INDEXED)) {
+          for (String key : catalog.getKeys()) {
+            Matcher matcher = PROJECT_KEY.matcher(key);
+            if (matcher.matches()) {
+              batchSet.add(Integer.valueOf(matcher.group(1)), Integer.valueOf(matcher.group(2)));
             }
-            return;
-          } catch (IOException e) {
-            logger.log(Level.SEVERE, "Unable to load project cache: " + cache.toString(), e);
           }
-        }
-        Pattern pattern = Pattern.compile("\\d*");
-        for (File batch : repoRoot.toFile().listFiles()) {
-          if (batch.isDirectory() && pattern.matcher(batch.getName()).matches()) {
-            for (File checkout : batch.listFiles()) {
-              if (pattern.matcher(checkout.getName()).matches()) {
-                batchSet.add(Integer.valueOf(batch.getName()), Integer.valueOf(checkout.getName()));
+        } else {
+          // Build the catalog from the batch directories
+          logger.info("Indexing projects into catalog: " + catalog);
+          Pattern pattern = Pattern.compile("\\d*");
+          for (File batch : repoRoot.toFile().listFiles()) {
+            if (batch.isDirectory() && pattern.matcher(batch.getName()).matches()) {
+              for (File checkout : batch.listFiles()) {
+                if (pattern.matcher(checkout.getName()).matches()) {
+                  registerProject(batchSet.add(Integer.valueOf(batch.getName()), Integer.valueOf(checkout.getName())));
+                }
               }
             }
           }
-        }
-        SimpleSerializer writer = null;
-        EntryWriter<ProjectLocationImpl> ew = null;
-        try {
-          writer = IOUtils.makeSimpleSerializer(cache.toFile());
-          ew = writer.getEntryWriter(ProjectLocationImpl.class);
-          for (Project project : getProjects()) {
-            ew.write(project.getLocation());
-          }
-        } catch (IOException e) {
-          logger.log(Level.SEVERE, "Unable to write project cache.", e);
-        } finally {
-          IOUtils.close(ew);
-          IOUtils.close(writer);
+          catalog.put(PROJECTS_INDEXED, Collections.<String, String>emptyMap());
         }
       }
     }
@@ -163,6 +173,21 @@ public abstract class AbstractRepository<Project extends AbstractRepoProject<? e
     return batchSet;
   }
   
+  /**
+   * Returns the projects whose <tt>property</tt> is <tt>value</tt>,
+   * as answered by the catalog's index for that property.
+   */
+  public Collection<Project> getProjects(String property, String value) {
+    Set<String> keys = getCatalog().getKeys(property, value);
+    Collection<Project> projects = new ArrayList<>(keys.size());
+    for (Project project : getProjects()) {
+      if (keys.contains(project.getLocation().toString())) {
+        projects.add(project);
+      }
+    }
+    return projects;
+  }
+  
   public int getProjectCount() {
     return getProjects().size();
   }
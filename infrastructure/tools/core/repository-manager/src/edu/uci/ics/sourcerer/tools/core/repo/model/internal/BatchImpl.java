@@ -76,7 +76,6 @@ public class BatchImpl<Project extends AbstractRepoProject<? extends AbstractRep
   
   @Override
   public Project createProject() {
-    repo.clearCache();
     Integer nextCheckout = projects.isEmpty() ? 0 : (projects.lastKey() + 1); 
     return repo.addProject(batch, nextCheckout);
   }
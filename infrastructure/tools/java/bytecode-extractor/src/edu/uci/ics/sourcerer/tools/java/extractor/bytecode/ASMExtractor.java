@@ -60,6 +60,7 @@ import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
 import edu.uci.ics.sourcerer.util.Helper;
 import edu.uci.ics.sourcerer.util.io.IOUtils;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.util.io.metrics.Instrumentation;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
@@ -74,7 +75,7 @@ public class ASMExtractor implements Closeable {
   
   private ClassVisitorImpl classVisitor = new ClassVisitorImpl();
   private AnnotationVisitorImpl annotationVisitor = new AnnotationVisitorImpl();
-  private MethodVisitorImpl methodVisitor = new MethodVisitorImpl();
+  private MethodVisitorImpl methodVisitor;
   private ClassSignatureVisitorImpl classSignatureVisitor = new ClassSignatureVisitorImpl();
   private MethodSignatureVisitorImpl methodSignatureVisitor = new MethodSignatureVisitorImpl();
   
@@ -82,12 +83,17 @@ public class ASMExtractor implements Closeable {
   private Location location;
   
   public ASMExtractor(WriterBundle writers) {
+    this(writers, HalsteadCounter.create());
+  }
+  
+  ASMExtractor(WriterBundle writers, HalsteadCounter halstead) {
     this.writers = writers;
     this.fileWriter = writers.getFileWriter();
     this.entityWriter = writers.getEntityWriter();
     this.relationWriter = writers.getRelationWriter();
     this.parameterWriter = writers.getLocalVariableWriter();
     
+    methodVisitor = new MethodVisitorImpl(halstead);
     fqnStack = new FqnStack();
   }
   
@@ -135,7 +141,11 @@ public class ASMExtractor implements Closeable {
       task.exception(e);
     }
 
-    FindBugsRunner.runFindBugs(file, writers.getOutput());
+    long start = System.nanoTime();
+    if (!FindBugsRunner.runFindBugs(file, writers.getOutput())) {
+      Instrumentation.meter("extractor.findbugs.failures").mark();
+    }
+    Instrumentation.histogram("extractor.findbugs").recordSince(start);
   }
   
   public void extract(byte[] bytes) {
@@ -508,11 +518,11 @@ public class ASMExtractor implements Closeable {
     private int instructionCount;
     private int statementCount;
     private Set<Label> offsets = new HashSet<>();
-    private Set<String> operators = new HashSet<>();
-    private Set<String> operands = new HashSet<>();
+    private final HalsteadCounter halstead;
 
-    public MethodVisitorImpl() {
+    public MethodVisitorImpl(HalsteadCounter halstead) {
       super(Opcodes.ASM5);
+      this.halstead = halstead;
     }
 
     private void init(Entity type, String fqn, String sig, String rawSig, int mods) {
@@ -525,8 +535,7 @@ public class ASMExtractor implements Closeable {
       instructionCount = 0;
       statementCount = 0;
       offsets.clear();
-      operators.clear();
-      operands.clear();
+      halstead.reset();
     }
     
     @Override
@@ -572,13 +581,13 @@ public class ASMExtractor implements Closeable {
           case Opcodes.GETFIELD:
           case Opcodes.GETSTATIC:
             relationWriter.writeRelation(Relation.READS, fqnStack.getFqn(), convertNameToFqn(owner) + "." + name, location);
-            operands.add(owner + name);
+            halstead.addOperand(owner, name);
             break;
           case Opcodes.PUTFIELD:
           case Opcodes.PUTSTATIC:
             relationWriter.writeRelation(Relation.WRITES, fqnStack.getFqn(), convertNameToFqn(owner) + "." + name, location);
             statementCount++;
-            operands.add(owner + name);
+            halstead.addOperand(owner, name);
             break;
           default:
             logger.severe("Unknown field instruction: " + opcode);
@@ -590,29 +599,29 @@ public class ASMExtractor implements Closeable {
     public void visitIincInsn(int var, int increment) {
       instructionCount++;
       statementCount++;
-      operators.add("$op84");
-      operands.add("$var" + var);
-      operands.add("$int" + increment);
+      halstead.addOperator(HalsteadCounter.IINC);
+      halstead.addVariableOperand(var);
+      halstead.addIntOperand(increment);
     }
 
     @Override
     public void visitInsn(int opcode) {
       switch (opcode) {
-        case Opcodes.ACONST_NULL: operands.add("$null"); break;
-        case Opcodes.ICONST_M1: operands.add("$int-1"); break;
-        case Opcodes.ICONST_0: operands.add("$int0"); break;
-        case Opcodes.ICONST_1: operands.add("$int1"); break;
-        case Opcodes.ICONST_2: operands.add("$int2"); break;
-        case Opcodes.ICONST_3: operands.add("$int3"); break;
-        case Opcodes.ICONST_4: operands.add("$int4"); break;
-        case Opcodes.ICONST_5: operands.add("$int5"); break;
-        case Opcodes.LCONST_0: operands.add("$long0"); break;
-        case Opcodes.LCONST_1: operands.add("$long1"); break;
-        case Opcodes.FCONST_0: operands.add("$float0"); break;
-        case Opcodes.FCONST_1: operands.add("$float1"); break;
-        case Opcodes.FCONST_2: operands.add("$float2"); break;
-        case Opcodes.DCONST_0: operands.add("$double0"); break;
-        case Opcodes.DCONST_1: operands.add("$double1"); break;
+        case Opcodes.ACONST_NULL: halstead.addNullOperand(); break;
+        case Opcodes.ICONST_M1: halstead.addIntOperand(-1); break;
+        case Opcodes.ICONST_0: halstead.addIntOperand(0); break;
+        case Opcodes.ICONST_1: halstead.addIntOperand(1); break;
+        case Opcodes.ICONST_2: halstead.addIntOperand(2); break;
+        case Opcodes.ICONST_3: halstead.addIntOperand(3); break;
+        case Opcodes.ICONST_4: halstead.addIntOperand(4); break;
+        case Opcodes.ICONST_5: halstead.addIntOperand(5); break;
+        case Opcodes.LCONST_0: halstead.addLongOperand(0L); break;
+        case Opcodes.LCONST_1: halstead.addLongOperand(1L); break;
+        case Opcodes.FCONST_0: halstead.addFloatConstantOperand(0); break;
+        case Opcodes.FCONST_1: halstead.addFloatConstantOperand(1); break;
+        case Opcodes.FCONST_2: halstead.addFloatConstantOperand(2); break;
+        case Opcodes.DCONST_0: halstead.addDoubleConstantOperand(0); break;
+        case Opcodes.DCONST_1: halstead.addDoubleConstantOperand(1); break;
         case Opcodes.IALOAD:
         case Opcodes.LALOAD:
         case Opcodes.FALOAD:
@@ -629,103 +638,103 @@ public class ASMExtractor implements Closeable {
         case Opcodes.BASTORE:
         case Opcodes.CASTORE:
         case Opcodes.SASTORE:
-          operators.add("$arr-deref");
+          halstead.addOperator(HalsteadCounter.ARRAY_DEREF);
           break;
         case Opcodes.IADD:
         case Opcodes.LADD:
         case Opcodes.FADD:
         case Opcodes.DADD:
-          operators.add("$add");
+          halstead.addOperator(HalsteadCounter.ADD);
           break;
         case Opcodes.ISUB:
         case Opcodes.LSUB:
         case Opcodes.FSUB:
         case Opcodes.DSUB:
-          operators.add("$sub");
+          halstead.addOperator(HalsteadCounter.SUB);
           break;
         case Opcodes.IMUL:
         case Opcodes.LMUL:
         case Opcodes.FMUL:
         case Opcodes.DMUL:
-          operators.add("$mul");
+          halstead.addOperator(HalsteadCounter.MUL);
           break;
         case Opcodes.IDIV:
         case Opcodes.LDIV:
         case Opcodes.FDIV:
         case Opcodes.DDIV:
-          operators.add("$div");
+          halstead.addOperator(HalsteadCounter.DIV);
           break;
         case Opcodes.IREM:
         case Opcodes.LREM:
         case Opcodes.FREM:
         case Opcodes.DREM:
-          operators.add("$rem");
+          halstead.addOperator(HalsteadCounter.REM);
           break;
         case Opcodes.INEG:
         case Opcodes.LNEG:
         case Opcodes.FNEG:
         case Opcodes.DNEG:
-          operators.add("$neg");
+          halstead.addOperator(HalsteadCounter.NEG);
           break;
         case Opcodes.ISHL:
         case Opcodes.LSHL:
-          operators.add("$shl");
+          halstead.addOperator(HalsteadCounter.SHL);
           break;
         case Opcodes.ISHR:
         case Opcodes.LSHR:
-          operators.add("$shr");
+          halstead.addOperator(HalsteadCounter.SHR);
           break;
         case Opcodes.IUSHR:
         case Opcodes.LUSHR:
-          operators.add("$ushr");
+          halstead.addOperator(HalsteadCounter.USHR);
           break;
         case Opcodes.IAND:
         case Opcodes.LAND:
-          operators.add("$bw-and");
+          halstead.addOperator(HalsteadCounter.BW_AND);
           break;
         case Opcodes.IOR:
         case Opcodes.LOR:
-          operators.add("$bw-or");
+          halstead.addOperator(HalsteadCounter.BW_OR);
           break;
         case Opcodes.IXOR:
         case Opcodes.LXOR:
-          operators.add("$bw-xor");
+          halstead.addOperator(HalsteadCounter.BW_XOR);
           break;
         case Opcodes.I2L:
         case Opcodes.F2L:
         case Opcodes.D2L:
-          operators.add("long");
+          halstead.addOperator(HalsteadCounter.TO_LONG);
           break;
         case Opcodes.I2F:
         case Opcodes.L2F:
         case Opcodes.D2F:
-          operators.add("float");
+          halstead.addOperator(HalsteadCounter.TO_FLOAT);
           break;
         case Opcodes.I2D:
         case Opcodes.L2D:
         case Opcodes.F2D:
-          operators.add("double");
+          halstead.addOperator(HalsteadCounter.TO_DOUBLE);
           break;
         case Opcodes.L2I:
         case Opcodes.F2I:
         case Opcodes.D2I:
-          operators.add("int");
+          halstead.addOperator(HalsteadCounter.TO_INT);
           break;
         case Opcodes.I2B:
-          operators.add("byte");
+          halstead.addOperator(HalsteadCounter.TO_BYTE);
           break;
         case Opcodes.I2C:
-          operators.add("char");
+          halstead.addOperator(HalsteadCounter.TO_CHAR);
           break;
         case Opcodes.I2S:
-          operators.add("short");
+          halstead.addOperator(HalsteadCounter.TO_SHORT);
           break;
         case Opcodes.LCMP:
         case Opcodes.FCMPL:
         case Opcodes.FCMPG:
         case Opcodes.DCMPL:
         case Opcodes.DCMPG:
-          operators.add("$cmp");
+          halstead.addOperator(HalsteadCounter.CMP);
           break;
         case Opcodes.IRETURN:
         case Opcodes.LRETURN:
@@ -734,18 +743,18 @@ public class ASMExtractor implements Closeable {
         case Opcodes.ARETURN:
         case Opcodes.RETURN:
           statementCount++;
-          operators.add("$return");
+          halstead.addOperator(HalsteadCounter.RETURN);
           break;
         case Opcodes.ARRAYLENGTH:
-          operators.add("$length");
+          halstead.addOperator(HalsteadCounter.LENGTH);
           break;
         case Opcodes.ATHROW:
           statementCount++;
-          operators.add("throw");
+          halstead.addOperator(HalsteadCounter.THROW);
           break;
         case Opcodes.MONITORENTER:
         case Opcodes.MONITOREXIT:
-          operators.add("synchronized");
+          halstead.addOperator(HalsteadCounter.SYNCHRONIZED);
           break;
         default:
           break;
@@ -758,10 +767,10 @@ public class ASMExtractor implements Closeable {
       switch (opcode) {
         case Opcodes.BIPUSH:
         case Opcodes.SIPUSH:
-          operands.add("$int" + operand);
+          halstead.addIntOperand(operand);
           break;
         case Opcodes.NEWARRAY:
-          operators.add("$new-arr");
+          halstead.addOperator(HalsteadCounter.NEW_ARRAY);
           break;
         default:
           logger.severe("Unknown int instruction: " + opcode);
@@ -788,15 +797,15 @@ public class ASMExtractor implements Closeable {
         case Opcodes.IF_ACMPEQ:
         case Opcodes.IF_ACMPNE:
         case Opcodes.JSR:
-          operators.add("$op" + opcode);
+          halstead.addOperator(opcode);
           break;
         case Opcodes.GOTO:
-          operators.add("$op" + opcode);
+          halstead.addOperator(opcode);
           break;
         case Opcodes.IFNULL:
         case Opcodes.IFNONNULL:
-          operators.add("$op" + opcode);
-          operands.add("$null");
+          halstead.addOperator(opcode);
+          halstead.addNullOperand();
           break;
         default:
           logger.severe("Unknown jump instruction: " + opcode);
@@ -809,17 +818,17 @@ public class ASMExtractor implements Closeable {
     @Override
     public void visitLdcInsn(Object cst) {
       if (cst instanceof Integer) {
-        operands.add("$int" + cst);
+        halstead.addIntOperand((Integer) cst);
       } else if (cst instanceof Float) {
-        operands.add("$float" + cst);
+        halstead.addFloatOperand((Float) cst);
       } else if (cst instanceof Long) {
-        operands.add("$long" + cst);
+        halstead.addLongOperand((Long) cst);
       } else if (cst instanceof Double) {
-        operands.add("$double" + cst);
+        halstead.addDoubleOperand((Double) cst);
       } else if (cst instanceof String) {
-        operands.add("$string" + cst);
+        halstead.addOperand("$string", (String) cst);
       } else if (cst instanceof Type) {
-        operands.add("$type" + cst);
+        halstead.addOperand("$type", ((Type) cst).getDescriptor());
       } else {
     	// I am commenting this line because, when we are upgrading
     	// the infrastructure to JAVA8 and ASM5 it seems this functions
@@ -835,23 +844,23 @@ public class ASMExtractor implements Closeable {
       instructionCount++;
       switch (opcode) {
         case Opcodes.INSTANCEOF:
-          operators.add("$op" + opcode);
-          operands.add(desc);
+          halstead.addOperator(opcode);
+          halstead.addOperand(desc);
           relationWriter.writeRelation(Relation.CHECKS, fqnStack.getFqn(), convertNameToFqn(desc), location);
           statementCount++;
           break;
         case Opcodes.CHECKCAST:
-          operators.add("$op" + opcode);
-          operands.add(desc);
+          halstead.addOperator(opcode);
+          halstead.addOperand(desc);
           relationWriter.writeRelation(Relation.CASTS, fqnStack.getFqn(), convertNameToFqn(desc), location);
           statementCount++;
           break;
         case Opcodes.NEW:
-          operators.add("$op" + opcode);
+          halstead.addOperator(opcode);
           relationWriter.writeRelation(Relation.INSTANTIATES, fqnStack.getFqn(), convertNameToFqn(desc), location);
           break;
         case Opcodes.ANEWARRAY:
-          operators.add("$new-arr");
+          halstead.addOperator(HalsteadCounter.NEW_ARRAY);
           break;
         default:
           logger.severe("Unknown type instruction: " + opcode);
@@ -860,7 +869,7 @@ public class ASMExtractor implements Closeable {
 
     @Override
     public void visitVarInsn(int opcode, int var) {
-      operands.add("$var" + var);
+      halstead.addVariableOperand(var);
       instructionCount++;
       switch (opcode) {
         case Opcodes.ILOAD:
@@ -880,9 +889,9 @@ public class ASMExtractor implements Closeable {
 
     @Override
     public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
-      operators.add("$switch");
+      halstead.addOperator(HalsteadCounter.SWITCH);
       for (int key : keys) {
-        operands.add("int" + key);
+        halstead.addSwitchKeyOperand(key);
       }
       instructionCount++;
       statementCount++;
@@ -891,7 +900,7 @@ public class ASMExtractor implements Closeable {
     @Override
     public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
       instructionCount++;
-      operands.add(owner + name + desc);
+      halstead.addOperand(owner, name, desc);
       if (!name.startsWith("access$")) {
         new SignatureReader(desc).accept(methodSignatureVisitor.init(owner, name));
         String fqn = methodSignatureVisitor.getReferenceFqn();
@@ -903,12 +912,12 @@ public class ASMExtractor implements Closeable {
     @Override
     public void visitMultiANewArrayInsn(String desc, int dims) {
       instructionCount++;
-      operators.add("$new-arr");
+      halstead.addOperator(HalsteadCounter.NEW_ARRAY);
     }
 
     @Override
     public void visitTableSwitchInsn(int min, int max, Label dflt, Label ... labels) {
-      operators.add("$switch");
+      halstead.addOperator(HalsteadCounter.SWITCH);
       instructionCount++;
       statementCount++;
     }
@@ -920,13 +929,13 @@ public class ASMExtractor implements Closeable {
     
     @Override
     public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
-      operators.add("$try");
-      operators.add("$catch");
+      halstead.addOperator(HalsteadCounter.TRY);
+      halstead.addOperator(HalsteadCounter.CATCH);
     }
 
     @Override
     public void visitLocalVariable(String name, String desc, String signature, Label start, Label end, int index) {
-      operands.add(desc);
+      halstead.addOperand(desc);
 //      logger.info("local : " + name + " : " + desc + " : " + signature);
     }
 
@@ -944,7 +953,7 @@ public class ASMExtractor implements Closeable {
       metrics.addMetric(Metric.BC_CYCLOMATIC_COMPLEXITY, 1 + offsets.size());
       metrics.addMetric(Metric.BC_NUMBER_OF_STATEMENTS, statementCount);
       metrics.addMetric(Metric.BC_NUMBER_OF_INSTRUCTIONS, instructionCount);
-      metrics.addMetric(Metric.BC_VOCABULARY_SIZE, operators.size() + operands.size());
+      metrics.addMetric(Metric.BC_VOCABULARY_SIZE, halstead.getVocabularySize());
       entityWriter.writeEntity(type, fqn, sig, rawSig, mods, metrics, location);
       fqnStack.pop();
     }
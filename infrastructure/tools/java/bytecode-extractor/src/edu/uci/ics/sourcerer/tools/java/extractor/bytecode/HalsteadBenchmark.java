@@ -0,0 +1,133 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.extractor.bytecode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.WriterBundle;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+
+/**
+ * Times ASM extraction of a set of jars with each {@link HalsteadCounter},
+ * and checks that both produce the same vocabulary sizes.
+ * 
+ * The class files are read into memory up front and extracted with the
+ * dummy writers, so the timings are for the visitors alone.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class HalsteadBenchmark {
+  private static final int ROUNDS = 5;
+  
+  private HalsteadBenchmark() {}
+  
+  static void run(File input) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Benchmarking Halstead metric collection on " + input.getPath());
+    
+    task.start("Loading class files", "class files loaded", 10_000);
+    Collection<byte[]> classFiles = new ArrayList<>();
+    loadClassFiles(task, input, classFiles);
+    task.finish();
+    
+    ChecksumStringCounter strings = new ChecksumStringCounter();
+    ChecksumPrimitiveCounter primitives = new ChecksumPrimitiveCounter();
+    // The first round of each is warm-up
+    long stringTime = 0;
+    long primitiveTime = 0;
+    for (int round = 0; round <= ROUNDS; round++) {
+      long time = time(classFiles, strings);
+      stringTime += round == 0 ? 0 : time;
+      time = time(classFiles, primitives);
+      primitiveTime += round == 0 ? 0 : time;
+    }
+    
+    task.report(classFiles.size() + " class files, " + ROUNDS + " rounds");
+    task.report("String counter:    " + (stringTime / ROUNDS) + " ms per round");
+    task.report("Primitive counter: " + (primitiveTime / ROUNDS) + " ms per round");
+    if (strings.checksum == primitives.checksum) {
+      task.report("Vocabulary sizes match");
+    } else {
+      task.report("Vocabulary sizes DIFFER");
+    }
+    task.finish();
+  }
+  
+  private static void loadClassFiles(TaskProgressLogger task, File file, Collection<byte[]> classFiles) {
+    if (file.isDirectory()) {
+      for (File child : file.listFiles()) {
+        loadClassFiles(task, child, classFiles);
+      }
+    } else if (file.getName().endsWith(".jar")) {
+      try (JarFile jar = new JarFile(file)) {
+        Enumeration<JarEntry> en = jar.entries();
+        while (en.hasMoreElements()) {
+          JarEntry entry = en.nextElement();
+          if (entry.getName().endsWith(".class")) {
+            classFiles.add(IOUtils.getInputStreamAsByteArray(jar.getInputStream(entry), (int) entry.getSize()));
+            task.progress();
+          }
+        }
+      } catch (IOException e) {
+        task.exception(e);
+      }
+    }
+  }
+  
+  private static long time(Collection<byte[]> classFiles, HalsteadCounter counter) {
+    long start = System.currentTimeMillis();
+    ASMExtractor extractor = new ASMExtractor(new WriterBundle(), counter);
+    for (byte[] classFile : classFiles) {
+      try {
+        extractor.extract(classFile);
+      } catch (RuntimeException e) {
+        // Skip class files ASM cannot read
+      }
+    }
+    counter.reset();
+    long time = System.currentTimeMillis() - start;
+    return time;
+  }
+  
+  private static class ChecksumStringCounter extends StringHalsteadCounter {
+    private long checksum;
+    
+    @Override
+    void reset() {
+      checksum = checksum * 31 + getVocabularySize();
+      super.reset();
+    }
+  }
+  
+  private static class ChecksumPrimitiveCounter extends PrimitiveHalsteadCounter {
+    private long checksum;
+    
+    @Override
+    void reset() {
+      checksum = checksum * 31 + getVocabularySize();
+      super.reset();
+    }
+  }
+}
@@ -0,0 +1,160 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.extractor.bytecode;
+
+/**
+ * Collects the distinct operators and operands of a method.
+ * 
+ * Operators are either an opcode, or one of the named operators below,
+ * which lie above the opcode range. Each operand method corresponds to one
+ * of the string forms originally used to identify operands (given in the
+ * comments), and two operands are the same if and only if those strings are.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+abstract class HalsteadCounter {
+  static final int OPCODE_COUNT = 256;
+  
+  // Named operators
+  static final int ARRAY_DEREF = OPCODE_COUNT;
+  static final int ADD = OPCODE_COUNT + 1;
+  static final int SUB = OPCODE_COUNT + 2;
+  static final int MUL = OPCODE_COUNT + 3;
+  static final int DIV = OPCODE_COUNT + 4;
+  static final int REM = OPCODE_COUNT + 5;
+  static final int NEG = OPCODE_COUNT + 6;
+  static final int SHL = OPCODE_COUNT + 7;
+  static final int SHR = OPCODE_COUNT + 8;
+  static final int USHR = OPCODE_COUNT + 9;
+  static final int BW_AND = OPCODE_COUNT + 10;
+  static final int BW_OR = OPCODE_COUNT + 11;
+  static final int BW_XOR = OPCODE_COUNT + 12;
+  static final int TO_LONG = OPCODE_COUNT + 13;
+  static final int TO_FLOAT = OPCODE_COUNT + 14;
+  static final int TO_DOUBLE = OPCODE_COUNT + 15;
+  static final int TO_INT = OPCODE_COUNT + 16;
+  static final int TO_BYTE = OPCODE_COUNT + 17;
+  static final int TO_CHAR = OPCODE_COUNT + 18;
+  static final int TO_SHORT = OPCODE_COUNT + 19;
+  static final int CMP = OPCODE_COUNT + 20;
+  static final int RETURN = OPCODE_COUNT + 21;
+  static final int LENGTH = OPCODE_COUNT + 22;
+  static final int THROW = OPCODE_COUNT + 23;
+  static final int SYNCHRONIZED = OPCODE_COUNT + 24;
+  static final int NEW_ARRAY = OPCODE_COUNT + 25;
+  static final int SWITCH = OPCODE_COUNT + 26;
+  static final int TRY = OPCODE_COUNT + 27;
+  static final int CATCH = OPCODE_COUNT + 28;
+  static final int OPERATOR_COUNT = OPCODE_COUNT + 29;
+  
+  /**
+   * iinc has always been recorded under opcode 84.
+   */
+  static final int IINC = 84;
+  
+  static final String[] OPERATOR_NAMES = {
+    "$arr-deref", "$add", "$sub", "$mul", "$div", "$rem", "$neg", "$shl", "$shr", "$ushr", "$bw-and", "$bw-or", "$bw-xor",
+    "long", "float", "double", "int", "byte", "char", "short",
+    "$cmp", "$return", "$length", "throw", "synchronized", "$new-arr", "$switch", "$try", "$catch" };
+  
+  static HalsteadCounter create() {
+    return new PrimitiveHalsteadCounter();
+  }
+  
+  static String getOperatorName(int operator) {
+    if (operator < OPCODE_COUNT) {
+      return "$op" + operator;
+    } else {
+      return OPERATOR_NAMES[operator - OPCODE_COUNT];
+    }
+  }
+  
+  /**
+   * Clears the counter for the next method.
+   */
+  abstract void reset();
+  
+  abstract void addOperator(int operator);
+  
+  /**
+   * <tt>"$var" + var</tt>
+   */
+  abstract void addVariableOperand(int var);
+  
+  /**
+   * <tt>"$int" + value</tt>
+   */
+  abstract void addIntOperand(int value);
+  
+  /**
+   * <tt>"$long" + value</tt>
+   */
+  abstract void addLongOperand(long value);
+  
+  /**
+   * <tt>"$float" + value</tt>, for an ldc constant
+   */
+  abstract void addFloatOperand(float value);
+  
+  /**
+   * <tt>"$double" + value</tt>, for an ldc constant
+   */
+  abstract void addDoubleOperand(double value);
+  
+  /**
+   * <tt>"$float" + n</tt>, for fconst_<i>n</i>
+   */
+  abstract void addFloatConstantOperand(int n);
+  
+  /**
+   * <tt>"$double" + n</tt>, for dconst_<i>n</i>
+   */
+  abstract void addDoubleConstantOperand(int n);
+  
+  /**
+   * <tt>"$null"</tt>
+   */
+  abstract void addNullOperand();
+  
+  /**
+   * <tt>"int" + key</tt>, for lookupswitch keys
+   */
+  abstract void addSwitchKeyOperand(int key);
+  
+  /**
+   * The concatenation of the arguments.
+   * The extractor never builds one in any of the forms above.
+   */
+  abstract void addOperand(String a, String b, String c);
+  
+  final void addOperand(String a, String b) {
+    addOperand(a, b, "");
+  }
+  
+  final void addOperand(String a) {
+    addOperand(a, "", "");
+  }
+  
+  abstract int getOperatorCount();
+  
+  abstract int getOperandCount();
+  
+  final int getVocabularySize() {
+    return getOperatorCount() + getOperandCount();
+  }
+}
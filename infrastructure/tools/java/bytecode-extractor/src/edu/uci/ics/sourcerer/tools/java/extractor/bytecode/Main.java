@@ -21,6 +21,7 @@ import java.io.File;
 
 import edu.uci.ics.sourcerer.tools.java.model.extracted.io.WriterBundle;
 import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Arguments;
 import edu.uci.ics.sourcerer.util.io.arguments.Command;
 
 /**
@@ -35,9 +36,15 @@ public class Main {
       extractor.close();
     }
   };
+  
+  public static final Command BENCHMARK_HALSTEAD = new Command("benchmark-halstead", "Times the Halstead metric collection on a directory of jars.") {
+    @Override
+    protected void action() {
+      HalsteadBenchmark.run(Arguments.INPUT.getValue());
+    }
+  }.setProperties(Arguments.INPUT);
+  
   public static void main(String[] args) {
-    //Command.execute(args, Main.class);
-	String[] aux = {"--extract-file"};
-	Command.execute(aux, Main.class);
+    Command.execute(args, Main.class);
   }
 }
@@ -0,0 +1,324 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.extractor.bytecode;
+
+import java.util.Arrays;
+
+/**
+ * Allocation-free {@link HalsteadCounter}.
+ * 
+ * Operators are counted in a fixed histogram. Numeric operands are packed
+ * into <tt>long</tt> keys, and string operands are kept as their unjoined
+ * parts, hashed and compared as if concatenated. All of the operand tables
+ * are open-addressing and are reset by bumping a generation stamp, so
+ * clearing them between methods costs nothing.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class PrimitiveHalsteadCounter extends HalsteadCounter {
+  // Kinds for the packed numeric operands
+  private static final long VAR = 1;
+  private static final long INT = 2;
+  private static final long FLOAT = 3;
+  private static final long FLOAT_CONSTANT = 4;
+  private static final long DOUBLE_CONSTANT = 5;
+  private static final long NULL = 6;
+  private static final long SWITCH_KEY = 7;
+  
+  private final int[] operatorHistogram = new int[OPERATOR_COUNT];
+  private final int[] seenOperators = new int[OPERATOR_COUNT];
+  private int operatorCount;
+  
+  private final LongTable numbers = new LongTable();
+  private final LongTable longs = new LongTable();
+  private final LongTable doubles = new LongTable();
+  private final StringTable strings = new StringTable();
+  
+  @Override
+  void reset() {
+    for (int i = 0; i < operatorCount; i++) {
+      operatorHistogram[seenOperators[i]] = 0;
+    }
+    operatorCount = 0;
+    numbers.reset();
+    longs.reset();
+    doubles.reset();
+    strings.reset();
+  }
+  
+  @Override
+  void addOperator(int operator) {
+    if (operatorHistogram[operator]++ == 0) {
+      seenOperators[operatorCount++] = operator;
+    }
+  }
+  
+  private void addNumber(long kind, int value) {
+    numbers.add((kind << 32) | (value & 0xFFFFFFFFL));
+  }
+
+  @Override
+  void addVariableOperand(int var) {
+    addNumber(VAR, var);
+  }
+
+  @Override
+  void addIntOperand(int value) {
+    addNumber(INT, value);
+  }
+
+  @Override
+  void addLongOperand(long value) {
+    longs.add(value);
+  }
+
+  @Override
+  void addFloatOperand(float value) {
+    // Distinct floats print differently, and floatToIntBits collapses the NaNs just as printing does
+    addNumber(FLOAT, Float.floatToIntBits(value));
+  }
+
+  @Override
+  void addDoubleOperand(double value) {
+    // As with floats
+    doubles.add(Double.doubleToLongBits(value));
+  }
+
+  @Override
+  void addFloatConstantOperand(int n) {
+    // Never equal to an ldc float, as those always print with a '.'
+    addNumber(FLOAT_CONSTANT, n);
+  }
+
+  @Override
+  void addDoubleConstantOperand(int n) {
+    addNumber(DOUBLE_CONSTANT, n);
+  }
+
+  @Override
+  void addNullOperand() {
+    addNumber(NULL, 0);
+  }
+
+  @Override
+  void addSwitchKeyOperand(int key) {
+    addNumber(SWITCH_KEY, key);
+  }
+
+  @Override
+  void addOperand(String a, String b, String c) {
+    strings.add(a, b, c);
+  }
+
+  @Override
+  int getOperatorCount() {
+    return operatorCount;
+  }
+
+  @Override
+  int getOperandCount() {
+    return numbers.size + longs.size + doubles.size + strings.size;
+  }
+  
+  /**
+   * Slots whose stamp differs from the current generation are empty.
+   */
+  private static abstract class GenerationalTable {
+    protected int[] stamps;
+    protected int generation = 1;
+    protected int mask;
+    protected int size;
+    
+    protected GenerationalTable() {
+      allocate(64);
+    }
+    
+    protected void allocate(int capacity) {
+      stamps = new int[capacity];
+      mask = capacity - 1;
+    }
+    
+    protected final void reset() {
+      size = 0;
+      if (++generation == 0) {
+        Arrays.fill(stamps, 0);
+        generation = 1;
+      }
+    }
+    
+    protected final boolean needsGrowth() {
+      return (size + 1) * 2 > stamps.length;
+    }
+    
+    protected static int mix(int h) {
+      h *= 0x9E3779B9;
+      return h ^ (h >>> 16);
+    }
+  }
+  
+  private static final class LongTable extends GenerationalTable {
+    private long[] keys;
+    
+    @Override
+    protected void allocate(int capacity) {
+      super.allocate(capacity);
+      keys = new long[capacity];
+    }
+    
+    private void add(long key) {
+      if (needsGrowth()) {
+        grow();
+      }
+      int i = mix((int) (key ^ (key >>> 32))) & mask;
+      while (stamps[i] == generation) {
+        if (keys[i] == key) {
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      stamps[i] = generation;
+      keys[i] = key;
+      size++;
+    }
+    
+    private void grow() {
+      int[] oldStamps = stamps;
+      long[] oldKeys = keys;
+      allocate(stamps.length << 1);
+      for (int j = 0; j < oldStamps.length; j++) {
+        if (oldStamps[j] == generation) {
+          int i = mix((int) (oldKeys[j] ^ (oldKeys[j] >>> 32))) & mask;
+          while (stamps[i] == generation) {
+            i = (i + 1) & mask;
+          }
+          stamps[i] = generation;
+          keys[i] = oldKeys[j];
+        }
+      }
+    }
+  }
+  
+  private static final class StringTable extends GenerationalTable {
+    private int[] hashes;
+    private String[] as;
+    private String[] bs;
+    private String[] cs;
+    
+    @Override
+    protected void allocate(int capacity) {
+      super.allocate(capacity);
+      hashes = new int[capacity];
+      as = new String[capacity];
+      bs = new String[capacity];
+      cs = new String[capacity];
+    }
+    
+    /**
+     * The String hash code of a + b + c, computed from the cached hash codes of the parts.
+     */
+    private static int hash(String a, String b, String c) {
+      int h = a.hashCode();
+      h = h * pow31(b.length()) + b.hashCode();
+      return h * pow31(c.length()) + c.hashCode();
+    }
+    
+    private static int pow31(int n) {
+      int result = 1;
+      int base = 31;
+      while (n > 0) {
+        if ((n & 1) == 1) {
+          result *= base;
+        }
+        base *= base;
+        n >>= 1;
+      }
+      return result;
+    }
+    
+    private void add(String a, String b, String c) {
+      if (needsGrowth()) {
+        grow();
+      }
+      int hash = hash(a, b, c);
+      int i = mix(hash) & mask;
+      while (stamps[i] == generation) {
+        if (hashes[i] == hash && concatenationEquals(as[i], bs[i], cs[i], a, b, c)) {
+          return;
+        }
+        i = (i + 1) & mask;
+      }
+      stamps[i] = generation;
+      hashes[i] = hash;
+      as[i] = a;
+      bs[i] = b;
+      cs[i] = c;
+      size++;
+    }
+    
+    private void grow() {
+      int[] oldStamps = stamps;
+      int[] oldHashes = hashes;
+      String[] oldAs = as;
+      String[] oldBs = bs;
+      String[] oldCs = cs;
+      allocate(stamps.length << 1);
+      for (int j = 0; j < oldStamps.length; j++) {
+        if (oldStamps[j] == generation) {
+          int i = mix(oldHashes[j]) & mask;
+          while (stamps[i] == generation) {
+            i = (i + 1) & mask;
+          }
+          stamps[i] = generation;
+          hashes[i] = oldHashes[j];
+          as[i] = oldAs[j];
+          bs[i] = oldBs[j];
+          cs[i] = oldCs[j];
+        }
+      }
+    }
+    
+    private static boolean concatenationEquals(String x1, String x2, String x3, String y1, String y2, String y3) {
+      if (x1.length() + x2.length() + x3.length() != y1.length() + y2.length() + y3.length()) {
+        return false;
+      } else if (x1.length() == y1.length() && x2.length() == y2.length()) {
+        return x1.equals(y1) && x2.equals(y2) && x3.equals(y3);
+      }
+      String[] xs = { x1, x2, x3 };
+      String[] ys = { y1, y2, y3 };
+      int xi = 0, xo = 0;
+      int yi = 0, yo = 0;
+      while (xi < 3 && yi < 3) {
+        int run = Math.min(xs[xi].length() - xo, ys[yi].length() - yo);
+        if (!xs[xi].regionMatches(xo, ys[yi], yo, run)) {
+          return false;
+        }
+        xo += run;
+        yo += run;
+        if (xo == xs[xi].length()) {
+          xi++;
+          xo = 0;
+        }
+        if (yo == ys[yi].length()) {
+          yi++;
+          yo = 0;
+        }
+      }
+      return true;
+    }
+  }
+}
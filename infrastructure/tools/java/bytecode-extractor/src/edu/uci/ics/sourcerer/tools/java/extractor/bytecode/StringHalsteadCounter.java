@@ -0,0 +1,104 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.extractor.bytecode;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reference implementation that builds the operator and operand strings
+ * and collects them in hash sets. Kept for benchmarking and checking
+ * {@link PrimitiveHalsteadCounter}.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class StringHalsteadCounter extends HalsteadCounter {
+  private final Set<String> operators = new HashSet<>();
+  private final Set<String> operands = new HashSet<>();
+  
+  @Override
+  void reset() {
+    operators.clear();
+    operands.clear();
+  }
+
+  @Override
+  void addOperator(int operator) {
+    operators.add(getOperatorName(operator));
+  }
+
+  @Override
+  void addVariableOperand(int var) {
+    operands.add("$var" + var);
+  }
+
+  @Override
+  void addIntOperand(int value) {
+    operands.add("$int" + value);
+  }
+
+  @Override
+  void addLongOperand(long value) {
+    operands.add("$long" + value);
+  }
+
+  @Override
+  void addFloatOperand(float value) {
+    operands.add("$float" + value);
+  }
+
+  @Override
+  void addDoubleOperand(double value) {
+    operands.add("$double" + value);
+  }
+
+  @Override
+  void addFloatConstantOperand(int n) {
+    operands.add("$float" + n);
+  }
+
+  @Override
+  void addDoubleConstantOperand(int n) {
+    operands.add("$double" + n);
+  }
+
+  @Override
+  void addNullOperand() {
+    operands.add("$null");
+  }
+
+  @Override
+  void addSwitchKeyOperand(int key) {
+    operands.add("int" + key);
+  }
+
+  @Override
+  void addOperand(String a, String b, String c) {
+    operands.add(a + b + c);
+  }
+
+  @Override
+  int getOperatorCount() {
+    return operators.size();
+  }
+
+  @Override
+  int getOperandCount() {
+    return operands.size();
+  }
+}
@@ -0,0 +1,165 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.extractor.bytecode;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.WriterBundle;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+
+/**
+ * Checks that {@link PrimitiveHalsteadCounter} matches the reference
+ * {@link StringHalsteadCounter}, method by method.
+ * 
+ * The fixtures are the classes of the ASM jar itself, which are old
+ * enough for ASM to read and cover switches, constants of every type
+ * and exception handlers.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class HalsteadCounterTest {
+  private static Collection<byte[]> classFiles;
+  
+  @BeforeClass
+  public static void loadFixtures() throws IOException, URISyntaxException {
+    File asm = new File(ClassReader.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+    classFiles = new ArrayList<>();
+    try (JarFile jar = new JarFile(asm)) {
+      Enumeration<JarEntry> en = jar.entries();
+      while (en.hasMoreElements()) {
+        JarEntry entry = en.nextElement();
+        if (entry.getName().endsWith(".class")) {
+          classFiles.add(IOUtils.getInputStreamAsByteArray(jar.getInputStream(entry), (int) entry.getSize()));
+        }
+      }
+    }
+    Assert.assertFalse("no fixture classes in " + asm, classFiles.isEmpty());
+  }
+  
+  @Test
+  public void testSameCounts() {
+    RecordingStringCounter strings = new RecordingStringCounter();
+    RecordingPrimitiveCounter primitives = new RecordingPrimitiveCounter();
+    extract(strings);
+    extract(primitives);
+    
+    Assert.assertTrue("too few methods: " + strings.operators.size(), strings.operators.size() > 100);
+    Assert.assertEquals(strings.operators.size(), primitives.operators.size());
+    for (int i = 0; i < strings.operators.size(); i++) {
+      Assert.assertEquals("operators of method " + i, strings.operators.get(i), primitives.operators.get(i));
+      Assert.assertEquals("operands of method " + i, strings.operands.get(i), primitives.operands.get(i));
+    }
+  }
+  
+  @Test
+  public void testEdgeCases() {
+    HalsteadCounter[] counters = { new StringHalsteadCounter(), new PrimitiveHalsteadCounter() };
+    for (HalsteadCounter counter : counters) {
+      counter.reset();
+      // Signed zeros print differently, the NaNs print the same
+      counter.addFloatOperand(0f);
+      counter.addFloatOperand(-0f);
+      counter.addFloatOperand(Float.NaN);
+      counter.addFloatOperand(Float.intBitsToFloat(0x7fc00001));
+      counter.addFloatConstantOperand(0);
+      counter.addDoubleOperand(0.0);
+      counter.addDoubleOperand(-0.0);
+      counter.addDoubleOperand(Double.NaN);
+      counter.addDoubleOperand(Double.longBitsToDouble(0x7ff8000000000001L));
+      counter.addDoubleOperand(1.0);
+      counter.addDoubleConstantOperand(1);
+      // Same value, different kinds
+      counter.addIntOperand(Integer.MIN_VALUE);
+      counter.addSwitchKeyOperand(Integer.MIN_VALUE);
+      counter.addIntOperand(1);
+      counter.addVariableOperand(1);
+      counter.addLongOperand(1);
+      counter.addLongOperand(Long.MIN_VALUE);
+      counter.addNullOperand();
+      counter.addNullOperand();
+      // Only the concatenation matters
+      counter.addOperand("ab", "c");
+      counter.addOperand("a", "bc");
+      counter.addOperand("abc");
+      counter.addOperand("a", "b", "c");
+      counter.addOperand("$string", "x");
+      
+      counter.addOperator(HalsteadCounter.IINC);
+      // iinc shares its operator with bastore
+      counter.addOperator(Opcodes.BASTORE);
+      counter.addOperator(HalsteadCounter.ADD);
+      counter.addOperator(HalsteadCounter.ADD);
+      counter.addOperator(HalsteadCounter.CATCH);
+      counter.addOperator(Opcodes.NOP);
+      
+      String name = counter.getClass().getSimpleName();
+      Assert.assertEquals(name, 18, counter.getOperandCount());
+      Assert.assertEquals(name, 4, counter.getOperatorCount());
+      
+      counter.reset();
+      Assert.assertEquals(name, 0, counter.getVocabularySize());
+    }
+  }
+  
+  private static void extract(HalsteadCounter counter) {
+    ASMExtractor extractor = new ASMExtractor(new WriterBundle(), counter);
+    for (byte[] classFile : classFiles) {
+      extractor.extract(classFile);
+    }
+    // Records the last method
+    counter.reset();
+  }
+  
+  private static class RecordingStringCounter extends StringHalsteadCounter {
+    private final List<Integer> operators = new ArrayList<>();
+    private final List<Integer> operands = new ArrayList<>();
+    
+    @Override
+    void reset() {
+      operators.add(getOperatorCount());
+      operands.add(getOperandCount());
+      super.reset();
+    }
+  }
+  
+  private static class RecordingPrimitiveCounter extends PrimitiveHalsteadCounter {
+    private final List<Integer> operators = new ArrayList<>();
+    private final List<Integer> operands = new ArrayList<>();
+    
+    @Override
+    void reset() {
+      operators.add(getOperatorCount());
+      operands.add(getOperandCount());
+      super.reset();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.component.identifier;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.Collection;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.ImportEX;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.MissingTypeEX;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.EntityBatch;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.ReaderBundle;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.Extracted;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJavaRepository;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.PersistentDictionary;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+
+/**
+ * Populates the repository's FQN dictionary with every declared,
+ * imported and missing FQN, so that later stages can exchange and
+ * join on the dictionary ids.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class FqnDictionaryBuilder {
+  private final PersistentDictionary dictionary;
+  private final TaskProgressLogger task;
+  
+  private FqnDictionaryBuilder(PersistentDictionary dictionary) {
+    this.dictionary = dictionary;
+    this.task = TaskProgressLogger.get();
+  }
+  
+  public static void buildFqnDictionary() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Building FQN dictionary");
+    
+    ExtractedJavaRepository repo = JavaRepositoryFactory.INSTANCE.loadExtractedJavaRepository(JavaRepositoryFactory.INPUT_REPO);
+    PersistentDictionary dictionary = repo.getFqnDictionary();
+    if (dictionary == null) {
+      logger.severe("Unable to open the FQN dictionary for " + repo);
+    } else if (dictionary.isReadOnly()) {
+      // Every intern would be dropped, so report it rather than adding nothing
+      logger.severe("Unable to build " + dictionary + ", it is being appended to elsewhere.");
+      IOUtils.close(dictionary);
+    } else {
+      try {
+        FqnDictionaryBuilder builder = new FqnDictionaryBuilder(dictionary);
+        int initial = dictionary.size();
+        
+        builder.add("library jars", repo.getLibraryJarFiles());
+        builder.add("maven jars", repo.getMavenJarFiles());
+        builder.add("project jars", repo.getProjectJarFiles());
+        builder.add("projects", repo.getProjects());
+        
+        dictionary.flush();
+        task.report((dictionary.size() - initial) + " FQNs added, " + dictionary.size() + " in total");
+      } finally {
+        // Releases the mapped files and the dictionary's file lock
+        IOUtils.close(dictionary);
+      }
+    }
+    
+    task.finish();
+  }
+  
+  private void add(String name, Collection<? extends Extracted> extracted) {
+    task.start("Adding FQNs from " + extracted.size() + " " + name, name + " processed", 500);
+    for (Extracted item : extracted) {
+      ReaderBundle bundle = ReaderBundle.create(item.getExtractionDir().toFile(), item.getCompressedFile().toFile());
+      
+      EntityBatch.Cursor entity = bundle.getEntityBatch().cursor();
+      while (entity.next()) {
+        dictionary.intern(entity.getFqn());
+      }
+      for (ImportEX imp : bundle.getTransientImports()) {
+        dictionary.intern(imp.getImported());
+      }
+      for (MissingTypeEX missing : bundle.getTransientMissingTypes()) {
+        dictionary.intern(missing.getFqn());
+      }
+      task.progress();
+    }
+    task.finish();
+  }
+}
@@ -34,12 +34,19 @@ public class Main {
     }
   }.setProperties(JavaRepositoryFactory.INPUT_REPO);
   
+  public static final Command BUILD_FQN_DICTIONARY = new Command("build-fqn-dictionary", "Adds the repository's declared, imported and missing FQNs to its FQN dictionary.") {
+    @Override
+    protected void action() {
+      FqnDictionaryBuilder.buildFqnDictionary();
+    }
+  }.setProperties(JavaRepositoryFactory.INPUT_REPO);
+  
   public static final Command CALCULATE_JAR_COVERAGE = new Command("calculate-jar-coverage", "Calculates the coverage of missing types by the jar collection.") {
     @Override
     protected void action() {
       CoverageCalculator.calculateJarCoverage();
     }
-  }.setProperties(CoverageCalculator.JAR_REPO, CoverageCalculator.EXTERNAL_REPO, CoverageCalculator.MISSING_REPO, CoverageCalculator.SOURCED_CACHE);
+  }.setProperties(CoverageCalculator.JAR_REPO, CoverageCalculator.EXTERNAL_REPO, CoverageCalculator.MISSING_REPO, CoverageCalculator.SOURCED_CACHE, CoverageCalculator.COVERAGE_THREADS);
   
   public static final Command COMPARE_EXTERNAL_AND_MISSING = new Command("compare-external-and-missing", "Compare the external and missing types.") {
     @Override
@@ -27,7 +27,7 @@ import edu.uci.ics.sourcerer.tools.java.component.model.cluster.ClusterCollectio
 import edu.uci.ics.sourcerer.tools.java.component.model.jar.JarCollection;
 import edu.uci.ics.sourcerer.tools.java.component.model.jar.JarSet;
 import edu.uci.ics.sourcerer.tools.java.component.model.jar.VersionedFqnNode;
-import edu.uci.ics.sourcerer.util.Averager;
+import edu.uci.ics.sourcerer.util.StreamingStatistics;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
 import edu.uci.ics.sourcerer.util.io.arguments.DoubleArgument;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
@@ -66,8 +66,8 @@ public class ClusterIdentifier {
       if (one.getJars().getIntersectionSize(two.getJars()) == 0) {
         return false;
       } else {
-        Averager<Double> otherGivenThis = Averager.create();
-        Averager<Double> thisGivenOther = Averager.create();
+        StreamingStatistics otherGivenThis = StreamingStatistics.createMomentsOnly();
+        StreamingStatistics thisGivenOther = StreamingStatistics.createMomentsOnly();
       
         for (VersionedFqnNode fqn : one.getCoreFqns()) {
           for (VersionedFqnNode otherFqn : two.getCoreFqns()) {
@@ -24,31 +24,15 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.text.NumberFormat;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.EnumSet;
-import java.util.HashSet;
-import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Set;
-import java.util.TreeSet;
 import java.util.logging.Level;
 
-import com.google.common.collect.EnumMultiset;
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.HashMultiset;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Multiset;
-
+import edu.uci.ics.sourcerer.tools.java.component.identifier.stats.CoverageEngine.Split;
 import edu.uci.ics.sourcerer.tools.java.component.identifier.stats.SourcedFqnNode.Source;
-import edu.uci.ics.sourcerer.tools.java.model.extracted.ImportEX;
-import edu.uci.ics.sourcerer.tools.java.model.extracted.MissingTypeEX;
-import edu.uci.ics.sourcerer.tools.java.model.extracted.io.ReaderBundle;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JarFile;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepository;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
-import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJavaProject;
 import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJavaRepository;
 import edu.uci.ics.sourcerer.util.Averager;
 import edu.uci.ics.sourcerer.util.Percenterator;
@@ -58,6 +42,7 @@ import edu.uci.ics.sourcerer.util.io.LogFileWriter;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
 import edu.uci.ics.sourcerer.util.io.arguments.Arguments;
 import edu.uci.ics.sourcerer.util.io.arguments.FileArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
 import edu.uci.ics.sourcerer.util.io.arguments.RelativeFileArgument;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 
@@ -68,6 +53,7 @@ public class CoverageCalculator {
   public static final Argument<File> EXTERNAL_REPO = new FileArgument("external-repo", "External repo");
   public static final Argument<File> MISSING_REPO = new FileArgument("missing-repo", "Missing repo");
   public static final Argument<File> JAR_REPO = new FileArgument("jar-repo", "Jar repo");
+  public static final Argument<Integer> COVERAGE_THREADS = new IntegerArgument("coverage-threads", 8, "Number of threads reading extracted projects.");
   public static final Argument<File> SOURCED_CACHE = new RelativeFileArgument("sourced-cache", "sourced-cache.txt", Arguments.CACHE, "Cache for sources prefix tree.");
 //  public static final Argument<File> MISSING_FQNS_PER_PROJECT = new RelativeFileArgument("missing-fqns-per-project", "missing-fqns-per-project.txt", Arguments.OUTPUT, "Summary of missing fqns per project");
 //  public static final Argument<File> PROJECTS_PER_MISSING_FQN = new RelativeFileArgument("projects-per-missing-fqn", "projects-per-missing-fqn.txt", Arguments.OUTPUT, "Summary of projects per missing fqn");
@@ -95,8 +81,9 @@ public class CoverageCalculator {
       }
       task.finish();
     }
+    int nonEmptyMaven = 0;
+    int nonEmptyProject = 0;
     if (!loaded) {
-      int nonEmptyMaven = 0;
       task.start("Processing maven jars", "jars processed", 10_000);
       for (JarFile jar : jarRepo.getMavenJarFiles()) {
         boolean go = true;
@@ -111,7 +98,6 @@ public class CoverageCalculator {
       }
       task.finish();
     
-      int nonEmptyProject = 0;
       task.start("Processing project jars", "jars processed", 10_000);
       for (JarFile jar : jarRepo.getProjectJarFiles()) {
         boolean go = true;
@@ -136,101 +122,51 @@ public class CoverageCalculator {
       }
       task.finish();
       
-      int mavenClassFiles = 0;
-      int projectClassFiles = 0;
-      int mavenUnique = 0;
-      int projectUnique = 0;
-      Set<SourcedFqnNode> mavenPackages = new HashSet<>();
-      Set<SourcedFqnNode> projectPackages = new HashSet<>();
-      for (SourcedFqnNode node : root.getPostOrderIterable()) {
-        if (node.has(Source.MAVEN)) {
-          mavenClassFiles += node.getCount(Source.MAVEN);
-          mavenUnique++;
-          mavenPackages.add(node.getParent());
-        }
-        if (node.has(Source.PROJECT)) {
-          projectClassFiles += node.getCount(Source.PROJECT);
-          projectUnique++;
-          projectPackages.add(node.getParent());
-        }
-      }
+    }
+    task.finish();
+    
+    // Load the external repo
+    ExtractedJavaRepository externalRepo = JavaRepositoryFactory.INSTANCE.loadExtractedJavaRepository(EXTERNAL_REPO);
+    // load the missing repo
+    ExtractedJavaRepository missingRepo = JavaRepositoryFactory.INSTANCE.loadExtractedJavaRepository(MISSING_REPO);
+    
+    CoverageEngine engine = CoverageEngine.create(root);
+    root = null;
+    
+    task.start("Processing extracted projects for missing and external types on " + COVERAGE_THREADS.getValue() + " threads");
+    engine.ingest(externalRepo, missingRepo, COVERAGE_THREADS.getValue());
+    task.report(engine.getProjectCount() + " projects processed");
+    task.finish();
+    
+    task.start("Computing coverage statistics");
+    CoverageEngine.Statistics stats = engine.analyze();
+    task.finish();
+    
+    if (!loaded) {
       task.start("Reporting statistics on jars");
         task.start("Maven");
           task.report(nonEmptyMaven + " non-empty jars");
-          task.report(mavenClassFiles + " class files");
-          task.report(mavenUnique + " unique types");
-          task.report(mavenPackages.size() + " packages");
+          task.report(stats.total[Source.MAVEN.ordinal()] + " class files");
+          task.report(stats.unique[Source.MAVEN.ordinal()] + " unique types");
+          task.report(stats.packages[Source.MAVEN.ordinal()] + " packages");
         task.finish();
         
         task.start("Project");
           task.report(nonEmptyProject + " non-empty jars");
-          task.report(projectClassFiles + " class files");
-          task.report(projectUnique + " unique types");
-          task.report(projectPackages.size() + " packages");
+          task.report(stats.total[Source.PROJECT.ordinal()] + " class files");
+          task.report(stats.unique[Source.PROJECT.ordinal()] + " unique types");
+          task.report(stats.packages[Source.PROJECT.ordinal()] + " packages");
         task.finish();
       task.finish();
     }
-    task.finish();
-    
-    // Load the external repo
-    ExtractedJavaRepository externalRepo = JavaRepositoryFactory.INSTANCE.loadExtractedJavaRepository(EXTERNAL_REPO);
-    // load the missing repo
-    ExtractedJavaRepository missingRepo = JavaRepositoryFactory.INSTANCE.loadExtractedJavaRepository(MISSING_REPO);
     
     NumberFormat format = NumberFormat.getNumberInstance();
     format.setMaximumFractionDigits(2);
     {
-      task.start("Processing extracted projects for missing and external types", "projects processed", 10_000);
-      // Averager for external FQNs per project
-      Averager<Integer> externalFqns = Averager.create();
-      // Averager for missing FQNs per project
-      Averager<Integer> missingFqns = Averager.create();
-      for (ExtractedJavaProject externalProject : externalRepo.getProjects()) {
-        String loc = externalProject.getLocation().toString();
-        ExtractedJavaProject missingProject = missingRepo.getProject(externalProject.getLocation());
-        
-        ReaderBundle externalBundle = ReaderBundle.create(externalProject.getExtractionDir().toFile(), externalProject.getCompressedFile().toFile());
-        ReaderBundle missingBundle = ReaderBundle.create(missingProject.getExtractionDir().toFile(), missingProject.getCompressedFile().toFile());
-        
-        int externalCount = 0;
-        int missingCount = 0;
-        
-        // Add all the imports for this project
-        for (ImportEX imp : externalBundle.getTransientImports()) {
-          root.getChild(imp.getImported(), '.').addSource(Source.IMPORTED, loc);
-        }
-        
-        Set<String> validMissing = new HashSet<>();
-        // Add the external types
-        for (MissingTypeEX missing : externalBundle.getTransientMissingTypes()) {
-          validMissing.add(missing.getFqn());
-          root.getChild(missing.getFqn(), '.').addSource(Source.EXTERNAL, loc);
-          externalCount++;
-        }
-        
-        // Add the missing types
-        for (MissingTypeEX missing : missingBundle.getTransientMissingTypes()) {
-          if (validMissing.contains(missing.getFqn())) {
-            root.getChild(missing.getFqn(), '.').addSource(Source.MISSING, loc);
-            missingCount++;
-          }
-        }
-        
-        externalFqns.addValue(externalCount);
-        missingFqns.addValue(missingCount);
-        
-        task.progress();
-      }
-      task.finish();
+      Averager<Integer> externalFqns = engine.getExternalFqns();
+      Averager<Integer> missingFqns = engine.getMissingFqns();
       
-//      Averager<Integer> projectsPerFQN = Averager.create();
-//      for (SourcedFqnNode fqn : root.getPreOrderIterable()) {
-//        if (fqn.getCount(Source.MISSING) > 0) {
-//          projectsPerFQN.addValue(fqn.getCount(Source.MISSING));
-//        }
-//      }
-            
-      Percenterator percent = Percenterator.create(externalRepo.getProjectCount());
+      Percenterator percent = Percenterator.create(engine.getProjectCount());
       task.start("Reporting missing type information");
       task.report(percent.format(externalFqns.getNonZeroCount()) + " projects with external types");
       task.report(percent.format(missingFqns.getNonZeroCount()) + " projects with missing types");
@@ -239,418 +175,52 @@ public class CoverageCalculator {
       task.report(format.format(missingFqns.getMean()) + " (" + format.format(missingFqns.getStandardDeviation()) + ") imported missing types per project, on average");
       task.report(format.format(missingFqns.getNonZeroMean()) + " (" + format.format(missingFqns.getNonZeroStandardDeviation()) + ") missing FQNs per project containing at least one missing FQN, on average");
       task.finish();
-      
-//      missingFqns.writeValueMap(MISSING_FQNS_PER_PROJECT.getValue());
-//      projectsPerFQN.writeValueMap(PROJECTS_PER_MISSING_FQN.getValue());
     }
     
     // Report general statistics
     {
-      int uniqueTotal = 0;
-      Multiset<Source> uniqueByType = EnumMultiset.create(Source.class);
-      Multiset<Source> totalByType = EnumMultiset.create(Source.class);
-      for (SourcedFqnNode node : root.getPostOrderIterable()) {
-        if (node.hasSource()) {
-          uniqueTotal++;
-        }
-        for (Source source : Source.values()) {
-          int count = node.getCount(source);
-          if (count > 0) {
-            uniqueByType.add(source);
-            totalByType.add(source, count);
-          }
-        }
-      }
-      
-      Percenterator uniqueP = Percenterator.create(uniqueTotal);
+      Percenterator uniqueP = Percenterator.create(stats.uniqueTotal);
       
       task.start("Reporting FQN counts broken down by source");
       for (Source source : Source.values()) {
         task.report(source.name() + ":");
-        task.report("  Unique: " + uniqueP.format(uniqueByType.count(source)));
-        task.report("  Total:  " + totalByType.count(source));
+        task.report("  Unique: " + uniqueP.format(stats.unique[source.ordinal()]));
+        task.report("  Total:  " + stats.total[source.ordinal()]);
       }
       task.report("Sum:");
-      task.report("  Unique: " + uniqueTotal);
+      task.report("  Unique: " + stats.uniqueTotal);
       task.finish();
     }
     
     // Identify the most popular imported types and packages
-    {
-      for (final Source source : EnumSet.of(Source.IMPORTED, Source.EXTERNAL, Source.MISSING)) {
-        {
-          TreeSet<SourcedFqnNode> popularTypes = new TreeSet<>(new Comparator<SourcedFqnNode>() {
-            @Override
-            public int compare(SourcedFqnNode o1, SourcedFqnNode o2) {
-              int cmp = Integer.compare(o1.getCount(source), o2.getCount(source));
-              if (cmp == 0) {
-                return o1.compareTo(o2);
-              } else {
-                return cmp;
-              }
-            }
-          });
-          
-          for (SourcedFqnNode fqn : root.getPostOrderIterable()) {
-            if (fqn.has(source)) {
-              popularTypes.add(fqn);
-            }
-          }
-          
-          task.start("Logging popular types listing for " + source.name());
-          try (LogFileWriter writer = IOUtils.createLogFileWriter(new File(Arguments.OUTPUT.getValue(), source.name() + "-popular-types.txt"))) {
-            for (SourcedFqnNode fqn : popularTypes.descendingSet()) {
-              writer.write(fqn.getCount(source) + "\t" + fqn.getFqn());
-            }
-          } catch (IOException e) {
-            logger.log(Level.SEVERE, "Error writing file", e);
-          }
-          task.finish();
-        }
-        
-        {
-          final Multimap<SourcedFqnNode, String> packages = HashMultimap.create();
-          
-          for (SourcedFqnNode fqn : root.getPostOrderIterable()) {
-            if (fqn.has(source)) {
-              packages.putAll(fqn.getParent(), fqn.getSourceIDs(source));
-            }
-          }
-          
-          List<SourcedFqnNode> sorted = new ArrayList<>(packages.keySet());
-          Collections.sort(sorted, new Comparator<SourcedFqnNode>() {
-            @Override
-            public int compare(SourcedFqnNode o1, SourcedFqnNode o2) {
-              int cmp = -Integer.compare(packages.get(o1).size(), packages.get(o2).size());
-              if (cmp == 0) {
-                return o1.compareTo(o2);
-              } else {
-                return cmp;
-              }
-            }});
-          
-          task.start("Logging popular packages listing for " + source.name());
-          try (LogFileWriter writer = IOUtils.createLogFileWriter(new File(Arguments.OUTPUT.getValue(), source.name() + "-popular-packages.txt"))) {
-            for (SourcedFqnNode fqn : sorted) {
-              writer.write(packages.get(fqn).size() + "\t" + fqn.getFqn());
-            }
-          } catch (IOException e) {
-            logger.log(Level.SEVERE, "Error writing file", e);
-          }
-          task.finish();
-        }
-      }
+    for (Source source : EnumSet.of(Source.IMPORTED, Source.EXTERNAL, Source.MISSING)) {
+      writeTypes(engine, stats.popularTypes.get(source), "Logging popular types listing for " + source.name(), source.name() + "-popular-types.txt");
+      writePackages(engine, stats.popularPackages.get(source), "Logging popular packages listing for " + source.name(), source.name() + "-popular-packages.txt");
     }
     
     // Identify the most popular external types found in only maven, project and nothing
-    {
-      {
-        TreeSet<SourcedFqnNode> popularJoint = new TreeSet<>(SourcedFqnNode.createComparator(Source.EXTERNAL));
-        TreeSet<SourcedFqnNode> popularMaven = new TreeSet<>(SourcedFqnNode.createComparator(Source.EXTERNAL));
-        TreeSet<SourcedFqnNode> popularProject = new TreeSet<>(SourcedFqnNode.createComparator(Source.EXTERNAL));
-        TreeSet<SourcedFqnNode> popularMissing = new TreeSet<>(SourcedFqnNode.createComparator(Source.EXTERNAL));
-       
-        for (SourcedFqnNode fqn : root.getPostOrderIterable()) {
-          if (fqn.has(Source.EXTERNAL)) {
-            boolean maven = fqn.has(Source.MAVEN);
-            boolean project = fqn.has(Source.PROJECT);
-            if (maven && project) {
-              popularJoint.add(fqn);
-            } else {
-              if (maven) {
-                popularMaven.add(fqn);
-              } else if (project) {
-                popularProject.add(fqn);
-              } else {
-                popularMissing.add(fqn);
-              }
-            }
-          }
-        }
-            
-        task.start("Logging popular external joint types");
-        try (LogFileWriter writer = IOUtils.createLogFileWriter(new File(Arguments.OUTPUT.getValue(), "joint-popular-types.txt"))) {
-          for (SourcedFqnNode fqn : popularJoint.descendingSet()) {
-            writer.write(fqn.getCount(Source.EXTERNAL) + "\t" + fqn.getFqn());
-          }
-        } catch (IOException e) {
-          logger.log(Level.SEVERE, "Error writing file", e);
-        }
-        task.finish();
-        
-        task.start("Logging popular external types unique to maven");
-        try (LogFileWriter writer = IOUtils.createLogFileWriter(new File(Arguments.OUTPUT.getValue(), "maven-unique-popular-types.txt"))) {
-          for (SourcedFqnNode fqn : popularMaven.descendingSet()) {
-            writer.write(fqn.getCount(Source.EXTERNAL) + "\t" + fqn.getFqn());
-          }
-        } catch (IOException e) {
-          logger.log(Level.SEVERE, "Error writing file", e);
-        }
-        task.finish();
-        
-        task.start("Logging popular external types unique to project");
-        try (LogFileWriter writer = IOUtils.createLogFileWriter(new File(Arguments.OUTPUT.getValue(), "project-unique-popular-types.txt"))) {
-          for (SourcedFqnNode fqn : popularProject.descendingSet()) {
-            writer.write(fqn.getCount(Source.EXTERNAL) + "\t" + fqn.getFqn());
-          }
-        } catch (IOException e) {
-          logger.log(Level.SEVERE, "Error writing file", e);
-        }
-        task.finish();
-        
-        task.start("Logging popular missing external types");
-        try (LogFileWriter writer = IOUtils.createLogFileWriter(new File(Arguments.OUTPUT.getValue(), "missing-unique-popular-types.txt"))) {
-          for (SourcedFqnNode fqn : popularMissing.descendingSet()) {
-            writer.write(fqn.getCount(Source.EXTERNAL) + "\t" + fqn.getFqn());
-          }
-        } catch (IOException e) {
-          logger.log(Level.SEVERE, "Error writing file", e);
-        }
-        task.finish();
-      }
-      {
-        final Multimap<SourcedFqnNode, String> jointPackages = HashMultimap.create();
-        final Multimap<SourcedFqnNode, String> mavenPackages = HashMultimap.create();
-        final Multimap<SourcedFqnNode, String> projectPackages = HashMultimap.create();
-        final Multimap<SourcedFqnNode, String> missingPackages = HashMultimap.create();
-          
-        for (SourcedFqnNode fqn : root.getPostOrderIterable()) {
-          if (fqn.has(Source.EXTERNAL)) {
-            boolean maven = fqn.has(Source.MAVEN);
-            boolean project = fqn.has(Source.PROJECT);
-            if (maven && project) {
-              jointPackages.putAll(fqn.getParent(), fqn.getSourceIDs(Source.EXTERNAL));
-            } else {
-              if (maven) {
-                mavenPackages.putAll(fqn.getParent(), fqn.getSourceIDs(Source.EXTERNAL));
-              } else if (project) {
-                projectPackages.putAll(fqn.getParent(), fqn.getSourceIDs(Source.EXTERNAL));
-              } else {
-                missingPackages.putAll(fqn.getParent(), fqn.getSourceIDs(Source.EXTERNAL));
-              }
-            }
-          }
-        }
-        
-        {
-          List<SourcedFqnNode> sorted = new ArrayList<>(jointPackages.keySet());
-          Collections.sort(sorted, new Comparator<SourcedFqnNode>() {
-            @Override
-            public int compare(SourcedFqnNode o1, SourcedFqnNode o2) {
-              int cmp = -Integer.compare(jointPackages.get(o1).size(), jointPackages.get(o2).size());
-              if (cmp == 0) {
-                return o1.compareTo(o2);
-              } else {
-                return cmp;
-              }
-            }});
-          
-          task.start("Logging popular external joint packages");
-          try (LogFileWriter writer = IOUtils.createLogFileWriter(new File(Arguments.OUTPUT.getValue(), "joint-popular-packages.txt"))) {
-            for (SourcedFqnNode fqn : sorted) {
-              writer.write(jointPackages.get(fqn).size() + "\t" + fqn.getFqn());
-            }
-          } catch (IOException e) {
-            logger.log(Level.SEVERE, "Error writing file", e);
-          }
-          task.finish();
-        }
-        
-        {
-          List<SourcedFqnNode> sorted = new ArrayList<>(mavenPackages.keySet());
-          Collections.sort(sorted, new Comparator<SourcedFqnNode>() {
-            @Override
-            public int compare(SourcedFqnNode o1, SourcedFqnNode o2) {
-              int cmp = -Integer.compare(mavenPackages.get(o1).size(), mavenPackages.get(o2).size());
-              if (cmp == 0) {
-                return o1.compareTo(o2);
-              } else {
-                return cmp;
-              }
-            }});
-          
-          task.start("Logging popular packages unique to maven");
-          try (LogFileWriter writer = IOUtils.createLogFileWriter(new File(Arguments.OUTPUT.getValue(), "maven-unique-popular-packages.txt"))) {
-            for (SourcedFqnNode fqn : sorted) {
-              writer.write(mavenPackages.get(fqn).size() + "\t" + fqn.getFqn());
-            }
-          } catch (IOException e) {
-            logger.log(Level.SEVERE, "Error writing file", e);
-          }
-          task.finish();
-        }
-        
-        {
-          List<SourcedFqnNode> sorted = new ArrayList<>(projectPackages.keySet());
-          Collections.sort(sorted, new Comparator<SourcedFqnNode>() {
-            @Override
-            public int compare(SourcedFqnNode o1, SourcedFqnNode o2) {
-              int cmp = -Integer.compare(projectPackages.get(o1).size(), projectPackages.get(o2).size());
-              if (cmp == 0) {
-                return o1.compareTo(o2);
-              } else {
-                return cmp;
-              }
-            }});
-          
-          task.start("Logging popular packages unique to project");
-          try (LogFileWriter writer = IOUtils.createLogFileWriter(new File(Arguments.OUTPUT.getValue(), "project-unique-popular-packages.txt"))) {
-            for (SourcedFqnNode fqn : sorted) {
-              writer.write(projectPackages.get(fqn).size() + "\t" + fqn.getFqn());
-            }
-          } catch (IOException e) {
-            logger.log(Level.SEVERE, "Error writing file", e);
-          }
-          task.finish();
-        }
-        
-        {
-          List<SourcedFqnNode> sorted = new ArrayList<>(missingPackages.keySet());
-          Collections.sort(sorted, new Comparator<SourcedFqnNode>() {
-            @Override
-            public int compare(SourcedFqnNode o1, SourcedFqnNode o2) {
-              int cmp = -Integer.compare(missingPackages.get(o1).size(), missingPackages.get(o2).size());
-              if (cmp == 0) {
-                return o1.compareTo(o2);
-              } else {
-                return cmp;
-              }
-            }});
-          
-          task.start("Logging popular packages unique to missing");
-          try (LogFileWriter writer = IOUtils.createLogFileWriter(new File(Arguments.OUTPUT.getValue(), "missing-unique-popular-packages.txt"))) {
-            for (SourcedFqnNode fqn : sorted) {
-              writer.write(missingPackages.get(fqn).size() + "\t" + fqn.getFqn());
-            }
-          } catch (IOException e) {
-            logger.log(Level.SEVERE, "Error writing file", e);
-          }
-          task.finish();
-        }
-      }
-    }
+    writeTypes(engine, stats.externalTypes.get(Split.JOINT), "Logging popular external joint types", "joint-popular-types.txt");
+    writeTypes(engine, stats.externalTypes.get(Split.MAVEN), "Logging popular external types unique to maven", "maven-unique-popular-types.txt");
+    writeTypes(engine, stats.externalTypes.get(Split.PROJECT), "Logging popular external types unique to project", "project-unique-popular-types.txt");
+    writeTypes(engine, stats.externalTypes.get(Split.MISSING), "Logging popular missing external types", "missing-unique-popular-types.txt");
+    writePackages(engine, stats.externalPackages.get(Split.JOINT), "Logging popular external joint packages", "joint-popular-packages.txt");
+    writePackages(engine, stats.externalPackages.get(Split.MAVEN), "Logging popular packages unique to maven", "maven-unique-popular-packages.txt");
+    writePackages(engine, stats.externalPackages.get(Split.PROJECT), "Logging popular packages unique to project", "project-unique-popular-packages.txt");
+    writePackages(engine, stats.externalPackages.get(Split.MISSING), "Logging popular packages unique to missing", "missing-unique-popular-packages.txt");
     
-    for (int threshold : new int[] { 1, 2, 10, 50, 100}) {
-      Multiset<String> externalUniqueByString = HashMultiset.create(6);
-      Multiset<String> externalTotalByString = HashMultiset.create(6);
-      Multiset<String> missingUniqueByString = HashMultiset.create(6);
-      Multiset<String> missingTotalByString = HashMultiset.create(6);
-            
-      int externalUniqueTotal = 0;
-      int externalTotalTotal = 0;
-      int missingUniqueTotal = 0;
-      int missingTotalTotal = 0;
-      for (SourcedFqnNode node : root.getPostOrderIterable()) {
-        int externalCount = node.getCount(Source.EXTERNAL);
-        if (externalCount >= threshold) {
-          externalUniqueTotal++;
-          externalTotalTotal += externalCount;
-          boolean maven = node.has(Source.MAVEN);
-          boolean project = node.has(Source.PROJECT);
-          if (maven) {
-            externalUniqueByString.add("Maven");
-            externalTotalByString.add("Maven", externalCount);
-            if (!project) {
-              externalUniqueByString.add("Maven only");
-              externalTotalByString.add("Maven only", externalCount);
-            } else {
-              externalUniqueByString.add("Project");
-              externalTotalByString.add("Project", externalCount);
-              externalUniqueByString.add("Maven and Project");
-              externalTotalByString.add("Maven and Project", externalCount);
-            }
-          } else if (project) {
-            externalUniqueByString.add("Project");
-            externalTotalByString.add("Project", externalCount);
-            externalUniqueByString.add("Project only");
-            externalTotalByString.add("Project only", externalCount);
-          } else {
-            externalUniqueByString.add("Nothing");
-            externalTotalByString.add("Nothing", externalCount);
-          }
-        }
-        
-        int missingCount = node.getCount(Source.MISSING);
-        if (missingCount >= threshold) {
-          missingUniqueTotal++;
-          missingTotalTotal += missingCount;
-          boolean maven = node.has(Source.MAVEN);
-          boolean project = node.has(Source.PROJECT);
-          if (maven) {
-            missingUniqueByString.add("Maven");
-            missingTotalByString.add("Maven", missingCount);
-            if (!project) {
-              missingUniqueByString.add("Maven only");
-              missingTotalByString.add("Maven only", missingCount);
-            } else {
-              missingUniqueByString.add("Project");
-              missingTotalByString.add("Project", missingCount);
-              missingUniqueByString.add("Maven and Project");
-              missingTotalByString.add("Maven and Project", missingCount);
-            }
-          } else if (project) {
-            missingUniqueByString.add("Project");
-            missingTotalByString.add("Project", missingCount);
-            missingUniqueByString.add("Project only");
-            missingTotalByString.add("Project only", missingCount);
-          } else {
-            missingUniqueByString.add("Nothing");
-            missingTotalByString.add("Nothing", missingCount);
-          }
-        }
-      }
-      
-      Percenterator externalUniqueP = Percenterator.create(externalUniqueTotal);
-      Percenterator missingUniqueP = Percenterator.create(missingUniqueTotal);
-      Percenterator externalTotalP = Percenterator.create(externalTotalTotal);
-      Percenterator missingTotalP = Percenterator.create(externalTotalTotal);
-
-      task.start("Reporting external import coverage for threshold " + threshold);
-      for (String condition : externalUniqueByString.elementSet()) {
-        task.report(condition + ":");
-        task.report("  Unique: " + externalUniqueP.format(externalUniqueByString.count(condition)));
-        task.report("  Total:  " + externalTotalP.format(externalTotalByString.count(condition)));
-      }
-      task.report("Sum:");
-      task.report("  Unique: " + externalUniqueTotal);
-      task.report("  Total: " + externalTotalTotal);
-      task.finish();
-      task.start("Reporting missing import coverage for threshold " + threshold);
-      for (String condition : missingUniqueByString.elementSet()) {
-        task.report(condition + ":");
-        task.report("  Unique: " + missingUniqueP.format(missingUniqueByString.count(condition)));
-        task.report("  Total:  " + missingTotalP.format(missingTotalByString.count(condition)));
-      }
-      task.report("Sum:");
-      task.report("  Unique: " + missingUniqueTotal);
-      task.report("  Total: " + missingTotalTotal);
-      task.finish();
+    for (int t = 0; t < CoverageEngine.THRESHOLDS.length; t++) {
+      reportTally(stats.externalTallies[t], "Reporting external import coverage for threshold " + CoverageEngine.THRESHOLDS[t]);
+      reportTally(stats.missingTallies[t], "Reporting missing import coverage for threshold " + CoverageEngine.THRESHOLDS[t]);
     }
     
     {
-      Set<String> maven = new HashSet<>();
-      Set<String> mavenImported = new HashSet<>();
-      
-      Set<String> project = new HashSet<>();
-      Set<String> projectImported = new HashSet<>();
-      // Find the coverage of the maven and project jars
-      for (SourcedFqnNode fqn : root.getPostOrderIterable()) {
-        maven.addAll(fqn.getSourceIDs(Source.MAVEN));
-        project.addAll(fqn.getSourceIDs(Source.PROJECT));
-        if (fqn.has(Source.IMPORTED)) {
-          mavenImported.addAll(fqn.getSourceIDs(Source.MAVEN));
-          projectImported.addAll(fqn.getSourceIDs(Source.PROJECT));
-        }
-      }
-      
-      Percenterator mavenP = Percenterator.create(maven.size());
-      Percenterator projectP = Percenterator.create(project.size());
+      Percenterator mavenP = Percenterator.create(stats.mavenJars);
+      Percenterator projectP = Percenterator.create(stats.projectJars);
       task.start("Reporting coverage of jars");
-      task.report(mavenP.format(mavenImported.size()) + " maven jars had at least one type imported");
-      task.report(projectP.format(projectImported.size()) + " project jars had at least one type imported");
+      task.report(mavenP.format(stats.mavenJarsImported) + " maven jars had at least one type imported");
+      task.report(projectP.format(stats.projectJarsImported) + " project jars had at least one type imported");
       task.finish();
     }
-
 //    {
 //      // Find all the most popular fqns per source
 //      for (final Source source : Source.values()) {
@@ -841,4 +411,66 @@ public class CoverageCalculator {
     
     task.finish();
   }
+  
+  private static void writeTypes(CoverageEngine engine, CoverageEngine.TypeListing listing, String taskName, String fileName) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start(taskName);
+    try (LogFileWriter writer = IOUtils.createLogFileWriter(new File(Arguments.OUTPUT.getValue(), fileName))) {
+      for (int node : listing.getNodes()) {
+        writer.write(engine.getCount(listing.getSource(), node) + "\t" + engine.getFqn(node));
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Error writing file", e);
+    }
+    task.finish();
+  }
+  
+  private static void writePackages(CoverageEngine engine, CoverageEngine.PackageListing listing, String taskName, String fileName) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start(taskName);
+    try (LogFileWriter writer = IOUtils.createLogFileWriter(new File(Arguments.OUTPUT.getValue(), fileName))) {
+      int[] nodes = listing.getNodes();
+      int[] projects = listing.getProjectCounts();
+      for (int i = 0; i < nodes.length; i++) {
+        writer.write(projects[i] + "\t" + engine.getFqn(nodes[i]));
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Error writing file", e);
+    }
+    task.finish();
+  }
+  
+  /**
+   * A type provided by both maven and project jars counts towards Maven,
+   * Project and Maven and Project.
+   */
+  private static void reportTally(CoverageEngine.Tally tally, String taskName) {
+    int joint = Split.JOINT.ordinal();
+    int maven = Split.MAVEN.ordinal();
+    int project = Split.PROJECT.ordinal();
+    int missing = Split.MISSING.ordinal();
+    
+    Percenterator uniqueP = Percenterator.create(tally.uniqueSum);
+    Percenterator totalP = Percenterator.create(tally.totalSum);
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start(taskName);
+    reportCondition(task, uniqueP, totalP, "Maven", tally.unique[joint] + tally.unique[maven], tally.total[joint] + tally.total[maven]);
+    reportCondition(task, uniqueP, totalP, "Maven only", tally.unique[maven], tally.total[maven]);
+    reportCondition(task, uniqueP, totalP, "Project", tally.unique[joint] + tally.unique[project], tally.total[joint] + tally.total[project]);
+    reportCondition(task, uniqueP, totalP, "Maven and Project", tally.unique[joint], tally.total[joint]);
+    reportCondition(task, uniqueP, totalP, "Project only", tally.unique[project], tally.total[project]);
+    reportCondition(task, uniqueP, totalP, "Nothing", tally.unique[missing], tally.total[missing]);
+    task.report("Sum:");
+    task.report("  Unique: " + tally.uniqueSum);
+    task.report("  Total: " + tally.totalSum);
+    task.finish();
+  }
+  
+  private static void reportCondition(TaskProgressLogger task, Percenterator uniqueP, Percenterator totalP, String condition, int unique, int total) {
+    if (unique > 0) {
+      task.report(condition + ":");
+      task.report("  Unique: " + uniqueP.format(unique));
+      task.report("  Total:  " + totalP.format(total));
+    }
+  }
 }
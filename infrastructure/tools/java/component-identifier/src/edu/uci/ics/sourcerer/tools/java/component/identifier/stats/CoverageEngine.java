@@ -0,0 +1,693 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.component.identifier.stats;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.tools.java.component.identifier.stats.SourcedFqnNode.Source;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.ImportEX;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.MissingTypeEX;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.ReaderBundle;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJavaProject;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJavaRepository;
+import edu.uci.ics.sourcerer.util.Averager;
+
+/**
+ * Computes the coverage statistics over the sourced prefix tree.
+ * 
+ * Projects are ingested in parallel, each worker collecting the types its
+ * projects import, refer to externally and are missing into its own
+ * state. The states are merged into the prefix tree, which is then frozen
+ * into flat arrays numbered in post-order: a parent column, a depth
+ * column, a pre-order rank column for tie breaking and, per source, a
+ * counter column plus the sorted ids behind each counter. Every statistic
+ * is then gathered in a single sweep over those arrays. Because children
+ * always precede their parent, per-package unions only need to be kept
+ * for the packages on the current path.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class CoverageEngine {
+  private static final Source[] SOURCES = Source.values();
+  private static final Source[] EXTRACTED_SOURCES = { Source.IMPORTED, Source.EXTERNAL, Source.MISSING };
+  static final int[] THRESHOLDS = { 1, 2, 10, 50, 100 };
+  
+  /**
+   * Which jars provide an external type.
+   */
+  static enum Split {
+    JOINT,
+    MAVEN,
+    PROJECT,
+    MISSING,
+    ;
+  }
+  private static final Split[] SPLITS = Split.values();
+  
+  private SourcedFqnNode root;
+  private final Map<SourcedFqnNode, IntList[]> extracted;
+  private final Averager<Integer> externalFqns;
+  private final Averager<Integer> missingFqns;
+  private int projectCount;
+  
+  private int size;
+  private int[] parent;
+  private int[] depth;
+  private int[] pre;
+  private String[] name;
+  private int[][] counts;
+  private int[][][] ids;
+  
+  private CoverageEngine(SourcedFqnNode root) {
+    this.root = root;
+    extracted = new IdentityHashMap<>();
+    externalFqns = Averager.createStreaming();
+    missingFqns = Averager.createStreaming();
+  }
+  
+  static CoverageEngine create(SourcedFqnNode root) {
+    return new CoverageEngine(root);
+  }
+  
+  private static final class IntList {
+    private int[] values = new int[4];
+    private int size = 0;
+    
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size << 1);
+      }
+      values[size++] = value;
+    }
+    
+    void addAll(IntList other) {
+      if (size + other.size > values.length) {
+        values = Arrays.copyOf(values, Math.max(size + other.size, size << 1));
+      }
+      System.arraycopy(other.values, 0, values, size, other.size);
+      size += other.size;
+    }
+    
+    int get(int index) {
+      return values[index];
+    }
+    
+    int size() {
+      return size;
+    }
+    
+    int[] toSortedArray() {
+      int[] result = Arrays.copyOf(values, size);
+      Arrays.sort(result);
+      return result;
+    }
+  }
+  
+  private static final class ProjectFiles {
+    private final int id;
+    private final File externalDir;
+    private final File externalZip;
+    private final File missingDir;
+    private final File missingZip;
+    
+    private ProjectFiles(int id, ExtractedJavaProject external, ExtractedJavaProject missing) {
+      this.id = id;
+      externalDir = external.getExtractionDir().toFile();
+      externalZip = external.getCompressedFile().toFile();
+      missingDir = missing.getExtractionDir().toFile();
+      missingZip = missing.getCompressedFile().toFile();
+    }
+  }
+  
+  /**
+   * Per worker ingestion state. Each project is handled by exactly one
+   * worker, so merging states never produces duplicate ids.
+   */
+  private static final class IngestState {
+    private final Map<Source, Map<String, IntList>> types = new EnumMap<>(Source.class);
+    private final Averager<Integer> externalFqns = Averager.createStreaming();
+    private final Averager<Integer> missingFqns = Averager.createStreaming();
+    
+    private IngestState() {
+      for (Source source : EXTRACTED_SOURCES) {
+        types.put(source, new HashMap<String, IntList>());
+      }
+    }
+    
+    private void add(Source source, String fqn, int project) {
+      Map<String, IntList> map = types.get(source);
+      IntList list = map.get(fqn);
+      if (list == null) {
+        list = new IntList();
+        map.put(fqn, list);
+      }
+      list.add(project);
+    }
+    
+    private void ingest(ProjectFiles project) {
+      ReaderBundle externalBundle = ReaderBundle.create(project.externalDir, project.externalZip);
+      ReaderBundle missingBundle = ReaderBundle.create(project.missingDir, project.missingZip);
+      
+      Set<String> imported = new HashSet<>();
+      for (ImportEX imp : externalBundle.getTransientImports()) {
+        if (imported.add(imp.getImported())) {
+          add(Source.IMPORTED, imp.getImported(), project.id);
+        }
+      }
+      
+      int externalCount = 0;
+      Set<String> validMissing = new HashSet<>();
+      for (MissingTypeEX missing : externalBundle.getTransientMissingTypes()) {
+        if (validMissing.add(missing.getFqn())) {
+          add(Source.EXTERNAL, missing.getFqn(), project.id);
+        }
+        externalCount++;
+      }
+      
+      int missingCount = 0;
+      Set<String> missingTypes = new HashSet<>();
+      for (MissingTypeEX missing : missingBundle.getTransientMissingTypes()) {
+        if (validMissing.contains(missing.getFqn())) {
+          if (missingTypes.add(missing.getFqn())) {
+            add(Source.MISSING, missing.getFqn(), project.id);
+          }
+          missingCount++;
+        }
+      }
+      
+      externalFqns.addValue(externalCount);
+      missingFqns.addValue(missingCount);
+    }
+  }
+  
+  /**
+   * Adds the imported, external and missing types of every external project.
+   * Projects are listed on the calling thread and read on {@code threads}
+   * workers.
+   */
+  void ingest(ExtractedJavaRepository externalRepo, ExtractedJavaRepository missingRepo, int threads) {
+    final List<ProjectFiles> projects = new ArrayList<>();
+    for (ExtractedJavaProject externalProject : externalRepo.getProjects()) {
+      ExtractedJavaProject missingProject = missingRepo.getProject(externalProject.getLocation());
+      if (missingProject == null) {
+        logger.severe("Unable to find missing project for " + externalProject.getLocation());
+      } else {
+        projects.add(new ProjectFiles(projectCount, externalProject, missingProject));
+      }
+      projectCount++;
+    }
+    
+    final AtomicInteger next = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+    try {
+      Collection<Future<IngestState>> futures = new ArrayList<>();
+      for (int i = Math.max(1, threads); i > 0; i--) {
+        futures.add(executor.submit(new Callable<IngestState>() {
+          @Override
+          public IngestState call() {
+            IngestState state = new IngestState();
+            for (int i = next.getAndIncrement(); i < projects.size(); i = next.getAndIncrement()) {
+              try {
+                state.ingest(projects.get(i));
+              } catch (RuntimeException e) {
+                logger.log(Level.SEVERE, "Error processing project " + projects.get(i).externalDir, e);
+              }
+            }
+            return state;
+          }
+        }));
+      }
+      for (Future<IngestState> future : futures) {
+        merge(future.get());
+      }
+    } catch (InterruptedException e) {
+      logger.log(Level.SEVERE, "Interrupted while processing projects", e);
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      logger.log(Level.SEVERE, "Error processing projects", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+  
+  private void merge(IngestState state) {
+    externalFqns.merge(state.externalFqns);
+    missingFqns.merge(state.missingFqns);
+    for (Map.Entry<Source, Map<String, IntList>> bySource : state.types.entrySet()) {
+      int ordinal = bySource.getKey().ordinal();
+      for (Map.Entry<String, IntList> entry : bySource.getValue().entrySet()) {
+        SourcedFqnNode node = root.getChild(entry.getKey(), '.');
+        IntList[] lists = extracted.get(node);
+        if (lists == null) {
+          lists = new IntList[SOURCES.length];
+          extracted.put(node, lists);
+        }
+        if (lists[ordinal] == null) {
+          lists[ordinal] = entry.getValue();
+        } else {
+          lists[ordinal].addAll(entry.getValue());
+        }
+      }
+    }
+    state.types.clear();
+  }
+  
+  int getProjectCount() {
+    return projectCount;
+  }
+  
+  Averager<Integer> getExternalFqns() {
+    return externalFqns;
+  }
+  
+  Averager<Integer> getMissingFqns() {
+    return missingFqns;
+  }
+  
+  /**
+   * Converts the prefix tree into the flat post-order arrays. The tree is
+   * released afterwards.
+   */
+  private void freeze() {
+    size = 0;
+    for (@SuppressWarnings("unused") SourcedFqnNode node : root.getPostOrderIterable()) {
+      size++;
+    }
+    parent = new int[size];
+    depth = new int[size];
+    pre = new int[size];
+    name = new String[size];
+    counts = new int[SOURCES.length][size];
+    ids = new int[SOURCES.length][size][];
+    
+    Map<String, Integer> jarIds = new HashMap<>();
+    int[] cursor = new int[2];
+    int rootIndex = freeze(root, 0, cursor, jarIds);
+    parent[rootIndex] = -1;
+    
+    root = null;
+    extracted.clear();
+  }
+  
+  /**
+   * cursor[0] is the next post-order index, cursor[1] the next pre-order rank.
+   */
+  private int freeze(SourcedFqnNode node, int nodeDepth, int[] cursor, Map<String, Integer> jarIds) {
+    int rank = cursor[1]++;
+    IntList children = null;
+    for (SourcedFqnNode child : node.getChildren()) {
+      if (children == null) {
+        children = new IntList();
+      }
+      children.add(freeze(child, nodeDepth + 1, cursor, jarIds));
+    }
+    int index = cursor[0]++;
+    if (children != null) {
+      for (int i = 0; i < children.size(); i++) {
+        parent[children.get(i)] = index;
+      }
+    }
+    depth[index] = nodeDepth;
+    pre[index] = rank;
+    name[index] = node.getName();
+    
+    for (Source source : new Source[] { Source.MAVEN, Source.PROJECT }) {
+      Collection<String> sourceIDs = node.getSourceIDs(source);
+      if (!sourceIDs.isEmpty()) {
+        int[] jars = new int[sourceIDs.size()];
+        int i = 0;
+        for (String hash : sourceIDs) {
+          Integer id = jarIds.get(hash);
+          if (id == null) {
+            id = jarIds.size();
+            jarIds.put(hash, id);
+          }
+          jars[i++] = id;
+        }
+        Arrays.sort(jars);
+        set(source, index, jars);
+      }
+    }
+    IntList[] lists = extracted.get(node);
+    if (lists != null) {
+      for (Source source : EXTRACTED_SOURCES) {
+        if (lists[source.ordinal()] != null) {
+          set(source, index, lists[source.ordinal()].toSortedArray());
+        }
+      }
+    }
+    return index;
+  }
+  
+  private void set(Source source, int index, int[] values) {
+    ids[source.ordinal()][index] = values;
+    counts[source.ordinal()][index] = values.length;
+  }
+  
+  String getFqn(int index) {
+    if (parent[index] == -1) {
+      return "(root)";
+    } else {
+      String[] parts = new String[depth[index]];
+      for (int node = index; parent[node] != -1; node = parent[node]) {
+        parts[depth[node] - 1] = name[node];
+      }
+      StringBuilder fqn = new StringBuilder(parts[0]);
+      for (int i = 1; i < parts.length; i++) {
+        fqn.append('.').append(parts[i]);
+      }
+      return fqn.toString();
+    }
+  }
+  
+  int getCount(Source source, int index) {
+    return counts[source.ordinal()][index];
+  }
+  
+  private Split getSplit(int index) {
+    boolean maven = counts[Source.MAVEN.ordinal()][index] > 0;
+    boolean project = counts[Source.PROJECT.ordinal()][index] > 0;
+    if (maven && project) {
+      return Split.JOINT;
+    } else if (maven) {
+      return Split.MAVEN;
+    } else if (project) {
+      return Split.PROJECT;
+    } else {
+      return Split.MISSING;
+    }
+  }
+  
+  /**
+   * Nodes with a source, most popular first. Equal counts are in reverse
+   * tree order.
+   */
+  final class TypeListing {
+    private final Source source;
+    private final IntList nodes = new IntList();
+    private int[] sorted;
+    
+    private TypeListing(Source source) {
+      this.source = source;
+    }
+    
+    Source getSource() {
+      return source;
+    }
+    
+    int[] getNodes() {
+      if (sorted == null) {
+        Integer[] boxed = new Integer[nodes.size()];
+        for (int i = 0; i < boxed.length; i++) {
+          boxed[i] = nodes.get(i);
+        }
+        final int[] column = counts[source.ordinal()];
+        Arrays.sort(boxed, new Comparator<Integer>() {
+          @Override
+          public int compare(Integer o1, Integer o2) {
+            int cmp = Integer.compare(column[o2], column[o1]);
+            if (cmp == 0) {
+              return Integer.compare(pre[o2], pre[o1]);
+            } else {
+              return cmp;
+            }
+          }
+        });
+        sorted = new int[boxed.length];
+        for (int i = 0; i < boxed.length; i++) {
+          sorted[i] = boxed[i];
+        }
+      }
+      return sorted;
+    }
+  }
+  
+  /**
+   * Packages with the number of distinct projects using their types,
+   * most popular first. Equal counts are in tree order.
+   */
+  final class PackageListing {
+    private final IntList nodes = new IntList();
+    private final IntList projects = new IntList();
+    private int[] sorted;
+    private int[] sortedProjects;
+    
+    private void add(int node, int count) {
+      nodes.add(node);
+      projects.add(count);
+    }
+    
+    private void sort() {
+      if (sorted == null) {
+        Integer[] order = new Integer[nodes.size()];
+        for (int i = 0; i < order.length; i++) {
+          order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+          @Override
+          public int compare(Integer o1, Integer o2) {
+            int cmp = Integer.compare(projects.get(o2), projects.get(o1));
+            if (cmp == 0) {
+              return Integer.compare(pre[nodes.get(o1)], pre[nodes.get(o2)]);
+            } else {
+              return cmp;
+            }
+          }
+        });
+        sorted = new int[order.length];
+        sortedProjects = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+          sorted[i] = nodes.get(order[i]);
+          sortedProjects[i] = projects.get(order[i]);
+        }
+      }
+    }
+    
+    int[] getNodes() {
+      sort();
+      return sorted;
+    }
+    
+    int[] getProjectCounts() {
+      sort();
+      return sortedProjects;
+    }
+  }
+  
+  /**
+   * External or missing types with at least a threshold number of projects,
+   * broken down by {@link Split}.
+   */
+  static final class Tally {
+    final int[] unique = new int[SPLITS.length];
+    final int[] total = new int[SPLITS.length];
+    int uniqueSum;
+    int totalSum;
+    
+    private void add(Split split, int count) {
+      unique[split.ordinal()]++;
+      total[split.ordinal()] += count;
+      uniqueSum++;
+      totalSum += count;
+    }
+  }
+  
+  final class Statistics {
+    final int[] unique = new int[SOURCES.length];
+    final int[] total = new int[SOURCES.length];
+    final int[] packages = new int[SOURCES.length];
+    int uniqueTotal;
+    
+    final Map<Source, TypeListing> popularTypes = new EnumMap<>(Source.class);
+    final Map<Source, PackageListing> popularPackages = new EnumMap<>(Source.class);
+    final Map<Split, TypeListing> externalTypes = new EnumMap<>(Split.class);
+    final Map<Split, PackageListing> externalPackages = new EnumMap<>(Split.class);
+    
+    final Tally[] externalTallies = new Tally[THRESHOLDS.length];
+    final Tally[] missingTallies = new Tally[THRESHOLDS.length];
+    
+    int mavenJars;
+    int mavenJarsImported;
+    int projectJars;
+    int projectJarsImported;
+    
+    private Statistics() {
+      for (Source source : EXTRACTED_SOURCES) {
+        popularTypes.put(source, new TypeListing(source));
+        popularPackages.put(source, new PackageListing());
+      }
+      for (Split split : SPLITS) {
+        externalTypes.put(split, new TypeListing(Source.EXTERNAL));
+        externalPackages.put(split, new PackageListing());
+      }
+      for (int i = 0; i < THRESHOLDS.length; i++) {
+        externalTallies[i] = new Tally();
+        missingTallies[i] = new Tally();
+      }
+    }
+  }
+  
+  /**
+   * Freezes the tree and gathers every statistic in one post-order sweep.
+   */
+  Statistics analyze() {
+    freeze();
+    Statistics stats = new Statistics();
+    
+    int maxDepth = 0;
+    for (int d : depth) {
+      maxDepth = Math.max(maxDepth, d);
+    }
+    // Unions for the children of the open package at each depth, by source and then by split
+    int columns = SOURCES.length + SPLITS.length;
+    BitSet[][] open = new BitSet[maxDepth + 1][columns];
+    boolean[][] openHas = new boolean[maxDepth + 1][columns];
+    
+    BitSet mavenJars = new BitSet();
+    BitSet mavenImported = new BitSet();
+    BitSet projectJars = new BitSet();
+    BitSet projectImported = new BitSet();
+    
+    int imported = Source.IMPORTED.ordinal();
+    int external = Source.EXTERNAL.ordinal();
+    int missing = Source.MISSING.ordinal();
+    int maven = Source.MAVEN.ordinal();
+    int project = Source.PROJECT.ordinal();
+    
+    for (int node = 0; node < size; node++) {
+      int d = depth[node];
+      
+      // All of this node's children have been seen, so its package unions are complete
+      boolean[] has = openHas[d];
+      for (int column = 0; column < columns; column++) {
+        if (has[column]) {
+          has[column] = false;
+          if (column < SOURCES.length) {
+            stats.packages[column]++;
+          }
+          BitSet set = open[d][column];
+          if (set != null) {
+            if (column < SOURCES.length) {
+              stats.popularPackages.get(SOURCES[column]).add(node, set.cardinality());
+            } else {
+              stats.externalPackages.get(SPLITS[column - SOURCES.length]).add(node, set.cardinality());
+            }
+            set.clear();
+          }
+        }
+      }
+      
+      boolean hasSource = false;
+      for (int s = 0; s < SOURCES.length; s++) {
+        int count = counts[s][node];
+        if (count > 0) {
+          hasSource = true;
+          stats.unique[s]++;
+          stats.total[s] += count;
+          if (d > 0) {
+            openHas[d - 1][s] = true;
+            if (s != maven && s != project) {
+              union(open, d - 1, s, ids[s][node]);
+            }
+          }
+        }
+      }
+      if (!hasSource) {
+        continue;
+      }
+      stats.uniqueTotal++;
+      
+      for (Source source : EXTRACTED_SOURCES) {
+        if (counts[source.ordinal()][node] > 0) {
+          stats.popularTypes.get(source).nodes.add(node);
+        }
+      }
+      
+      Split split = getSplit(node);
+      int externalCount = counts[external][node];
+      int missingCount = counts[missing][node];
+      if (externalCount > 0) {
+        stats.externalTypes.get(split).nodes.add(node);
+        if (d > 0) {
+          int column = SOURCES.length + split.ordinal();
+          openHas[d - 1][column] = true;
+          union(open, d - 1, column, ids[external][node]);
+        }
+      }
+      for (int t = 0; t < THRESHOLDS.length; t++) {
+        if (externalCount >= THRESHOLDS[t]) {
+          stats.externalTallies[t].add(split, externalCount);
+        }
+        if (missingCount >= THRESHOLDS[t]) {
+          stats.missingTallies[t].add(split, missingCount);
+        }
+      }
+      
+      set(mavenJars, ids[maven][node]);
+      set(projectJars, ids[project][node]);
+      if (counts[imported][node] > 0) {
+        set(mavenImported, ids[maven][node]);
+        set(projectImported, ids[project][node]);
+      }
+    }
+    
+    stats.mavenJars = mavenJars.cardinality();
+    stats.mavenJarsImported = mavenImported.cardinality();
+    stats.projectJars = projectJars.cardinality();
+    stats.projectJarsImported = projectImported.cardinality();
+    return stats;
+  }
+  
+  private static void union(BitSet[][] open, int d, int column, int[] values) {
+    BitSet set = open[d][column];
+    if (set == null) {
+      set = new BitSet();
+      open[d][column] = set;
+    }
+    set(set, values);
+  }
+  
+  private static void set(BitSet set, int[] values) {
+    if (values != null) {
+      for (int value : values) {
+        set.set(value);
+      }
+    }
+  }
+}
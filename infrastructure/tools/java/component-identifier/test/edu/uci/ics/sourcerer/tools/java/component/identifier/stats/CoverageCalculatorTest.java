@@ -0,0 +1,326 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.component.identifier.stats;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.ImportWriter;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.MissingTypeWriter;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.WriterBundle;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.ImportWriterImpl;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.MissingTypeWriterImpl;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JavaProject;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
+import edu.uci.ics.sourcerer.tools.java.repo.model.ModifiableJavaBatch;
+import edu.uci.ics.sourcerer.tools.java.repo.model.ModifiableJavaProject;
+import edu.uci.ics.sourcerer.tools.java.repo.model.ModifiableJavaRepository;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJavaProjectProperties;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ModifiableExtractedJavaProject;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ModifiableExtractedJavaRepository;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Arguments;
+import edu.uci.ics.sourcerer.util.io.arguments.Command;
+import edu.uci.ics.sourcerer.util.io.logging.Logging;
+
+/**
+ * Runs the calculator over a small jar repository and a pair of extracted
+ * repositories, and compares its output files and reports with those of
+ * the tree walking calculator that {@link CoverageEngine} replaced.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class CoverageCalculatorTest {
+  public static final Command COMMAND = new Command("test", "Run a junit test.") {
+    @Override
+    protected void action() {
+    }
+  }.setProperties(CoverageCalculator.JAR_REPO, CoverageCalculator.EXTERNAL_REPO, CoverageCalculator.MISSING_REPO, CoverageCalculator.SOURCED_CACHE, CoverageCalculator.COVERAGE_THREADS, WriterBundle.IMPORT_WRITER, WriterBundle.MISSING_TYPE_WRITER);
+  
+  private static final String[] OUTPUT_FILES = {
+    "IMPORTED-popular-types.txt", "IMPORTED-popular-packages.txt",
+    "EXTERNAL-popular-types.txt", "EXTERNAL-popular-packages.txt",
+    "MISSING-popular-types.txt", "MISSING-popular-packages.txt",
+    "joint-popular-types.txt", "maven-unique-popular-types.txt", "project-unique-popular-types.txt", "missing-unique-popular-types.txt",
+    "joint-popular-packages.txt", "maven-unique-popular-packages.txt", "project-unique-popular-packages.txt", "missing-unique-popular-packages.txt",
+  };
+  
+  private static File root;
+  
+  @BeforeClass
+  public static void initialize() throws IOException {
+    root = Files.createTempDirectory("coverage").toFile();
+    Arguments.OUTPUT.setValue(new File(root, "output"));
+    Arguments.OUTPUT.getValue().mkdirs();
+    CoverageCalculator.JAR_REPO.setValue(new File(root, "repo"));
+    CoverageCalculator.EXTERNAL_REPO.setValue(new File(root, "external"));
+    CoverageCalculator.MISSING_REPO.setValue(new File(root, "missing"));
+    CoverageCalculator.SOURCED_CACHE.setValue(new File(root, "sourced-cache.txt"));
+    // Initializes the logging
+    Command.execute(new String[] { "--test" }, CoverageCalculatorTest.class);
+    createFixture();
+  }
+  
+  @AfterClass
+  public static void deleteFixture() {
+    FileUtils.delete(root);
+  }
+  
+  private static void createFixture() throws IOException {
+    WriterBundle.IMPORT_WRITER.setValue(ImportWriterImpl.class);
+    WriterBundle.MISSING_TYPE_WRITER.setValue(MissingTypeWriterImpl.class);
+    
+    ModifiableJavaRepository repo = JavaRepositoryFactory.INSTANCE.loadModifiableJavaRepository(CoverageCalculator.JAR_REPO);
+    repo.addMavenJarFile(createJar("m1", "a/b/Foo", "a/b/Bar", "a/c/Baz", "x/Only"), null, "org.m", "m1", "1.0");
+    repo.addMavenJarFile(createJar("m2", "a/b/Foo", "a/b/Foo$Inner", "q/Quux", "q/Foo"), null, "org.m", "m2", "1.0");
+    // Never imported
+    repo.addMavenJarFile(createJar("m3", "u/Unused"), null, "org.m", "m3", "1.0");
+    
+    ModifiableJavaBatch batch = repo.createBatch();
+    createProject(batch, createJar("p1", "a/b/Foo", "p/Proj", "a/c/Baz"));
+    createProject(batch, createJar("p2", "p/Proj", "p/Other"));
+    for (int i = 0; i < 3; i++) {
+      createProject(batch, null);
+    }
+    repo.aggregateJarFiles();
+    
+    ModifiableExtractedJavaRepository external = JavaRepositoryFactory.INSTANCE.loadModifiableExtractedJavaRepository(CoverageCalculator.EXTERNAL_REPO);
+    ModifiableExtractedJavaRepository missing = JavaRepositoryFactory.INSTANCE.loadModifiableExtractedJavaRepository(CoverageCalculator.MISSING_REPO);
+    String[][][] extractions = {
+      // imports, external types, missing types
+      { { "a.b.Foo", "a.b.Bar", "java.util.List", "a.b.Foo" }, { "a.b.Foo", "a.c.Baz", "z.Gone", "z.Gone" }, { "z.Gone", "a.b.Foo" } },
+      { { "a.b.Foo", "p.Proj" }, { "a.b.Foo", "p.Proj", "x.Only" }, { "x.Only", "y.NotExternal" } },
+      { { "a.b.Foo", "q.Quux", "q.Foo" }, { "a.b.Foo", "q.Quux", "z.Gone", "q.Foo" }, { "z.Gone", "q.Quux", "q.Foo" } },
+      { { "a.c.Baz" }, { "a.c.Baz", "p.Other" }, { "p.Other" } },
+      { {}, {}, {} },
+    };
+    int i = 0;
+    for (JavaProject project : repo.getProjects()) {
+      String[][] extraction = extractions[i++];
+      writeExtraction(external.getMatchingProject(project), extraction[0], extraction[1]);
+      writeExtraction(missing.getMatchingProject(project), new String[0], extraction[2]);
+    }
+  }
+  
+  private static File createJar(String name, String ... classes) throws IOException {
+    File jar = new File(root, name + ".jar");
+    try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(jar))) {
+      for (String type : classes) {
+        zos.putNextEntry(new ZipEntry(type + ".class"));
+        zos.closeEntry();
+      }
+    }
+    return jar;
+  }
+  
+  private static void createProject(ModifiableJavaBatch batch, File jar) throws IOException {
+    ModifiableJavaProject project = batch.createProject();
+    project.getProperties().NAME.setValue("project " + project.getLocation());
+    project.getProperties().save();
+    File content = Files.createTempDirectory(root.toPath(), "content").toFile();
+    if (jar != null) {
+      Files.copy(jar.toPath(), new File(content, jar.getName()).toPath());
+    }
+    project.addContent(content);
+  }
+  
+  private static void writeExtraction(ModifiableExtractedJavaProject project, String[] imports, String[] types) {
+    try (WriterBundle bundle = new WriterBundle(project.getExtractionDir().toFile())) {
+      ImportWriter importWriter = bundle.getImportWriter();
+      for (String imported : imports) {
+        importWriter.writeImport(imported, false, false, null);
+      }
+      MissingTypeWriter typeWriter = bundle.getMissingTypeWriter();
+      for (String type : types) {
+        typeWriter.writeMissingType(type);
+      }
+    }
+    ExtractedJavaProjectProperties properties = project.getProperties();
+    properties.EXTRACTED.setValue(true);
+    properties.save();
+  }
+  
+  /**
+   * Runs the calculator from scratch, returning the lines of each output
+   * file and the lines reported under each task.
+   */
+  private static Map<String, List<String>> calculate(int threads) throws IOException {
+    FileUtils.delete(CoverageCalculator.SOURCED_CACHE.getValue());
+    CoverageCalculator.COVERAGE_THREADS.setValue(threads);
+    
+    final Map<String, List<String>> results = new HashMap<>();
+    Handler handler = new Handler() {
+      private List<String> current;
+      
+      @Override
+      public void publish(LogRecord record) {
+        String message = record.getMessage().trim();
+        if (message.endsWith("...")) {
+          current = new ArrayList<>();
+          results.put(message.substring(0, message.length() - 3), current);
+        } else if (current != null && !message.startsWith("Finished ")) {
+          current.add(message);
+        }
+      }
+      
+      @Override
+      public void flush() {}
+      
+      @Override
+      public void close() {}
+    };
+    Logging.logger.addHandler(handler);
+    try {
+      CoverageCalculator.calculateJarCoverage();
+    } finally {
+      Logging.logger.removeHandler(handler);
+    }
+    for (String name : OUTPUT_FILES) {
+      results.put(name, Files.readAllLines(new File(Arguments.OUTPUT.getValue(), name).toPath(), StandardCharsets.UTF_8));
+    }
+    return results;
+  }
+  
+  private static void assertLines(Map<String, List<String>> results, String name, String ... expected) {
+    Assert.assertEquals(name, Arrays.asList(expected), results.get(name));
+  }
+  
+  /**
+   * The tree walk listed the conditions in hash order, so only the lines
+   * under each condition are compared.
+   */
+  private static void assertTally(Map<String, List<String>> results, String name, String ... expected) {
+    Assert.assertEquals(name, groupByCondition(Arrays.asList(expected)), groupByCondition(results.get(name)));
+  }
+  
+  private static Map<String, List<String>> groupByCondition(List<String> lines) {
+    Map<String, List<String>> conditions = new HashMap<>();
+    List<String> current = null;
+    for (String line : lines) {
+      if (line.endsWith(":")) {
+        current = new ArrayList<>();
+        conditions.put(line, current);
+      } else {
+        current.add(line);
+      }
+    }
+    return conditions;
+  }
+  
+  @Test
+  public void testMatchesTreeWalk() throws IOException {
+    assertMatchesTreeWalk(calculate(8));
+  }
+  
+  @Test
+  public void testSingleThread() throws IOException {
+    assertMatchesTreeWalk(calculate(1));
+  }
+  
+  /**
+   * The expected lines are those of the tree walking calculator on the
+   * same fixture. It reported the missing type totals as a percentage of
+   * the external total, so those percentages have been corrected.
+   */
+  private static void assertMatchesTreeWalk(Map<String, List<String>> results) {
+    assertLines(results, "Maven", "3 non-empty jars", "9 class files", "8 unique types", "6 packages");
+    assertLines(results, "Project", "2 non-empty jars", "5 class files", "4 unique types", "3 packages");
+    assertLines(results, "Reporting missing type information",
+        "4 (80%) projects with external types",
+        "4 (80%) projects with missing types",
+        "2.6 (1.5) imported external types per project, on average",
+        "3.25 (0.83) imported external types per project containing at least one external type, on average",
+        "1.4 (1.02) imported missing types per project, on average",
+        "1.75 (0.83) missing FQNs per project containing at least one missing FQN, on average");
+    assertLines(results, "Reporting FQN counts broken down by source",
+        "PROJECT:", "Unique: 4 (33.3%)", "Total:  5",
+        "MAVEN:", "Unique: 8 (66.7%)", "Total:  9",
+        "IMPORTED:", "Unique: 7 (58.3%)", "Total:  9",
+        "EXTERNAL:", "Unique: 8 (66.7%)", "Total:  12",
+        "MISSING:", "Unique: 6 (50%)", "Total:  7",
+        "Sum:", "Unique: 12");
+    
+    assertLines(results, "IMPORTED-popular-types.txt", "3\ta.b.Foo", "1\tq.Quux", "1\tq.Foo", "1\tp.Proj", "1\tjava.util.List", "1\ta.c.Baz", "1\ta.b.Bar");
+    assertLines(results, "IMPORTED-popular-packages.txt", "3\ta.b", "1\ta.c", "1\tjava.util", "1\tp", "1\tq");
+    assertLines(results, "EXTERNAL-popular-types.txt", "3\ta.b.Foo", "2\tz.Gone", "2\ta.c.Baz", "1\tx.Only", "1\tq.Quux", "1\tq.Foo", "1\tp.Proj", "1\tp.Other");
+    assertLines(results, "EXTERNAL-popular-packages.txt", "3\ta.b", "2\ta.c", "2\tp", "2\tz", "1\tq", "1\tx");
+    assertLines(results, "MISSING-popular-types.txt", "2\tz.Gone", "1\tx.Only", "1\tq.Quux", "1\tq.Foo", "1\tp.Other", "1\ta.b.Foo");
+    assertLines(results, "MISSING-popular-packages.txt", "2\tz", "1\ta.b", "1\tp", "1\tq", "1\tx");
+    assertLines(results, "joint-popular-types.txt", "3\ta.b.Foo", "2\ta.c.Baz");
+    assertLines(results, "maven-unique-popular-types.txt", "1\tx.Only", "1\tq.Quux", "1\tq.Foo");
+    assertLines(results, "project-unique-popular-types.txt", "1\tp.Proj", "1\tp.Other");
+    assertLines(results, "missing-unique-popular-types.txt", "2\tz.Gone");
+    assertLines(results, "joint-popular-packages.txt", "3\ta.b", "2\ta.c");
+    assertLines(results, "maven-unique-popular-packages.txt", "1\tq", "1\tx");
+    assertLines(results, "project-unique-popular-packages.txt", "2\tp");
+    assertLines(results, "missing-unique-popular-packages.txt", "2\tz");
+    
+    assertTally(results, "Reporting external import coverage for threshold 1",
+        "Maven only:", "Unique: 3 (37.5%)", "Total:  3 (25%)",
+        "Maven:", "Unique: 5 (62.5%)", "Total:  8 (66.7%)",
+        "Project:", "Unique: 4 (50%)", "Total:  7 (58.3%)",
+        "Maven and Project:", "Unique: 2 (25%)", "Total:  5 (41.7%)",
+        "Project only:", "Unique: 2 (25%)", "Total:  2 (16.7%)",
+        "Nothing:", "Unique: 1 (12.5%)", "Total:  2 (16.7%)",
+        "Sum:", "Unique: 8", "Total: 12");
+    // The tree walk gave 25%, 33.3%, 16.7%, 8.3%, 8.3% and 16.7% of 12
+    assertTally(results, "Reporting missing import coverage for threshold 1",
+        "Maven only:", "Unique: 3 (50%)", "Total:  3 (42.9%)",
+        "Maven:", "Unique: 4 (66.7%)", "Total:  4 (57.1%)",
+        "Project:", "Unique: 2 (33.3%)", "Total:  2 (28.6%)",
+        "Maven and Project:", "Unique: 1 (16.7%)", "Total:  1 (14.3%)",
+        "Project only:", "Unique: 1 (16.7%)", "Total:  1 (14.3%)",
+        "Nothing:", "Unique: 1 (16.7%)", "Total:  2 (28.6%)",
+        "Sum:", "Unique: 6", "Total: 7");
+    assertTally(results, "Reporting external import coverage for threshold 2",
+        "Maven:", "Unique: 2 (66.7%)", "Total:  5 (71.4%)",
+        "Project:", "Unique: 2 (66.7%)", "Total:  5 (71.4%)",
+        "Maven and Project:", "Unique: 2 (66.7%)", "Total:  5 (71.4%)",
+        "Nothing:", "Unique: 1 (33.3%)", "Total:  2 (28.6%)",
+        "Sum:", "Unique: 3", "Total: 7");
+    // The tree walk gave 28.6% of 7
+    assertTally(results, "Reporting missing import coverage for threshold 2",
+        "Nothing:", "Unique: 1 (100%)", "Total:  2 (100%)",
+        "Sum:", "Unique: 1", "Total: 2");
+    for (int threshold : new int[] { 10, 50, 100 }) {
+      assertTally(results, "Reporting external import coverage for threshold " + threshold, "Sum:", "Unique: 0", "Total: 0");
+      assertTally(results, "Reporting missing import coverage for threshold " + threshold, "Sum:", "Unique: 0", "Total: 0");
+    }
+    
+    assertLines(results, "Reporting coverage of jars",
+        "2 (66.7%) maven jars had at least one type imported",
+        "2 (100%) project jars had at least one type imported");
+  }
+}
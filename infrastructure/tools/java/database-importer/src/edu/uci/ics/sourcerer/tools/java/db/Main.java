@@ -20,10 +20,13 @@ package edu.uci.ics.sourcerer.tools.java.db;
 import edu.uci.ics.sourcerer.tools.java.component.identifier.RepositoryGenerator;
 import edu.uci.ics.sourcerer.tools.java.component.model.jar.Fingerprint;
 import edu.uci.ics.sourcerer.tools.java.component.model.repo.ComponentRepository;
+import edu.uci.ics.sourcerer.tools.java.db.benchmark.QueryBenchmark;
 import edu.uci.ics.sourcerer.tools.java.db.exported.ComponentVerifier;
 import edu.uci.ics.sourcerer.tools.java.db.importer.ComponentImporter;
 import edu.uci.ics.sourcerer.tools.java.db.importer.DatabaseInitializer;
+import edu.uci.ics.sourcerer.tools.java.db.importer.OverridesImporter;
 import edu.uci.ics.sourcerer.tools.java.db.importer.ParallelDatabaseImporter;
+import edu.uci.ics.sourcerer.tools.java.db.importer.TypePopularityImporter;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
 import edu.uci.ics.sourcerer.util.io.FileUtils;
 import edu.uci.ics.sourcerer.util.io.arguments.Command;
@@ -41,13 +44,25 @@ public class Main {
     }.setProperties(
         DatabaseConnectionFactory.DATABASE_URL, 
         DatabaseConnectionFactory.DATABASE_USER, 
-        DatabaseConnectionFactory.DATABASE_PASSWORD);
+        DatabaseConnectionFactory.DATABASE_PASSWORD,
+        DatabaseInitializer.DEFER_INDEXES);
     
   public static final Command CLEAN_EXTRACTION_DATA =
     new Command("clean-extraction-data", "Clean the extraction data from the db.") {
       protected void action() {
         DatabaseInitializer.cleanExtractionData();
       }
+    }.setProperties(
+        DatabaseConnectionFactory.DATABASE_URL, 
+        DatabaseConnectionFactory.DATABASE_USER, 
+        DatabaseConnectionFactory.DATABASE_PASSWORD,
+        DatabaseInitializer.DEFER_INDEXES);
+  
+  public static final Command BUILD_INDEXES =
+    new Command("build-indexes", "Builds the indexes deferred by initialize-db or clean-extraction-data.") {
+      protected void action() {
+        DatabaseInitializer.buildIndexes();
+      }
     }.setProperties(
         DatabaseConnectionFactory.DATABASE_URL, 
         DatabaseConnectionFactory.DATABASE_USER, 
@@ -75,6 +90,7 @@ public class Main {
         JavaRepositoryFactory.INPUT_REPO,
         ParallelDatabaseImporter.THREAD_COUNT,
         ParallelDatabaseImporter.STRUCTURAL_ONLY,
+        ParallelDatabaseImporter.BUILD_INDEXES,
         FileUtils.TEMP_DIR);
   
   public static final Command ADD_JARS = 
@@ -89,6 +105,7 @@ public class Main {
         JavaRepositoryFactory.INPUT_REPO,
         ParallelDatabaseImporter.THREAD_COUNT,
         ParallelDatabaseImporter.STRUCTURAL_ONLY,
+        ParallelDatabaseImporter.BUILD_INDEXES,
         FileUtils.TEMP_DIR);
   
   public static final Command ADD_FILTER_JARS = 
@@ -104,6 +121,7 @@ public class Main {
           ParallelDatabaseImporter.THREAD_COUNT,
           ParallelDatabaseImporter.STRUCTURAL_ONLY,
           ParallelDatabaseImporter.JAR_FILTER,
+          ParallelDatabaseImporter.BUILD_INDEXES,
           FileUtils.TEMP_DIR);
   
   public static final Command ADD_PROJECTS = 
@@ -118,6 +136,20 @@ public class Main {
         JavaRepositoryFactory.INPUT_REPO,
         ParallelDatabaseImporter.THREAD_COUNT,
         ParallelDatabaseImporter.STRUCTURAL_ONLY,
+        ParallelDatabaseImporter.BUILD_INDEXES,
+        FileUtils.TEMP_DIR);
+  
+  public static final Command ADD_OVERRIDES = 
+    new Command("add-overrides", "Computes the method overrides relations.") {
+      protected void action() {
+        OverridesImporter.importOverrides();
+      }
+    }.setProperties(
+        DatabaseConnectionFactory.DATABASE_URL, 
+        DatabaseConnectionFactory.DATABASE_USER, 
+        DatabaseConnectionFactory.DATABASE_PASSWORD, 
+        ParallelDatabaseImporter.THREAD_COUNT,
+        OverridesImporter.HIERARCHY_CACHE_SIZE,
         FileUtils.TEMP_DIR);
   
   public static final Command ADD_COMPONENTS =
@@ -177,18 +209,38 @@ public class Main {
         ComponentVerifier.FRAGMENTED_AND_COMBINED_TABLE,
         ComponentVerifier.JACCARD_LOG,
         ComponentVerifier.IMPERFECT_JACCARD_LOG);
+  
+  public static final Command BENCHMARK_QUERIES =
+    new Command("benchmark-queries", "Reports p50/p99 latency of the hot query shapes.") {
+      @Override
+      protected void action() {
+        QueryBenchmark.benchmark();
+      }
+    }.setProperties(
+        DatabaseConnectionFactory.DATABASE_URL, 
+        DatabaseConnectionFactory.DATABASE_USER, 
+        DatabaseConnectionFactory.DATABASE_PASSWORD,
+        QueryBenchmark.POPULATE_SYNTHETIC,
+        DatabaseInitializer.DEFER_INDEXES,
+        QueryBenchmark.SYNTHETIC_PROJECTS,
+        QueryBenchmark.SYNTHETIC_ENTITIES,
+        QueryBenchmark.SYNTHETIC_RELATIONS,
+        QueryBenchmark.BENCHMARK_SAMPLE_SIZE,
+        QueryBenchmark.BENCHMARK_ITERATIONS,
+        FileUtils.TEMP_DIR);
 
-//  public static final Command ADD_TYPE_POPULARITY =
-//    new Command("add-type-popularity", "Adds the type popularity to the database.") {
-//      @Override
-//      protected void action() {
-//        TypePopularityImporter.importTypePopularity();
-//      }
-//    }.setProperties(
-//        JavaRepositoryFactory.INPUT_REPO,
-//        DatabaseConnectionFactory.DATABASE_URL,
-//        DatabaseConnectionFactory.DATABASE_USER, 
-//        DatabaseConnectionFactory.DATABASE_PASSWORD);
+  public static final Command ADD_TYPE_POPULARITY =
+    new Command("add-type-popularity", "Adds the type popularity to the database.") {
+      @Override
+      protected void action() {
+        TypePopularityImporter.importTypePopularity();
+      }
+    }.setProperties(
+        JavaRepositoryFactory.INPUT_REPO,
+        DatabaseConnectionFactory.DATABASE_URL,
+        DatabaseConnectionFactory.DATABASE_USER, 
+        DatabaseConnectionFactory.DATABASE_PASSWORD,
+        FileUtils.TEMP_DIR);
     
   public static final Command INTERACTIVE_FILE_ACCESSOR = 
     new Command("interactive-file-accessor", "Interactive test of the file accessor.") {
@@ -0,0 +1,247 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import edu.uci.ics.sourcerer.tools.java.db.importer.DatabaseInitializer;
+import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
+import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
+import edu.uci.ics.sourcerer.tools.java.model.types.Project;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+import edu.uci.ics.sourcerer.tools.java.model.types.RelationClass;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.util.io.metrics.LatencyHistogram;
+import edu.uci.ics.sourcerer.utils.db.BatchInserter;
+import edu.uci.ics.sourcerer.utils.db.DatabaseRunnable;
+import edu.uci.ics.sourcerer.utils.db.sql.ConstantCondition;
+import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
+import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
+
+/**
+ * Replays the hot query shapes of the slicer, file adapter and type
+ * resolvers and reports their latency percentiles.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class QueryBenchmark {
+  public static final Argument<Boolean> POPULATE_SYNTHETIC = new BooleanArgument("populate-synthetic", false, "Reinitialize the database and load a synthetic repository before benchmarking. Destroys the existing contents.");
+  public static final Argument<Integer> SYNTHETIC_PROJECTS = new IntegerArgument("synthetic-projects", 100, "Number of synthetic projects to load.");
+  public static final Argument<Integer> SYNTHETIC_ENTITIES = new IntegerArgument("synthetic-entities", 1000, "Number of synthetic entities per project.");
+  public static final Argument<Integer> SYNTHETIC_RELATIONS = new IntegerArgument("synthetic-relations", 5, "Number of synthetic relations per entity.");
+  public static final Argument<Integer> BENCHMARK_SAMPLE_SIZE = new IntegerArgument("benchmark-sample-size", 100000, "Number of entities to draw query parameters from.");
+  public static final Argument<Integer> BENCHMARK_ITERATIONS = new IntegerArgument("benchmark-iterations", 10000, "Number of times each query shape is run.");
+  
+  private static final Entity[] SYNTHETIC_TYPES = { Entity.CLASS, Entity.INTERFACE, Entity.METHOD, Entity.FIELD, Entity.CONSTRUCTOR };
+  private static final Relation[] SYNTHETIC_RELATION_TYPES = { Relation.CALLS, Relation.USES, Relation.HOLDS, Relation.RETURNS, Relation.CONTAINS };
+  
+  private QueryBenchmark() {}
+  
+  private static class Sample {
+    private final Integer entityID;
+    private final Entity type;
+    private final String fqn;
+    private final Integer projectID;
+    
+    private Sample(Integer entityID, Entity type, String fqn, Integer projectID) {
+      this.entityID = entityID;
+      this.type = type;
+      this.fqn = fqn;
+      this.projectID = projectID;
+    }
+  }
+  
+  public static void benchmark() {
+    if (POPULATE_SYNTHETIC.getValue()) {
+      DatabaseInitializer.initializeDatabase();
+      populate();
+    }
+    new DatabaseRunnable() {
+      @Override
+      protected void action() {
+        TaskProgressLogger task = TaskProgressLogger.get();
+        task.start("Benchmarking hot query shapes");
+        
+        List<Sample> samples = loadSamples();
+        if (samples.isEmpty()) {
+          task.report("No entities to benchmark against");
+          task.finish();
+          return;
+        }
+        Random random = new Random(0);
+        int iterations = BENCHMARK_ITERATIONS.getValue();
+        
+        task.start("Selecting relation targets by (lhs_eid, relation_type)");
+        try (SelectQuery query = exec.createSelectQuery(RelationsTable.TABLE)) {
+          ConstantCondition<Integer> lhs = RelationsTable.LHS_EID.compareEquals();
+          ConstantCondition<Relation> type = RelationsTable.RELATION_TYPE.compareEquals();
+          query.addSelect(RelationsTable.RHS_EID);
+          query.andWhere(lhs, type);
+          LatencyHistogram histogram = LatencyHistogram.create("relations.lhs_eid_relation_type");
+          for (int i = 0; i < iterations; i++) {
+            lhs.setValue(samples.get(random.nextInt(samples.size())).entityID);
+            type.setValue(SYNTHETIC_RELATION_TYPES[random.nextInt(SYNTHETIC_RELATION_TYPES.length)]);
+            time(query, histogram);
+          }
+          report(task, histogram);
+        }
+        task.finish();
+        
+        task.start("Selecting relation sources by (rhs_eid, relation_type)");
+        try (SelectQuery query = exec.createSelectQuery(RelationsTable.TABLE)) {
+          ConstantCondition<Integer> rhs = RelationsTable.RHS_EID.compareEquals();
+          ConstantCondition<Relation> type = RelationsTable.RELATION_TYPE.compareEquals();
+          query.addSelect(RelationsTable.LHS_EID);
+          query.andWhere(rhs, type);
+          LatencyHistogram histogram = LatencyHistogram.create("relations.rhs_eid_relation_type");
+          for (int i = 0; i < iterations; i++) {
+            rhs.setValue(samples.get(random.nextInt(samples.size())).entityID);
+            type.setValue(SYNTHETIC_RELATION_TYPES[random.nextInt(SYNTHETIC_RELATION_TYPES.length)]);
+            time(query, histogram);
+          }
+          report(task, histogram);
+        }
+        task.finish();
+        
+        task.start("Selecting entities by (project_id, entity_type)");
+        try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
+          ConstantCondition<Integer> project = EntitiesTable.PROJECT_ID.compareEquals();
+          ConstantCondition<Entity> type = EntitiesTable.ENTITY_TYPE.compareEquals();
+          query.addSelect(EntitiesTable.ENTITY_ID);
+          query.andWhere(project, type);
+          LatencyHistogram histogram = LatencyHistogram.create("entities.project_id_entity_type");
+          for (int i = 0; i < iterations; i++) {
+            Sample sample = samples.get(random.nextInt(samples.size()));
+            project.setValue(sample.projectID);
+            type.setValue(sample.type);
+            time(query, histogram);
+          }
+          report(task, histogram);
+        }
+        task.finish();
+        
+        task.start("Selecting entities by (fqn, project_id)");
+        try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
+          ConstantCondition<String> fqn = EntitiesTable.FQN.compareEquals();
+          ConstantCondition<Integer> project = EntitiesTable.PROJECT_ID.compareEquals();
+          query.addSelect(EntitiesTable.ENTITY_ID);
+          query.andWhere(fqn, project);
+          LatencyHistogram histogram = LatencyHistogram.create("entities.fqn_project_id");
+          for (int i = 0; i < iterations; i++) {
+            Sample sample = samples.get(random.nextInt(samples.size()));
+            fqn.setValue(sample.fqn);
+            project.setValue(sample.projectID);
+            time(query, histogram);
+          }
+          report(task, histogram);
+        }
+        task.finish();
+        
+        task.finish();
+      }
+      
+      private List<Sample> loadSamples() {
+        TaskProgressLogger task = TaskProgressLogger.get();
+        task.start("Loading query parameters");
+        List<Sample> samples = new ArrayList<>();
+        try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
+          query.addSelect(EntitiesTable.ENTITY_ID, EntitiesTable.ENTITY_TYPE, EntitiesTable.FQN, EntitiesTable.PROJECT_ID);
+          query.setLimit(BENCHMARK_SAMPLE_SIZE.getValue());
+          try (TypedQueryResult result = query.select()) {
+            while (result.next()) {
+              samples.add(new Sample(result.getResult(EntitiesTable.ENTITY_ID), result.getResult(EntitiesTable.ENTITY_TYPE), result.getResult(EntitiesTable.FQN), result.getResult(EntitiesTable.PROJECT_ID)));
+            }
+          }
+        }
+        task.report(samples.size() + " entities loaded");
+        task.finish();
+        return samples;
+      }
+    }.run();
+  }
+  
+  private static void time(SelectQuery query, LatencyHistogram histogram) {
+    long start = System.nanoTime();
+    try (TypedQueryResult result = query.select()) {
+      while (result.next()) {
+        // Fetch every row, as the services do
+      }
+    }
+    histogram.recordSince(start);
+  }
+  
+  private static void report(TaskProgressLogger task, LatencyHistogram histogram) {
+    task.report(String.format("%s: p50 %.3fms, p99 %.3fms, mean %.3fms, max %.3fms over %d queries",
+        histogram.getName(),
+        histogram.getPercentile(.5) / 1e6,
+        histogram.getPercentile(.99) / 1e6,
+        histogram.getMean() / 1e6,
+        histogram.getMax() / 1e6,
+        histogram.getCount()));
+  }
+  
+  private static void populate() {
+    new DatabaseRunnable() {
+      @Override
+      protected void action() {
+        TaskProgressLogger task = TaskProgressLogger.get();
+        int projectCount = SYNTHETIC_PROJECTS.getValue();
+        int entityCount = SYNTHETIC_ENTITIES.getValue();
+        int relationCount = SYNTHETIC_RELATIONS.getValue();
+        task.start("Loading synthetic repository of " + projectCount + " projects", "projects loaded", 10);
+        Random random = new Random(0);
+        for (int p = 0; p < projectCount; p++) {
+          Project type = p % 10 == 0 ? Project.JAVA_LIBRARY : Project.CRAWLED;
+          Integer projectID = exec.insertWithKey(ProjectsTable.createRowInsert(type, "synthetic-" + p, null, null, null, null, null, null, true));
+          
+          BatchInserter inserter = exec.makeInFileInserter(FileUtils.getTempDir(), EntitiesTable.TABLE);
+          for (int e = 0; e < entityCount; e++) {
+            inserter.addInsert(EntitiesTable.createInsert(SYNTHETIC_TYPES[e % SYNTHETIC_TYPES.length], "synthetic" + (p % 20) + ".pkg" + (e % 50) + ".Type" + e, projectID));
+          }
+          inserter.insert();
+          
+          List<Integer> entityIDs = new ArrayList<>(entityCount);
+          try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
+            query.addSelect(EntitiesTable.ENTITY_ID);
+            query.andWhere(EntitiesTable.PROJECT_ID.compareEquals(projectID));
+            entityIDs.addAll(query.select().toCollection(EntitiesTable.ENTITY_ID));
+          }
+          
+          inserter = exec.makeInFileInserter(FileUtils.getTempDir(), RelationsTable.TABLE);
+          for (Integer lhs : entityIDs) {
+            for (int r = 0; r < relationCount; r++) {
+              Integer rhs = entityIDs.get(random.nextInt(entityIDs.size()));
+              inserter.addInsert(RelationsTable.makeInsert(SYNTHETIC_RELATION_TYPES[random.nextInt(SYNTHETIC_RELATION_TYPES.length)], RelationClass.INTERNAL, lhs, rhs, projectID));
+            }
+          }
+          inserter.insert();
+          task.progress();
+        }
+        task.finish();
+      }
+    }.run();
+  }
+}
@@ -70,7 +70,7 @@ public class ComponentVerifier {
       Averager<Double> combined = Averager.create();
       Averager<Double> fragmentedAndCombined = Averager.create();
       
-      Averager<Integer> groupCount = Averager.create();
+      Averager<Integer> groupCount = Averager.createStreaming();
       Multiset<String> fragmentedLibs= HashMultiset.create();
       Set<String> combinedLibs = new HashSet<>();
       Set<String> perfectLibs = new HashSet<>();
@@ -229,7 +229,7 @@ public class ComponentVerifier {
         }
         int perfect = 0;
         int fragAndCombined = 0;
-        Averager<Integer> frag = Averager.create();
+        Averager<Integer> frag = Averager.createStreaming();
         for (String lib : fragmentedLibs.elementSet()) {
           int count = fragmentedLibs.count(lib);
           if (count > 1) {
@@ -96,6 +96,7 @@ public class ComponentImporter extends DatabaseRunnable {
     importLibraryVersions();
     importComponentRelations();
     
+    DatabaseInitializer.bumpVersion(exec);
     task.finish();
   }
   
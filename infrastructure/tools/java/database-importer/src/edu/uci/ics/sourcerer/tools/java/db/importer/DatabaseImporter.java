@@ -66,6 +66,7 @@ public abstract class DatabaseImporter extends ParallelDatabaseRunnable {
     task = TaskProgressLogger.get();
     task.start(taskName);
     doImport();
+    DatabaseInitializer.bumpVersion(exec);
     task.finish();
     cleanup();
   }
@@ -105,23 +106,26 @@ public abstract class DatabaseImporter extends ParallelDatabaseRunnable {
     if (location == null) {
       return null;
     } else {
-      String path = location.getPath();
-      if (path == null) {
-        path = location.getClassFile();
-      }
-      if (path == null) {
-        return null;
-      } else {
-        Integer fileID = fileMap.get(path);
-        if (fileID == null) {
-          logger.log(Level.SEVERE, "Unknown file: " + location);
-          logger.severe("File map contains: ");
-          for (String s : fileMap.keySet()) {
-            logger.severe("  " + s);
-          }
+      return getFileID(location.getPath(), location.getClassFile());
+    }
+  }
+  
+  protected final Integer getFileID(String path, String classFile) {
+    if (path == null) {
+      path = classFile;
+    }
+    if (path == null) {
+      return null;
+    } else {
+      Integer fileID = fileMap.get(path);
+      if (fileID == null) {
+        logger.log(Level.SEVERE, "Unknown file: " + path);
+        logger.severe("File map contains: ");
+        for (String s : fileMap.keySet()) {
+          logger.severe("  " + s);
         }
-        return fileID;
       }
+      return fileID;
     }
   }
   
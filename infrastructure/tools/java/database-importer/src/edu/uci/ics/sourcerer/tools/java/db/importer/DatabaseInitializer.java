@@ -17,10 +17,15 @@
  */
 package edu.uci.ics.sourcerer.tools.java.db.importer;
 
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.tools.java.db.schema.CommentsTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.DatabaseVersionTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntityMetricsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.FileMetricsTable;
@@ -32,9 +37,14 @@ import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
 import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
 import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
 import edu.uci.ics.sourcerer.tools.java.model.types.Project;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 import edu.uci.ics.sourcerer.utils.db.DatabaseRunnable;
+import edu.uci.ics.sourcerer.utils.db.ParallelDatabaseRunnable;
+import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
 import edu.uci.ics.sourcerer.utils.db.sql.ConstantCondition;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
 import edu.uci.ics.sourcerer.utils.db.sql.DeleteStatement;
 import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
 import edu.uci.ics.sourcerer.utils.db.sql.SetStatement;
@@ -43,8 +53,83 @@ import edu.uci.ics.sourcerer.utils.db.sql.SetStatement;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class DatabaseInitializer {
+  public static final Argument<Boolean> DEFER_INDEXES = new BooleanArgument("defer-indexes", false, "Create the extraction tables with only the indexes needed during import. The rest are built by build-indexes.");
+  
+  private static final DatabaseTable[] EXTRACTION_TABLES = {
+      CommentsTable.TABLE,
+      EntitiesTable.TABLE,
+      EntityMetricsTable.TABLE,
+      FileMetricsTable.TABLE,
+      FilesTable.TABLE,
+      ImportsTable.TABLE,
+      ProblemsTable.TABLE,
+      ProjectMetricsTable.TABLE,
+      RelationsTable.TABLE };
+  
   private DatabaseInitializer() {}
   
+  private static void createExtractionTables(QueryExecutor exec) {
+    if (DEFER_INDEXES.getValue()) {
+      // The importers look up and delete a project's rows by project, in every table
+      exec.createTableWithoutIndexes(CommentsTable.TABLE, CommentsTable.PROJECT_ID);
+      exec.createTableWithoutIndexes(EntitiesTable.TABLE, EntitiesTable.PROJECT_ID);
+      exec.createTableWithoutIndexes(EntityMetricsTable.TABLE, EntityMetricsTable.PROJECT_ID);
+      exec.createTableWithoutIndexes(FileMetricsTable.TABLE, FileMetricsTable.PROJECT_ID);
+      exec.createTableWithoutIndexes(FilesTable.TABLE, FilesTable.PROJECT_ID);
+      exec.createTableWithoutIndexes(ImportsTable.TABLE, ImportsTable.PROJECT_ID);
+      exec.createTableWithoutIndexes(ProblemsTable.TABLE, ProblemsTable.PROJECT_ID);
+      exec.createTableWithoutIndexes(ProjectMetricsTable.TABLE, ProjectMetricsTable.PROJECT_ID);
+      exec.createTableWithoutIndexes(RelationsTable.TABLE, RelationsTable.PROJECT_ID);
+    } else {
+      exec.createTables(EXTRACTION_TABLES);
+    }
+  }
+  
+  /**
+   * Marks the database as changed, so anything caching what it read
+   * drops it. Only the newest version row is kept.
+   */
+  static synchronized void bumpVersion(QueryExecutor exec) {
+    if (exec.executeSingle("SHOW TABLES LIKE '" + DatabaseVersionTable.TABLE.getName() + "'") == null) {
+      exec.createTable(DatabaseVersionTable.TABLE);
+    }
+    Integer version = exec.insertWithKey(DatabaseVersionTable.createInsert());
+    StringBuilder sql = new StringBuilder("DELETE FROM ");
+    sql.append(DatabaseVersionTable.TABLE.getName()).append(" WHERE ");
+    DatabaseVersionTable.VERSION.toSql(sql);
+    sql.append(" < ").append(version);
+    exec.executeUpdate(sql.toString());
+  }
+  
+  /**
+   * Builds any indexes missing from the extraction tables, one table per
+   * thread.
+   */
+  public static void buildIndexes() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Building deferred indexes for " + EXTRACTION_TABLES.length + " tables");
+    Collection<Thread> threads = new ArrayList<>(EXTRACTION_TABLES.length);
+    for (final DatabaseTable table : EXTRACTION_TABLES) {
+      threads.add(new ParallelDatabaseRunnable() {
+        @Override
+        protected void action() {
+          TaskProgressLogger task = TaskProgressLogger.get();
+          task.start("Building indexes for " + table.getName());
+          exec.createIndexes(table);
+          task.finish();
+        }
+      }.start());
+    }
+    for (Thread t : threads) {
+      try {
+        t.join();
+      } catch (InterruptedException e) {
+        logger.log(Level.SEVERE, "Thread interrupted", e);
+      }
+    }
+    task.finish();
+  }
+  
   public static void initializeDatabase() {
     new DatabaseRunnable() {
       @Override
@@ -67,17 +152,8 @@ public class DatabaseInitializer {
         task.finish();
         
         task.start("Creating new tables");
-        exec.createTables(
-            CommentsTable.TABLE,
-            EntitiesTable.TABLE,
-            EntityMetricsTable.TABLE,
-            FileMetricsTable.TABLE,
-            FilesTable.TABLE,
-            ImportsTable.TABLE,
-            ProblemsTable.TABLE,
-            ProjectMetricsTable.TABLE,
-            ProjectsTable.TABLE,
-            RelationsTable.TABLE);
+        exec.createTable(ProjectsTable.TABLE);
+        createExtractionTables(exec);
         task.finish();
         
         task.start("Adding the primitive types");
@@ -97,6 +173,7 @@ public class DatabaseInitializer {
         exec.insert(ProjectsTable.createUnknownsInsert());
         task.finish();
         
+        bumpVersion(exec);
         task.finish();
       }
     }.run();
@@ -123,16 +200,7 @@ public class DatabaseInitializer {
         task.finish();
         
         task.start("Creating new tables");
-        exec.createTables(
-            CommentsTable.TABLE,
-            EntitiesTable.TABLE,
-            EntityMetricsTable.TABLE,
-            FileMetricsTable.TABLE,
-            FilesTable.TABLE,
-            ImportsTable.TABLE,
-            ProblemsTable.TABLE,
-            ProjectMetricsTable.TABLE,
-            RelationsTable.TABLE);
+        createExtractionTables(exec);
         task.finish();
         
         task.start("Cleaning projects table");
@@ -164,6 +232,7 @@ public class DatabaseInitializer {
         }
         task.finish();
         
+        bumpVersion(exec);
         task.finish();
       }
     }.run();
@@ -244,6 +313,7 @@ public class DatabaseInitializer {
         }
         task.finish();
         
+        bumpVersion(exec);
         task.finish();
       }
     }.run();
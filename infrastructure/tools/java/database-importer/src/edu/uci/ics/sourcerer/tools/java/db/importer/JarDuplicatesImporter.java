@@ -0,0 +1,105 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
+import edu.uci.ics.sourcerer.tools.java.model.types.Project;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJarFile;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJarProperties;
+import edu.uci.ics.sourcerer.util.Nullerator;
+import edu.uci.ics.sourcerer.utils.db.sql.ConstantCondition;
+import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
+import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
+
+/**
+ * Records the maven jars that share another jar's extraction. Such a
+ * jar's hash carries a "0" suffix that does not fit the hash column, so
+ * its row has no hash. Instead its duplicate_of column holds the
+ * project id of the original whose entities it shares.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class JarDuplicatesImporter extends DatabaseImporter {
+  private Nullerator<ExtractedJarFile> jars;
+  
+  protected JarDuplicatesImporter(Nullerator<ExtractedJarFile> jars) {
+    super("Importing Duplicate Jars");
+    this.jars = jars;
+  }
+  
+  /**
+   * A duplicate is identified by its original and its own coordinates,
+   * as several artifacts may share one original.
+   */
+  private static String getKey(Integer originalID, String group, String name, String version) {
+    return originalID + "\t" + group + "\t" + name + "\t" + version;
+  }
+  
+  @Override
+  public void doImport() {
+    task.start("Loading recorded duplicates");
+    Set<String> recorded = new HashSet<>();
+    try (SelectQuery query = exec.createSelectQuery(ProjectsTable.TABLE)) {
+      query.addSelect(ProjectsTable.DUPLICATE_OF, ProjectsTable.GROUP, ProjectsTable.NAME, ProjectsTable.VERSION);
+      query.andWhere(ProjectsTable.DUPLICATE_OF.compareNotNull());
+      TypedQueryResult result = query.select();
+      while (result.next()) {
+        recorded.add(getKey(result.getResult(ProjectsTable.DUPLICATE_OF), result.getResult(ProjectsTable.GROUP), result.getResult(ProjectsTable.NAME), result.getResult(ProjectsTable.VERSION)));
+      }
+    }
+    task.finish();
+    
+    try (SelectQuery original = exec.createSelectQuery(ProjectsTable.TABLE)) {
+      original.addSelect(ProjectsTable.PROJECT_ID);
+      ConstantCondition<String> equalsHash = ProjectsTable.HASH.compareEquals();
+      original.andWhere(equalsHash);
+      
+      ExtractedJarFile jar;
+      while ((jar = jars.next()) != null) {
+        ExtractedJarProperties props = jar.getProperties();
+        if (!Boolean.TRUE.equals(props.EXTRACTED.getValue())) {
+          task.report("Extraction not completed for " + props.NAME.getValue() + "... skipping");
+          continue;
+        }
+        equalsHash.setValue(props.DUPLICATE_OF.getValue());
+        Integer originalID = original.select().toSingleton(ProjectsTable.PROJECT_ID, true);
+        if (originalID == null) {
+          // Recorded by a later run, once the original has been imported
+          task.report("Original of " + props.NAME.getValue() + " (" + props.DUPLICATE_OF.getValue() + ") not imported... skipping");
+          continue;
+        }
+        String key = getKey(originalID, props.GROUP.getValue(), props.NAME.getValue(), props.VERSION.getValue());
+        if (recorded.add(key)) {
+          exec.insert(ProjectsTable.createDuplicateInsert(
+              Project.MAVEN,
+              props.NAME.getValue(),
+              props.VERSION.getValue(),
+              props.GROUP.getValue(),
+              Boolean.TRUE.equals(props.HAS_SOURCE.getValue()),
+              originalID));
+          task.report("Recorded " + props.NAME.getValue() + " as a duplicate of project " + originalID);
+        } else {
+          task.report(props.NAME.getValue() + " already recorded... skipping");
+        }
+      }
+    }
+  }
+}
@@ -17,20 +17,183 @@
  */
 package edu.uci.ics.sourcerer.tools.java.db.importer;
 
-import edu.uci.ics.sourcerer.utils.db.DatabaseRunnable;
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.MethodHierarchy;
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.MethodHierarchyCache;
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.OverridesResolver;
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.OverridesResolver.OverrideListener;
+import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
+import edu.uci.ics.sourcerer.tools.java.model.types.Project;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+import edu.uci.ics.sourcerer.tools.java.model.types.RelationClass;
+import edu.uci.ics.sourcerer.util.Nullerator;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.utils.db.BatchInserter;
+import edu.uci.ics.sourcerer.utils.db.sql.DeleteStatement;
 
 /**
+ * Computes the OVERRIDES relations of every project from the EXTENDS and
+ * IMPLEMENTS hierarchy, walking into the projects that declare its
+ * supertypes.
+ * 
  * @author Joel Ossher (jossher@uci.edu)
  */
-public class OverridesImporter extends DatabaseRunnable {
-  private OverridesImporter() {}
+public class OverridesImporter extends DatabaseImporter {
+  public static final Argument<Integer> HIERARCHY_CACHE_SIZE = new IntegerArgument("hierarchy-cache-size", 500, "Number of project method hierarchies kept in memory while computing overrides.");
+  
+  private final Nullerator<Integer> projects;
+  private final MethodHierarchyCache cache;
+  
+  // Per project state
+  private Integer projectID;
+  private MethodHierarchy hierarchy;
+  private Map<Integer, MethodHierarchy> supertypes;
+  
+  OverridesImporter(Nullerator<Integer> projects, MethodHierarchyCache cache) {
+    super("Computing method overrides");
+    this.projects = projects;
+    this.cache = cache;
+  }
   
   public static void importOverrides() {
-    new OverridesImporter().run();
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Importing method overrides");
+    
+    MethodHierarchyCache cache = MethodHierarchyCache.makeMethodHierarchyCache(task, HIERARCHY_CACHE_SIZE.getValue());
+    Collection<Integer> projectIDs = new ArrayList<>();
+    for (Integer projectID : cache.getProjects()) {
+      if (cache.getProjectType(projectID) != Project.SYSTEM) {
+        projectIDs.add(projectID);
+      }
+    }
+    Nullerator<Integer> nullerator = Nullerator.createNullerator(projectIDs, "Thread %s now processing project: %s");
+    
+    int numThreads = ParallelDatabaseImporter.THREAD_COUNT.getValue();
+    task.start("Computing overrides for " + projectIDs.size() + " projects with " + numThreads + " threads");
+    Collection<Thread> threads = new ArrayList<>(numThreads);
+    for (int i = 0; i < numThreads; i++) {
+      threads.add(new OverridesImporter(nullerator, cache).start());
+    }
+    for (Thread t : threads) {
+      try {
+        t.join();
+      } catch (InterruptedException e) {
+        logger.log(Level.SEVERE, "Thread interrupted", e);
+      }
+    }
+    task.finish();
+    
+    task.finish();
   }
   
   @Override
-  protected void action() {
+  protected void doImport() {
+    while ((projectID = projects.next()) != null) {
+      task.start("Computing overrides for project " + projectID);
+      
+      // Crawled projects are never anyone's supertypes, so don't cache them
+      if (cache.getProjectType(projectID) == Project.CRAWLED) {
+        importOverrides(MethodHierarchy.load(exec, projectID));
+      } else {
+        importOverrides(cache.getHierarchy(exec, projectID));
+      }
+      
+      task.finish();
+    }
+  }
+  
+  /**
+   * Replaces the project's OVERRIDES relations with those computed from
+   * its hierarchy.
+   */
+  void importOverrides(MethodHierarchy projectHierarchy) {
+    hierarchy = projectHierarchy;
+    projectID = hierarchy.getProjectID();
+    resolveSupertypes();
+    
+    DeleteStatement delete = exec.createDeleteStatement(RelationsTable.TABLE);
+    delete.andWhere(RelationsTable.PROJECT_ID.compareEquals(projectID).and(RelationsTable.RELATION_TYPE.compareEquals(Relation.OVERRIDES)));
+    delete.execute();
+    
+    final BatchInserter inserter = exec.makeInFileInserter(tempDir, RelationsTable.TABLE);
+    int count = new OverridesResolver(hierarchy, supertypes).resolve(new OverrideListener() {
+      @Override
+      public void overrides(int methodID, int overriddenID, MethodHierarchy owner) {
+        inserter.addInsert(RelationsTable.makeInsert(Relation.OVERRIDES, getRelationClass(owner), methodID, overriddenID, projectID));
+      }
+    });
+    inserter.insert();
+    task.report(count + " overrides relations inserted");
     
+    hierarchy = null;
+    supertypes = null;
+  }
+  
+  /**
+   * Finds the hierarchies that declare every supertype reachable from the
+   * project, one round of queries per level of external supertypes.
+   */
+  private void resolveSupertypes() {
+    supertypes = new HashMap<>();
+    Set<Integer> pending = hierarchy.getExternalParents();
+    while (!pending.isEmpty()) {
+      Map<Integer, Integer> owners = MethodHierarchyCache.getOwningProjects(exec, pending);
+      Set<Integer> next = new HashSet<>();
+      for (Integer typeID : pending) {
+        Integer owner = owners.get(typeID);
+        if (owner == null || cache.getProjectType(owner) == Project.SYSTEM) {
+          supertypes.put(typeID, null);
+        } else {
+          addSupertypes(typeID, cache.getHierarchy(exec, owner), next);
+        }
+      }
+      pending = next;
+    }
+  }
+  
+  private void addSupertypes(Integer typeID, MethodHierarchy owner, Set<Integer> next) {
+    if (!owner.containsType(typeID)) {
+      // Not a declared type, such as an unresolved parametrized type
+      supertypes.put(typeID, null);
+      return;
+    }
+    Deque<Integer> stack = new LinkedList<>();
+    stack.push(typeID);
+    while (!stack.isEmpty()) {
+      Integer type = stack.pop();
+      if (supertypes.get(type) != null || hierarchy.containsType(type)) {
+        continue;
+      } else if (owner.containsType(type)) {
+        supertypes.put(type, owner);
+        for (int parent : owner.getParents(type)) {
+          stack.push(parent);
+        }
+      } else if (!supertypes.containsKey(type)) {
+        next.add(type);
+      }
+    }
+  }
+  
+  private RelationClass getRelationClass(MethodHierarchy owner) {
+    if (owner == hierarchy) {
+      return RelationClass.INTERNAL;
+    } else if (cache.getProjectType(owner.getProjectID()) == Project.JAVA_LIBRARY) {
+      return RelationClass.JAVA_LIBRARY;
+    } else {
+      return RelationClass.EXTERNAL;
+    }
   }
 }
@@ -24,7 +24,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.JavaLibraryTypeModel;
@@ -48,10 +48,17 @@ import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 public final class ParallelDatabaseImporter {
   public static Argument<Boolean> STRUCTURAL_ONLY = new BooleanArgument("structural-only", false, "Only import entities and structural relations");
   public static Argument<Integer> THREAD_COUNT = new IntegerArgument("thread-count", 4, "Number of simultaneous threads");
+  public static Argument<Boolean> BUILD_INDEXES = new BooleanArgument("build-indexes", false, "Build deferred indexes once the import completes");
   public static Argument<File> JAR_FILTER = new RelativeFileArgument("jar-filter-file", "jar-filter.txt", Arguments.INPUT, "Jar filter file for database import.");
   
   private ParallelDatabaseImporter() {}
   
+  private static void buildIndexes() {
+    if (BUILD_INDEXES.getValue()) {
+      DatabaseInitializer.buildIndexes();
+    }
+  }
+  
   public static void importJavaLibraries() {
     TaskProgressLogger task = TaskProgressLogger.get();
     task.start("Importing Java libraries");
@@ -108,6 +115,8 @@ public final class ParallelDatabaseImporter {
       });
     }
     
+    buildIndexes();
+    
     task.finish();
   }
   
@@ -122,11 +131,14 @@ public final class ParallelDatabaseImporter {
       return;
     }
     
-    Collection<ExtractedJarFile> jars = new LinkedList<>();
+    Collection<ExtractedJarFile> jars = new LinkedHashSet<>();
     task.start("Loading jar filter list");
     try (BufferedReader br = IOUtils.createBufferedReader(JAR_FILTER.getValue());) {
       for (String hash = br.readLine(); hash != null; hash = br.readLine()) {
         ExtractedJarFile jar = repo.getJarFile(hash);
+        if (jar != null && jar.getProperties().DUPLICATE_OF.getValue() != null) {
+          jar = repo.getJarFile(jar.getProperties().DUPLICATE_OF.getValue());
+        }
         if (jar == null) {
           task.report("Unable to find extracted jar: " + hash);
         } else {
@@ -183,6 +195,8 @@ public final class ParallelDatabaseImporter {
       });
     }
     
+    buildIndexes();
+    
     task.finish();
   }
   public static void importJarFiles() {
@@ -208,6 +222,18 @@ public final class ParallelDatabaseImporter {
       }
     });
     
+    importDuplicateMavenJars(repo, new ImporterFactory<ExtractedJarFile>() {
+      @Override
+      public String message() {
+        return "duplicate maven jar import";
+      }
+      
+      @Override
+      public DatabaseImporter create(Nullerator<ExtractedJarFile> nullerator) {
+        return new JarDuplicatesImporter(nullerator);
+      }
+    });
+    
     importProjectJars(repo, new ImporterFactory<ExtractedJarFile>() {
       @Override
       public String message() {
@@ -276,6 +302,8 @@ public final class ParallelDatabaseImporter {
       });
     }
     
+    buildIndexes();
+    
     task.finish();
   }
   
@@ -334,6 +362,8 @@ public final class ParallelDatabaseImporter {
       });
     }
     
+    buildIndexes();
+    
     task.finish();
   }
   
@@ -451,15 +481,41 @@ public final class ParallelDatabaseImporter {
   }
   
   private static void importMavenJars(ExtractedJavaRepository repo, ImporterFactory<ExtractedJarFile> factory) {
-    runThreads(Nullerator.createNullerator(repo.getMavenJarFiles(), "Thread %s now processing: %s"), factory);
+    runThreads(Nullerator.createNullerator(filterDuplicates(repo.getMavenJarFiles()), "Thread %s now processing: %s"), factory);
+  }
+  
+  private static void importDuplicateMavenJars(ExtractedJavaRepository repo, ImporterFactory<ExtractedJarFile> factory) {
+    Collection<ExtractedJarFile> duplicates = new ArrayList<>();
+    for (ExtractedJarFile jar : repo.getMavenJarFiles()) {
+      if (jar.getProperties().DUPLICATE_OF.getValue() != null) {
+        duplicates.add(jar);
+      }
+    }
+    runThreads(Nullerator.createNullerator(duplicates, "Thread %s now processing: %s"), factory);
   }
   
   private static void importProjectJars(ExtractedJavaRepository repo, ImporterFactory<ExtractedJarFile> factory) {
-    runThreads(Nullerator.createNullerator(repo.getProjectJarFiles(), "Thread %s now processing: %s"), factory);
+    runThreads(Nullerator.createNullerator(filterDuplicates(repo.getProjectJarFiles()), "Thread %s now processing: %s"), factory);
+  }
+  
+  /**
+   * Jars that share another jar's extraction are only imported once,
+   * under the original's hash. The duplicates get a row of their own
+   * from {@link JarDuplicatesImporter}.
+   */
+  private static Collection<ExtractedJarFile> filterDuplicates(Collection<? extends ExtractedJarFile> jars) {
+    Collection<ExtractedJarFile> unique = new ArrayList<>(jars.size());
+    for (ExtractedJarFile jar : jars) {
+      if (jar.getProperties().DUPLICATE_OF.getValue() == null) {
+        unique.add(jar);
+      }
+    }
+    return unique;
   }
   
   private static void importProjects(ExtractedJavaRepository repo, ImporterFactory<ExtractedJavaProject> factory) {
-    runThreads(Nullerator.createNullerator(repo.getProjects(), "Thread %s now processing: %s"), factory);
+    // Projects whose extraction did not complete would only be skipped by the importers
+    runThreads(Nullerator.createNullerator(repo.getExtractedProjects(), "Thread %s now processing: %s"), factory);
   }
   
   private static <T> void runThreads(Nullerator<T> nullerator, ImporterFactory<T> factory) {
@@ -24,8 +24,8 @@ import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.ModeledEntity;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.ProjectTypeModel;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.UnknownEntityCache;
 import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
-import edu.uci.ics.sourcerer.tools.java.model.extracted.RelationEX;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.io.ReaderBundle;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.RelationCursor;
 import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
 import edu.uci.ics.sourcerer.utils.db.BatchInserter;
 
@@ -39,9 +39,11 @@ public abstract class ReferentialRelationsImporter extends RelationsImporter {
   
   protected final void insert(ReaderBundle reader, Integer projectID, Collection<Integer> externalProjects) {
     loadFileMap(projectID);
-    projectModel = ProjectTypeModel.createVirtualProjectTypeModel(task, exec, projectID, externalProjects, javaModel, unknowns);
+    projectModel = ProjectTypeModel.createVirtualProjectTypeModel(task, exec, synthesized, projectID, externalProjects, javaModel, unknowns);
     
     insertReferentialRelations(reader, projectID);
+    insertSynthesizedEntities();
+    reader.release();
     
     fileMap.clear();
     projectModel = null;
@@ -53,20 +55,22 @@ public abstract class ReferentialRelationsImporter extends RelationsImporter {
     BatchInserter inserter = exec.makeInFileInserter(tempDir, RelationsTable.TABLE);
     
     task.start("Processing referential relations", "relations processed");
-    for (RelationEX relation : reader.getTransientRelations()) {
-      if (relation.getType() == Relation.CALLS ||
-          relation.getType() == Relation.READS ||
-          relation.getType() == Relation.WRITES) {
-        Integer fileID = getFileID(relation.getLocation());
+    RelationCursor relation = reader.getRelationCursor();
+    while (relation.next()) {
+      Relation type = relation.getType();
+      if (type == Relation.CALLS ||
+          type == Relation.READS ||
+          type == Relation.WRITES) {
+        Integer fileID = relation.hasLocation() ? getFileID(relation.getPath(), relation.getClassFile()) : null;
         
         Integer lhs = getLHS(relation.getLhs(), projectID);
         ModeledEntity rhs = projectModel.getVirtualEntity(relation.getRhs());
         
         if (lhs != null && rhs != null) {
           if (fileID == null) {
-            inserter.addInsert(RelationsTable.makeInsert(relation.getType(), rhs.getRelationClass(), lhs, rhs.getEntityID(exec, projectID), projectID));
+            inserter.addInsert(RelationsTable.makeInsert(type, rhs.getRelationClass(), lhs, rhs.getEntityID(synthesized, projectID), projectID));
           } else {
-            inserter.addInsert(RelationsTable.makeInsert(relation.getType(), rhs.getRelationClass(), lhs, rhs.getEntityID(exec, projectID), projectID, fileID, relation.getLocation()));
+            inserter.addInsert(RelationsTable.makeInsert(type, rhs.getRelationClass(), lhs, rhs.getEntityID(synthesized, projectID), projectID, fileID, unpack(relation.getOffset()), unpack(relation.getLength())));
           }
           task.progress();
         }
@@ -24,7 +24,9 @@ import java.util.logging.Level;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.JavaLibraryTypeModel;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.ModeledEntity;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.ProjectTypeModel;
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.SynthesizedEntityInserter;
 import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.UnknownEntityCache;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.RelationCursor;
 import edu.uci.ics.sourcerer.tools.java.model.types.RelationClass;
 
 /**
@@ -34,13 +36,40 @@ public abstract class RelationsImporter extends DatabaseImporter {
   protected JavaLibraryTypeModel javaModel;
   protected ProjectTypeModel projectModel;
   protected UnknownEntityCache unknowns;
+  protected SynthesizedEntityInserter synthesized;
   
   protected RelationsImporter(String taskName, JavaLibraryTypeModel javaModel, UnknownEntityCache unknowns) {
     super(taskName);
     this.javaModel = javaModel;
     this.unknowns = unknowns;
   }
+  
+  @Override
+  protected void init() {
+    super.init();
+    synthesized = SynthesizedEntityInserter.create(exec, tempDir);
+  }
+  
+  @Override
+  protected void cleanup() {
+    synthesized.close();
+    super.cleanup();
+  }
+  
+  protected final void insertSynthesizedEntities() {
+    task.start("Inserting synthesized entities");
+    synthesized.flush();
+    task.finish();
+  }
     
+  /**
+   * Converts an offset or length read from a {@link RelationCursor}
+   * for insertion.
+   */
+  protected static Integer unpack(int value) {
+    return value == RelationCursor.MISSING ? null : Integer.valueOf(value);
+  }
+  
   protected Integer getLHS(String fqn, Integer projectID) {
     if (fqn.indexOf('#') >= 0) {
       task.report(Level.WARNING, "Skipping param: " + fqn);
@@ -51,7 +80,7 @@ public abstract class RelationsImporter extends DatabaseImporter {
         logger.severe("Invalid lhs entity: " + entity);
         return null;
       } else {
-        return entity.getEntityID(exec, projectID);
+        return entity.getEntityID(synthesized, projectID);
       }
     }
   }
@@ -62,7 +91,7 @@ public abstract class RelationsImporter extends DatabaseImporter {
       logger.severe("Invalid declared entity: " + fqn);
       return null;
     } else {
-      return entity.getEntityID(exec, projectID);
+      return entity.getEntityID(synthesized, projectID);
     }
   }
 }
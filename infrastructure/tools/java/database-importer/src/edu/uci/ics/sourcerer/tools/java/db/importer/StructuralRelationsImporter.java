@@ -38,8 +38,8 @@ import edu.uci.ics.sourcerer.tools.java.model.extracted.CommentEX;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.EntityEX;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.ImportEX;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.LocalVariableEX;
-import edu.uci.ics.sourcerer.tools.java.model.extracted.RelationEX;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.io.ReaderBundle;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.RelationCursor;
 import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
 import edu.uci.ics.sourcerer.tools.java.model.types.LocalVariable;
 import edu.uci.ics.sourcerer.tools.java.model.types.Metric;
@@ -92,13 +92,15 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
   
   protected final void insert(ReaderBundle reader, Integer projectID, Collection<Integer> externalProjects) {
     loadFileMap(projectID);
-    projectModel = ProjectTypeModel.createProjectTypeModel(task, exec, projectID, externalProjects, javaModel, unknowns);
+    projectModel = ProjectTypeModel.createProjectTypeModel(task, exec, synthesized, projectID, externalProjects, javaModel, unknowns);
     
     insertRemainingEntities(reader, projectID);
     insertEntityMetrics(reader, projectID);
     insertStructuralRelations(reader, projectID);
     insertImports(reader, projectID);
     insertComments(reader, projectID);
+    insertSynthesizedEntities();
+    reader.release();
     
     fileMap.clear();
     projectModel = null;
@@ -183,16 +185,16 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
         ModeledEntity type = projectModel.getEntity(var.getTypeFqn());
         if (type != null) {
           if (fileID == null) {
-            inserter.addInsert(RelationsTable.makeInsert(Relation.HOLDS, type.getRelationClass(), entityID, type.getEntityID(exec, projectID), projectID));
+            inserter.addInsert(RelationsTable.makeInsert(Relation.HOLDS, type.getRelationClass(), entityID, type.getEntityID(synthesized, projectID), projectID));
           } else {
-            inserter.addInsert(RelationsTable.makeInsert(Relation.HOLDS, type.getRelationClass(), entityID, type.getEntityID(exec, projectID), projectID, fileID, var.getLocation()));
+            inserter.addInsert(RelationsTable.makeInsert(Relation.HOLDS, type.getRelationClass(), entityID, type.getEntityID(synthesized, projectID), projectID, fileID, var.getLocation()));
           }
         }
         
         // Add the contains relation
         ModeledEntity parent = projectModel.getEntity(var.getParent());
         if (parent != null) {
-          inserter.addInsert(RelationsTable.makeInsert(Relation.CONTAINS, parent.getRelationClass(), parent.getEntityID(exec, projectID), entityID, projectID, fileID));
+          inserter.addInsert(RelationsTable.makeInsert(Relation.CONTAINS, parent.getRelationClass(), parent.getEntityID(synthesized, projectID), entityID, projectID, fileID));
         }
       } else {
         logger.log(Level.SEVERE, "Missing db local variable for " + var);
@@ -202,20 +204,22 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
     task.finish();
           
     task.start("Processing structural relations", "relations processed");
-    for (RelationEX relation : reader.getTransientRelations()) {
-      if (relation.getType() != Relation.CALLS &&
-          relation.getType() != Relation.READS &&
-          relation.getType() != Relation.WRITES) {
-        Integer fileID = getFileID(relation.getLocation());
+    RelationCursor relation = reader.getRelationCursor();
+    while (relation.next()) {
+      Relation type = relation.getType();
+      if (type != Relation.CALLS &&
+          type != Relation.READS &&
+          type != Relation.WRITES) {
+        Integer fileID = relation.hasLocation() ? getFileID(relation.getPath(), relation.getClassFile()) : null;
         
         Integer lhs = getLHS(relation.getLhs(), projectID);
         ModeledEntity rhs = projectModel.getEntity(relation.getRhs());
         
         if (lhs != null && rhs != null) {
           if (fileID == null) {
-            inserter.addInsert(RelationsTable.makeInsert(relation.getType(), rhs.getRelationClass(), lhs, rhs.getEntityID(exec, projectID), projectID));
+            inserter.addInsert(RelationsTable.makeInsert(type, rhs.getRelationClass(), lhs, rhs.getEntityID(synthesized, projectID), projectID));
           } else {
-            inserter.addInsert(RelationsTable.makeInsert(relation.getType(), rhs.getRelationClass(), lhs, rhs.getEntityID(exec, projectID), projectID, fileID, relation.getLocation()));
+            inserter.addInsert(RelationsTable.makeInsert(type, rhs.getRelationClass(), lhs, rhs.getEntityID(synthesized, projectID), projectID, fileID, unpack(relation.getOffset()), unpack(relation.getLength())));
           }
           task.progress();
         }
@@ -244,7 +248,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
         if (fileID == null) {
           logger.severe("Missing fileID for: " + imp.getLocation());
         } else {
-          inserter.addInsert(ImportsTable.makeInsert(imp.isStatic(), imp.isOnDemand(), imported.getEntityID(exec, projectID), projectID, fileID, imp.getLocation()));
+          inserter.addInsert(ImportsTable.makeInsert(imp.isStatic(), imp.isOnDemand(), imported.getEntityID(synthesized, projectID), projectID, fileID, imp.getLocation()));
         }
         task.progress();
       }
@@ -276,7 +280,7 @@ public abstract class StructuralRelationsImporter extends RelationsImporter {
       } else if (owner == null) {
         inserter.addInsert(CommentsTable.makeCommentInsert(comment.getType(), projectID, fileID, comment.getLocation().getOffset(), comment.getLocation().getLength()));
       } else {
-        inserter.addInsert(CommentsTable.makeJavadocInsert(owner.getEntityID(exec, projectID), projectID, fileID, comment.getLocation().getOffset(), comment.getLocation().getLength()));
+        inserter.addInsert(CommentsTable.makeJavadocInsert(owner.getEntityID(synthesized, projectID), projectID, fileID, comment.getLocation().getOffset(), comment.getLocation().getLength()));
       }
       task.progress();
     }
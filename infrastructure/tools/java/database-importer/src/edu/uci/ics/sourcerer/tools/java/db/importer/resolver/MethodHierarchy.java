@@ -0,0 +1,570 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer.resolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
+import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
+import edu.uci.ics.sourcerer.tools.java.model.types.Modifier;
+import edu.uci.ics.sourcerer.tools.java.model.types.Modifiers;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
+import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
+import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
+
+/**
+ * The declared types of a single project, with their direct supertypes and
+ * overridable methods.
+ * 
+ * Methods are keyed by a 64-bit hash of their name and erased parameters,
+ * and stored per type as a sorted array so lookups are a binary search.
+ * 
+ * Erasure alone misses a method that overrides one taking a type
+ * parameter, such as <tt>m(String)</tt> in a subclass of
+ * <tt>Base&lt;String&gt;</tt> overriding <tt>m(T)</tt>. So each type also
+ * keeps its type parameters, the type arguments it passes to each of its
+ * supertypes, and the generic parameters of its methods that use its type
+ * parameters. {@link #bind} substitutes the type arguments into those
+ * methods, giving a table to match against the unerased parameters of the
+ * overriding methods.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class MethodHierarchy {
+  private static final int[] NO_PARENTS = {};
+  private static final MethodTable NO_METHODS = new MethodTable(new long[0], new int[0], new long[0]);
+  
+  private final Integer projectID;
+  private final Map<Integer, MethodTable> types;
+  private final Map<Integer, int[]> parents;
+  private final Map<Integer, String[][]> typeArguments;
+  private final Map<Integer, String[]> typeParameters;
+  private final Map<Integer, GenericMethod[]> genericMethods;
+  
+  private MethodHierarchy(Integer projectID) {
+    this.projectID = projectID;
+    this.types = new HashMap<>();
+    this.parents = new HashMap<>();
+    this.typeArguments = new HashMap<>();
+    this.typeParameters = new HashMap<>();
+    this.genericMethods = new HashMap<>();
+  }
+  
+  public static final class MethodTable {
+    private final long[] signatures;
+    private final int[] entityIDs;
+    private final long[] genericSignatures;
+    
+    private MethodTable(long[] signatures, int[] entityIDs, long[] genericSignatures) {
+      this.signatures = signatures;
+      this.entityIDs = entityIDs;
+      this.genericSignatures = genericSignatures;
+    }
+    
+    public int size() {
+      return signatures.length;
+    }
+    
+    public long getSignature(int index) {
+      return signatures[index];
+    }
+    
+    /**
+     * The hash of the method's name and unerased parameters.
+     */
+    public long getGenericSignature(int index) {
+      return genericSignatures[index];
+    }
+    
+    public int getEntityID(int index) {
+      return entityIDs[index];
+    }
+    
+    /**
+     * Returns the id of the method with the given signature, or -1.
+     */
+    public int find(long signature) {
+      int index = Arrays.binarySearch(signatures, signature);
+      return index < 0 ? -1 : entityIDs[index];
+    }
+  }
+  
+  private static final class MethodTableBuilder {
+    private long[] signatures = new long[4];
+    private int[] entityIDs = new int[4];
+    private long[] genericSignatures = new long[4];
+    private int size;
+    
+    void add(long signature, int entityID, long genericSignature) {
+      if (size == signatures.length) {
+        signatures = Arrays.copyOf(signatures, size * 2);
+        entityIDs = Arrays.copyOf(entityIDs, size * 2);
+        genericSignatures = Arrays.copyOf(genericSignatures, size * 2);
+      }
+      signatures[size] = signature;
+      genericSignatures[size] = genericSignature;
+      entityIDs[size++] = entityID;
+    }
+    
+    MethodTable build() {
+      // Insertion sort by signature; most types only declare a handful of methods
+      for (int i = 1; i < size; i++) {
+        long sig = signatures[i];
+        int id = entityIDs[i];
+        long genericSig = genericSignatures[i];
+        int j = i - 1;
+        for (; j >= 0 && signatures[j] > sig; j--) {
+          signatures[j + 1] = signatures[j];
+          entityIDs[j + 1] = entityIDs[j];
+          genericSignatures[j + 1] = genericSignatures[j];
+        }
+        signatures[j + 1] = sig;
+        entityIDs[j + 1] = id;
+        genericSignatures[j + 1] = genericSig;
+      }
+      return new MethodTable(Arrays.copyOf(signatures, size), Arrays.copyOf(entityIDs, size), Arrays.copyOf(genericSignatures, size));
+    }
+  }
+  
+  /**
+   * A method whose parameters mention a type parameter of its type.
+   */
+  private static final class GenericMethod {
+    private final String name;
+    private final String params;
+    private final int entityID;
+    
+    private GenericMethod(String name, String params, int entityID) {
+      this.name = name;
+      this.params = params;
+      this.entityID = entityID;
+    }
+  }
+  
+  /**
+   * Assembles a hierarchy one row at a time, in any order.
+   */
+  public static final class Builder {
+    private final MethodHierarchy hierarchy;
+    private final Map<Integer, MethodTableBuilder> methods = new HashMap<>();
+    private final Map<Integer, List<String>> typeParameters = new HashMap<>();
+    private final Map<Integer, List<GenericMethod>> genericMethods = new HashMap<>();
+    private final Map<Integer, List<Integer>> parents = new HashMap<>();
+    private final Map<Integer, List<String[]>> typeArguments = new HashMap<>();
+    
+    public Builder(Integer projectID) {
+      hierarchy = new MethodHierarchy(projectID);
+    }
+    
+    public void addType(Integer typeID) {
+      hierarchy.types.put(typeID, NO_METHODS);
+    }
+    
+    public boolean containsType(Integer typeID) {
+      return hierarchy.types.containsKey(typeID);
+    }
+    
+    /**
+     * Adds the next type parameter of the type, given as its type variable
+     * fqn, such as <tt>&lt;T+java.lang.Number&gt;</tt>.
+     */
+    public void addTypeParameter(Integer typeID, String typeVariable) {
+      List<String> names = typeParameters.get(typeID);
+      if (names == null) {
+        names = new ArrayList<>(2);
+        typeParameters.put(typeID, names);
+      }
+      int end = typeVariable.indexOf('+');
+      names.add(typeVariable.substring(1, end == -1 ? typeVariable.length() - 1 : end));
+    }
+    
+    /**
+     * Adds a method of the type, unless it is static or private.
+     * 
+     * @param rawParams the erased parameters, or <code>null</code> if
+     * they are the same as <code>params</code>
+     */
+    public void addMethod(Integer typeID, int methodID, String name, String params, String rawParams, Modifiers modifiers) {
+      // Neither static nor private methods take part in overriding
+      if (modifiers != null && (Modifier.STATIC.is(modifiers.getValue()) || Modifier.PRIVATE.is(modifiers.getValue()))) {
+        return;
+      }
+      if (rawParams == null) {
+        rawParams = params;
+      }
+      if (params == null) {
+        params = rawParams;
+      }
+      if (params == null) {
+        return;
+      }
+      MethodTableBuilder builder = methods.get(typeID);
+      if (builder == null) {
+        builder = new MethodTableBuilder();
+        methods.put(typeID, builder);
+      }
+      builder.add(hashSignature(name, rawParams), methodID, hashSignature(name, params));
+      if (params.indexOf('<') != -1) {
+        List<GenericMethod> generic = genericMethods.get(typeID);
+        if (generic == null) {
+          generic = new ArrayList<>(2);
+          genericMethods.put(typeID, generic);
+        }
+        generic.add(new GenericMethod(name, params, methodID));
+      }
+    }
+    
+    /**
+     * Adds the next direct supertype of the type.
+     * 
+     * @param arguments the type arguments given to the supertype, or
+     * <code>null</code> if it is used raw
+     */
+    public void addParent(Integer typeID, Integer parentID, String[] arguments) {
+      List<Integer> typeParents = parents.get(typeID);
+      if (typeParents == null) {
+        typeParents = new ArrayList<>(2);
+        parents.put(typeID, typeParents);
+        typeArguments.put(typeID, new ArrayList<String[]>(2));
+      }
+      typeParents.add(parentID);
+      typeArguments.get(typeID).add(arguments);
+    }
+    
+    public MethodHierarchy build() {
+      for (Map.Entry<Integer, MethodTableBuilder> entry : methods.entrySet()) {
+        if (hierarchy.types.containsKey(entry.getKey())) {
+          hierarchy.types.put(entry.getKey(), entry.getValue().build());
+        }
+      }
+      for (Map.Entry<Integer, List<String>> entry : typeParameters.entrySet()) {
+        if (hierarchy.types.containsKey(entry.getKey())) {
+          hierarchy.typeParameters.put(entry.getKey(), entry.getValue().toArray(new String[entry.getValue().size()]));
+          // Only methods of generic types can use type parameters of their type
+          List<GenericMethod> generic = genericMethods.get(entry.getKey());
+          if (generic != null) {
+            hierarchy.genericMethods.put(entry.getKey(), generic.toArray(new GenericMethod[generic.size()]));
+          }
+        }
+      }
+      for (Map.Entry<Integer, List<Integer>> entry : parents.entrySet()) {
+        if (hierarchy.types.containsKey(entry.getKey())) {
+          int[] array = new int[entry.getValue().size()];
+          int i = 0;
+          for (Integer parent : entry.getValue()) {
+            array[i++] = parent;
+          }
+          hierarchy.parents.put(entry.getKey(), array);
+          List<String[]> arguments = typeArguments.get(entry.getKey());
+          hierarchy.typeArguments.put(entry.getKey(), arguments.toArray(new String[arguments.size()][]));
+        }
+      }
+      return hierarchy;
+    }
+  }
+  
+  /**
+   * FNV-1a over the method name and its parameter list.
+   */
+  public static long hashSignature(String name, String params) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0, max = name.length(); i < max; i++) {
+      hash = (hash ^ name.charAt(i)) * 0x100000001b3L;
+    }
+    for (int i = 0, max = params.length(); i < max; i++) {
+      hash = (hash ^ params.charAt(i)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+  
+  /**
+   * Returns the type arguments of a parametrized type fqn, such as
+   * <tt>java.util.Map&lt;java.lang.String,java.util.List&lt;&lt;T&gt;&gt;&gt;</tt>,
+   * or <code>null</code> if it has none.
+   */
+  static String[] parseTypeArguments(String fqn) {
+    if (fqn == null || !fqn.endsWith(">")) {
+      return null;
+    }
+    // The arguments of the innermost type are the last group at depth 0
+    int depth = 0;
+    int start = -1;
+    for (int i = fqn.length() - 1; i >= 0; i--) {
+      char c = fqn.charAt(i);
+      if (c == '>') {
+        depth++;
+      } else if (c == '<' && --depth == 0) {
+        start = i;
+        break;
+      }
+    }
+    if (start == -1) {
+      return null;
+    }
+    List<String> arguments = new ArrayList<>(2);
+    depth = 0;
+    int argStart = start + 1;
+    for (int i = argStart, max = fqn.length() - 1; i < max; i++) {
+      char c = fqn.charAt(i);
+      if (c == '<') {
+        depth++;
+      } else if (c == '>') {
+        depth--;
+      } else if (c == ',' && depth == 0) {
+        arguments.add(fqn.substring(argStart, i));
+        argStart = i + 1;
+      }
+    }
+    arguments.add(fqn.substring(argStart, fqn.length() - 1));
+    return arguments.toArray(new String[arguments.size()]);
+  }
+  
+  /**
+   * Replaces every type variable <tt>&lt;T&gt;</tt> bound in
+   * <code>binding</code> with its value.
+   */
+  static String substitute(String params, Map<String, String> binding) {
+    if (binding.isEmpty() || params.indexOf('<') == -1) {
+      return params;
+    }
+    StringBuilder result = null;
+    int copied = 0;
+    for (int i = params.indexOf('<'); i != -1; i = params.indexOf('<', i + 1)) {
+      int end = i + 1;
+      while (end < params.length() && Character.isJavaIdentifierPart(params.charAt(end))) {
+        end++;
+      }
+      if (end < params.length() && end > i + 1 && params.charAt(end) == '>') {
+        String value = binding.get(params.substring(i + 1, end));
+        if (value != null) {
+          if (result == null) {
+            result = new StringBuilder(params.length() + 16);
+          }
+          result.append(params, copied, i).append(value);
+          copied = end + 1;
+        }
+      }
+    }
+    if (result == null) {
+      return params;
+    } else {
+      return result.append(params, copied, params.length()).toString();
+    }
+  }
+  
+  public static MethodHierarchy load(QueryExecutor exec, Integer projectID) {
+    Builder builder = new Builder(projectID);
+    
+    Map<String, Integer> typeIDs = new HashMap<>();
+    Map<Integer, String> typeVariables = new HashMap<>();
+    try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
+      query.addSelect(EntitiesTable.ENTITY_ID, EntitiesTable.FQN, EntitiesTable.ENTITY_TYPE);
+      query.andWhere(EntitiesTable.PROJECT_ID.compareEquals(projectID), EntitiesTable.ENTITY_TYPE.compareIn(EnumSet.of(Entity.CLASS, Entity.INTERFACE, Entity.ENUM, Entity.ANNOTATION, Entity.TYPE_VARIABLE)));
+      
+      TypedQueryResult result = query.select();
+      while (result.next()) {
+        Integer entityID = result.getResult(EntitiesTable.ENTITY_ID);
+        if (result.getResult(EntitiesTable.ENTITY_TYPE) == Entity.TYPE_VARIABLE) {
+          typeVariables.put(entityID, result.getResult(EntitiesTable.FQN));
+        } else {
+          typeIDs.put(result.getResult(EntitiesTable.FQN), entityID);
+          builder.addType(entityID);
+        }
+      }
+    }
+    
+    try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
+      query.addSelect(EntitiesTable.ENTITY_ID, EntitiesTable.FQN, EntitiesTable.PARAMS, EntitiesTable.RAW_PARAMS, EntitiesTable.MODIFIERS);
+      query.andWhere(EntitiesTable.PROJECT_ID.compareEquals(projectID), EntitiesTable.ENTITY_TYPE.compareEquals(Entity.METHOD));
+      
+      TypedQueryResult result = query.select();
+      while (result.next()) {
+        String fqn = result.getResult(EntitiesTable.FQN);
+        int dot = fqn.lastIndexOf('.');
+        Integer typeID = dot == -1 ? null : typeIDs.get(fqn.substring(0, dot));
+        if (typeID != null) {
+          builder.addMethod(typeID, result.getResult(EntitiesTable.ENTITY_ID), fqn.substring(dot + 1), result.getResult(EntitiesTable.PARAMS), result.getResult(EntitiesTable.RAW_PARAMS), result.getResult(EntitiesTable.MODIFIERS));
+        }
+      }
+    }
+    
+    try (SelectQuery query = exec.createSelectQuery(RelationsTable.TABLE)) {
+      // Relations are inserted in declaration order, so the type parameters come out in order
+      query.addSelect(RelationsTable.LHS_EID, RelationsTable.RHS_EID);
+      query.andWhere(RelationsTable.PROJECT_ID.compareEquals(projectID), RelationsTable.RELATION_TYPE.compareEquals(Relation.PARAMETRIZED_BY));
+      query.orderBy(RelationsTable.RELATION_ID, true);
+      
+      TypedQueryResult result = query.select();
+      while (result.next()) {
+        Integer lhsEID = result.getResult(RelationsTable.LHS_EID);
+        String typeVariable = typeVariables.get(result.getResult(RelationsTable.RHS_EID));
+        if (typeVariable != null && builder.containsType(lhsEID)) {
+          builder.addTypeParameter(lhsEID, typeVariable);
+        }
+      }
+      
+      query.clearWhere();
+      query.andWhere(RelationsTable.PROJECT_ID.compareEquals(projectID), RelationsTable.RELATION_TYPE.compareEquals(Relation.HAS_BASE_TYPE));
+      
+      Map<Integer, Integer> baseTypes = new HashMap<>();
+      result = query.select();
+      while (result.next()) {
+        baseTypes.put(result.getResult(RelationsTable.LHS_EID), result.getResult(RelationsTable.RHS_EID));
+      }
+      
+      query.clearWhere();
+      query.andWhere(RelationsTable.PROJECT_ID.compareEquals(projectID), RelationsTable.RELATION_TYPE.compareIn(EnumSet.of(Relation.EXTENDS, Relation.IMPLEMENTS)));
+      
+      Collection<Integer[]> edges = new ArrayList<>();
+      Set<Integer> parametrized = new HashSet<>();
+      result = query.select();
+      while (result.next()) {
+        Integer lhsEID = result.getResult(RelationsTable.LHS_EID);
+        if (builder.containsType(lhsEID)) {
+          Integer rhsEID = result.getResult(RelationsTable.RHS_EID);
+          edges.add(new Integer[] { lhsEID, rhsEID });
+          if (baseTypes.containsKey(rhsEID)) {
+            parametrized.add(rhsEID);
+          }
+        }
+      }
+      
+      Map<Integer, String> parametrizedFqns = getFqns(exec, parametrized);
+      for (Integer[] edge : edges) {
+        Integer baseType = baseTypes.get(edge[1]);
+        if (baseType == null) {
+          builder.addParent(edge[0], edge[1], null);
+        } else {
+          builder.addParent(edge[0], baseType, parseTypeArguments(parametrizedFqns.get(edge[1])));
+        }
+      }
+    }
+    
+    return builder.build();
+  }
+  
+  private static Map<Integer, String> getFqns(QueryExecutor exec, Collection<Integer> entityIDs) {
+    if (entityIDs.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Map<Integer, String> fqns = new HashMap<>();
+    try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
+      query.addSelect(EntitiesTable.ENTITY_ID, EntitiesTable.FQN);
+      query.andWhere(EntitiesTable.ENTITY_ID.compareIn(entityIDs));
+      TypedQueryResult result = query.select();
+      while (result.next()) {
+        fqns.put(result.getResult(EntitiesTable.ENTITY_ID), result.getResult(EntitiesTable.FQN));
+      }
+    }
+    return fqns;
+  }
+  
+  public Integer getProjectID() {
+    return projectID;
+  }
+  
+  public boolean containsType(Integer typeID) {
+    return types.containsKey(typeID);
+  }
+  
+  public Collection<Integer> getTypes() {
+    return types.keySet();
+  }
+  
+  public MethodTable getMethods(Integer typeID) {
+    MethodTable methods = types.get(typeID);
+    return methods == null ? NO_METHODS : methods;
+  }
+  
+  public int[] getParents(Integer typeID) {
+    int[] typeParents = parents.get(typeID);
+    return typeParents == null ? NO_PARENTS : typeParents;
+  }
+  
+  /**
+   * Returns the type arguments the type gives its <code>index</code>th
+   * parent, or <code>null</code> if it uses that parent raw.
+   */
+  public String[] getTypeArguments(Integer typeID, int index) {
+    String[][] arguments = typeArguments.get(typeID);
+    return arguments == null ? null : arguments[index];
+  }
+  
+  /**
+   * Maps the type parameters of the type to the given arguments, after
+   * substituting the outer binding into them. The binding is empty if the
+   * type is used raw.
+   */
+  public Map<String, String> bindTypeParameters(Integer typeID, String[] arguments, Map<String, String> outer) {
+    String[] names = typeParameters.get(typeID);
+    if (names == null || arguments == null || names.length != arguments.length) {
+      return Collections.emptyMap();
+    } else {
+      Map<String, String> binding = new HashMap<>();
+      for (int i = 0; i < names.length; i++) {
+        binding.put(names[i], substitute(arguments[i], outer));
+      }
+      return binding;
+    }
+  }
+  
+  /**
+   * Returns the methods of the type that use its type parameters, keyed
+   * by their signatures once the binding is substituted into them.
+   */
+  public MethodTable bind(Integer typeID, Map<String, String> binding) {
+    GenericMethod[] methods = genericMethods.get(typeID);
+    if (methods == null || binding.isEmpty()) {
+      return NO_METHODS;
+    } else {
+      MethodTableBuilder builder = new MethodTableBuilder();
+      for (GenericMethod method : methods) {
+        long signature = hashSignature(method.name, substitute(method.params, binding));
+        builder.add(signature, method.entityID, signature);
+      }
+      return builder.build();
+    }
+  }
+  
+  /**
+   * Returns the supertypes referenced by this project that are declared
+   * elsewhere.
+   */
+  public Set<Integer> getExternalParents() {
+    Set<Integer> external = new HashSet<>();
+    for (int[] typeParents : parents.values()) {
+      for (int parent : typeParents) {
+        if (!types.containsKey(parent)) {
+          external.add(parent);
+        }
+      }
+    }
+    return external;
+  }
+}
@@ -0,0 +1,116 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer.resolver;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.ProjectsTable;
+import edu.uci.ics.sourcerer.tools.java.model.types.Project;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.utils.db.DatabaseRunnable;
+import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
+import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
+import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
+
+/**
+ * Shares the method hierarchies of library projects between the threads
+ * computing overrides, evicting the least recently used.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class MethodHierarchyCache {
+  private final Map<Integer, Project> projectTypes;
+  private final Map<Integer, MethodHierarchy> hierarchies;
+  
+  private MethodHierarchyCache(final int capacity) {
+    projectTypes = new HashMap<>();
+    hierarchies = new LinkedHashMap<Integer, MethodHierarchy>(16, .75f, true) {
+      private static final long serialVersionUID = 1L;
+      
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, MethodHierarchy> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+  
+  public static MethodHierarchyCache makeMethodHierarchyCache(final TaskProgressLogger task, int capacity) {
+    final MethodHierarchyCache cache = new MethodHierarchyCache(capacity);
+    new DatabaseRunnable() {
+      @Override
+      public void action() {
+        task.start("Loading project types", "projects loaded");
+        try (SelectQuery query = exec.createSelectQuery(ProjectsTable.TABLE)) {
+          query.addSelect(ProjectsTable.PROJECT_ID, ProjectsTable.PROJECT_TYPE);
+          TypedQueryResult result = query.select();
+          while (result.next()) {
+            cache.projectTypes.put(result.getResult(ProjectsTable.PROJECT_ID), result.getResult(ProjectsTable.PROJECT_TYPE));
+            task.progress();
+          }
+        }
+        task.finish();
+      }
+    }.run();
+    return cache;
+  }
+  
+  public Collection<Integer> getProjects() {
+    return projectTypes.keySet();
+  }
+  
+  public Project getProjectType(Integer projectID) {
+    return projectTypes.get(projectID);
+  }
+  
+  public MethodHierarchy getHierarchy(QueryExecutor exec, Integer projectID) {
+    synchronized (hierarchies) {
+      MethodHierarchy hierarchy = hierarchies.get(projectID);
+      if (hierarchy != null) {
+        return hierarchy;
+      }
+    }
+    // Load outside the lock; two threads may occasionally both load the same project
+    MethodHierarchy hierarchy = MethodHierarchy.load(exec, projectID);
+    synchronized (hierarchies) {
+      hierarchies.put(projectID, hierarchy);
+    }
+    return hierarchy;
+  }
+  
+  /**
+   * Looks up the projects declaring the given entities.
+   */
+  public static Map<Integer, Integer> getOwningProjects(QueryExecutor exec, Collection<Integer> entityIDs) {
+    Map<Integer, Integer> owners = new HashMap<>();
+    if (!entityIDs.isEmpty()) {
+      try (SelectQuery query = exec.createSelectQuery(EntitiesTable.TABLE)) {
+        query.addSelect(EntitiesTable.ENTITY_ID, EntitiesTable.PROJECT_ID);
+        query.andWhere(EntitiesTable.ENTITY_ID.compareIn(entityIDs));
+        TypedQueryResult result = query.select();
+        while (result.next()) {
+          owners.put(result.getResult(EntitiesTable.ENTITY_ID), result.getResult(EntitiesTable.PROJECT_ID));
+        }
+      }
+    }
+    return owners;
+  }
+}
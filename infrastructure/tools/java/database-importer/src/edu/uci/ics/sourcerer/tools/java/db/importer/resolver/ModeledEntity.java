@@ -30,7 +30,6 @@ import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
 import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
 import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
 import edu.uci.ics.sourcerer.tools.java.model.types.RelationClass;
-import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
@@ -73,20 +72,20 @@ public class ModeledEntity {
     return rClass;
   }
   
-  public Integer getEntityID(QueryExecutor exec, Integer projectID) {
+  public Integer getEntityID(SynthesizedEntityInserter inserter, Integer projectID) {
     if (entityID == null) {
       if (duplicates != null) {
-        entityID = exec.insertWithKey(EntitiesTable.createInsert(Entity.DUPLICATE, fqn, projectID));
+        entityID = inserter.insertEntity(EntitiesTable.createInsert(Entity.DUPLICATE, fqn, projectID));
         for (Integer dupID : duplicates) {
-          exec.insert(RelationsTable.makeInsert(Relation.MATCHES, RelationClass.EXTERNAL, entityID, dupID, projectID));
+          inserter.insertRelation(RelationsTable.makeInsert(Relation.MATCHES, RelationClass.EXTERNAL, entityID, dupID, projectID));
         }
       } else if (virtualDuplicates != null) {
-        entityID = exec.insertWithKey(EntitiesTable.createInsert(Entity.VIRTUAL_DUPLICATE, null, projectID));
+        entityID = inserter.insertEntity(EntitiesTable.createInsert(Entity.VIRTUAL_DUPLICATE, null, projectID));
         if (virtualDuplicates.size() <= 1) {
           logger.severe("Single virtual duplicate! " + virtualDuplicates.toString());
         }
         for (ModeledEntity dup : virtualDuplicates) {
-          exec.insert(RelationsTable.makeInsert(Relation.MATCHES, dup.rClass, entityID, dup.entityID, projectID));
+          inserter.insertRelation(RelationsTable.makeInsert(Relation.MATCHES, dup.rClass, entityID, dup.entityID, projectID));
         }
       } else {
         logger.severe("Null entityID and no duplicates: " + fqn);
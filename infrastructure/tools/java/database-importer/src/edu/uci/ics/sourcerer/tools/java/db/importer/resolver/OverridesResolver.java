@@ -0,0 +1,126 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer.resolver;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.MethodHierarchy.MethodTable;
+
+/**
+ * Finds the methods overridden by the methods of a project, walking up
+ * from each method and stopping each branch at the nearest method it
+ * overrides.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class OverridesResolver {
+  public interface OverrideListener {
+    public void overrides(int methodID, int overriddenID, MethodHierarchy owner);
+  }
+  
+  private final MethodHierarchy hierarchy;
+  private final Map<Integer, MethodHierarchy> supertypes;
+  
+  // Per type state
+  private final Map<Integer, MethodTable> bound;
+  private final Set<Integer> visited;
+  
+  /**
+   * @param supertypes the hierarchies declaring the supertypes outside of
+   * the project, with <code>null</code> for those that are not available
+   */
+  public OverridesResolver(MethodHierarchy hierarchy, Map<Integer, MethodHierarchy> supertypes) {
+    this.hierarchy = hierarchy;
+    this.supertypes = supertypes;
+    this.bound = new HashMap<>();
+    this.visited = new HashSet<>();
+  }
+  
+  /**
+   * Reports every override found, returning the count.
+   */
+  public int resolve(OverrideListener listener) {
+    int count = 0;
+    for (Integer typeID : hierarchy.getTypes()) {
+      int[] parents = hierarchy.getParents(typeID);
+      if (parents.length > 0) {
+        bound.clear();
+        bindSupertypes(typeID, hierarchy, Collections.<String, String>emptyMap());
+        MethodTable methods = hierarchy.getMethods(typeID);
+        for (int i = 0, max = methods.size(); i < max; i++) {
+          visited.clear();
+          for (int parent : parents) {
+            count += findOverridden(parent, methods.getSignature(i), methods.getGenericSignature(i), methods.getEntityID(i), listener);
+          }
+        }
+      }
+    }
+    return count;
+  }
+  
+  private MethodHierarchy getOwner(Integer typeID) {
+    return hierarchy.containsType(typeID) ? hierarchy : supertypes.get(typeID);
+  }
+  
+  /**
+   * Binds the type parameters of every supertype reachable from the type,
+   * in terms of the type variables of the type the walk started from.
+   * A supertype reached along two paths keeps the binding of the first.
+   */
+  private void bindSupertypes(Integer typeID, MethodHierarchy owner, Map<String, String> binding) {
+    int[] parents = owner.getParents(typeID);
+    for (int i = 0; i < parents.length; i++) {
+      Integer parent = parents[i];
+      MethodHierarchy parentOwner = getOwner(parent);
+      if (parentOwner != null && !bound.containsKey(parent)) {
+        Map<String, String> parentBinding = parentOwner.bindTypeParameters(parent, owner.getTypeArguments(typeID, i), binding);
+        bound.put(parent, parentOwner.bind(parent, parentBinding));
+        bindSupertypes(parent, parentOwner, parentBinding);
+      }
+    }
+  }
+  
+  private int findOverridden(Integer typeID, long signature, long genericSignature, int methodID, OverrideListener listener) {
+    if (!visited.add(typeID)) {
+      return 0;
+    }
+    MethodHierarchy owner = getOwner(typeID);
+    if (owner == null) {
+      return 0;
+    }
+    int overridden = owner.getMethods(typeID).find(signature);
+    MethodTable generic = bound.get(typeID);
+    if (overridden == -1 && generic != null) {
+      overridden = generic.find(genericSignature);
+    }
+    if (overridden == -1) {
+      int count = 0;
+      for (int parent : owner.getParents(typeID)) {
+        count += findOverridden(parent, signature, genericSignature, methodID, listener);
+      }
+      return count;
+    } else {
+      listener.overrides(methodID, overridden, owner);
+      return 1;
+    }
+  }
+}
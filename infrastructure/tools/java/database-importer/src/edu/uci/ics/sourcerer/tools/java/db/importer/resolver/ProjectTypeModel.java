@@ -51,10 +51,12 @@ public class ProjectTypeModel {
   private UnknownEntityCache unknowns;
   
   private QueryExecutor exec;
+  private SynthesizedEntityInserter inserter;
   private Integer projectID;
   
-  private ProjectTypeModel(QueryExecutor exec, Integer projectID, LibraryTypeModel libraryModel, UnknownEntityCache unknowns) {
+  private ProjectTypeModel(QueryExecutor exec, SynthesizedEntityInserter inserter, Integer projectID, LibraryTypeModel libraryModel, UnknownEntityCache unknowns) {
     this.exec = exec;
+    this.inserter = inserter;
     this.projectID = projectID;
     this.libraryModel = libraryModel;
     this.unknowns = unknowns;
@@ -157,12 +159,12 @@ public class ProjectTypeModel {
     task.finish();
   }
   
-  public static ProjectTypeModel createProjectTypeModel(final TaskProgressLogger task, QueryExecutor exec, Integer projectID, Collection<Integer> libraries, JavaLibraryTypeModel javaModel, UnknownEntityCache unknowns) {
+  public static ProjectTypeModel createProjectTypeModel(final TaskProgressLogger task, QueryExecutor exec, SynthesizedEntityInserter inserter, Integer projectID, Collection<Integer> libraries, JavaLibraryTypeModel javaModel, UnknownEntityCache unknowns) {
     LibraryTypeModel libraryModel = LibraryTypeModel.createLibraryTypeModel(task, exec, libraries, javaModel);
     
     task.start("Building project type model");
     
-    ProjectTypeModel model = new ProjectTypeModel(exec, projectID, libraryModel, unknowns);
+    ProjectTypeModel model = new ProjectTypeModel(exec, inserter, projectID, libraryModel, unknowns);
     model.loadEntities(task);
     
     task.finish();
@@ -170,12 +172,12 @@ public class ProjectTypeModel {
     return model;
   }
   
-  public static ProjectTypeModel createVirtualProjectTypeModel(final TaskProgressLogger task, QueryExecutor exec, Integer projectID, Collection<Integer> libraries, JavaLibraryTypeModel javaModel, UnknownEntityCache unknowns) {
+  public static ProjectTypeModel createVirtualProjectTypeModel(final TaskProgressLogger task, QueryExecutor exec, SynthesizedEntityInserter inserter, Integer projectID, Collection<Integer> libraries, JavaLibraryTypeModel javaModel, UnknownEntityCache unknowns) {
     LibraryTypeModel libraryModel = LibraryTypeModel.createVirtualLibraryTypeModel(task, exec, libraries, javaModel);
     
     task.start("Building virtual project type model");
     
-    ProjectTypeModel model = new ProjectTypeModel(exec, projectID, libraryModel, unknowns);
+    ProjectTypeModel model = new ProjectTypeModel(exec, inserter, projectID, libraryModel, unknowns);
     model.reverseMap = new HashMap<>();
     model.loadEntities(task);
     model.loadStructure(task);
@@ -194,7 +196,7 @@ public class ProjectTypeModel {
       }
       
       // Insert the array entity
-      Integer entityID = exec.insertWithKey(EntitiesTable.createInsert(Entity.ARRAY, fqn, arrayInfo.getSecond(), projectID));
+      Integer entityID = inserter.insertEntity(EntitiesTable.createInsert(Entity.ARRAY, fqn, arrayInfo.getSecond(), projectID));
       ModeledEntity entity = new ModeledEntity(fqn, Entity.ARRAY, entityID, RelationClass.NOT_APPLICABLE);
       add(fqn, entity);
       
@@ -202,14 +204,14 @@ public class ProjectTypeModel {
       ModeledEntity component = getEntity(arrayInfo.getFirst());
 
       // Add has elements of relation
-      exec.insert(RelationsTable.makeInsert(Relation.HAS_ELEMENTS_OF, component.getRelationClass(), entityID, component.getEntityID(exec, projectID), projectID));
+      inserter.insertRelation(RelationsTable.makeInsert(Relation.HAS_ELEMENTS_OF, component.getRelationClass(), entityID, component.getEntityID(inserter, projectID), projectID));
   
       return entity;
     }
     
     if (TypeUtils.isWildcard(fqn)) {
       // Insert the wildcard entity
-      Integer entityID = exec.insertWithKey(EntitiesTable.createInsert(Entity.WILDCARD, fqn, projectID));
+      Integer entityID = inserter.insertEntity(EntitiesTable.createInsert(Entity.WILDCARD, fqn, projectID));
       ModeledEntity entity = new ModeledEntity(fqn, Entity.WILDCARD, entityID, RelationClass.NOT_APPLICABLE);
       add(fqn, entity);
       
@@ -217,9 +219,9 @@ public class ProjectTypeModel {
       if (!TypeUtils.isUnboundedWildcard(fqn)) {
         ModeledEntity bound = getEntity(TypeUtils.getWildcardBound(fqn));
         if (TypeUtils.isLowerBound(fqn)) {
-          exec.insert(RelationsTable.makeInsert(Relation.HAS_LOWER_BOUND, bound.getRelationClass(), entityID, bound.getEntityID(exec, projectID), projectID));
+          inserter.insertRelation(RelationsTable.makeInsert(Relation.HAS_LOWER_BOUND, bound.getRelationClass(), entityID, bound.getEntityID(inserter, projectID), projectID));
         } else {
-          exec.insert(RelationsTable.makeInsert(Relation.HAS_UPPER_BOUND, bound.getRelationClass(), entityID, bound.getEntityID(exec, projectID), projectID));
+          inserter.insertRelation(RelationsTable.makeInsert(Relation.HAS_UPPER_BOUND, bound.getRelationClass(), entityID, bound.getEntityID(inserter, projectID), projectID));
         }
       }
       
@@ -228,14 +230,14 @@ public class ProjectTypeModel {
     
     if (TypeUtils.isTypeVariable(fqn)) {
       // Insert the type variable entity
-      Integer entityID = exec.insertWithKey(EntitiesTable.createInsert(Entity.TYPE_VARIABLE, fqn, projectID));
+      Integer entityID = inserter.insertEntity(EntitiesTable.createInsert(Entity.TYPE_VARIABLE, fqn, projectID));
       ModeledEntity entity = new ModeledEntity(fqn, Entity.TYPE_VARIABLE, entityID, RelationClass.NOT_APPLICABLE);
       add(fqn, entity);
       
       // Insert the bound relations
       for (String bound : TypeUtils.breakTypeVariable(fqn)) {
         ModeledEntity boundEntity = getEntity(bound);
-        exec.insert(RelationsTable.makeInsert(Relation.HAS_UPPER_BOUND, boundEntity.getRelationClass(), entityID, boundEntity.getEntityID(exec, projectID), projectID));
+        inserter.insertRelation(RelationsTable.makeInsert(Relation.HAS_UPPER_BOUND, boundEntity.getRelationClass(), entityID, boundEntity.getEntityID(inserter, projectID), projectID));
       }
       
       return entity;
@@ -243,18 +245,18 @@ public class ProjectTypeModel {
     
     if (TypeUtils.isParametrizedType(fqn)) {
       // Insert the parametrized type entity
-      Integer entityID = exec.insertWithKey(EntitiesTable.createInsert(Entity.PARAMETERIZED_TYPE, fqn, projectID));
+      Integer entityID = inserter.insertEntity(EntitiesTable.createInsert(Entity.PARAMETERIZED_TYPE, fqn, projectID));
       ModeledEntity entity = new ModeledEntity(fqn, Entity.PARAMETERIZED_TYPE, entityID, RelationClass.NOT_APPLICABLE);
       add(fqn, entity);
       
       // Add the has base type relation
       ModeledEntity baseType = getEntity(TypeUtils.getBaseType(fqn));
-      exec.insert(RelationsTable.makeInsert(Relation.HAS_BASE_TYPE, baseType.getRelationClass(), entityID, baseType.getEntityID(exec, projectID), projectID));
+      inserter.insertRelation(RelationsTable.makeInsert(Relation.HAS_BASE_TYPE, baseType.getRelationClass(), entityID, baseType.getEntityID(inserter, projectID), projectID));
       
       // Insert the type arguments
       for (String arg : TypeUtils.breakParametrizedType(fqn)) {
         ModeledEntity argEntity = getEntity(arg);
-        exec.insert(RelationsTable.makeInsert(Relation.HAS_TYPE_ARGUMENT, argEntity.getRelationClass(), entityID, argEntity.getEntityID(exec, projectID), projectID));
+        inserter.insertRelation(RelationsTable.makeInsert(Relation.HAS_TYPE_ARGUMENT, argEntity.getRelationClass(), entityID, argEntity.getEntityID(inserter, projectID), projectID));
       }
       
       return entity; 
@@ -0,0 +1,97 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer.resolver;
+
+import java.io.File;
+
+import edu.uci.ics.sourcerer.tools.java.db.schema.EntitiesTable;
+import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
+import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.utils.db.BatchInserter;
+import edu.uci.ics.sourcerer.utils.db.Insert;
+import edu.uci.ics.sourcerer.utils.db.KeyRangeAllocator;
+import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
+
+/**
+ * Collects the entities the type models create while resolving relations
+ * (arrays, wildcards, type variables, parametrized types and duplicates)
+ * along with their relations. Entity ids come from a block reserved in
+ * advance, so the rows can be bulk loaded in one go by {@link #flush()}
+ * rather than inserted one at a time.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class SynthesizedEntityInserter {
+  public static final Argument<Integer> ENTITY_ID_BLOCK_SIZE = new IntegerArgument("entity-id-block-size", 1000, "Number of entity ids reserved at a time for entities synthesized during relation import.").permit();
+  
+  private final QueryExecutor exec;
+  private final File tempDir;
+  private KeyRangeAllocator keys;
+  private BatchInserter entityInserter;
+  private BatchInserter relationInserter;
+  
+  private SynthesizedEntityInserter(QueryExecutor exec, File tempDir) {
+    this.exec = exec;
+    this.tempDir = tempDir;
+  }
+  
+  public static SynthesizedEntityInserter create(QueryExecutor exec, File tempDir) {
+    // A separate directory, as the importer's own batches share the table names
+    File dir = new File(tempDir, "synthesized");
+    dir.mkdirs();
+    return new SynthesizedEntityInserter(exec, dir);
+  }
+  
+  Integer insertEntity(Insert insert) {
+    if (keys == null) {
+      keys = exec.makeKeyRangeAllocator(EntitiesTable.TABLE, EntitiesTable.createInsert(Entity.VIRTUAL_DUPLICATE, null, 0), ENTITY_ID_BLOCK_SIZE.getValue());
+    }
+    if (entityInserter == null) {
+      entityInserter = exec.makeInFileInserter(tempDir, EntitiesTable.TABLE);
+    }
+    Integer entityID = keys.allocate();
+    entityInserter.addInsert(insert.withKey(entityID));
+    return entityID;
+  }
+  
+  void insertRelation(Insert insert) {
+    if (relationInserter == null) {
+      relationInserter = exec.makeInFileInserter(tempDir, RelationsTable.TABLE);
+    }
+    relationInserter.addInsert(insert);
+  }
+  
+  public void flush() {
+    if (entityInserter != null) {
+      entityInserter.insert();
+      entityInserter = null;
+    }
+    if (relationInserter != null) {
+      relationInserter.insert();
+      relationInserter = null;
+    }
+  }
+  
+  public void close() {
+    flush();
+    FileUtils.delete(tempDir);
+  }
+}
@@ -0,0 +1,171 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.MethodHierarchy;
+import edu.uci.ics.sourcerer.tools.java.db.schema.RelationsTable;
+import edu.uci.ics.sourcerer.tools.java.model.types.Modifier;
+import edu.uci.ics.sourcerer.tools.java.model.types.Modifiers;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+import edu.uci.ics.sourcerer.tools.java.model.types.RelationClass;
+import edu.uci.ics.sourcerer.util.io.arguments.Command;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.utils.db.BatchInserter;
+import edu.uci.ics.sourcerer.utils.db.Insert;
+import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
+import edu.uci.ics.sourcerer.utils.db.sql.Condition;
+import edu.uci.ics.sourcerer.utils.db.sql.DeleteStatement;
+
+/**
+ * Runs the importer against a recording executor, in place of a database.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class OverridesImporterTest {
+  public static final Command COMMAND = new Command("test", "Run a junit test.") {
+    @Override
+    protected void action() {
+    }
+  };
+  
+  private List<String> executed;
+  
+  @BeforeClass
+  public static void initialize() {
+    // Initializes the logging for the task logger
+    Command.execute(new String[] { "--test" }, OverridesImporterTest.class);
+  }
+  
+  private QueryExecutor createExecutor() {
+    executed = new ArrayList<>();
+    return (QueryExecutor) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { QueryExecutor.class }, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+          case "createDeleteStatement": return createDelete();
+          case "makeInFileInserter": return createInserter();
+          default: throw new UnsupportedOperationException(method.getName());
+        }
+      }
+    });
+  }
+  
+  private DeleteStatement createDelete() {
+    final List<Condition> conditions = new ArrayList<>();
+    return (DeleteStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DeleteStatement.class }, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+        switch (method.getName()) {
+          case "andWhere":
+            conditions.add((Condition) args[0]);
+            return null;
+          case "execute":
+            StringBuilder sql = new StringBuilder("DELETE WHERE ");
+            for (Condition condition : conditions) {
+              condition.toSql(sql);
+            }
+            // Fill in the bound values
+            final List<Object> values = new ArrayList<>();
+            PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class }, new InvocationHandler() {
+              @Override
+              public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().startsWith("set")) {
+                  values.add(args[1]);
+                }
+                return null;
+              }
+            });
+            for (Condition condition : conditions) {
+              condition.bind(statement, 1);
+            }
+            executed.add(sql + " " + values);
+            return null;
+          default:
+            return null;
+        }
+      }
+    });
+  }
+  
+  private BatchInserter createInserter() {
+    return new BatchInserter() {
+      private List<String> rows = new ArrayList<>();
+      
+      @Override
+      public void addInsert(Insert insert) {
+        rows.add(insert.toString());
+      }
+      
+      @Override
+      public void insert() {
+        for (String row : rows) {
+          executed.add("INSERT " + row);
+        }
+      }
+    };
+  }
+  
+  private OverridesImporter createImporter(final QueryExecutor executor) {
+    return new OverridesImporter(null, null) {
+      {
+        exec = executor;
+        task = TaskProgressLogger.get();
+      }
+    };
+  }
+  
+  private MethodHierarchy createHierarchy() {
+    Modifiers modifiers = Modifiers.make(Modifier.PUBLIC);
+    MethodHierarchy.Builder builder = new MethodHierarchy.Builder(7);
+    builder.addType(1);
+    builder.addType(2);
+    builder.addParent(2, 1, null);
+    builder.addMethod(1, 101, "m", "()", null, modifiers);
+    builder.addMethod(2, 102, "m", "()", null, modifiers);
+    return builder.build();
+  }
+  
+  @Test
+  public void testReimportReplacesOverrides() {
+    OverridesImporter importer = createImporter(createExecutor());
+    importer.importOverrides(createHierarchy());
+    Assert.assertEquals(2, executed.size());
+    
+    String delete = executed.get(0);
+    Assert.assertTrue(delete, delete.startsWith("DELETE WHERE "));
+    Assert.assertTrue(delete, delete.contains("project_id") && delete.contains("relation_type"));
+    Assert.assertTrue(delete, delete.endsWith("[7, " + Relation.OVERRIDES.name() + "]"));
+    Assert.assertEquals("INSERT " + RelationsTable.makeInsert(Relation.OVERRIDES, RelationClass.INTERNAL, 102, 101, 7), executed.get(1));
+    
+    // Importing again deletes the old rows before inserting the same ones
+    importer.importOverrides(createHierarchy());
+    Assert.assertEquals(4, executed.size());
+    Assert.assertEquals(executed.subList(0, 2), executed.subList(2, 4));
+  }
+}
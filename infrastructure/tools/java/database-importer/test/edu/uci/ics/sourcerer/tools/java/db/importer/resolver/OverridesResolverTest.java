@@ -0,0 +1,227 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.importer.resolver;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.sourcerer.tools.java.db.importer.resolver.OverridesResolver.OverrideListener;
+import edu.uci.ics.sourcerer.tools.java.model.types.Modifier;
+import edu.uci.ics.sourcerer.tools.java.model.types.Modifiers;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class OverridesResolverTest {
+  private static final Modifiers PUBLIC = Modifiers.make(Modifier.PUBLIC);
+  
+  private static final class Overrides implements OverrideListener {
+    // overriding method -> overridden method -> owning project
+    private final Map<Integer, Map<Integer, Integer>> found = new TreeMap<>();
+    
+    @Override
+    public void overrides(int methodID, int overriddenID, MethodHierarchy owner) {
+      Map<Integer, Integer> overridden = found.get(methodID);
+      if (overridden == null) {
+        overridden = new TreeMap<>();
+        found.put(methodID, overridden);
+      }
+      Assert.assertNull("reported twice", overridden.put(overriddenID, owner.getProjectID()));
+    }
+    
+    private void assertOverrides(int methodID, Integer ... overriddenIDs) {
+      Map<Integer, Integer> overridden = found.get(methodID);
+      if (overriddenIDs.length == 0) {
+        Assert.assertNull("method " + methodID + " overrides " + overridden, overridden);
+      } else {
+        Assert.assertNotNull("method " + methodID + " overrides nothing", overridden);
+        Assert.assertEquals("method " + methodID, new TreeSet<>(Arrays.asList(overriddenIDs)), overridden.keySet());
+      }
+    }
+  }
+  
+  private static Overrides resolve(MethodHierarchy hierarchy, Map<Integer, MethodHierarchy> supertypes) {
+    Overrides overrides = new Overrides();
+    int count = new OverridesResolver(hierarchy, supertypes).resolve(overrides);
+    int found = 0;
+    for (Map<Integer, Integer> overridden : overrides.found.values()) {
+      found += overridden.size();
+    }
+    Assert.assertEquals(found, count);
+    return overrides;
+  }
+  
+  private static Overrides resolve(MethodHierarchy hierarchy) {
+    return resolve(hierarchy, Collections.<Integer, MethodHierarchy>emptyMap());
+  }
+  
+  @Test
+  public void testWalksHierarchy() {
+    MethodHierarchy.Builder builder = new MethodHierarchy.Builder(1);
+    for (int type = 1; type <= 6; type++) {
+      builder.addType(type);
+    }
+    // class A { m() }
+    builder.addMethod(1, 101, "m", "()", null, PUBLIC);
+    builder.addMethod(1, 111, "n", "(int)", null, PUBLIC);
+    // class B extends A {}
+    builder.addParent(2, 1, null);
+    // class C extends B { m(), n(long) }
+    builder.addParent(3, 2, null);
+    builder.addMethod(3, 103, "m", "()", null, PUBLIC);
+    builder.addMethod(3, 113, "n", "(long)", null, PUBLIC);
+    // interface I { m() }
+    builder.addMethod(5, 105, "m", "()", null, PUBLIC);
+    // class D extends A implements I { m() }
+    builder.addParent(4, 1, null);
+    builder.addParent(4, 5, null);
+    builder.addMethod(4, 104, "m", "()", null, PUBLIC);
+    // class E extends C { m() }
+    builder.addParent(6, 3, null);
+    builder.addMethod(6, 106, "m", "()", null, PUBLIC);
+    
+    Overrides overrides = resolve(builder.build());
+    // Through a type that doesn't declare it
+    overrides.assertOverrides(103, 101);
+    // An overload is not an override
+    overrides.assertOverrides(113);
+    // One per branch
+    overrides.assertOverrides(104, 101, 105);
+    // The walk stops at the nearest
+    overrides.assertOverrides(106, 103);
+    overrides.assertOverrides(101);
+    overrides.assertOverrides(105);
+  }
+  
+  @Test
+  public void testWalksIntoOtherProjects() {
+    MethodHierarchy.Builder library = new MethodHierarchy.Builder(10);
+    // class L { m(java.lang.String) } extends unavailable type 99
+    library.addType(10);
+    library.addParent(10, 99, null);
+    library.addMethod(10, 110, "m", "(java.lang.String)", null, PUBLIC);
+    // class M extends L { }
+    library.addType(11);
+    library.addParent(11, 10, null);
+    MethodHierarchy libraryHierarchy = library.build();
+    
+    MethodHierarchy.Builder project = new MethodHierarchy.Builder(1);
+    // class X extends M { m(java.lang.String) }
+    project.addType(1);
+    project.addParent(1, 11, null);
+    project.addMethod(1, 101, "m", "(java.lang.String)", null, PUBLIC);
+    
+    Map<Integer, MethodHierarchy> supertypes = new HashMap<>();
+    supertypes.put(10, libraryHierarchy);
+    supertypes.put(11, libraryHierarchy);
+    supertypes.put(99, null);
+    Overrides overrides = resolve(project.build(), supertypes);
+    overrides.assertOverrides(101, 110);
+    Assert.assertEquals(Integer.valueOf(10), overrides.found.get(101).get(110));
+  }
+  
+  @Test
+  public void testStaticAndPrivateExcluded() {
+    MethodHierarchy.Builder builder = new MethodHierarchy.Builder(1);
+    builder.addType(1);
+    builder.addType(2);
+    builder.addParent(2, 1, null);
+    builder.addMethod(1, 101, "s", "()", null, Modifiers.make(Modifier.PUBLIC, Modifier.STATIC));
+    builder.addMethod(1, 111, "p", "()", null, Modifiers.make(Modifier.PRIVATE));
+    builder.addMethod(1, 121, "q", "()", null, null);
+    // Hiding a static method is not overriding it
+    builder.addMethod(2, 102, "s", "()", null, Modifiers.make(Modifier.PUBLIC, Modifier.STATIC));
+    builder.addMethod(2, 112, "p", "()", null, PUBLIC);
+    builder.addMethod(2, 122, "q", "()", null, PUBLIC);
+    
+    Overrides overrides = resolve(builder.build());
+    overrides.assertOverrides(102);
+    overrides.assertOverrides(112);
+    overrides.assertOverrides(122, 121);
+  }
+  
+  @Test
+  public void testTypeParameters() {
+    MethodHierarchy.Builder builder = new MethodHierarchy.Builder(1);
+    for (int type = 1; type <= 8; type++) {
+      builder.addType(type);
+    }
+    // class P<T> { m(T), m(java.lang.Object[]) }
+    builder.addTypeParameter(1, "<T>");
+    builder.addMethod(1, 101, "m", "(<T>)", "(java.lang.Object)", PUBLIC);
+    builder.addMethod(1, 111, "m", "(java.lang.Object[])", null, PUBLIC);
+    // class Q extends P<java.lang.String> { m(java.lang.String) }
+    builder.addParent(2, 1, new String[] { "java.lang.String" });
+    builder.addMethod(2, 102, "m", "(java.lang.String)", null, PUBLIC);
+    // class R<E extends Number> extends P<E> { }
+    builder.addTypeParameter(3, "<E+java.lang.Number>");
+    builder.addParent(3, 1, new String[] { "<E>" });
+    // class S extends R<java.lang.Integer> { m(java.lang.Integer) }
+    builder.addParent(4, 3, new String[] { "java.lang.Integer" });
+    builder.addMethod(4, 104, "m", "(java.lang.Integer)", null, PUBLIC);
+    // class U extends P { m(java.lang.String), m(java.lang.Object) } is raw
+    builder.addParent(5, 1, null);
+    builder.addMethod(5, 105, "m", "(java.lang.String)", null, PUBLIC);
+    builder.addMethod(5, 115, "m", "(java.lang.Object)", null, PUBLIC);
+    // interface M<K,V> { put(K, java.util.List<V>) }
+    builder.addTypeParameter(6, "<K>");
+    builder.addTypeParameter(6, "<V>");
+    builder.addMethod(6, 106, "put", "(<K>,java.util.List<<V>>)", "(java.lang.Object,java.util.List)", PUBLIC);
+    // class N implements M<java.lang.String,java.lang.Integer> { put(java.lang.String, java.util.List<java.lang.Integer>) }
+    builder.addParent(7, 6, new String[] { "java.lang.String", "java.lang.Integer" });
+    builder.addMethod(7, 107, "put", "(java.lang.String,java.util.List<java.lang.Integer>)", "(java.lang.String,java.util.List)", PUBLIC);
+    // class O implements M<java.lang.Integer,java.lang.String> { put(java.lang.String, java.util.List<java.lang.Integer>) }
+    builder.addParent(8, 6, new String[] { "java.lang.Integer", "java.lang.String" });
+    builder.addMethod(8, 108, "put", "(java.lang.String,java.util.List<java.lang.Integer>)", "(java.lang.String,java.util.List)", PUBLIC);
+    
+    Overrides overrides = resolve(builder.build());
+    overrides.assertOverrides(102, 101);
+    // Through the binding of R's own type parameter
+    overrides.assertOverrides(104, 101);
+    // A raw subclass only overrides the erasure
+    overrides.assertOverrides(105);
+    overrides.assertOverrides(115, 101);
+    overrides.assertOverrides(107, 106);
+    overrides.assertOverrides(108);
+  }
+  
+  @Test
+  public void testParseTypeArguments() {
+    Assert.assertNull(MethodHierarchy.parseTypeArguments("java.util.List"));
+    Assert.assertArrayEquals(new String[] { "java.lang.String" }, MethodHierarchy.parseTypeArguments("java.util.List<java.lang.String>"));
+    Assert.assertArrayEquals(new String[] { "<K>", "java.util.List<<V>>" }, MethodHierarchy.parseTypeArguments("java.util.Map<<K>,java.util.List<<V>>>"));
+    Assert.assertArrayEquals(new String[] { "<?+java.lang.Number>" }, MethodHierarchy.parseTypeArguments("a.Outer<java.lang.String>$Inner<<?+java.lang.Number>>"));
+  }
+  
+  @Test
+  public void testSubstitute() {
+    Map<String, String> binding = new HashMap<>();
+    binding.put("T", "java.lang.String");
+    binding.put("U", "<E>");
+    Assert.assertEquals("(java.lang.String,java.util.List<java.lang.String>,<E>[],<V>)", MethodHierarchy.substitute("(<T>,java.util.List<<T>>,<U>[],<V>)", binding));
+    Assert.assertEquals("(java.lang.Object)", MethodHierarchy.substitute("(java.lang.Object)", binding));
+    Assert.assertEquals("(<T>)", MethodHierarchy.substitute("(<T>)", Collections.<String, String>emptyMap()));
+  }
+}
@@ -0,0 +1,53 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.schema;
+
+import edu.uci.ics.sourcerer.utils.db.Insert;
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+
+/**
+ * Holds a single row whose key is bumped by every import. Anything
+ * caching what it read from the other tables can compare the largest
+ * version instead of scanning them for changes.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class DatabaseVersionTable extends DatabaseTable {
+  /*  
+   *            database_version table
+   *  +-------------+-----------------+-------+--------+
+   *  | Column name | Type            | Null? | Index? |
+   *  +-------------+-----------------+-------+--------+
+   *  | version     | SERIAL          | No    | Yes    |
+   *  +-------------+-----------------+-------+--------+
+   */
+  
+  public static final DatabaseVersionTable TABLE = new DatabaseVersionTable();
+  
+  public static final Column<Integer> VERSION = TABLE.addSerialColumn("version");
+  
+  private DatabaseVersionTable() {
+    super("database_version");
+  }
+  
+  // ---- INSERT ----
+  public static Insert createInsert() {
+    return TABLE.createInsert();
+  }
+}
@@ -26,6 +26,7 @@ import edu.uci.ics.sourcerer.tools.java.model.types.Modifiers;
 import edu.uci.ics.sourcerer.utils.db.Insert;
 import edu.uci.ics.sourcerer.utils.db.sql.Column;
 import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+import edu.uci.ics.sourcerer.utils.db.sql.Index;
 import edu.uci.ics.sourcerer.utils.db.sql.StringColumn;
 
 /**
@@ -49,6 +50,10 @@ public final class EntitiesTable extends DatabaseTable {
    *  | offset      | INT UNSIGNED    | Yes   | No     |
    *  | length      | INT UNSIGNED    | Yes   | No     |
    *  +-------------+-----------------+-------+--------+
+   *  
+   *  Composite indexes:
+   *    (project_id, entity_type)
+   *    (fqn, project_id)
    */
   public static final EntitiesTable TABLE = new EntitiesTable();
 
@@ -64,6 +69,9 @@ public final class EntitiesTable extends DatabaseTable {
   public static final Column<Integer> OFFSET = TABLE.addIntColumn("offset", true, true);
   public static final Column<Integer> LENGTH = TABLE.addIntColumn("length", true, true);
   
+  public static final Index PROJECT_ID_ENTITY_TYPE = TABLE.addIndex(PROJECT_ID, ENTITY_TYPE);
+  public static final Index FQN_PROJECT_ID = TABLE.addIndex(FQN, PROJECT_ID);
+  
   private EntitiesTable() {
     super("entities");
   }
@@ -40,6 +40,7 @@ public final class ProjectsTable extends DatabaseTable {
    *  | source       | VARCHAR(1024) | Yes   | Yes    |
    *  | hash         | VARCHAR(32)   | Yes   | Yes    |
    *  | has_source   | BOOLEAN       | No    | Yes    |
+   *  | duplicate_of | BIGINT        | Yes   | Yes    |
    *  +--------------+---------------+-------+--------+
    */
   public static final ProjectsTable TABLE = new ProjectsTable();
@@ -54,6 +55,8 @@ public final class ProjectsTable extends DatabaseTable {
   public static final Column<String> SOURCE = TABLE.addVarcharColumn("source", 1024, true);
   public static final Column<String> HASH = TABLE.addVarcharColumn("hash", 32, true).addIndex();
   public static final Column<Boolean> HAS_SOURCE = TABLE.addBooleanColumn("has_source", false).addIndex();
+  // Project whose entities a jar shares, when the jar was not imported itself
+  public static final Column<Integer> DUPLICATE_OF = TABLE.addIDColumn("duplicate_of", true).addIndex();
  
   private ProjectsTable() {
     super("projects");
@@ -82,6 +85,22 @@ public final class ProjectsTable extends DatabaseTable {
   
   // ---- INSERT ----
   public static Insert createRowInsert(Project type, String name, String description, String version, String group, String path, String source, String hash, boolean hasSource) {
+    return createRowInsert(type, name, description, version, group, path, source, hash, hasSource, null);
+  }
+  
+  public static Insert createDuplicateInsert(Project type, String name, String version, String group, boolean hasSource, Integer duplicateOf) {
+    return createRowInsert(type, name,
+            null, // no description
+            version,
+            group,
+            null, // no import state, as nothing is imported
+            null, // no source
+            null, // no hash of its own
+            hasSource,
+            duplicateOf);
+  }
+  
+  private static Insert createRowInsert(Project type, String name, String description, String version, String group, String path, String source, String hash, boolean hasSource, Integer duplicateOf) {
     return TABLE.createInsert(
         PROJECT_TYPE.to(type),
         NAME.to(name),
@@ -91,7 +110,8 @@ public final class ProjectsTable extends DatabaseTable {
         PATH.to(path),
         SOURCE.to(source),
         HASH.to(hash),
-        HAS_SOURCE.to(hasSource));
+        HAS_SOURCE.to(hasSource),
+        DUPLICATE_OF.to(duplicateOf));
   }
   
   public static Insert createPrimitivesInsert() {
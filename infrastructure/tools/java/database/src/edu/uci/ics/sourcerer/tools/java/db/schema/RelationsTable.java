@@ -23,6 +23,7 @@ import edu.uci.ics.sourcerer.tools.java.model.types.RelationClass;
 import edu.uci.ics.sourcerer.utils.db.Insert;
 import edu.uci.ics.sourcerer.utils.db.sql.Column;
 import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+import edu.uci.ics.sourcerer.utils.db.sql.Index;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
@@ -43,25 +44,34 @@ public final class RelationsTable extends DatabaseTable {
    *  | offset         | INT UNSIGNED    | Yes   | No     |
    *  | length         | INT UNSIGNED    | Yes   | No     |
    *  +----------------+-----------------+-------+--------+
+   *  
+   *  Composite indexes:
+   *    (lhs_eid, relation_type) covering rhs_eid
+   *    (rhs_eid, relation_type) covering lhs_eid
+   *    (project_id, relation_type)
    */
   public static final RelationsTable TABLE = new RelationsTable();
   
   public static final Column<Integer> RELATION_ID = TABLE.addSerialColumn("relation_id");
   public static final Column<Relation> RELATION_TYPE = TABLE.addEnumColumn("relation_type", Relation.values(), false).addIndex();
   public static final Column<RelationClass> RELATION_CLASS = TABLE.addEnumColumn("relation_class", RelationClass.values(), false);
-  public static final Column<Integer> LHS_EID = TABLE.addIDColumn("lhs_eid", false).addIndex();
-  public static final Column<Integer> RHS_EID = TABLE.addIDColumn("rhs_eid", false).addIndex();
+  public static final Column<Integer> LHS_EID = TABLE.addIDColumn("lhs_eid", false);
+  public static final Column<Integer> RHS_EID = TABLE.addIDColumn("rhs_eid", false);
   public static final Column<Integer> PROJECT_ID = TABLE.addIDColumn("project_id", false).addIndex();
   public static final Column<Integer> FILE_ID = TABLE.addIDColumn("file_id", true).addIndex();
   public static final Column<Integer> OFFSET = TABLE.addIntColumn("offset", true, true);
   public static final Column<Integer> LENGTH = TABLE.addIntColumn("length", true, true);
+  
+  public static final Index LHS_EID_RELATION_TYPE = TABLE.addIndex(LHS_EID, RELATION_TYPE).covering(RHS_EID);
+  public static final Index RHS_EID_RELATION_TYPE = TABLE.addIndex(RHS_EID, RELATION_TYPE).covering(LHS_EID);
+  public static final Index PROJECT_ID_RELATION_TYPE = TABLE.addIndex(PROJECT_ID, RELATION_TYPE);
  
   private RelationsTable() {
     super("relations");
   }
   
   // ---- INSERT ----
-  private static Insert makeInsert(Relation type, RelationClass klass, Integer lhsEid, Integer rhsEid, Integer projectID, Integer fileID, Integer offset, Integer length) {
+  public static Insert makeInsert(Relation type, RelationClass klass, Integer lhsEid, Integer rhsEid, Integer projectID, Integer fileID, Integer offset, Integer length) {
     return TABLE.createInsert(
         RELATION_TYPE.to(type),
         RELATION_CLASS.to(klass),
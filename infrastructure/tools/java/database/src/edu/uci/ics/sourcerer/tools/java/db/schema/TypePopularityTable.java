@@ -0,0 +1,56 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.db.schema;
+
+import edu.uci.ics.sourcerer.utils.db.Insert;
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+import edu.uci.ics.sourcerer.utils.db.sql.StringColumn;
+
+/**
+ * Staging table for the bulk type popularity update.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class TypePopularityTable extends DatabaseTable {
+  /*  
+   *                 type_popularity table
+   *  +---------------+-----------------+-------+--------+
+   *  | Column name   | Type            | Null? | Index? |
+   *  +---------------+-----------------+-------+--------+
+   *  | fqn_hash      | INT             | No    | Yes    |
+   *  | fqn           | VARCHAR(8192)   | No    | No     |
+   *  | import_count  | INT UNSIGNED    | No    | No     |
+   *  +---------------+-----------------+-------+--------+
+   */
+  
+  public static final TypePopularityTable TABLE = new TypePopularityTable();
+  
+  public static final Column<Integer> FQN_HASH = TABLE.addIntColumn("fqn_hash", false, false).addIndex();
+  public static final StringColumn FQN = TABLE.addVarcharColumn("fqn", 8192, false);
+  public static final Column<Integer> IMPORT_COUNT = TABLE.addIntColumn("import_count", true, false);
+  
+  private TypePopularityTable() {
+    super("type_popularity");
+  }
+  
+  // ---- INSERT ----
+  public static Insert createInsert(String fqn, Integer importCount) {
+    return TABLE.createInsert(FQN_HASH.to(TypesTable.hashFqn(fqn)), FQN.to(fqn), IMPORT_COUNT.to(importCount));
+  }
+}
@@ -17,6 +17,9 @@
  */
 package edu.uci.ics.sourcerer.tools.java.db.schema;
 
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
 import edu.uci.ics.sourcerer.tools.java.model.types.Type;
 import edu.uci.ics.sourcerer.utils.db.Insert;
 import edu.uci.ics.sourcerer.utils.db.sql.Column;
@@ -36,6 +39,8 @@ public class TypesTable extends DatabaseTable {
    *  | type          | ENUM(values)    | No    | No     |
    *  | fqn           | VARCHAR(8192)   | No    | Yes    |
    *  | component_id  | BIGINT UNSIGNED | No    | Yes    |
+   *  | fqn_hash      | INT             | No    | Yes    |
+   *  | import_count  | INT UNSIGNED    | Yes   | No     |
    *  +---------------+-----------------+-------+--------+
    */
   
@@ -45,6 +50,8 @@ public class TypesTable extends DatabaseTable {
   public static final Column<Type> TYPE = TABLE.addEnumColumn("type", Type.values(), false);
   public static final StringColumn FQN = TABLE.addVarcharColumn("fqn", 8192, false).addIndex(48);
   public static final Column<Integer> COMPONENT_ID = TABLE.addIDColumn("component_id", false).addIndex();
+  public static final Column<Integer> FQN_HASH = TABLE.addIntColumn("fqn_hash", false, false).addIndex();
+  public static final Column<Integer> IMPORT_COUNT = TABLE.addIntColumn("import_count", true, true);
   
   
   private TypesTable() {
@@ -53,6 +60,16 @@ public class TypesTable extends DatabaseTable {
   
   // ---- INSERT ----
   public static Insert createInsert(Type type, String fqn, Integer componentID) {
-    return TABLE.createInsert(TYPE.to(type), FQN.to(fqn), COMPONENT_ID.to(componentID));
+    return TABLE.createInsert(TYPE.to(type), FQN.to(fqn), COMPONENT_ID.to(componentID), FQN_HASH.to(hashFqn(fqn)), IMPORT_COUNT.to(null));
+  }
+  
+  /**
+   * A non-negative CRC32 of the fqn, so joins on fqn can use an integer
+   * index instead of the 48 character prefix index.
+   */
+  public static int hashFqn(String fqn) {
+    CRC32 crc = new CRC32();
+    crc.update(fqn.getBytes(StandardCharsets.UTF_8));
+    return (int) (crc.getValue() & 0x7FFFFFFF);
   }
 }
@@ -17,9 +17,9 @@
  */
 package edu.uci.ics.sourcerer.tools.java.db.type;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 
 import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
 import edu.uci.ics.sourcerer.tools.java.model.types.Modifiers;
@@ -46,7 +46,7 @@ public class ModeledDeclaredType extends ModeledStructuralEntity {
   
   void addInterface(ModeledEntity iface) {
     if (interfaces.isEmpty()) {
-      interfaces = new LinkedList<>();
+      interfaces = new ArrayList<>(2);
     }
     interfaces.add(iface);
   }
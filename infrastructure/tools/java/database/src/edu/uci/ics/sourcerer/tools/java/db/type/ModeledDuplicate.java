@@ -17,8 +17,8 @@
  */
 package edu.uci.ics.sourcerer.tools.java.db.type;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
 
 import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
 
@@ -30,7 +30,7 @@ public class ModeledDuplicate extends ModeledEntity {
   
   ModeledDuplicate(Integer entityID, String fqn, Entity type, Integer projectID) {
     super(entityID, fqn, type, projectID);
-    matches = new LinkedList<>();
+    matches = new ArrayList<>(2);
   }
 
   void addMatch(ModeledEntity match) {
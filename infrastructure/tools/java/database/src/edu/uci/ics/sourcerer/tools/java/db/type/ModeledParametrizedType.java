@@ -17,8 +17,8 @@
  */
 package edu.uci.ics.sourcerer.tools.java.db.type;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
 import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
@@ -45,7 +45,7 @@ public class ModeledParametrizedType extends ModeledEntity {
   
   void addTypeArgument(ModeledEntity typeArg) {
     if (typeArgs.isEmpty()) {
-      typeArgs = new LinkedList<>();
+      typeArgs = new ArrayList<>(2);
     }
     typeArgs.add(typeArg);
   }
@@ -17,9 +17,9 @@
  */
 package edu.uci.ics.sourcerer.tools.java.db.type;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 
 import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
 import edu.uci.ics.sourcerer.tools.java.model.types.Modifiers;
@@ -32,6 +32,7 @@ public class ModeledStructuralEntity extends ModeledEntity {
   private final Integer fileID;
   private ModeledStructuralEntity owner;
   private Collection<ModeledStructuralEntity> children;
+  private int memberNumber;
   
   ModeledStructuralEntity(Integer entityID, Modifiers mods, String fqn, Entity type, Integer fileID, Integer projectID) {
     super(entityID, fqn, type, projectID);
@@ -58,12 +59,21 @@ public class ModeledStructuralEntity extends ModeledEntity {
   
   final void addChild(ModeledStructuralEntity type) {
     if (children.isEmpty()) {
-      children = new LinkedList<>();
+      children = new ArrayList<>();
     }
+    type.memberNumber = children.size();
     children.add(type);
     type.setOwner(this);
   }
   
+  /**
+   * Position of this entity among its owner's children. Numbers are
+   * dense within each owner, so they can index per-type bitsets.
+   */
+  public final int getMemberNumber() {
+    return memberNumber;
+  }
+  
   public final Collection<? extends ModeledStructuralEntity> getChildren() {
     return children;
   }
@@ -18,19 +18,19 @@
 package edu.uci.ics.sourcerer.tools.java.db.type;
 
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+
+import edu.uci.ics.sourcerer.util.IntHashMap;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class TypeModel {
-  private final Map<Integer, ModeledEntity> entities;
+  private final IntHashMap<ModeledEntity> entities;
   private final TypeModel parentModel;
   
   TypeModel(TypeModel parentModel) {
-    entities = new HashMap<>();
-    this.parentModel = parentModel; 
+    entities = IntHashMap.create();
+    this.parentModel = parentModel;
   }
   
   void add(ModeledEntity entity) {
@@ -38,12 +38,21 @@ public class TypeModel {
   }
   
   public ModeledEntity get(Integer entityID) {
-    ModeledEntity entity = entities.get(entityID);
-    if (entity == null && parentModel != null) {
-      return parentModel.get(entityID);
+    if (entityID == null) {
+      return null;
     } else {
-      return entity;
+      return get(entityID.intValue());
+    }
+  }
+  
+  public ModeledEntity get(int entityID) {
+    for (TypeModel model = this; model != null; model = model.parentModel) {
+      ModeledEntity entity = model.entities.get(entityID);
+      if (entity != null) {
+        return entity;
+      }
     }
+    return null;
   }
   
   public Collection<? extends ModeledEntity> getEntities() {
@@ -21,9 +21,7 @@ import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
 import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 import java.util.regex.Pattern;
 
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntityMetricsTable;
@@ -40,6 +38,7 @@ import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
 import edu.uci.ics.sourcerer.tools.java.model.types.Metric;
 import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
 import edu.uci.ics.sourcerer.util.Averager;
+import edu.uci.ics.sourcerer.util.IntHashMap;
 import edu.uci.ics.sourcerer.util.UniqueChecker;
 import edu.uci.ics.sourcerer.util.UniqueStack;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
@@ -71,14 +70,15 @@ public class AfferentCouplingCalculator extends Calculator {
       task.start("Computing AfferentCoupling");
       Averager<Double> avgCoupling = Averager.create();
       Averager<Double> avgInternalCoupling = Averager.create();
-      Map<ModeledStructuralEntity, Set<ModeledStructuralEntity>> pkgCoupling = new HashMap<>();
+      Map<ModeledStructuralEntity, IntHashMap<ModeledStructuralEntity>> pkgCoupling = new HashMap<>();
       
       task.start("Processing entities", "entities processed", 500);
       for (ModeledEntity entity : model.getEntities()) {
         if (projectID.equals(entity.getProjectID()) && entity.getType().is(Entity.CLASS, Entity.INTERFACE, Entity.ENUM) && !anon.matcher(entity.getFqn()).matches()) {
           ModeledDeclaredType dec = (ModeledDeclaredType) entity;
           
-          Set<ModeledStructuralEntity> referencingTypes = new HashSet<>();
+          // Referencing types keyed by entity id
+          IntHashMap<ModeledStructuralEntity> referencingTypes = IntHashMap.create();
           {
             UniqueStack<ModeledStructuralEntity> stack = UniqueStack.create(true);
             stack.push(dec);
@@ -143,16 +143,18 @@ public class AfferentCouplingCalculator extends Calculator {
           // Add to the pkg
           ModeledStructuralEntity pkg = dec.getOwner();
           if (pkg.getType() == Entity.PACKAGE) {
-            Set<ModeledStructuralEntity> pkgReferencingTypes = pkgCoupling.get(pkg);
+            IntHashMap<ModeledStructuralEntity> pkgReferencingTypes = pkgCoupling.get(pkg);
             if (pkgReferencingTypes == null) {
-              pkgReferencingTypes = new HashSet<>();
+              pkgReferencingTypes = IntHashMap.create();
               pkgCoupling.put(pkg, pkgReferencingTypes);
             }
-            pkgReferencingTypes.addAll(referencingTypes);
+            for (ModeledStructuralEntity referencingType : referencingTypes.values()) {
+              pkgReferencingTypes.put(referencingType.getEntityID(), referencingType);
+            }
           }
           
           int internalReferencingTypes = 0;
-          for (ModeledEntity using : referencingTypes) {
+          for (ModeledEntity using : referencingTypes.values()) {
             if (projectID.equals(using.getProjectID())) {
               internalReferencingTypes++;
             }
@@ -187,10 +189,10 @@ public class AfferentCouplingCalculator extends Calculator {
         exec.insert(ProjectMetricsTable.createInsert(projectID, Metric.AFFERENT_COUPLING_INTERNAL, avgInternalCoupling));
       }
       
-      for (Map.Entry<ModeledStructuralEntity, Set<ModeledStructuralEntity>> entry : pkgCoupling.entrySet()) {
+      for (Map.Entry<ModeledStructuralEntity, IntHashMap<ModeledStructuralEntity>> entry : pkgCoupling.entrySet()) {
         ModeledStructuralEntity pkg = entry.getKey();
         int internalReferencingTypes = 0;
-        for (ModeledEntity referencingType : entry.getValue()) {
+        for (ModeledEntity referencingType : entry.getValue().values()) {
           if (projectID.equals(referencingType.getEntityID())) {
             internalReferencingTypes++;
           }
@@ -212,12 +214,12 @@ public class AfferentCouplingCalculator extends Calculator {
     }
   }
   
-  private void add(Set<ModeledStructuralEntity> set, ModeledEntity entity) {
+  private void add(IntHashMap<ModeledStructuralEntity> set, ModeledEntity entity) {
     if (entity != null) {
       if (entity instanceof ModeledStructuralEntity) {
         ModeledStructuralEntity struct = (ModeledStructuralEntity) entity;
         if (struct.getType().is(Entity.CLASS, Entity.ENUM, Entity.INTERFACE, Entity.ANNOTATION)) {
-          set.add((ModeledDeclaredType) struct);
+          set.put(struct.getEntityID(), struct);
         } else {
           UniqueChecker<ModeledEntity> checker = UniqueChecker.create(true);
           while (!struct.getType().is(Entity.CLASS, Entity.ENUM, Entity.INTERFACE, Entity.ANNOTATION)) {
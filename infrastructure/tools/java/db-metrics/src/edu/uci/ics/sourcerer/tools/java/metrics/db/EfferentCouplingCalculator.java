@@ -22,10 +22,8 @@ import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 import java.util.Deque;
 import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Map;
-import java.util.Set;
 import java.util.regex.Pattern;
 
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntityMetricsTable;
@@ -42,6 +40,7 @@ import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
 import edu.uci.ics.sourcerer.tools.java.model.types.Metric;
 import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
 import edu.uci.ics.sourcerer.util.Averager;
+import edu.uci.ics.sourcerer.util.IntHashMap;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
 import edu.uci.ics.sourcerer.utils.db.sql.ConstantCondition;
@@ -71,13 +70,14 @@ public class EfferentCouplingCalculator extends Calculator {
       task.start("Computing EfferentCoupling");
       Averager<Double> avgCoupling = Averager.create();
       Averager<Double> avgInternalCoupling = Averager.create();
-      Map<ModeledStructuralEntity, Set<ModeledEntity>> pkgCoupling = new HashMap<>();
+      Map<ModeledStructuralEntity, IntHashMap<ModeledEntity>> pkgCoupling = new HashMap<>();
       
       task.start("Processing entities", "entities processed");
       for (ModeledEntity entity : model.getEntities()) {
         if (projectID.equals(entity.getProjectID()) && entity.getType().is(Entity.CLASS, Entity.ENUM, Entity.INTERFACE) && !anon.matcher(entity.getFqn()).matches()) {
           ModeledDeclaredType dec = (ModeledDeclaredType) entity;
-          Set<ModeledEntity> referencedTypes = new HashSet<>();
+          // Referenced types keyed by entity id
+          IntHashMap<ModeledEntity> referencedTypes = IntHashMap.create();
           
           Deque<ModeledStructuralEntity> stack = new LinkedList<>();
           stack.push(dec);
@@ -112,16 +112,18 @@ public class EfferentCouplingCalculator extends Calculator {
           // Add to the pkg
           ModeledStructuralEntity pkg = dec.getOwner();
           if (pkg.getType() == Entity.PACKAGE) {
-            Set<ModeledEntity> pkgReferencedTypes = pkgCoupling.get(pkg);
+            IntHashMap<ModeledEntity> pkgReferencedTypes = pkgCoupling.get(pkg);
             if (pkgReferencedTypes == null) {
-              pkgReferencedTypes = new HashSet<>();
+              pkgReferencedTypes = IntHashMap.create();
               pkgCoupling.put(pkg, pkgReferencedTypes);
             }
-            pkgReferencedTypes.addAll(referencedTypes);
+            for (ModeledEntity referencedType : referencedTypes.values()) {
+              pkgReferencedTypes.put(referencedType.getEntityID(), referencedType);
+            }
           }
           
           int internalReferencedTypes = 0;
-          for (ModeledEntity used : referencedTypes) {
+          for (ModeledEntity used : referencedTypes.values()) {
             if (projectID.equals(used.getProjectID())) {
               internalReferencedTypes++;
             }
@@ -156,10 +158,10 @@ public class EfferentCouplingCalculator extends Calculator {
         exec.insert(ProjectMetricsTable.createInsert(projectID, Metric.EFFERENT_COUPLING_INTERNAL, avgInternalCoupling));
       }
 
-      for (Map.Entry<ModeledStructuralEntity, Set<ModeledEntity>> entry : pkgCoupling.entrySet()) {
+      for (Map.Entry<ModeledStructuralEntity, IntHashMap<ModeledEntity>> entry : pkgCoupling.entrySet()) {
         ModeledStructuralEntity pkg = entry.getKey();
         int internalReferencedTypes = 0;
-        for (ModeledEntity referencedType : entry.getValue()) {
+        for (ModeledEntity referencedType : entry.getValue().values()) {
           if (projectID.equals(referencedType.getEntityID())) {
             internalReferencedTypes++;
           }
@@ -180,21 +182,25 @@ public class EfferentCouplingCalculator extends Calculator {
     }
   }
   
-  private void add(Set<ModeledEntity> set, ModeledEntity entity) {
+  private void add(IntHashMap<ModeledEntity> set, ModeledEntity entity) {
     if (entity != null) {
       if (entity.getType().is(Entity.CLASS, Entity.INTERFACE, Entity.ENUM, Entity.ANNOTATION)) {
-        set.add(entity);
+        set.put(entity.getEntityID(), entity);
       } else if (entity.getType().is(Entity.CONSTRUCTOR, Entity.METHOD, Entity.FIELD, Entity.ENUM_CONSTANT)) {
         add(set, ((ModeledStructuralEntity) entity).getOwner());
       } else if (entity.getType() == Entity.PARAMETERIZED_TYPE) {
         ModeledParametrizedType pEntity = (ModeledParametrizedType) entity;
-        set.add(pEntity.getBaseType());
+        if (pEntity.getBaseType() != null) {
+          set.put(pEntity.getBaseType().getEntityID(), pEntity.getBaseType());
+        }
         for (ModeledEntity ent : pEntity.getTypeArgs()) {
           add(set, ent);
         }
       } else if (entity.getType() == Entity.ARRAY) {
         ModeledArrayType aEntity = (ModeledArrayType) entity;
-        set.add(aEntity.getElementType());
+        if (aEntity.getElementType() != null) {
+          set.put(aEntity.getElementType().getEntityID(), aEntity.getElementType());
+        }
       }
     }
   }
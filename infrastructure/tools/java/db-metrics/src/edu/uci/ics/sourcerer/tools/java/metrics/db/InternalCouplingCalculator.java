@@ -21,9 +21,7 @@ import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
 import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 import java.util.regex.Pattern;
 
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntityMetricsTable;
@@ -41,6 +39,7 @@ import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
 import edu.uci.ics.sourcerer.tools.java.model.types.Metric;
 import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
 import edu.uci.ics.sourcerer.util.Averager;
+import edu.uci.ics.sourcerer.util.IntHashSet;
 import edu.uci.ics.sourcerer.util.UniqueChecker;
 import edu.uci.ics.sourcerer.util.UniqueStack;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
@@ -64,11 +63,12 @@ public class InternalCouplingCalculator extends Calculator {
     Pattern anon = Pattern.compile(".*\\$\\d+$"); 
 
     task.start("Computing internal coupling");
-    Map<ModeledDeclaredType, Set<ModeledDeclaredType>> affMap = new HashMap<>();
-    Map<ModeledStructuralEntity, Set<ModeledDeclaredType>> pkgAffMap = new HashMap<>();
+    // Only the sizes of the coupled type sets are needed, so they hold entity ids
+    Map<ModeledDeclaredType, IntHashSet> affMap = new HashMap<>();
+    Map<ModeledStructuralEntity, IntHashSet> pkgAffMap = new HashMap<>();
     
-    Map<ModeledDeclaredType, Set<ModeledDeclaredType>> effMap = new HashMap<>();
-    Map<ModeledStructuralEntity, Set<ModeledDeclaredType>> pkgEffMap = new HashMap<>();
+    Map<ModeledDeclaredType, IntHashSet> effMap = new HashMap<>();
+    Map<ModeledStructuralEntity, IntHashSet> pkgEffMap = new HashMap<>();
 
     
     try (SelectQuery select = exec.createSelectQuery(RelationsTable.TABLE)) {
@@ -100,17 +100,17 @@ public class InternalCouplingCalculator extends Calculator {
             if (next instanceof ModeledStructuralEntity) {
               if (next.getType() == Entity.PACKAGE) {
                 ModeledStructuralEntity pkg = (ModeledStructuralEntity) next;
-                Set<ModeledDeclaredType> referencedTypes = pkgEffMap.get(pkg);
+                IntHashSet referencedTypes = pkgEffMap.get(pkg);
                 if (referencedTypes == null) {
-                  referencedTypes = new HashSet<>();
+                  referencedTypes = IntHashSet.create();
                   pkgEffMap.put(pkg, referencedTypes);
                 }
                 addEff(referencedTypes, projectID, rhs);  
               } else if (next.getType().is(Entity.CLASS, Entity.INTERFACE, Entity.ENUM) && !anon.matcher(next.getFqn()).matches()) {
                 ModeledDeclaredType dec = (ModeledDeclaredType) next;
-                Set<ModeledDeclaredType> referencedTypes = effMap.get(dec);
+                IntHashSet referencedTypes = effMap.get(dec);
                 if (referencedTypes == null) {
-                  referencedTypes = new HashSet<>();
+                  referencedTypes = IntHashSet.create();
                   effMap.put(dec, referencedTypes);
                 }
                 addEff(referencedTypes, projectID, rhs);
@@ -133,9 +133,9 @@ public class InternalCouplingCalculator extends Calculator {
             if (projectID.equals(next.getProjectID())) {
               if (next.getType() == Entity.PACKAGE) {
                 ModeledStructuralEntity pkg = (ModeledStructuralEntity) next;
-                Set<ModeledDeclaredType> referencingTypes = pkgAffMap.get(pkg);
+                IntHashSet referencingTypes = pkgAffMap.get(pkg);
                 if (referencingTypes == null) {
-                  referencingTypes = new HashSet<>();
+                  referencingTypes = IntHashSet.create();
                   pkgAffMap.put(pkg, referencingTypes);
                 }
                 addAff(referencingTypes, lhs);
@@ -149,9 +149,9 @@ public class InternalCouplingCalculator extends Calculator {
               } else if (next.getType().is(Entity.CLASS, Entity.INTERFACE, Entity.ENUM)) {
                 ModeledDeclaredType dec = (ModeledDeclaredType) next;
                 if (!anon.matcher(next.getFqn()).matches()) {
-                  Set<ModeledDeclaredType> referencingTypes = affMap.get(dec);
+                  IntHashSet referencingTypes = affMap.get(dec);
                   if (referencingTypes == null) {
-                    referencingTypes = new HashSet<>();
+                    referencingTypes = IntHashSet.create();
                     affMap.put(dec, referencingTypes);
                   }
                   addAff(referencingTypes, lhs);
@@ -181,7 +181,7 @@ public class InternalCouplingCalculator extends Calculator {
     Averager<Double> avgInternalEffCoupling = Averager.create();
     Averager<Double> avgInternalAffCoupling = Averager.create();
     // Add the eff entity metrics
-    for (Map.Entry<ModeledDeclaredType, Set<ModeledDeclaredType>> entry : effMap.entrySet()) {
+    for (Map.Entry<ModeledDeclaredType, IntHashSet> entry : effMap.entrySet()) {
       ModeledDeclaredType entity = entry.getKey();
       Double internalCoupling = (double) entry.getValue().size();
       
@@ -192,7 +192,7 @@ public class InternalCouplingCalculator extends Calculator {
       avgInternalEffCoupling.addValue(internalCoupling);
     }
     // Add the aff entity metrics
-    for (Map.Entry<ModeledDeclaredType, Set<ModeledDeclaredType>> entry : affMap.entrySet()) {
+    for (Map.Entry<ModeledDeclaredType, IntHashSet> entry : affMap.entrySet()) {
       ModeledDeclaredType entity = entry.getKey();
       Double internalCoupling = (double) entry.getValue().size();
       
@@ -204,7 +204,7 @@ public class InternalCouplingCalculator extends Calculator {
     }
 
     // Add the eff pkg metrics
-    for (Map.Entry<ModeledStructuralEntity, Set<ModeledDeclaredType>> entry : pkgEffMap.entrySet()) {
+    for (Map.Entry<ModeledStructuralEntity, IntHashSet> entry : pkgEffMap.entrySet()) {
       ModeledStructuralEntity pkg = entry.getKey();
       Double internalCoupling = (double) entry.getValue().size();
       
@@ -215,7 +215,7 @@ public class InternalCouplingCalculator extends Calculator {
     }
     
     // Add the aff pkg metrics
-    for (Map.Entry<ModeledStructuralEntity, Set<ModeledDeclaredType>> entry : pkgAffMap.entrySet()) {
+    for (Map.Entry<ModeledStructuralEntity, IntHashSet> entry : pkgAffMap.entrySet()) {
       ModeledStructuralEntity pkg = entry.getKey();
       Double internalCoupling = (double) entry.getValue().size();
       
@@ -241,11 +241,11 @@ public class InternalCouplingCalculator extends Calculator {
     task.finish();
   }
   
-  private void addEff(Set<ModeledDeclaredType> set, Integer projectID, ModeledEntity entity) {
+  private void addEff(IntHashSet set, Integer projectID, ModeledEntity entity) {
     if (entity != null && projectID.equals(entity.getProjectID())) {
       if (entity instanceof ModeledStructuralEntity) {
         if (entity.getType().is(Entity.CLASS, Entity.INTERFACE, Entity.ENUM, Entity.ANNOTATION)) {
-          set.add((ModeledDeclaredType) entity);
+          set.add(entity.getEntityID());
         } else {
           ModeledStructuralEntity struct = (ModeledStructuralEntity) entity;
           UniqueChecker<ModeledEntity> checker = UniqueChecker.create(true);
@@ -261,11 +261,13 @@ public class InternalCouplingCalculator extends Calculator {
               return;
             }
           }
-          set.add((ModeledDeclaredType) struct);
+          set.add(struct.getEntityID());
         }
       } else if (entity.getType() == Entity.PARAMETERIZED_TYPE) {
         ModeledParametrizedType pEntity = (ModeledParametrizedType) entity;
-        set.add(pEntity.getBaseType());
+        if (pEntity.getBaseType() != null) {
+          set.add(pEntity.getBaseType().getEntityID());
+        }
         for (ModeledEntity ent : pEntity.getTypeArgs()) {
           addEff(set, projectID, ent);
         }
@@ -285,14 +287,14 @@ public class InternalCouplingCalculator extends Calculator {
     }
   }
   
-  private void addAff(Set<ModeledDeclaredType> set, ModeledEntity entity) {
+  private void addAff(IntHashSet set, ModeledEntity entity) {
     if (entity != null) {
       if (entity instanceof ModeledStructuralEntity) {
         ModeledStructuralEntity struct = (ModeledStructuralEntity) entity;
         if (struct.getType() == Entity.PACKAGE) {
           // ignore
         } else if (struct.getType().is(Entity.CLASS, Entity.ENUM, Entity.INTERFACE, Entity.ANNOTATION)) {
-          set.add((ModeledDeclaredType) struct);
+          set.add(struct.getEntityID());
         } else {
           UniqueChecker<ModeledEntity> checker = UniqueChecker.create(true);
           while (!struct.getType().is(Entity.CLASS, Entity.ENUM, Entity.INTERFACE, Entity.ANNOTATION)) {
@@ -307,7 +309,7 @@ public class InternalCouplingCalculator extends Calculator {
               return;
             }
           }
-          set.add((ModeledDeclaredType) struct);
+          set.add(struct.getEntityID());
         } 
       } else {
         logger.severe("Unexpected entity type: " + entity);
@@ -20,14 +20,9 @@ package edu.uci.ics.sourcerer.tools.java.metrics.db;
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.Set;
 import java.util.regex.Pattern;
 
 import edu.uci.ics.sourcerer.tools.java.db.schema.EntityMetricsTable;
@@ -45,6 +40,7 @@ import edu.uci.ics.sourcerer.tools.java.model.types.Metric;
 import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
 import edu.uci.ics.sourcerer.tools.java.model.types.RelationClass;
 import edu.uci.ics.sourcerer.util.Averager;
+import edu.uci.ics.sourcerer.util.IntHashMap;
 import edu.uci.ics.sourcerer.util.UniqueStack;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
@@ -55,6 +51,8 @@ import edu.uci.ics.sourcerer.utils.db.sql.TypedQueryResult;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class LackOfCohesionCalculator extends Calculator {
+  private static final BitSet EMPTY = new BitSet(0);
+  
   @Override
   public boolean shouldCalculate(ProjectMetricModel metrics) {
     return metrics.missingValue(Metric.LACK_OF_COHESION_F, Metric.LACK_OF_COHESION_FM);
@@ -67,8 +65,9 @@ public class LackOfCohesionCalculator extends Calculator {
     Pattern anon = Pattern.compile(".*\\$\\d+$");
     
     task.start("Computing lack of cohesion");
-    Map<ModeledStructuralEntity, Set<ModeledStructuralEntity>> fieldMap = new HashMap<>();
-    Map<ModeledStructuralEntity, Set<ModeledMethod>> methodMap = new HashMap<>();
+    // Field and method sets are keyed by entity id, and are bitsets over the member numbers of the owning type
+    IntHashMap<BitSet> fieldMap = IntHashMap.create();
+    IntHashMap<BitSet> methodMap = IntHashMap.create();
     
     try (SelectQuery select = exec.createSelectQuery(RelationsTable.TABLE)) {
       select.addSelect(RelationsTable.LHS_EID, RelationsTable.RHS_EID);
@@ -124,31 +123,33 @@ public class LackOfCohesionCalculator extends Calculator {
             children.add((ModeledStructuralEntity) child);
           }
         }
-        Collection<Set<ModeledStructuralEntity>> clusters = new LinkedList<>();
+        Collection<BitSet> clusters = new ArrayList<>();
         int locf = 0;
         int locfm = 0;
         for (int i = 0; i < children.size(); i++) {
-          Set<ModeledStructuralEntity> fieldSetA = fieldMap.get(children.get(i));
+          int childA = children.get(i).getEntityID();
+          BitSet fieldSetA = fieldMap.get(childA);
           if (fieldSetA == null) {
-            fieldSetA = Collections.emptySet();
+            fieldSetA = EMPTY;
           }
-          Set<ModeledMethod> methodSetA = methodMap.get(children.get(i));
-          if (methodSetA== null) {
-            methodSetA = Collections.emptySet();
+          BitSet methodSetA = methodMap.get(childA);
+          if (methodSetA == null) {
+            methodSetA = EMPTY;
           }
           
           for (int j = i + 1; j < children.size(); j++) {
-            Set<ModeledStructuralEntity> fieldSetB = fieldMap.get(children.get(j));
+            int childB = children.get(j).getEntityID();
+            BitSet fieldSetB = fieldMap.get(childB);
             if (fieldSetB == null) {
-              fieldSetB = Collections.emptySet();
+              fieldSetB = EMPTY;
             }
-            Set<ModeledMethod> methodSetB = methodMap.get(children.get(j));
+            BitSet methodSetB = methodMap.get(childB);
             if (methodSetB == null) {
-              methodSetB = Collections.emptySet();
+              methodSetB = EMPTY;
             }
-            if (Collections.disjoint(fieldSetA, fieldSetB)) {
+            if (!fieldSetA.intersects(fieldSetB)) {
               locf++;
-              if (Collections.disjoint(methodSetA, methodSetB)) {
+              if (!methodSetA.intersects(methodSetB)) {
                 locfm++;
               } else {
                 locfm--;
@@ -162,17 +163,17 @@ public class LackOfCohesionCalculator extends Calculator {
           locfm = locfm < 0 ? 0 : locfm;
           
           boolean found = false;
-          for (Set<ModeledStructuralEntity> cluster : clusters) {
-            if (!Collections.disjoint(fieldSetA, cluster) || !Collections.disjoint(methodSetA, cluster)) {
-              cluster.addAll(fieldSetA);
-              cluster.addAll(methodSetA);
+          for (BitSet cluster : clusters) {
+            if (fieldSetA.intersects(cluster) || methodSetA.intersects(cluster)) {
+              cluster.or(fieldSetA);
+              cluster.or(methodSetA);
               found = true;
             }
           }
           if (!found) {
-            Set<ModeledStructuralEntity> cluster = new HashSet<>();
-            cluster.addAll(fieldSetA);
-            cluster.addAll(methodSetA);
+            BitSet cluster = new BitSet();
+            cluster.or(fieldSetA);
+            cluster.or(methodSetA);
             clusters.add(cluster);
           }
         }
@@ -217,28 +218,32 @@ public class LackOfCohesionCalculator extends Calculator {
     task.finish();
   }
   
-  private void add(Map<ModeledStructuralEntity, Set<ModeledStructuralEntity>> fieldMap, Map<ModeledStructuralEntity, Set<ModeledMethod>> methodMap, ModeledStructuralEntity entity, ModeledEntity target) {
+  /**
+   * Fields and methods are only compared within their owner, so their
+   * member numbers are dense enough to index the sets directly.
+   */
+  private void add(IntHashMap<BitSet> fieldMap, IntHashMap<BitSet> methodMap, ModeledStructuralEntity entity, ModeledEntity target) {
     if (target.getType() == Entity.FIELD) {
-      Set<ModeledStructuralEntity> fields = fieldMap.get(entity);
+      BitSet fields = fieldMap.get(entity.getEntityID());
       if (fields == null) {
-        fields = new HashSet<>();
-        fieldMap.put(entity, fields);
+        fields = new BitSet();
+        fieldMap.put(entity.getEntityID(), fields);
       }
       // match the owner to the field
       ModeledStructuralEntity field = (ModeledStructuralEntity) target;
       if (entity.getOwner() == field.getOwner()) {
-        fields.add(field);
+        fields.set(field.getMemberNumber());
       }
     } else if (target.getType() == Entity.METHOD) {
-      Set<ModeledMethod> methods = methodMap.get(entity);
+      BitSet methods = methodMap.get(entity.getEntityID());
       if (methods == null) {
-        methods = new HashSet<>();
-        methodMap.put(entity, methods);
+        methods = new BitSet();
+        methodMap.put(entity.getEntityID(), methods);
       }
       // match the owner to the method
       ModeledMethod method = (ModeledMethod) target;
       if (entity.getOwner() == method.getOwner()) {
-        methods.add(method);
+        methods.set(method.getMemberNumber());
       }
     } else if (target.getType().is(Entity.CONSTRUCTOR, Entity.ENUM_CONSTANT, Entity.UNKNOWN)) {
       // Ignore
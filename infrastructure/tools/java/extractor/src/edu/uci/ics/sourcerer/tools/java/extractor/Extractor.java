@@ -148,7 +148,11 @@ public final class Extractor {
     for (JarFile jar : jars) {
       task.progress("Extracting " + jar + " (%d of " + jars.size() + ")");
       ModifiableExtractedJarFile extractedJar = extracted.getMatchingJarFile(jar);
-      if (Boolean.TRUE.equals(extractedJar.getProperties().EXTRACTED.getValue())) {
+      String original = extractedJar.getProperties().DUPLICATE_OF.getValue();
+      if (original != null) {
+        task.report("Identical to " + original + ", sharing its extraction");
+        continue;
+      } else if (Boolean.TRUE.equals(extractedJar.getProperties().EXTRACTED.getValue())) {
         if (FORCE_REDO.getValue()) {
           extractedJar.reset(jar);
         } else {
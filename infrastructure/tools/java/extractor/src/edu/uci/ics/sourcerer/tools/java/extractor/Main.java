@@ -23,6 +23,7 @@ import org.eclipse.equinox.app.IApplicationContext;
 import edu.uci.ics.sourcerer.tools.java.extractor.Extractor.ExtractionMethod;
 import edu.uci.ics.sourcerer.tools.java.extractor.Extractor.JarType;
 import edu.uci.ics.sourcerer.tools.java.extractor.eclipse.EclipseUtils;
+import edu.uci.ics.sourcerer.tools.java.extractor.eclipse.ExtractionBenchmark;
 import edu.uci.ics.sourcerer.tools.java.extractor.misc.UtilizationFilter;
 import edu.uci.ics.sourcerer.tools.java.extractor.missing.MissingTypeIdentifier;
 import edu.uci.ics.sourcerer.tools.java.model.extracted.io.FindBugsRunner;
@@ -179,6 +180,13 @@ public class Main implements IApplication {
       }
     }.setProperties(JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO, Extractor.FORCE_REDO, Extractor.COMPRESS_OUTPUT);       
   		  
+  public static final Command BENCHMARK_EXTRACTION =
+    new Command("benchmark-extraction", "Time the extraction of a source directory with and without the fqn cache.") {
+      protected void action() {
+        ExtractionBenchmark.benchmark();
+      }
+    }.setProperties(ExtractionBenchmark.BENCHMARK_SOURCE, ExtractionBenchmark.BENCHMARK_CLASSPATH, ExtractionBenchmark.BENCHMARK_PASSES);
+    
   public static final Command CREATE_JAR_FILTER =
       new Command("create-jar-filter", "Create jar filter") {
         protected void action() {
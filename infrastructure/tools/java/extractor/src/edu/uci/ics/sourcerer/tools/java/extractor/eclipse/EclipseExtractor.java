@@ -224,6 +224,9 @@ public class EclipseExtractor implements Closeable {
         }
       }
     }
+    if (oneWithSource) {
+      task.report(visitor.getFqnCache().toString());
+    }
     task.finish();
     return oneWithSource;
   }
@@ -266,6 +269,7 @@ public class EclipseExtractor implements Closeable {
       
       task.progress();
     }
+    task.report(visitor.getFqnCache().toString());
     task.finish();
   }
   
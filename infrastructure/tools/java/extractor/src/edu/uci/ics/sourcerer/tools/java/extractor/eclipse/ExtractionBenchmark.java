@@ -0,0 +1,206 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.extractor.eclipse;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.WriterBundle;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.FileArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+import edu.uci.ics.sourcerer.util.io.metrics.Instrumentation;
+import edu.uci.ics.sourcerer.util.io.metrics.LatencyHistogram;
+import edu.uci.ics.sourcerer.util.io.metrics.Meter;
+
+/**
+ * Extracts a directory of source files repeatedly, alternating between
+ * runs with and without the {@link FqnCache}, and reports the time spent
+ * in the visitor for each.
+ * <p>
+ * The files are parsed once, outside of the Java model, against the
+ * running VM's libraries and the given classpath. Only the visitor is
+ * timed, so the difference between the two is the cost of computing
+ * fqns from bindings.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class ExtractionBenchmark {
+  public static final Argument<File> BENCHMARK_SOURCE = new FileArgument("benchmark-source", "Directory of Java source files to extract.");
+  public static final Argument<String> BENCHMARK_CLASSPATH = new StringArgument("benchmark-classpath", "", "List of jars the source files depend on, separated by the path separator.");
+  public static final Argument<Integer> BENCHMARK_PASSES = new IntegerArgument("benchmark-passes", 5, "Number of times the files are extracted with and without the cache. The first pass warms up and is not recorded.");
+  
+  private ExtractionBenchmark() {}
+  
+  static class ParsedUnit {
+    private final String name;
+    private final String source;
+    private final CompilationUnit unit;
+    
+    private ParsedUnit(String name, String source, CompilationUnit unit) {
+      this.name = name;
+      this.source = source;
+      this.unit = unit;
+    }
+  }
+  
+  public static void benchmark() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Benchmarking extraction with and without the fqn cache");
+    
+    Instrumentation.enable();
+    String classpath = BENCHMARK_CLASSPATH.getValue();
+    List<ParsedUnit> units = parse(BENCHMARK_SOURCE.getValue(), classpath.isEmpty() ? new String[0] : classpath.split(File.pathSeparator));
+    if (units.isEmpty()) {
+      task.report("No source files to benchmark against");
+      task.finish();
+      return;
+    }
+    
+    int passes = BENCHMARK_PASSES.getValue();
+    int cacheSize = FqnCache.FQN_CACHE_SIZE.getValue();
+    LatencyHistogram without = Instrumentation.histogram("extractor.benchmark.without_fqn_cache");
+    LatencyHistogram with = Instrumentation.histogram("extractor.benchmark.with_fqn_cache");
+    Meter hits = Instrumentation.meter("extractor.fqn_cache.hits");
+    Meter misses = Instrumentation.meter("extractor.fqn_cache.misses");
+    long hitCount = 0;
+    long missCount = 0;
+    for (int pass = 0; pass < passes; pass++) {
+      task.start("Pass " + pass + (pass == 0 ? " (warm up)" : ""));
+      extract(units, new WriterBundle(), new FqnCache(false, cacheSize), pass == 0 ? null : without);
+      long startHits = hits.getCount();
+      long startMisses = misses.getCount();
+      FqnCache cache = new FqnCache(true, cacheSize);
+      extract(units, new WriterBundle(), cache, pass == 0 ? null : with);
+      if (pass > 0) {
+        hitCount += hits.getCount() - startHits;
+        missCount += misses.getCount() - startMisses;
+      }
+      task.report(cache.toString());
+      task.finish();
+    }
+    
+    report(task, without);
+    report(task, with);
+    if (without.getCount() > 0) {
+      long lookups = hitCount + missCount;
+      task.report(String.format("%.1f%% less time in the visitor with the cache, %.1f%% hit rate",
+          100 * (1 - with.getMean() / without.getMean()), lookups == 0 ? 0 : 100. * hitCount / lookups));
+    }
+    task.finish();
+  }
+  
+  /**
+   * Parses every source file in the directory as a single batch, so that
+   * binding keys are shared across the files, as they are in a project.
+   */
+  static List<ParsedUnit> parse(File dir, String[] classpath) {
+    final TaskProgressLogger task = TaskProgressLogger.get();
+    
+    Collection<String> paths = new ArrayList<>();
+    collectSourceFiles(dir, paths);
+    task.start("Parsing " + paths.size() + " source files", "source files parsed", 500);
+    
+    ASTParser parser = ASTParser.newParser(AST.JLS8);
+    parser.setKind(ASTParser.K_COMPILATION_UNIT);
+    parser.setStatementsRecovery(true);
+    parser.setResolveBindings(true);
+    parser.setBindingsRecovery(true);
+    Map<String, String> options = JavaCore.getOptions();
+    JavaCore.setComplianceOptions("1.7", options);
+    parser.setCompilerOptions(options);
+    parser.setEnvironment(classpath, new String[] { dir.getPath() }, null, true);
+    
+    final List<ParsedUnit> units = new ArrayList<>();
+    parser.createASTs(paths.toArray(new String[paths.size()]), null, new String[0], new FileASTRequestor() {
+      @Override
+      public void acceptAST(String path, CompilationUnit unit) {
+        byte[] source = FileUtils.getFileAsByteArray(new File(path));
+        if (source == null) {
+          logger.log(Level.SEVERE, "Unable to read " + path);
+        } else {
+          units.add(new ParsedUnit(new File(path).getName(), new String(source), unit));
+        }
+        task.progress();
+      }
+    }, null);
+    task.finish();
+    return units;
+  }
+  
+  private static void collectSourceFiles(File dir, Collection<String> paths) {
+    File[] children = dir.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        if (child.isDirectory()) {
+          collectSourceFiles(child, paths);
+        } else if (child.getName().endsWith(".java")) {
+          paths.add(child.getPath());
+        }
+      }
+    }
+  }
+  
+  /**
+   * Runs every unit through one visitor, recording the time taken for
+   * each unit in the histogram, if there is one.
+   */
+  static void extract(List<ParsedUnit> units, WriterBundle writers, FqnCache cache, LatencyHistogram histogram) {
+    ReferenceExtractorVisitor visitor = new ReferenceExtractorVisitor(writers, cache);
+    for (ParsedUnit unit : units) {
+      visitor.setCompilationUnitSource(unit.source);
+      visitor.setCompilationUnitName(unit.name);
+      visitor.setAdvisor(NamingAdvisor.create());
+      long start = System.nanoTime();
+      try {
+        unit.unit.accept(visitor);
+      } catch (Exception e) {
+        logger.log(Level.SEVERE, "Error in extracting " + unit.name, e);
+      }
+      if (histogram != null) {
+        histogram.recordSince(start);
+      }
+    }
+    writers.close();
+  }
+  
+  private static void report(TaskProgressLogger task, LatencyHistogram histogram) {
+    task.report(String.format("%s: p50 %.3fms, p99 %.3fms, mean %.3fms, max %.3fms over %d files",
+        histogram.getName(),
+        histogram.getPercentile(.5) / 1e6,
+        histogram.getPercentile(.99) / 1e6,
+        histogram.getMean() / 1e6,
+        histogram.getMax() / 1e6,
+        histogram.getCount()));
+  }
+}
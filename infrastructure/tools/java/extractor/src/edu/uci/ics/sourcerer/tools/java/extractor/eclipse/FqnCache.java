@@ -0,0 +1,138 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.extractor.eclipse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.metrics.Instrumentation;
+import edu.uci.ics.sourcerer.util.io.metrics.Meter;
+
+/**
+ * Memoizes the fqns and method signatures computed from bindings, keyed
+ * by {@link org.eclipse.jdt.core.dom.IBinding#getKey()}. Keys identify a
+ * binding across compilation units, so entries are reused for the whole
+ * extraction. Names that depend on where they are referenced from
+ * (anonymous and local types, unresolved names) must not be cached.
+ * Each map keeps the most recently used entries, evicting the least
+ * recently used once it is full.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class FqnCache {
+  public static final Argument<Boolean> FQN_CACHE = new BooleanArgument("fqn-cache", true, "Cache the fqns computed from bindings during extraction.").permit();
+  public static final Argument<Integer> FQN_CACHE_SIZE = new IntegerArgument("fqn-cache-size", 200_000, "Number of type fqns, and of method fqns, kept in the cache.").permit();
+  
+  private final boolean enabled;
+  private final Map<String, String> types;
+  private final Map<String, String> methods;
+  
+  private long hits;
+  private long misses;
+  private long uncacheable;
+  
+  private final Meter hitMeter;
+  private final Meter missMeter;
+  
+  FqnCache(boolean enabled, int maxSize) {
+    this.enabled = enabled;
+    types = createMap(maxSize);
+    methods = createMap(maxSize);
+    hitMeter = Instrumentation.meter("extractor.fqn_cache.hits");
+    missMeter = Instrumentation.meter("extractor.fqn_cache.misses");
+  }
+  
+  private static Map<String, String> createMap(final int capacity) {
+    return new LinkedHashMap<String, String>(16, .75f, true) {
+      private static final long serialVersionUID = 1L;
+      
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+  
+  static FqnCache create() {
+    return new FqnCache(FQN_CACHE.getValue(), FQN_CACHE_SIZE.getValue());
+  }
+  
+  String getType(String key) {
+    return get(types, key);
+  }
+  
+  void putType(String key, String fqn) {
+    put(types, key, fqn);
+  }
+  
+  String getMethod(String key) {
+    return get(methods, key);
+  }
+  
+  void putMethod(String key, String fqn) {
+    put(methods, key, fqn);
+  }
+  
+  /**
+   * Records a lookup whose result could not be cached.
+   */
+  void skip() {
+    if (enabled) {
+      uncacheable++;
+    }
+  }
+  
+  private String get(Map<String, String> map, String key) {
+    if (enabled && key != null) {
+      String fqn = map.get(key);
+      if (fqn == null) {
+        misses++;
+        missMeter.mark();
+      } else {
+        hits++;
+        hitMeter.mark();
+      }
+      return fqn;
+    } else {
+      return null;
+    }
+  }
+  
+  private void put(Map<String, String> map, String key, String fqn) {
+    if (enabled && key != null && fqn != null) {
+      map.put(key, fqn);
+    }
+  }
+  
+  double getHitRate() {
+    long lookups = hits + misses;
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+  
+  @Override
+  public String toString() {
+    if (enabled) {
+      return String.format("fqn cache: %d hits, %d misses (%.1f%% hit rate), %d uncacheable", hits, misses, 100 * getHitRate(), uncacheable);
+    } else {
+      return "fqn cache: disabled";
+    }
+  }
+}
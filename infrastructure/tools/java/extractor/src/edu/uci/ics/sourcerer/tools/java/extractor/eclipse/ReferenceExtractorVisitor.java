@@ -173,8 +173,17 @@ public class ReferenceExtractorVisitor extends ASTVisitor {
   private NamingAdvisor advisor;
   
   private FQNStack fqnStack = new FQNStack();
+  
+  private final FqnCache fqnCache;
+  // Bumped whenever a name is resolved against the current position, making it uncacheable
+  private int contextLookups = 0;
 
   public ReferenceExtractorVisitor(WriterBundle writers) {
+    this(writers, FqnCache.create());
+  }
+  
+  ReferenceExtractorVisitor(WriterBundle writers, FqnCache fqnCache) {
+    this.fqnCache = fqnCache;
     fileWriter = writers.getFileWriter();
     problemWriter = writers.getProblemWriter();
     importWriter = writers.getImportWriter();
@@ -196,10 +205,22 @@ public class ReferenceExtractorVisitor extends ASTVisitor {
     this.javaFile = file;
   }
   
+  /**
+   * Names the next compilation unit, for units parsed outside of the
+   * Java model, which have no element to take the name from.
+   */
+  void setCompilationUnitName(String name) {
+    this.compilationUnitName = name;
+  }
+  
   public void setAdvisor(NamingAdvisor advisor) {
     this.advisor = advisor;
   }
   
+  FqnCache getFqnCache() {
+    return fqnCache;
+  }
+  
   /**
    * This method writes:
    * <ul>
@@ -212,7 +233,9 @@ public class ReferenceExtractorVisitor extends ASTVisitor {
   public boolean visit(CompilationUnit node) {
     fqnStack.clear();
     // Get the file path
-    compilationUnitName = node.getJavaElement().getElementName();
+    if (node.getJavaElement() != null) {
+      compilationUnitName = node.getJavaElement().getElementName();
+    }
     if (javaFile == null) {
       if (node.getPackage() == null) {
         compilationUnitPath = compilationUnitName;
@@ -734,7 +757,7 @@ public class ReferenceExtractorVisitor extends ASTVisitor {
       String methodFqn = fqnStack.getFqn() + ".<init>" + getFuzzyMethodArgs(node.arguments());
       relationWriter.writeRelation(Relation.CALLS, fqn, methodFqn, createLocation(node.getName()));
     } else {
-      relationWriter.writeRelation(Relation.CALLS, fqn, getMethodName(methodBinding, false) + getMethodArgs(methodBinding), createLocation(node.getName()));
+      relationWriter.writeRelation(Relation.CALLS, fqn, getMethodFqn(methodBinding), createLocation(node.getName()));
     }
     
     // Write the instantiates relation
@@ -1095,7 +1118,7 @@ public class ReferenceExtractorVisitor extends ASTVisitor {
     if (binding == null) {
       fqn = createUnknownMethodFqn(node);
     } else {
-      fqn = getMethodName(binding, false) + getMethodArgs(binding);
+      fqn = getMethodFqn(binding);
     }
 
     // Write the calls relation
@@ -1118,7 +1141,7 @@ public class ReferenceExtractorVisitor extends ASTVisitor {
     if (binding == null) {
       fqn = createUnknownSuperFqn(node.getName().getIdentifier()) + getFuzzyMethodArgs(node.arguments());
     } else {
-      fqn = getMethodName(binding, false) + getMethodArgs(binding);
+      fqn = getMethodFqn(binding);
       
     } 
     
@@ -1147,7 +1170,7 @@ public class ReferenceExtractorVisitor extends ASTVisitor {
         if (binding == null) {
           fqn = getTypeFqn(node.getType()) + ".<init>" + getFuzzyMethodArgs(node.arguments());
         } else {
-          fqn = getMethodName(binding, false) + getMethodArgs(binding);
+          fqn = getMethodFqn(binding);
         }
   
         // Write the calls relation
@@ -1176,7 +1199,7 @@ public class ReferenceExtractorVisitor extends ASTVisitor {
     if (binding == null) {
       fqn = fqnStack.getFqn() + ".<init>" + getFuzzyMethodArgs(node.arguments()); 
     } else {
-      fqn = getMethodName(binding, false) + getMethodArgs(binding);
+      fqn = getMethodFqn(binding);
     }
 
     // Write the calls relation
@@ -1202,7 +1225,7 @@ public class ReferenceExtractorVisitor extends ASTVisitor {
     if (binding == null) {
       fqn = createUnknownSuperFqn("<init>") + getFuzzyMethodArgs(node.arguments());
     } else {
-      fqn = getMethodName(binding, false) + getMethodArgs(binding);
+      fqn = getMethodFqn(binding);
     }
 
     // Write the call relation
@@ -2242,6 +2265,21 @@ public class ReferenceExtractorVisitor extends ASTVisitor {
     argBuilder.append(')');
   }
   
+  private String getMethodFqn(IMethodBinding binding) {
+    String key = binding.getMethodDeclaration().getKey();
+    String fqn = fqnCache.getMethod(key);
+    if (fqn == null) {
+      int lookups = contextLookups;
+      fqn = getMethodName(binding, false) + getMethodArgs(binding);
+      if (key != null && lookups == contextLookups) {
+        fqnCache.putMethod(key, fqn);
+      } else {
+        fqnCache.skip();
+      }
+    }
+    return fqn;
+  }
+  
   private String getMethodName(IMethodBinding binding, boolean declaration) {
     binding = binding.getMethodDeclaration();
     StringBuilder fqnBuilder = new StringBuilder();
@@ -2271,6 +2309,7 @@ public class ReferenceExtractorVisitor extends ASTVisitor {
   }
   
   private String createUnknownFqn(String name) {
+    contextLookups++;
     String fqn = advisor.advise(name);
     if (fqn == null) {
       return UNKNOWN + "." + name;
@@ -2403,6 +2442,24 @@ public class ReferenceExtractorVisitor extends ASTVisitor {
   }
   
   private String getTypeFqn(ITypeBinding binding) {
+    if (binding == null || binding.isPrimitive()) {
+      return computeTypeFqn(binding);
+    }
+    String key = binding.getKey();
+    String fqn = fqnCache.getType(key);
+    if (fqn == null) {
+      int lookups = contextLookups;
+      fqn = computeTypeFqn(binding);
+      if (key != null && lookups == contextLookups) {
+        fqnCache.putType(key, fqn);
+      } else {
+        fqnCache.skip();
+      }
+    }
+    return fqn;
+  }
+  
+  private String computeTypeFqn(ITypeBinding binding) {
     if (binding == null) {
       logger.log(Level.SEVERE, "Null type binding", new NullPointerException());
       return UNKNOWN;
@@ -2422,8 +2479,10 @@ public class ReferenceExtractorVisitor extends ASTVisitor {
         return getTypeFqn(binding.getElementType()) + BRACKETS.substring(0, 2 * binding.getDimensions());
       }
     } else if (binding.isAnonymous()) {
+      contextLookups++;
       return fqnStack.findAnonymousFqn(binding);
     } else if (binding.isLocal()) {
+      contextLookups++;
       return fqnStack.find(EnclosingBlock.class).getLocalFqn(binding.getName(), binding);
     } else if (binding.isParameterizedType()) {
       StringBuilder fqn = new StringBuilder();
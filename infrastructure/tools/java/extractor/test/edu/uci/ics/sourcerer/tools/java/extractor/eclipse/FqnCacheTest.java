@@ -0,0 +1,195 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.extractor.eclipse;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.uci.ics.sourcerer.tools.java.extractor.eclipse.ExtractionBenchmark.ParsedUnit;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.WriterBundle;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.EntityWriterImpl;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.FileWriterImpl;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.ImportWriterImpl;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.LocalVariableWriterImpl;
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.RelationWriterImpl;
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Command;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class FqnCacheTest {
+  public static final Command COMMAND = new Command("test", "Run a junit test.") {
+    @Override
+    protected void action() {
+    }
+  };
+  
+  private File root;
+  
+  @BeforeClass
+  public static void initialize() {
+    // Initializes the logging
+    Command.execute(new String[] { "--test" }, FqnCacheTest.class);
+    
+    WriterBundle.IMPORT_WRITER.setValue(ImportWriterImpl.class);
+    WriterBundle.ENTITY_WRITER.setValue(EntityWriterImpl.class);
+    WriterBundle.LOCAL_VARIABLE_WRITER.setValue(LocalVariableWriterImpl.class);
+    WriterBundle.RELATION_WRITER.setValue(RelationWriterImpl.class);
+    WriterBundle.FILE_WRITER.setValue(FileWriterImpl.class);
+  }
+  
+  @Before
+  public void createRoot() throws IOException {
+    root = File.createTempFile("extractor", "");
+    root.delete();
+    root.mkdirs();
+  }
+  
+  @After
+  public void deleteRoot() {
+    FileUtils.delete(root);
+  }
+  
+  @Test
+  public void testLeastRecentlyUsedEviction() {
+    FqnCache cache = new FqnCache(true, 2);
+    cache.putType("a", "A");
+    cache.putType("b", "B");
+    Assert.assertEquals("A", cache.getType("a"));
+    // b is now the least recently used
+    cache.putType("c", "C");
+    Assert.assertEquals("A", cache.getType("a"));
+    Assert.assertEquals("C", cache.getType("c"));
+    Assert.assertNull(cache.getType("b"));
+    
+    // Methods are kept apart from types
+    Assert.assertNull(cache.getMethod("a"));
+    cache.putMethod("a", "A.a()");
+    Assert.assertEquals("A.a()", cache.getMethod("a"));
+    Assert.assertEquals("A", cache.getType("a"));
+  }
+  
+  @Test
+  public void testDisabled() {
+    FqnCache cache = new FqnCache(false, 2);
+    cache.putType("a", "A");
+    Assert.assertNull(cache.getType("a"));
+    Assert.assertEquals("fqn cache: disabled", cache.toString());
+  }
+  
+  private void write(File dir, String path, String... lines) throws IOException {
+    File file = new File(dir, path);
+    file.getParentFile().mkdirs();
+    try (BufferedWriter writer = IOUtils.makeBufferedWriter(file)) {
+      for (String line : lines) {
+        writer.write(line);
+        writer.newLine();
+      }
+    }
+  }
+  
+  @Test
+  public void testSameOutput() throws IOException {
+    File src = new File(root, "src");
+    write(src, "foo/Shape.java",
+        "package foo;",
+        "import java.util.*;",
+        "public abstract class Shape implements Comparable<Shape> {",
+        "  public static class Point { int x, y; }",
+        "  protected List<Point> points = new ArrayList<Point>();",
+        "  public abstract double area();",
+        "  public int compareTo(Shape other) { return Double.compare(area(), other.area()); }",
+        "  public Point[][] grid(Map<String, List<Point>> named) { return new Point[1][1]; }",
+        "}");
+    write(src, "foo/bar/Square.java",
+        "package foo.bar;",
+        "import java.util.*;",
+        "import foo.Shape;",
+        "public class Square extends Shape {",
+        "  private double side;",
+        "  public double area() { return side * side; }",
+        "  public void sort(List<Shape> shapes) {",
+        "    Collections.sort(shapes, new Comparator<Shape>() {",
+        "      public int compare(Shape a, Shape b) { return a.compareTo(b); }",
+        "    });",
+        "    class Local implements Runnable { public void run() { area(); } }",
+        "    new Local().run();",
+        "    Runnable r = new Runnable() { public void run() { new Local().run(); } };",
+        "    r.run();",
+        "    grid(new HashMap<String, List<Point>>());",
+        "  }",
+        "}");
+    write(src, "foo/bar/Circle.java",
+        "package foo.bar;",
+        "import java.util.*;",
+        "import foo.Shape;",
+        "public class Circle extends Shape {",
+        "  private double radius;",
+        "  public double area() { return Math.PI * radius * radius; }",
+        "  public Shape larger(Square square) {",
+        "    List<Shape> shapes = new ArrayList<Shape>(Arrays.asList(this, square));",
+        "    square.sort(shapes);",
+        "    new Comparator<Shape>() {",
+        "      public int compare(Shape a, Shape b) { return 0; }",
+        "    }.compare(this, square);",
+        "    return shapes.get(1).compareTo(this) > 0 ? shapes.get(1) : this;",
+        "  }",
+        "}");
+    // The same missing type is resolved against each file's imports
+    write(src, "foo/bar/First.java",
+        "package foo.bar;",
+        "import first.Missing;",
+        "public class First {",
+        "  public Missing get(Missing[] all) { Missing m = all[0]; return m; }",
+        "}");
+    write(src, "foo/bar/Second.java",
+        "package foo.bar;",
+        "import second.Missing;",
+        "public class Second {",
+        "  public Missing get(Missing[] all) { Missing m = all[0]; return m; }",
+        "}");
+    
+    List<ParsedUnit> units = ExtractionBenchmark.parse(src, new String[0]);
+    Assert.assertEquals(5, units.size());
+    
+    File without = new File(root, "without");
+    ExtractionBenchmark.extract(units, new WriterBundle(without), new FqnCache(false, 100), null);
+    File with = new File(root, "with");
+    FqnCache cache = new FqnCache(true, 100);
+    ExtractionBenchmark.extract(units, new WriterBundle(with), cache, null);
+    
+    Assert.assertTrue(cache.getHitRate() > 0);
+    String[] names = without.list();
+    Arrays.sort(names);
+    Assert.assertTrue(names.length > 0);
+    for (String name : names) {
+      Assert.assertTrue(name, Arrays.equals(FileUtils.getFileAsByteArray(new File(without, name)), FileUtils.getFileAsByteArray(new File(with, name))));
+    }
+  }
+}
@@ -0,0 +1,207 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.EntityEX;
+import edu.uci.ics.sourcerer.tools.java.model.types.Entity;
+import edu.uci.ics.sourcerer.tools.java.model.types.Location;
+import edu.uci.ics.sourcerer.tools.java.model.types.Metrics;
+import edu.uci.ics.sourcerer.tools.java.model.types.Modifiers;
+
+/**
+ * Column oriented copy of an entities file, laid out like
+ * {@link RelationBatch}. Modifiers are kept as their bit values, and
+ * metrics, which only a minority of entities carry, are kept in a
+ * sparse map.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class EntityBatch {
+  private static final Entity[] TYPES = Entity.values();
+  private static final int NO_MODIFIERS = Integer.MIN_VALUE;
+  
+  private final StringDictionary dictionary;
+  private int size;
+  private byte[] types;
+  private int[] fqns;
+  private int[] signatures;
+  private int[] rawSignatures;
+  private int[] modifiers;
+  private final Map<Integer, Metrics> metrics;
+  private final LocationColumns locations;
+  
+  private EntityBatch(StringDictionary dictionary) {
+    this.dictionary = dictionary;
+    types = new byte[16];
+    fqns = new int[16];
+    signatures = new int[16];
+    rawSignatures = new int[16];
+    modifiers = new int[16];
+    metrics = new HashMap<>();
+    locations = new LocationColumns(dictionary, 16);
+  }
+  
+  static EntityBatch create(Iterable<EntityEX> entities, StringDictionary dictionary) {
+    EntityBatch batch = new EntityBatch(dictionary);
+    for (EntityEX entity : entities) {
+      batch.add(entity);
+    }
+    batch.resize(batch.size);
+    return batch;
+  }
+  
+  private void resize(int capacity) {
+    types = Arrays.copyOf(types, capacity);
+    fqns = Arrays.copyOf(fqns, capacity);
+    signatures = Arrays.copyOf(signatures, capacity);
+    rawSignatures = Arrays.copyOf(rawSignatures, capacity);
+    modifiers = Arrays.copyOf(modifiers, capacity);
+    locations.resize(capacity);
+  }
+  
+  private void add(EntityEX entity) {
+    if (size == types.length) {
+      resize(size * 2);
+    }
+    types[size] = entity.getType() == null ? -1 : (byte) entity.getType().ordinal();
+    fqns[size] = dictionary.encode(entity.getFqn());
+    signatures[size] = dictionary.encode(entity.getSignature());
+    rawSignatures[size] = dictionary.encode(entity.getRawSignature());
+    modifiers[size] = entity.getModifiers() == null ? NO_MODIFIERS : entity.getModifiers().getValue();
+    if (entity.getMetrics() != null) {
+      metrics.put(size, entity.getMetrics());
+    }
+    locations.set(size, entity.getLocation());
+    size++;
+  }
+  
+  public int size() {
+    return size;
+  }
+  
+  public Cursor cursor() {
+    return new Cursor();
+  }
+  
+  public final class Cursor {
+    private int index = -1;
+    
+    private Cursor() {}
+    
+    public boolean next() {
+      if (index + 1 < size) {
+        index++;
+        return true;
+      } else {
+        index = size;
+        return false;
+      }
+    }
+    
+    public void reset() {
+      index = -1;
+    }
+    
+    private int check() {
+      if (index < 0 || index >= size) {
+        throw new NoSuchElementException();
+      }
+      return index;
+    }
+    
+    public Entity getType() {
+      byte type = types[check()];
+      return type == -1 ? null : TYPES[type];
+    }
+    
+    public String getFqn() {
+      return dictionary.decode(fqns[check()]);
+    }
+    
+    public String getSignature() {
+      return dictionary.decode(signatures[check()]);
+    }
+    
+    public String getRawSignature() {
+      return dictionary.decode(rawSignatures[check()]);
+    }
+    
+    /**
+     * Returns the modifier bits, or <tt>null</tt> if the entity has
+     * no modifiers.
+     */
+    public Integer getModifierValue() {
+      int value = modifiers[check()];
+      return value == NO_MODIFIERS ? null : Integer.valueOf(value);
+    }
+    
+    public Modifiers getModifiers() {
+      int value = modifiers[check()];
+      return value == NO_MODIFIERS ? null : Modifiers.make(value);
+    }
+    
+    public Metrics getMetrics() {
+      return metrics.get(check());
+    }
+    
+    public boolean hasLocation() {
+      return locations.hasLocation(check());
+    }
+    
+    public String getClassFile() {
+      return locations.getClassFile(check());
+    }
+    
+    public String getPath() {
+      return locations.getPath(check());
+    }
+    
+    public Integer getOffset() {
+      return locations.getOffset(check());
+    }
+    
+    public Integer getLength() {
+      return locations.getLength(check());
+    }
+    
+    /**
+     * Allocates a new {@link Location}. Prefer the individual location
+     * accessors in loops.
+     */
+    public Location getLocation() {
+      return locations.getLocation(check());
+    }
+    
+    /**
+     * Allocates a new {@link EntityEX} for the current record.
+     */
+    public EntityEX toEntity() {
+      return new EntityEX(getType(), getFqn(), getSignature(), getRawSignature(), getModifiers(), getMetrics(), getLocation());
+    }
+    
+    @Override
+    public String toString() {
+      return getType() + " " + getFqn();
+    }
+  }
+}
@@ -19,9 +19,12 @@ package edu.uci.ics.sourcerer.tools.java.model.extracted.io;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.logging.Level;
 
+import edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal.FindBugsWorkerPool;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
 import edu.uci.ics.sourcerer.util.io.arguments.FileArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
 import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 
@@ -31,22 +34,80 @@ import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 public class FindBugsRunner {
   public static Argument<File> FINDBUGS_JAR = new FileArgument("findbugs-jar", null, "Location of the findbugs jar file");
   public static Argument<String> FINDBUGS_FILE_NAME = new StringArgument("findbugs-file-name", "findbugs.xml", "Name of the FindBugs xml file.").permit();
+  public static Argument<Integer> FINDBUGS_WORKERS = new IntegerArgument("findbugs-workers", 0, "Number of long-lived FindBugs JVMs to keep warm. 0 starts a new JVM per jar.").permit();
+  public static Argument<Integer> FINDBUGS_WORKER_JOBS = new IntegerArgument("findbugs-worker-jobs", 500, "Number of jars a FindBugs worker processes before it is recycled.").permit();
+  public static Argument<Integer> FINDBUGS_TIMEOUT = new IntegerArgument("findbugs-timeout", 600, "Seconds a pooled FindBugs worker may spend on one jar.").permit();
   
-  public static void runFindBugs(File file, File dir) {
+  private static FindBugsWorkerPool pool;
+  
+  private static synchronized FindBugsWorkerPool getPool() {
+    if (pool == null) {
+      pool = FindBugsWorkerPool.create(FINDBUGS_JAR.getValue(), FINDBUGS_WORKERS.getValue(), FINDBUGS_WORKER_JOBS.getValue(), FINDBUGS_TIMEOUT.getValue());
+      Runtime.getRuntime().addShutdownHook(new Thread() {
+        @Override
+        public void run() {
+          pool.close();
+        }
+      });
+    }
+    return pool;
+  }
+  
+  /**
+   * @return false if FindBugs was run and failed
+   */
+  public static boolean runFindBugs(File file, File dir) {
     if (FINDBUGS_JAR.getValue() != null) {
       TaskProgressLogger task = TaskProgressLogger.get();
       task.start("Running FindBugs");
       File output = new File(dir, FINDBUGS_FILE_NAME.getValue());
-      try {
-        ProcessBuilder builder = new ProcessBuilder("java", "-jar", FINDBUGS_JAR.getValue().getPath(), "-textui", "-xml", "-output", output.getPath(), file.getPath());
-        builder.inheritIO();
-        builder.directory(dir);
-        Process process = builder.start();
-        process.waitFor();
+      if (FINDBUGS_WORKERS.getValue() > 0) {
+        try {
+          if (getPool().run(file, output)) {
+            task.finish();
+            return true;
+          } else {
+            return fail(task, file, output);
+          }
+        } catch (InterruptedException | IllegalStateException e) {
+          task.exception(e);
+          output.delete();
+          return false;
+        }
+      } else {
+        return runFindBugsProcess(task, file, dir, output);
+      }
+    } else {
+      return true;
+    }
+  }
+  
+  private static boolean runFindBugsProcess(TaskProgressLogger task, File file, File dir, File output) {
+    try {
+      ProcessBuilder builder = new ProcessBuilder("java", "-jar", FINDBUGS_JAR.getValue().getPath(), "-textui", "-xml", "-output", output.getPath(), file.getPath());
+      builder.inheritIO();
+      builder.directory(dir);
+      Process process = builder.start();
+      if (process.waitFor() == 0) {
         task.finish();
-      } catch (IOException | InterruptedException e) {
-        task.exception(e);
+        return true;
+      } else {
+        return fail(task, file, output);
       }
+    } catch (IOException | InterruptedException e) {
+      task.exception(e);
+      output.delete();
+      return false;
     }
   }
+  
+  /**
+   * Drops any partial report, so a failed run is not mistaken for a clean one.
+   */
+  private static boolean fail(TaskProgressLogger task, File file, File output) {
+    task.report(Level.SEVERE, "FindBugs failed on " + file.getPath());
+    task.cancel();
+    output.delete();
+    return false;
+  }
 }
@@ -0,0 +1,118 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import edu.uci.ics.sourcerer.tools.java.model.types.Location;
+
+/**
+ * Column storage for the locations of a batch. Offsets and lengths
+ * are packed into int arrays, with {@link RelationCursor#MISSING}
+ * marking a missing value, and the class file and path are dictionary
+ * codes.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class LocationColumns {
+  private static final int NULL = RelationCursor.MISSING;
+  
+  private final StringDictionary dictionary;
+  private final BitSet present;
+  private int[] classFiles;
+  private int[] paths;
+  private int[] offsets;
+  private int[] lengths;
+  
+  LocationColumns(StringDictionary dictionary, int capacity) {
+    this.dictionary = dictionary;
+    present = new BitSet(capacity);
+    classFiles = new int[capacity];
+    paths = new int[capacity];
+    offsets = new int[capacity];
+    lengths = new int[capacity];
+  }
+  
+  void set(int index, Location location) {
+    if (location == null) {
+      present.clear(index);
+      classFiles[index] = StringDictionary.NULL;
+      paths[index] = StringDictionary.NULL;
+      offsets[index] = NULL;
+      lengths[index] = NULL;
+    } else {
+      present.set(index);
+      classFiles[index] = dictionary.encode(location.getClassFile());
+      paths[index] = dictionary.encode(location.getPath());
+      offsets[index] = pack(location.getOffset());
+      lengths[index] = pack(location.getLength());
+    }
+  }
+  
+  void resize(int capacity) {
+    classFiles = Arrays.copyOf(classFiles, capacity);
+    paths = Arrays.copyOf(paths, capacity);
+    offsets = Arrays.copyOf(offsets, capacity);
+    lengths = Arrays.copyOf(lengths, capacity);
+  }
+  
+  private static int pack(Integer value) {
+    return value == null ? NULL : value.intValue();
+  }
+  
+  private static Integer unpack(int value) {
+    return value == NULL ? null : Integer.valueOf(value);
+  }
+  
+  boolean hasLocation(int index) {
+    return present.get(index);
+  }
+  
+  String getClassFile(int index) {
+    return dictionary.decode(classFiles[index]);
+  }
+  
+  String getPath(int index) {
+    return dictionary.decode(paths[index]);
+  }
+  
+  Integer getOffset(int index) {
+    return unpack(offsets[index]);
+  }
+  
+  Integer getLength(int index) {
+    return unpack(lengths[index]);
+  }
+  
+  int getPackedOffset(int index) {
+    return offsets[index];
+  }
+  
+  int getPackedLength(int index) {
+    return lengths[index];
+  }
+  
+  Location getLocation(int index) {
+    if (present.get(index)) {
+      return new Location(getClassFile(index), getPath(index), getOffset(index), getLength(index));
+    } else {
+      return null;
+    }
+  }
+}
@@ -80,6 +80,10 @@ public class ReaderBundle {
   private ReaderReference<UsedJarEX> usedJars = new ReaderReference<UsedJarEX>(UsedJarEX.class, UsedJarEX.USED_JAR_FILE);
   private ReaderReference<MissingTypeEX> missingTypes = new ReaderReference<MissingTypeEX>(MissingTypeEX.class, MissingTypeEX.MISSING_TYPE_FILE);
   
+  private StringDictionary dictionary;
+  private EntityBatch entityBatch;
+  private RelationBatch relationBatch;
+  
   private ReaderBundle(File input, File zip) {
     this.input = input;
     this.zip = zip;
@@ -139,6 +143,68 @@ public class ReaderBundle {
     }
   }
   
+  private <T extends SimpleSerializable> Iterable<T> getStreaming(Class<T> klass, Argument<String> entry) {
+    String fileName = entry.getValue();
+    File file = new File(input, fileName);
+    try {
+      if (file.exists()) {
+        return IOUtils.deserialize(klass, file, true);
+      } else if (zip.exists()) {
+        return IOUtils.deserialize(klass, zip, fileName, true);
+      } else {
+        return Collections.emptyList();
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Error reading extracted file.", e);
+      return Collections.emptyList();
+    }
+  }
+  
+  private synchronized StringDictionary getDictionary() {
+    if (dictionary == null) {
+      dictionary = new StringDictionary();
+    }
+    return dictionary;
+  }
+  
+  /**
+   * Decodes the entities into a column oriented batch, once per bundle.
+   * Entity and relation batches from the same bundle share their string
+   * dictionary.
+   */
+  public synchronized EntityBatch getEntityBatch() {
+    if (entityBatch == null) {
+      entityBatch = EntityBatch.create(getStreaming(EntityEX.class, EntityEX.ENTITY_FILE), getDictionary());
+    }
+    return entityBatch;
+  }
+  
+  public synchronized RelationBatch getRelationBatch() {
+    if (relationBatch == null) {
+      relationBatch = RelationBatch.create(getStreaming(RelationEX.class, RelationEX.RELATION_FILE), getDictionary());
+    }
+    return relationBatch;
+  }
+  
+  /**
+   * Iterates over the relations once, deserializing them as they are
+   * read. Callers that go over the relations more than once should
+   * use {@link #getRelationBatch()} instead.
+   */
+  public RelationCursor getRelationCursor() {
+    return new StreamingRelationCursor(getStreaming(RelationEX.class, RelationEX.RELATION_FILE));
+  }
+  
+  /**
+   * Drops the decoded batches and their dictionary. Batches already
+   * handed out remain usable.
+   */
+  public synchronized void release() {
+    entityBatch = null;
+    relationBatch = null;
+    dictionary = null;
+  }
+  
   public Collection<EntityEX> getEntities() {
     return entities.get();
   }
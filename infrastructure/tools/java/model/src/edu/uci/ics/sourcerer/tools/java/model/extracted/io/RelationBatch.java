@@ -0,0 +1,183 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.RelationEX;
+import edu.uci.ics.sourcerer.tools.java.model.types.Location;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+
+/**
+ * Column oriented copy of a relations file. FQNs and paths are
+ * dictionary encoded, and the type is stored as its ordinal, so a
+ * relation costs a few ints rather than a {@link RelationEX} and a
+ * {@link Location}.
+ * 
+ * Records are read through a {@link Cursor}, which exposes the
+ * accessors of {@link RelationEX} without allocating per record.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class RelationBatch {
+  private static final Relation[] TYPES = Relation.values();
+  
+  private final StringDictionary dictionary;
+  private int size;
+  private byte[] types;
+  private int[] lhs;
+  private int[] rhs;
+  private final LocationColumns locations;
+  
+  private RelationBatch(StringDictionary dictionary) {
+    this.dictionary = dictionary;
+    types = new byte[16];
+    lhs = new int[16];
+    rhs = new int[16];
+    locations = new LocationColumns(dictionary, 16);
+  }
+  
+  static RelationBatch create(Iterable<RelationEX> relations, StringDictionary dictionary) {
+    RelationBatch batch = new RelationBatch(dictionary);
+    for (RelationEX relation : relations) {
+      batch.add(relation);
+    }
+    batch.trim();
+    return batch;
+  }
+  
+  private void add(RelationEX relation) {
+    if (size == types.length) {
+      int capacity = size * 2;
+      types = Arrays.copyOf(types, capacity);
+      lhs = Arrays.copyOf(lhs, capacity);
+      rhs = Arrays.copyOf(rhs, capacity);
+      locations.resize(capacity);
+    }
+    types[size] = relation.getType() == null ? -1 : (byte) relation.getType().ordinal();
+    lhs[size] = dictionary.encode(relation.getLhs());
+    rhs[size] = dictionary.encode(relation.getRhs());
+    locations.set(size, relation.getLocation());
+    size++;
+  }
+  
+  private void trim() {
+    types = Arrays.copyOf(types, size);
+    lhs = Arrays.copyOf(lhs, size);
+    rhs = Arrays.copyOf(rhs, size);
+    locations.resize(size);
+  }
+  
+  public int size() {
+    return size;
+  }
+  
+  public Cursor cursor() {
+    return new Cursor();
+  }
+  
+  public final class Cursor implements RelationCursor {
+    private int index = -1;
+    
+    private Cursor() {}
+    
+    @Override
+    public boolean next() {
+      if (index + 1 < size) {
+        index++;
+        return true;
+      } else {
+        index = size;
+        return false;
+      }
+    }
+    
+    public void reset() {
+      index = -1;
+    }
+    
+    private int check() {
+      if (index < 0 || index >= size) {
+        throw new NoSuchElementException();
+      }
+      return index;
+    }
+    
+    @Override
+    public Relation getType() {
+      byte type = types[check()];
+      return type == -1 ? null : TYPES[type];
+    }
+    
+    @Override
+    public String getLhs() {
+      return dictionary.decode(lhs[check()]);
+    }
+    
+    @Override
+    public String getRhs() {
+      return dictionary.decode(rhs[check()]);
+    }
+    
+    @Override
+    public boolean hasLocation() {
+      return locations.hasLocation(check());
+    }
+    
+    @Override
+    public String getClassFile() {
+      return locations.getClassFile(check());
+    }
+    
+    @Override
+    public String getPath() {
+      return locations.getPath(check());
+    }
+    
+    @Override
+    public int getOffset() {
+      return locations.getPackedOffset(check());
+    }
+    
+    @Override
+    public int getLength() {
+      return locations.getPackedLength(check());
+    }
+    
+    /**
+     * Allocates a new {@link Location}. Prefer the individual location
+     * accessors in loops.
+     */
+    public Location getLocation() {
+      return locations.getLocation(check());
+    }
+    
+    /**
+     * Allocates a new {@link RelationEX} for the current record.
+     */
+    public RelationEX toRelation() {
+      return new RelationEX(getType(), getLhs(), getRhs(), getLocation());
+    }
+    
+    @Override
+    public String toString() {
+      return getType() + " " + getLhs() + " " + getRhs();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io;
+
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+
+/**
+ * Forward only view of the relations of a {@link ReaderBundle}, with
+ * the accessors of {@link edu.uci.ics.sourcerer.tools.java.model.extracted.RelationEX}.
+ * Offsets and lengths are returned unboxed, with {@link #MISSING}
+ * standing in for an absent value.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public interface RelationCursor {
+  public static final int MISSING = Integer.MIN_VALUE;
+  
+  public boolean next();
+  
+  public Relation getType();
+  
+  public String getLhs();
+  
+  public String getRhs();
+  
+  public boolean hasLocation();
+  
+  public String getClassFile();
+  
+  public String getPath();
+  
+  public int getOffset();
+  
+  public int getLength();
+}
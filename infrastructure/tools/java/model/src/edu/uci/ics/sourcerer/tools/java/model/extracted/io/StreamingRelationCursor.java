@@ -0,0 +1,107 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.RelationEX;
+import edu.uci.ics.sourcerer.tools.java.model.types.Location;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+
+/**
+ * Cursor over relations deserialized one at a time, for files too
+ * large to decode into a {@link RelationBatch}.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class StreamingRelationCursor implements RelationCursor {
+  private final Iterator<RelationEX> relations;
+  private RelationEX current;
+  
+  StreamingRelationCursor(Iterable<RelationEX> relations) {
+    this.relations = relations.iterator();
+  }
+  
+  @Override
+  public boolean next() {
+    if (relations.hasNext()) {
+      current = relations.next();
+      return true;
+    } else {
+      current = null;
+      return false;
+    }
+  }
+  
+  private RelationEX check() {
+    if (current == null) {
+      throw new NoSuchElementException();
+    }
+    return current;
+  }
+  
+  @Override
+  public Relation getType() {
+    return check().getType();
+  }
+  
+  @Override
+  public String getLhs() {
+    return check().getLhs();
+  }
+  
+  @Override
+  public String getRhs() {
+    return check().getRhs();
+  }
+  
+  @Override
+  public boolean hasLocation() {
+    return check().getLocation() != null;
+  }
+  
+  @Override
+  public String getClassFile() {
+    Location location = check().getLocation();
+    return location == null ? null : location.getClassFile();
+  }
+  
+  @Override
+  public String getPath() {
+    Location location = check().getLocation();
+    return location == null ? null : location.getPath();
+  }
+  
+  @Override
+  public int getOffset() {
+    Location location = check().getLocation();
+    return location == null || location.getOffset() == null ? MISSING : location.getOffset().intValue();
+  }
+  
+  @Override
+  public int getLength() {
+    Location location = check().getLocation();
+    return location == null || location.getLength() == null ? MISSING : location.getLength().intValue();
+  }
+  
+  @Override
+  public String toString() {
+    return String.valueOf(current);
+  }
+}
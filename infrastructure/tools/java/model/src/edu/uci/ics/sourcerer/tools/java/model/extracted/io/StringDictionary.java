@@ -0,0 +1,80 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps each distinct string to a dense int code, so that batches
+ * store repeated FQNs and paths once.
+ * 
+ * Encoding is synchronized, as batches sharing a dictionary may be
+ * built concurrently. Decoding takes no lock: a code only reaches a
+ * reader through a batch that was safely published after the code's
+ * string was stored, and a grown array is only published once it
+ * holds every earlier string.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class StringDictionary {
+  static final int NULL = -1;
+  
+  private final Map<String, Integer> codes;
+  private volatile String[] strings;
+  private int size;
+  
+  StringDictionary() {
+    codes = new HashMap<>();
+    strings = new String[16];
+  }
+  
+  synchronized int encode(String string) {
+    if (string == null) {
+      return NULL;
+    } else {
+      Integer code = codes.get(string);
+      if (code == null) {
+        code = size;
+        codes.put(string, code);
+        String[] array = strings;
+        if (size == array.length) {
+          array = Arrays.copyOf(array, size * 2);
+          array[size++] = string;
+          strings = array;
+        } else {
+          array[size++] = string;
+        }
+      }
+      return code;
+    }
+  }
+  
+  String decode(int code) {
+    if (code == NULL) {
+      return null;
+    } else {
+      return strings[code];
+    }
+  }
+  
+  synchronized int size() {
+    return size;
+  }
+}
@@ -0,0 +1,94 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * Long-lived FindBugs process driven by {@link FindBugsWorkerPool}.
+ * 
+ * Reads one <tt>jar\toutput</tt> job per line from stdin and answers
+ * each with a single <tt>OK</tt> or <tt>ERROR</tt> line on stdout.
+ * FindBugs is loaded in its own class loader, so that it sees none
+ * of the Sourcerer classpath. Anything FindBugs prints is sent to
+ * stderr to keep stdout free for the protocol.
+ * <p>
+ * Each job gets a fresh engine that is executed directly, rather than
+ * going through <tt>FindBugs2.main</tt>, which exits the JVM when a jar
+ * has no classes or a run reports errors.
+ * 
+ * Deliberately depends on nothing outside the JDK.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class FindBugsWorker {
+  static final String OK = "OK";
+  static final String ERROR = "ERROR";
+  
+  private FindBugsWorker() {}
+  
+  public static void main(String[] args) throws Exception {
+    if (args.length != 1) {
+      System.err.println("Usage: FindBugsWorker <findbugs-jar>");
+      System.exit(1);
+    }
+    
+    PrintStream protocol = System.out;
+    System.setOut(System.err);
+    
+    URL findbugsJar = new File(args[0]).toURI().toURL();
+    try (URLClassLoader loader = new URLClassLoader(new URL[] { findbugsJar }, ClassLoader.getSystemClassLoader().getParent())) {
+      Class<?> engineClass = loader.loadClass("edu.umd.cs.findbugs.FindBugs2");
+      Class<?> engineInterface = loader.loadClass("edu.umd.cs.findbugs.IFindBugsEngine");
+      Class<?> commandLineClass = loader.loadClass("edu.umd.cs.findbugs.TextUICommandLine");
+      Method processCommandLine = loader.loadClass("edu.umd.cs.findbugs.FindBugs").getMethod("processCommandLine", commandLineClass, String[].class, engineInterface);
+      Method execute = engineInterface.getMethod("execute");
+      Method dispose = engineClass.getMethod("dispose");
+      
+      BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+      for (String line = in.readLine(); line != null; line = in.readLine()) {
+        int tab = line.indexOf('\t');
+        if (tab == -1) {
+          protocol.println(ERROR + " malformed job: " + line);
+        } else {
+          String jar = line.substring(0, tab);
+          String output = line.substring(tab + 1);
+          Object engine = engineClass.newInstance();
+          try {
+            processCommandLine.invoke(null, commandLineClass.newInstance(), new String[] { "-xml", "-output", output, jar }, engine);
+            execute.invoke(engine);
+            protocol.println(OK);
+          } catch (InvocationTargetException e) {
+            e.getCause().printStackTrace();
+            protocol.println(ERROR + " " + e.getCause());
+          } finally {
+            dispose.invoke(engine);
+          }
+        }
+        protocol.flush();
+      }
+    }
+  }
+}
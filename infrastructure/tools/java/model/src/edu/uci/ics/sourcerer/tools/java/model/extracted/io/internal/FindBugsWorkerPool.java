@@ -0,0 +1,206 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Pool of warm {@link FindBugsWorker} JVMs, so that FindBugs pays
+ * its startup cost once per worker rather than once per jar.
+ * 
+ * At most <tt>size</tt> workers run at once. Callers beyond that block
+ * until a worker is returned. A worker that times out or dies is
+ * destroyed and replaced on demand, and each worker is recycled after
+ * <tt>maxJobs</tt> jobs to bound any state FindBugs leaks between runs.
+ * A worker that reports an error is also replaced, as a failed run may
+ * leave that state behind.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class FindBugsWorkerPool implements Closeable {
+  private static final String EXIT = "EXIT";
+  
+  private final File findbugsJar;
+  private final int size;
+  private final int maxJobs;
+  private final long timeout;
+  
+  private final BlockingQueue<Worker> idle;
+  private int running;
+  private boolean closed;
+  
+  private FindBugsWorkerPool(File findbugsJar, int size, int maxJobs, long timeout) {
+    this.findbugsJar = findbugsJar;
+    this.size = size;
+    this.maxJobs = maxJobs;
+    this.timeout = timeout;
+    idle = new LinkedBlockingQueue<>();
+  }
+  
+  /**
+   * @param timeout per-jar timeout in seconds
+   */
+  public static FindBugsWorkerPool create(File findbugsJar, int size, int maxJobs, long timeout) {
+    return new FindBugsWorkerPool(findbugsJar, size, maxJobs, timeout);
+  }
+  
+  /**
+   * Runs FindBugs on <tt>jar</tt>, writing the xml report to <tt>output</tt>.
+   * 
+   * @return true if FindBugs reported success within the timeout
+   */
+  public boolean run(File jar, File output) throws InterruptedException {
+    Worker worker = borrow();
+    boolean healthy = false;
+    try {
+      String result = worker.run(jar, output, timeout);
+      if (result == null) {
+        logger.severe("FindBugs timed out after " + timeout + "s on " + jar.getPath());
+      } else if (EXIT.equals(result)) {
+        logger.severe("FindBugs worker died while processing " + jar.getPath());
+      } else if (result.startsWith(FindBugsWorker.OK)) {
+        healthy = true;
+        return true;
+      } else {
+        logger.severe("FindBugs failed on " + jar.getPath() + ": " + result);
+      }
+      return false;
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Error communicating with FindBugs worker", e);
+      return false;
+    } finally {
+      giveBack(worker, healthy);
+    }
+  }
+  
+  private Worker borrow() throws InterruptedException {
+    while (true) {
+      Worker worker = idle.poll();
+      if (worker != null) {
+        return worker;
+      }
+      synchronized (this) {
+        if (closed) {
+          throw new IllegalStateException("FindBugs worker pool is closed");
+        } else if (running < size) {
+          try {
+            worker = new Worker();
+            running++;
+            return worker;
+          } catch (IOException e) {
+            throw new IllegalStateException("Unable to start FindBugs worker", e);
+          }
+        }
+      }
+      // Poll rather than take, as a destroyed worker frees a slot without returning to the queue
+      worker = idle.poll(1, TimeUnit.SECONDS);
+      if (worker != null) {
+        return worker;
+      }
+    }
+  }
+  
+  private void giveBack(Worker worker, boolean healthy) {
+    if (healthy && worker.jobs < maxJobs) {
+      synchronized (this) {
+        if (!closed) {
+          idle.offer(worker);
+          return;
+        }
+      }
+    }
+    worker.destroy();
+    synchronized (this) {
+      running--;
+    }
+  }
+  
+  @Override
+  public void close() {
+    synchronized (this) {
+      closed = true;
+    }
+    for (Worker worker = idle.poll(); worker != null; worker = idle.poll()) {
+      worker.destroy();
+    }
+  }
+  
+  private class Worker {
+    private final Process process;
+    private final BufferedWriter in;
+    private final BlockingQueue<String> responses;
+    private int jobs;
+    
+    private Worker() throws IOException {
+      ProcessBuilder builder = new ProcessBuilder(
+          new File(new File(System.getProperty("java.home"), "bin"), "java").getPath(),
+          "-cp", System.getProperty("java.class.path"),
+          FindBugsWorker.class.getName(),
+          findbugsJar.getPath());
+      builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+      process = builder.start();
+      in = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+      responses = new LinkedBlockingQueue<>();
+      
+      final BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+      Thread reader = new Thread("FindBugs worker reader") {
+        @Override
+        public void run() {
+          try {
+            for (String line = out.readLine(); line != null; line = out.readLine()) {
+              responses.add(line);
+            }
+          } catch (IOException e) {
+            // worker has gone away
+          } finally {
+            responses.add(EXIT);
+          }
+        }
+      };
+      reader.setDaemon(true);
+      reader.start();
+    }
+    
+    private String run(File jar, File output, long timeout) throws IOException, InterruptedException {
+      jobs++;
+      in.write(jar.getPath() + "\t" + output.getPath());
+      in.newLine();
+      in.flush();
+      return responses.poll(timeout, TimeUnit.SECONDS);
+    }
+    
+    private void destroy() {
+      try {
+        in.close();
+      } catch (IOException e) {}
+      process.destroy();
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.sourcerer.tools.java.model.extracted.RelationEX;
+import edu.uci.ics.sourcerer.tools.java.model.types.Location;
+import edu.uci.ics.sourcerer.tools.java.model.types.Relation;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class RelationBatchTest {
+  private static List<RelationEX> createRelations() {
+    return Arrays.asList(
+        new RelationEX(Relation.CALLS, "a.A.foo()", "b.B.bar()", new Location("a/A.class", "a/A.java", 10, 5)),
+        new RelationEX(Relation.CONTAINS, "a.A", "a.A.foo()", null),
+        new RelationEX(Relation.USES, "a.A", "java.lang.String", new Location("a/A.class", null, null, null)),
+        new RelationEX(null, "a.A", "b.B", new Location(null, "a/A.java", 0, 0)));
+  }
+  
+  private static void assertMatches(List<RelationEX> expected, RelationCursor cursor) {
+    for (RelationEX relation : expected) {
+      Assert.assertTrue(cursor.next());
+      Assert.assertEquals(relation.getType(), cursor.getType());
+      Assert.assertEquals(relation.getLhs(), cursor.getLhs());
+      Assert.assertEquals(relation.getRhs(), cursor.getRhs());
+      Location location = relation.getLocation();
+      Assert.assertEquals(location != null, cursor.hasLocation());
+      if (location == null) {
+        Assert.assertNull(cursor.getClassFile());
+        Assert.assertNull(cursor.getPath());
+        Assert.assertEquals(RelationCursor.MISSING, cursor.getOffset());
+        Assert.assertEquals(RelationCursor.MISSING, cursor.getLength());
+      } else {
+        Assert.assertEquals(location.getClassFile(), cursor.getClassFile());
+        Assert.assertEquals(location.getPath(), cursor.getPath());
+        Assert.assertEquals(location.getOffset() == null ? RelationCursor.MISSING : location.getOffset().intValue(), cursor.getOffset());
+        Assert.assertEquals(location.getLength() == null ? RelationCursor.MISSING : location.getLength().intValue(), cursor.getLength());
+      }
+    }
+    Assert.assertFalse(cursor.next());
+  }
+  
+  @Test
+  public void testCursor() {
+    List<RelationEX> relations = createRelations();
+    RelationBatch batch = RelationBatch.create(relations, new StringDictionary());
+    Assert.assertEquals(relations.size(), batch.size());
+    
+    RelationBatch.Cursor cursor = batch.cursor();
+    assertMatches(relations, cursor);
+    
+    // A batch can be read again
+    cursor.reset();
+    assertMatches(relations, cursor);
+    assertMatches(relations, batch.cursor());
+  }
+  
+  @Test
+  public void testStreamingCursor() {
+    List<RelationEX> relations = createRelations();
+    assertMatches(relations, new StreamingRelationCursor(relations));
+  }
+  
+  @Test
+  public void testToRelation() {
+    List<RelationEX> relations = createRelations();
+    RelationBatch.Cursor cursor = RelationBatch.create(relations, new StringDictionary()).cursor();
+    List<RelationEX> copies = new ArrayList<>();
+    while (cursor.next()) {
+      copies.add(cursor.toRelation());
+    }
+    assertMatches(copies, new StreamingRelationCursor(relations));
+  }
+  
+  @Test
+  public void testSharedDictionary() {
+    StringDictionary dictionary = new StringDictionary();
+    RelationBatch.create(createRelations(), dictionary);
+    int size = dictionary.size();
+    RelationBatch second = RelationBatch.create(createRelations(), dictionary);
+    // The second batch adds no new strings
+    Assert.assertEquals(size, dictionary.size());
+    assertMatches(createRelations(), second.cursor());
+  }
+  
+  @Test(expected = NoSuchElementException.class)
+  public void testBeforeNext() {
+    RelationBatch.create(createRelations(), new StringDictionary()).cursor().getLhs();
+  }
+  
+  @Test(expected = NoSuchElementException.class)
+  public void testAfterEnd() {
+    RelationCursor cursor = RelationBatch.create(new ArrayList<RelationEX>(), new StringDictionary()).cursor();
+    Assert.assertFalse(cursor.next());
+    cursor.getLhs();
+  }
+}
@@ -0,0 +1,90 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class StringDictionaryTest {
+  @Test
+  public void testEncode() {
+    StringDictionary dictionary = new StringDictionary();
+    Assert.assertEquals(StringDictionary.NULL, dictionary.encode(null));
+    Assert.assertNull(dictionary.decode(StringDictionary.NULL));
+    
+    int a = dictionary.encode("java.lang.String");
+    int b = dictionary.encode("java.lang.Object");
+    Assert.assertTrue(a != b);
+    Assert.assertEquals(a, dictionary.encode(new String("java.lang.String")));
+    Assert.assertEquals("java.lang.String", dictionary.decode(a));
+    Assert.assertEquals("java.lang.Object", dictionary.decode(b));
+    Assert.assertEquals(2, dictionary.size());
+  }
+  
+  @Test
+  public void testGrow() {
+    StringDictionary dictionary = new StringDictionary();
+    for (int i = 0; i < 10_000; i++) {
+      Assert.assertEquals(i, dictionary.encode("s" + i));
+    }
+    Assert.assertEquals(10_000, dictionary.size());
+    for (int i = 0; i < 10_000; i++) {
+      Assert.assertEquals("s" + i, dictionary.decode(i));
+    }
+  }
+  
+  @Test
+  public void testConcurrentEncode() throws Exception {
+    final StringDictionary dictionary = new StringDictionary();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<int[]>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit(new Callable<int[]>() {
+          @Override
+          public int[] call() {
+            // Every thread encodes the same strings, and decodes while others grow the dictionary
+            int[] codes = new int[5_000];
+            for (int i = 0; i < codes.length; i++) {
+              codes[i] = dictionary.encode("s" + i);
+              Assert.assertEquals("s" + i, dictionary.decode(codes[i]));
+            }
+            return codes;
+          }
+        }));
+      }
+      int[] first = futures.get(0).get();
+      for (Future<int[]> future : futures) {
+        Assert.assertArrayEquals(first, future.get());
+      }
+      Assert.assertEquals(5_000, dictionary.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.model.extracted.io.internal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.uci.ics.sourcerer.util.io.FileUtils;
+
+/**
+ * Runs trivial jars through real FindBugs workers.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class FindBugsWorkerTest {
+  private File root;
+  private File findbugsJar;
+  private File classJar;
+  private File emptyJar;
+  
+  @Before
+  public void createJars() throws IOException {
+    root = File.createTempFile("findbugs", "");
+    root.delete();
+    root.mkdirs();
+    
+    // Look for the findbugs distribution in the lib directory above the module
+    for (File dir = new File(".").getAbsoluteFile(); dir != null && findbugsJar == null; dir = dir.getParentFile()) {
+      File jar = new File(dir, "lib/findbugs/lib/findbugs.jar");
+      if (jar.isFile()) {
+        findbugsJar = jar;
+      }
+    }
+    Assert.assertNotNull("Unable to find findbugs.jar", findbugsJar);
+    
+    classJar = new File(root, "class.jar");
+    try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(classJar))) {
+      jar.putNextEntry(new ZipEntry("fixture/Empty.class"));
+      jar.write(createEmptyClass("fixture/Empty"));
+      jar.closeEntry();
+    }
+    
+    emptyJar = new File(root, "empty.jar");
+    try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(emptyJar))) {
+      jar.putNextEntry(new ZipEntry("README"));
+      jar.write("No classes here.".getBytes());
+      jar.closeEntry();
+    }
+  }
+  
+  /**
+   * Builds a Java 6 class file with no members, old enough for the
+   * bundled FindBugs to read.
+   */
+  private static byte[] createEmptyClass(String name) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(0xCAFEBABE);
+    out.writeShort(0);
+    out.writeShort(50);
+    // Constant pool: this class and java.lang.Object
+    out.writeShort(5);
+    out.writeByte(7);
+    out.writeShort(2);
+    out.writeByte(1);
+    out.writeUTF(name);
+    out.writeByte(7);
+    out.writeShort(4);
+    out.writeByte(1);
+    out.writeUTF("java/lang/Object");
+    // public super, this, super, no interfaces, fields, methods or attributes
+    out.writeShort(0x0021);
+    out.writeShort(1);
+    out.writeShort(3);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.writeShort(0);
+    out.close();
+    return bytes.toByteArray();
+  }
+  
+  @After
+  public void deleteJars() {
+    FileUtils.delete(root);
+  }
+  
+  @Test
+  public void testWorkerProtocol() throws IOException, InterruptedException {
+    ProcessBuilder builder = new ProcessBuilder(
+        new File(new File(System.getProperty("java.home"), "bin"), "java").getPath(),
+        "-cp", System.getProperty("java.class.path"),
+        FindBugsWorker.class.getName(),
+        findbugsJar.getPath());
+    builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+    Process process = builder.start();
+    try (BufferedWriter in = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+         BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+      // A jar with no classes fails, without taking the worker down
+      File emptyOutput = new File(root, "empty.xml");
+      in.write(emptyJar.getPath() + "\t" + emptyOutput.getPath());
+      in.newLine();
+      in.flush();
+      Assert.assertTrue(out.readLine().startsWith(FindBugsWorker.ERROR));
+      
+      File output = new File(root, "class.xml");
+      in.write(classJar.getPath() + "\t" + output.getPath());
+      in.newLine();
+      in.flush();
+      Assert.assertEquals(FindBugsWorker.OK, out.readLine());
+      Assert.assertTrue(new String(FileUtils.getFileAsByteArray(output)).contains("<BugCollection"));
+      
+      in.write("no tab here");
+      in.newLine();
+      in.flush();
+      Assert.assertTrue(out.readLine().startsWith(FindBugsWorker.ERROR + " malformed job"));
+    }
+    Assert.assertEquals(0, process.waitFor());
+  }
+  
+  @Test
+  public void testPool() throws InterruptedException {
+    try (FindBugsWorkerPool pool = FindBugsWorkerPool.create(findbugsJar, 1, 10, 120)) {
+      Assert.assertFalse(pool.run(emptyJar, new File(root, "empty.xml")));
+      File output = new File(root, "class.xml");
+      Assert.assertTrue(pool.run(classJar, output));
+      Assert.assertTrue(output.length() > 0);
+    }
+  }
+}
@@ -23,6 +23,7 @@ import edu.uci.ics.sourcerer.tools.java.repo.misc.JarRepositoryCloner;
 import edu.uci.ics.sourcerer.tools.java.repo.misc.RepositoryCleaner;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
 import edu.uci.ics.sourcerer.tools.java.repo.stats.RepositoryStatisticsCalculator;
+import edu.uci.ics.sourcerer.util.io.FileCloner;
 import edu.uci.ics.sourcerer.util.io.arguments.Arguments;
 import edu.uci.ics.sourcerer.util.io.arguments.Command;
 
@@ -42,14 +43,14 @@ public class Main {
         protected void action() {
           MavenImporter.importMavenToRepository();
         }
-      }.setProperties(Arguments.INPUT, JavaRepositoryFactory.OUTPUT_REPO);
+      }.setProperties(Arguments.INPUT, JavaRepositoryFactory.OUTPUT_REPO, MavenImporter.SCAN_THREADS, MavenImporter.SCAN_MANIFEST);
       
   public static final Command IMPORT_LATEST_MAVEN_TO_REPOSITORY =
     new Command("import-latest-maven-to-repo", "Imports the latest copy of the Maven2 central repository into the Sourcerer repository.") {
       protected void action() {
         MavenImporter.importLatestMavenToRepository();
       }
-    }.setProperties(Arguments.INPUT, JavaRepositoryFactory.OUTPUT_REPO);
+    }.setProperties(Arguments.INPUT, JavaRepositoryFactory.OUTPUT_REPO, MavenImporter.SCAN_THREADS, MavenImporter.SCAN_MANIFEST);
   
   public static final Command CALCULATE_REPOSITORY_STATISTICS =
     new Command("calculate-repo-stats", "Calculates a variety of statistics about the repository.") {
@@ -78,7 +79,15 @@ public class Main {
       protected void action() {
         JarRepositoryCloner.cloneJarRepositoryFragment();
       }
-  }.setProperties(JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO, JarRepositoryCloner.JAR_FILTER_FILE);
+  }.setProperties(JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO, JarRepositoryCloner.JAR_FILTER_FILE, JarRepositoryCloner.CLONE_THREADS, FileCloner.CLONE_STRATEGY);
+  
+  public static final Command CLONE_EXTRACTED_JAR_REPO_FRAGMENT =
+    new Command("clone-extracted-jar-repo-fragment", "Clones a fragment of an extracted jar repository.") {
+      @Override
+      protected void action() {
+        JarRepositoryCloner.cloneExtractedJarRepositoryFragment();
+      }
+  }.setProperties(JavaRepositoryFactory.INPUT_REPO, JavaRepositoryFactory.OUTPUT_REPO, JarRepositoryCloner.JAR_FILTER_FILE, JarRepositoryCloner.CLONE_THREADS, JarRepositoryCloner.EXTRACTED_CLONE_STRATEGY);
   
   public static final Command CLEAN_JAVA_REPOSITORY =
     new Command("clean-java-repository", "Cleans the non-java files from the repository.") {
@@ -17,31 +17,22 @@
  */
 package edu.uci.ics.sourcerer.tools.java.repo.importers;
 
-import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
-
 import java.io.File;
-import java.io.IOException;
-import java.util.Collection;
-import java.util.Deque;
-import java.util.LinkedList;
-import java.util.logging.Level;
-
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-
-import org.xml.sax.Attributes;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
 
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
 import edu.uci.ics.sourcerer.tools.java.repo.model.ModifiableJavaRepository;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
 import edu.uci.ics.sourcerer.util.io.arguments.Arguments;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.RelativeFileArgument;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class MavenImporter {
+  public static final Argument<Integer> SCAN_THREADS = new IntegerArgument("maven-scan-threads", 8, "Number of threads scanning the maven mirror.");
+  public static final Argument<File> SCAN_MANIFEST = new RelativeFileArgument("maven-scan-manifest", "maven-scan-manifest.txt", JavaRepositoryFactory.OUTPUT_REPO, "Manifest of the maven artifacts already scanned.");
+  
 //  public static void importMavenToRepository() {
 //    ModifiableJavaRepository repo = JavaRepositoryFactory.INSTANCE.loadModifiableJavaRepository(JavaRepositoryFactory.OUTPUT_REPO);
 //
@@ -136,239 +127,11 @@ public class MavenImporter {
   
   public static void importMavenToRepository() {
     ModifiableJavaRepository repo = JavaRepositoryFactory.INSTANCE.loadModifiableJavaRepository(JavaRepositoryFactory.OUTPUT_REPO);
-
-    SAXParser parser = null;
-    try {
-      SAXParserFactory fact = SAXParserFactory.newInstance();
-      parser = fact.newSAXParser();
-    } catch (ParserConfigurationException | SAXException e) {
-      logger.log(Level.SEVERE, "Unable to create sax parser.", e);
-    }
-    
-    class Handler extends DefaultHandler {
-      private boolean inGroupID;
-      private boolean inArtifactID;
-      private boolean inVersioning;
-      private boolean inVersions;
-      private boolean inVersion;
-      public String groupID;
-      public String artifactID;
-      public Collection<String> versions = new LinkedList<>();
-
-      @Override
-      public void startElement(String uri, String localName, String qName, Attributes attributes) {
-        switch (qName) {
-          case "groupId": inGroupID = true; break;
-          case "artifactId": inArtifactID = true; break;
-          case "version": inVersion = inVersions; break;
-          case "versioning": inVersioning = true; break;
-          case "versions": inVersions = inVersioning; break;
-        }
-      }
-      
-      @Override
-      public void endElement(String uri, String localName, String qName) throws SAXException {
-        switch (qName) {
-          case "versioning": inVersioning = false; break;
-          case "versions": inVersions = false; break;
-        }
-      }
-
-      @Override
-      public void characters(char[] ch, int start, int length) {
-        if (inGroupID) {
-          groupID = new String(ch, start, length);
-          inGroupID = false;
-        } else if (inArtifactID) {
-          artifactID = new String(ch, start, length);
-          inArtifactID = false;
-        } else if (inVersion) {
-          versions.add(new String(ch, start, length));
-          inVersion = false;
-        }
-      }
-    };
-    Handler handler = new Handler();
-    
-    File root = Arguments.INPUT.getValue();
-    Deque<File> stack = new LinkedList<>();
-    stack.add(root);
-    
-    mainLoop:
-    while (!stack.isEmpty()) {
-      File next = stack.pop();
-      if (next.isDirectory()) {
-        // Look for maven-metadata.xml
-        for (File child : next.listFiles()) {
-          if (child.getName().equals("maven-metadata.xml")) {
-            try {
-              parser.parse(child, handler);
-            } catch (SAXException | IOException e) {
-              logger.log(Level.SEVERE, "Error reading maven metadata.", e);
-            }
-            // Verify the artifact info matches properly
-            if (!handler.versions.isEmpty()) {
-              String testGroup = next.getParent().substring(root.getPath().length()).replace(File.separatorChar, '.');
-              if (!testGroup.isEmpty()) {
-                testGroup = testGroup.substring(1);
-              }
-              if (!testGroup.equals(handler.groupID)) {
-                logger.info("Group mismatch for: " + next.getPath() + " " + testGroup);
-                handler.groupID = testGroup;
-              }
-              if (!next.getName().equals(handler.artifactID)) {
-                logger.info("Artifact mismatch for: " + next.getPath());
-                handler.artifactID = next.getName();
-              }
-            }
-            // Look up the all the version
-            for (String v : handler.versions) {
-              File version = new File(next, v);
-              if (version.isDirectory()) {
-                File jar = new File(version, handler.artifactID + "-" + version.getName() + ".jar");
-                File source = new File(version, handler.artifactID + "-" + version.getName() + "-sources.jar");
-                if (!jar.exists()) {
-                  jar = null;
-                }
-                if (!source.exists()) {
-                  source = null;
-                }
-                if (jar == null || source == null) {
-                  String jarSuffix = version.getName() + ".jar";
-                  String sourceSuffix = version.getName() + "-sources.jar";
-                  for (File file : version.listFiles()) {
-                    if (file.getName().endsWith(jarSuffix)) {
-                      if (jar == null) {
-                        jar = file;
-                      } else if (!jar.equals(file)) {
-                        logger.info("Multiple jar files for " + version.getAbsolutePath());
-                      }
-                    } else if (file.getName().endsWith(sourceSuffix)) {
-                      if (source == null) {
-                        source = file;
-                      } else if (!source.equals(file)) {
-                        logger.info("Multiple source files for " + version.getAbsolutePath());
-                      }
-                    }
-                  }
-                }
-                if (jar == null) {
-//                  logger.info("Unable to find jar for " + version.getAbsolutePath());
-                } else {
-                  repo.addMavenJarFile(jar, source, handler.groupID, handler.artifactID, version.getName());
-                }
-              }
-            }
-            if (!handler.versions.isEmpty()) {
-              handler.versions.clear();
-              continue mainLoop;
-            }
-          }
-        }
-        for (File child : next.listFiles()) {
-          if (!child.getName().startsWith(".")) {
-            stack.add(child);
-          }
-        }
-      }
-    }
+    MavenMirrorScanner.scan(repo, Arguments.INPUT.getValue(), false);
   }
   
   public static void importLatestMavenToRepository() {
     ModifiableJavaRepository repo = JavaRepositoryFactory.INSTANCE.loadModifiableJavaRepository(JavaRepositoryFactory.OUTPUT_REPO);
-
-    SAXParser parser = null;
-    try {
-      SAXParserFactory fact = SAXParserFactory.newInstance();
-      parser = fact.newSAXParser();
-    } catch (ParserConfigurationException | SAXException e) {
-      logger.log(Level.SEVERE, "Unable to create sax parser.", e);
-    }
-    
-    class Handler extends DefaultHandler {
-      private boolean inGroupID;
-      private boolean inArtifactID;
-      private boolean inVersion;
-      public String groupID;
-      public String artifactID;
-      public String latestVersion;
-
-      @Override
-      public void startElement(String uri, String localName, String qName, Attributes attributes) {
-        switch (qName) {
-          case "groupId": inGroupID = true; break;
-          case "artifactId": inArtifactID = true; break;
-          case "version": inVersion = true; break;
-        }
-      }
-
-      @Override
-      public void characters(char[] ch, int start, int length) {
-        if (inGroupID) {
-          groupID = new String(ch, start, length);
-          inGroupID = false;
-        } else if (inArtifactID) {
-          artifactID = new String(ch, start, length);
-          inArtifactID = false;
-        } else if (inVersion) {
-          latestVersion = new String(ch, start, length);
-          inVersion = false;
-        }
-      }
-    };
-    Handler handler = new Handler();
-    
-    File root = Arguments.INPUT.getValue();
-    Deque<File> stack = new LinkedList<>();
-    stack.add(root);
-    
-    mainLoop:
-    while (!stack.isEmpty()) {
-      File next = stack.pop();
-      if (next.isDirectory()) {
-        // Look for maven-metadata.xml
-        for (File child : next.listFiles()) {
-          if (child.getName().equals("maven-metadata.xml")) {
-            try {
-              parser.parse(child, handler);
-            } catch (SAXException | IOException e) {
-              logger.log(Level.SEVERE, "Error reading maven metadata.", e);
-            }
-            // Look up the latest version
-            File version = new File(next, handler.latestVersion);
-            if (version.isDirectory()) {
-              String jarSuffix = version.getName() + ".jar";
-              String sourceSuffix = version.getName() + "-sources.jar";
-              File jar = null;
-              File source = null;
-              for (File file : version.listFiles()) {
-                if (file.getName().endsWith(jarSuffix)) {
-                  if (jar == null) {
-                    jar = file;
-                  } else {
-                    logger.info("Multiple jar files for " + version.getAbsolutePath());
-                  }
-                } else if (file.getName().endsWith(sourceSuffix)) {
-                  if (source == null) {
-                    source = file;
-                  } else {
-                    logger.info("Multiple source files for " + version.getAbsolutePath());
-                  }
-                }
-              }
-              if (jar == null) {
-                logger.info("Unable to find jar for " + version.getAbsolutePath());
-              } else {
-                repo.addMavenJarFile(jar, source, handler.groupID, handler.artifactID, version.getName());
-              }
-            }
-            continue mainLoop;
-          }
-        }
-        for (File child : next.listFiles()) {
-          stack.add(child);
-        }
-      }
-    }
+    MavenMirrorScanner.scan(repo, Arguments.INPUT.getValue(), true);
   }
 }
@@ -0,0 +1,396 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.tools.java.repo.importers;
+
+import static edu.uci.ics.sourcerer.tools.java.repo.importers.MavenImporter.SCAN_MANIFEST;
+import static edu.uci.ics.sourcerer.tools.java.repo.importers.MavenImporter.SCAN_THREADS;
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import edu.uci.ics.sourcerer.tools.java.repo.model.ModifiableJavaRepository;
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
+
+/**
+ * Walks a maven mirror with a work-stealing pool, adding the jars of
+ * each artifact to the repository. Artifact directories whose
+ * modification times match the scan manifest are skipped, so only the
+ * parts of the mirror that changed since the last scan are revisited.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class MavenMirrorScanner {
+  private static final String METADATA = "maven-metadata.xml";
+  private static final String ALL_VERSIONS = "all";
+  private static final String LATEST_VERSION = "latest";
+  
+  private final ModifiableJavaRepository repo;
+  private final File root;
+  private final boolean latestOnly;
+  
+  // Artifact path -> modification stamp and scan mode
+  private final Map<String, String> manifest;
+  private BufferedWriter manifestWriter;
+  
+  private final ThreadLocal<SAXParser> parsers;
+  
+  private final AtomicInteger artifactCount = new AtomicInteger();
+  private final AtomicInteger skippedCount = new AtomicInteger();
+  
+  private MavenMirrorScanner(ModifiableJavaRepository repo, File root, boolean latestOnly) {
+    this.repo = repo;
+    this.root = root;
+    this.latestOnly = latestOnly;
+    this.manifest = Collections.synchronizedMap(new LinkedHashMap<String, String>());
+    this.parsers = new ThreadLocal<SAXParser>() {
+      @Override
+      protected SAXParser initialValue() {
+        try {
+          return SAXParserFactory.newInstance().newSAXParser();
+        } catch (ParserConfigurationException | SAXException e) {
+          logger.log(Level.SEVERE, "Unable to create sax parser.", e);
+          return null;
+        }
+      }
+    };
+  }
+  
+  static void scan(ModifiableJavaRepository repo, File root, boolean latestOnly) {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    
+    MavenMirrorScanner scanner = new MavenMirrorScanner(repo, root, latestOnly);
+    
+    task.start("Loading scan manifest");
+    scanner.loadManifest();
+    task.report(scanner.manifest.size() + " artifacts in manifest");
+    task.finish();
+    
+    task.start("Scanning " + root.getPath() + " with " + SCAN_THREADS.getValue() + " threads");
+    ForkJoinPool pool = new ForkJoinPool(SCAN_THREADS.getValue());
+    try {
+      pool.invoke(scanner.new DirectoryTask(root));
+    } finally {
+      pool.shutdown();
+      IOUtils.close(scanner.manifestWriter);
+    }
+    task.report(scanner.artifactCount.get() + " artifacts scanned, " + scanner.skippedCount.get() + " unchanged artifacts skipped");
+    task.finish();
+    
+    task.start("Compacting scan manifest");
+    scanner.compactManifest();
+    task.finish();
+  }
+  
+  private void loadManifest() {
+    File file = SCAN_MANIFEST.getValue();
+    if (file.exists()) {
+      // Entries are appended as artifacts complete, so later lines win
+      try (BufferedReader br = IOUtils.createBufferedReader(file)) {
+        for (String line = br.readLine(); line != null; line = br.readLine()) {
+          int tab = line.indexOf('\t');
+          if (tab > 0) {
+            manifest.put(line.substring(0, tab), line.substring(tab + 1));
+          }
+        }
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, "Error reading scan manifest: " + file.getPath(), e);
+        manifest.clear();
+      }
+    }
+    try {
+      manifestWriter = IOUtils.makeBufferedWriter(file, true);
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to append to scan manifest: " + file.getPath(), e);
+    }
+  }
+  
+  private void compactManifest() {
+    File file = SCAN_MANIFEST.getValue();
+    File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+    try (BufferedWriter bw = IOUtils.makeBufferedWriter(tmp)) {
+      synchronized (manifest) {
+        for (Map.Entry<String, String> entry : manifest.entrySet()) {
+          bw.write(entry.getKey() + "\t" + entry.getValue());
+          bw.newLine();
+        }
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Error compacting scan manifest: " + file.getPath(), e);
+      return;
+    }
+    if ((file.exists() && !file.delete()) || !tmp.renameTo(file)) {
+      logger.severe("Unable to replace scan manifest: " + file.getPath());
+    }
+  }
+  
+  private void recordArtifact(String path, long stamp) {
+    String value = stamp + "\t" + (latestOnly ? LATEST_VERSION : ALL_VERSIONS);
+    manifest.put(path, value);
+    if (manifestWriter != null) {
+      synchronized (manifestWriter) {
+        try {
+          manifestWriter.write(path + "\t" + value);
+          manifestWriter.newLine();
+          manifestWriter.flush();
+        } catch (IOException e) {
+          logger.log(Level.SEVERE, "Error writing scan manifest.", e);
+        }
+      }
+    }
+  }
+  
+  private boolean isUnchanged(String path, long stamp) {
+    String value = manifest.get(path);
+    if (value == null) {
+      return false;
+    } else {
+      int tab = value.indexOf('\t');
+      // A scan of the latest versions does not cover the older ones
+      if (latestOnly || value.endsWith(ALL_VERSIONS)) {
+        return value.substring(0, tab).equals(Long.toString(stamp));
+      } else {
+        return false;
+      }
+    }
+  }
+  
+  /**
+   * A new version touches the artifact directory and its metadata, while
+   * a replaced jar touches its version directory.
+   */
+  private static long computeStamp(File dir, File[] children) {
+    long stamp = dir.lastModified();
+    for (File child : children) {
+      if (child.isDirectory() || child.getName().equals(METADATA)) {
+        stamp = Math.max(stamp, child.lastModified());
+      }
+    }
+    return stamp;
+  }
+  
+  private class DirectoryTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    
+    private final File dir;
+    
+    private DirectoryTask(File dir) {
+      this.dir = dir;
+    }
+    
+    @Override
+    protected void compute() {
+      File[] children = dir.listFiles();
+      if (children == null) {
+        return;
+      }
+      // Look for maven-metadata.xml
+      for (File child : children) {
+        if (child.getName().equals(METADATA)) {
+          if (scanArtifact(dir, child, children)) {
+            return;
+          } else {
+            break;
+          }
+        }
+      }
+      Collection<DirectoryTask> tasks = new ArrayList<>();
+      for (File child : children) {
+        if (child.isDirectory() && !child.getName().startsWith(".")) {
+          tasks.add(new DirectoryTask(child));
+        }
+      }
+      invokeAll(tasks);
+    }
+  }
+  
+  private static class MetadataHandler extends DefaultHandler {
+    private boolean inGroupID;
+    private boolean inArtifactID;
+    private boolean inVersioning;
+    private boolean inVersions;
+    private boolean inVersion;
+    private boolean inAnyVersion;
+    public String groupID;
+    public String artifactID;
+    public String latestVersion;
+    public Collection<String> versions = new LinkedList<>();
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) {
+      switch (qName) {
+        case "groupId": inGroupID = true; break;
+        case "artifactId": inArtifactID = true; break;
+        case "version": inVersion = inVersions; inAnyVersion = true; break;
+        case "versioning": inVersioning = true; break;
+        case "versions": inVersions = inVersioning; break;
+      }
+    }
+    
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+      switch (qName) {
+        case "versioning": inVersioning = false; break;
+        case "versions": inVersions = false; break;
+      }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      if (inGroupID) {
+        groupID = new String(ch, start, length);
+        inGroupID = false;
+      } else if (inArtifactID) {
+        artifactID = new String(ch, start, length);
+        inArtifactID = false;
+      } else if (inAnyVersion) {
+        String version = new String(ch, start, length);
+        if (inVersion) {
+          versions.add(version);
+          inVersion = false;
+        }
+        latestVersion = version;
+        inAnyVersion = false;
+      }
+    }
+  }
+  
+  /**
+   * Returns true if the artifact was found, ending the descent.
+   */
+  private boolean scanArtifact(File dir, File metadata, File[] children) {
+    String path = dir.getPath().substring(root.getPath().length()).replace(File.separatorChar, '/');
+    long stamp = computeStamp(dir, children);
+    if (isUnchanged(path, stamp)) {
+      skippedCount.incrementAndGet();
+      return true;
+    }
+    
+    SAXParser parser = parsers.get();
+    if (parser == null) {
+      return true;
+    }
+    MetadataHandler handler = new MetadataHandler();
+    try {
+      parser.reset();
+      parser.parse(metadata, handler);
+    } catch (SAXException | IOException e) {
+      logger.log(Level.SEVERE, "Error reading maven metadata: " + metadata.getPath(), e);
+      return latestOnly;
+    }
+    
+    if (handler.versions.isEmpty()) {
+      if (!latestOnly || handler.latestVersion == null) {
+        return latestOnly;
+      }
+    } else {
+      // Verify the artifact info matches properly
+      String testGroup = dir.getParent().substring(root.getPath().length()).replace(File.separatorChar, '.');
+      if (!testGroup.isEmpty()) {
+        testGroup = testGroup.substring(1);
+      }
+      if (!testGroup.equals(handler.groupID)) {
+        logger.info("Group mismatch for: " + dir.getPath() + " " + testGroup);
+        handler.groupID = testGroup;
+      }
+      if (!dir.getName().equals(handler.artifactID)) {
+        logger.info("Artifact mismatch for: " + dir.getPath());
+        handler.artifactID = dir.getName();
+      }
+    }
+    
+    Collection<String> versions = latestOnly ? Collections.singleton(handler.latestVersion) : handler.versions;
+    boolean added = true;
+    for (String v : versions) {
+      File version = new File(dir, v);
+      if (version.isDirectory()) {
+        added &= addVersion(version, handler.groupID, handler.artifactID);
+      }
+    }
+    
+    artifactCount.incrementAndGet();
+    // Only remember the artifact once every version made it in, so failures are retried
+    if (added) {
+      recordArtifact(path, stamp);
+    }
+    return true;
+  }
+  
+  /**
+   * @return false if the version has a jar that could not be added
+   */
+  private boolean addVersion(File version, String groupID, String artifactID) {
+    File jar = new File(version, artifactID + "-" + version.getName() + ".jar");
+    File source = new File(version, artifactID + "-" + version.getName() + "-sources.jar");
+    if (!jar.exists()) {
+      jar = null;
+    }
+    if (!source.exists()) {
+      source = null;
+    }
+    if (jar == null || source == null) {
+      String jarSuffix = version.getName() + ".jar";
+      String sourceSuffix = version.getName() + "-sources.jar";
+      File[] files = version.listFiles();
+      if (files != null) {
+        for (File file : files) {
+          if (file.getName().endsWith(jarSuffix)) {
+            if (jar == null) {
+              jar = file;
+            } else if (!jar.equals(file)) {
+              logger.info("Multiple jar files for " + version.getAbsolutePath());
+            }
+          } else if (file.getName().endsWith(sourceSuffix)) {
+            if (source == null) {
+              source = file;
+            } else if (!source.equals(file)) {
+              logger.info("Multiple source files for " + version.getAbsolutePath());
+            }
+          }
+        }
+      }
+    }
+    if (jar == null) {
+      return true;
+    } else {
+      // Hashing and copying happen here, on the scanning thread
+      return repo.addMavenJarFile(jar, source, groupID, artifactID, version.getName());
+    }
+  }
+}
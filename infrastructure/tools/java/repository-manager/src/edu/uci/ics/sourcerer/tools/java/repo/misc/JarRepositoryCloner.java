@@ -17,29 +17,159 @@
  */
 package edu.uci.ics.sourcerer.tools.java.repo.misc;
 
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.tools.java.repo.model.JarFile;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepository;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaRepositoryFactory;
 import edu.uci.ics.sourcerer.tools.java.repo.model.ModifiableJavaRepository;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJarFile;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJavaRepository;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ModifiableExtractedJavaRepository;
+import edu.uci.ics.sourcerer.util.io.FileCloner;
 import edu.uci.ics.sourcerer.util.io.FileUtils;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
 import edu.uci.ics.sourcerer.util.io.arguments.FileArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
+import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 
 /**
+ * Clones a subset of the jars in a repository into another repository.
+ * Jar directories are linked rather than copied where the file system
+ * allows it (see {@link FileCloner}), so a fragment costs little more
+ * than its metadata.
+ * <p>
+ * Extracted jars are cloned by reflink by default, which falls back to
+ * copying. Re-extracting or compressing a jar rewrites its files in
+ * place, so a hard-linked clone would change the original as well.
+ * 
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class JarRepositoryCloner {
   public static final Argument<File> JAR_FILTER_FILE = new FileArgument("jar-filter-file", null, "Jar filter file");
+  public static final Argument<Integer> CLONE_THREADS = new IntegerArgument("clone-threads", 8, "Number of jars to clone concurrently.");
+  public static final Argument<String> EXTRACTED_CLONE_STRATEGY = new StringArgument("extracted-clone-strategy", "reflink", "How files of extracted jars are cloned: hard-link, reflink, symlink or copy. Only reflink and copy leave the original intact when the clone is re-extracted or compressed.");
+  
+  private JarRepositoryCloner() {}
   
   public static void cloneJarRepositoryFragment() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Cloning jar repository fragment");
+    
     JavaRepository repo = JavaRepositoryFactory.INSTANCE.loadJavaRepository(JavaRepositoryFactory.INPUT_REPO);
-    ModifiableJavaRepository newRepo = JavaRepositoryFactory.INSTANCE.loadModifiableJavaRepository(JavaRepositoryFactory.OUTPUT_REPO);
-
+    final ModifiableJavaRepository newRepo = JavaRepositoryFactory.INSTANCE.loadModifiableJavaRepository(JavaRepositoryFactory.OUTPUT_REPO);
+    final FileCloner cloner = FileCloner.create();
+    
+    Collection<Callable<Void>> tasks = new ArrayList<>();
+    for (final JarFile jar : resolveJars(repo, task)) {
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          if (newRepo.cloneJarFile(jar, cloner) == null) {
+            logger.severe("Unable to clone " + jar);
+          }
+          return null;
+        }
+      });
+    }
+    
+    runAll(tasks, task);
+    task.report("Cloned using " + cloner);
+    task.finish();
+  }
+  
+  public static void cloneExtractedJarRepositoryFragment() {
+    TaskProgressLogger task = TaskProgressLogger.get();
+    task.start("Cloning extracted jar repository fragment");
+    
+    ExtractedJavaRepository repo = JavaRepositoryFactory.INSTANCE.loadExtractedJavaRepository(JavaRepositoryFactory.INPUT_REPO);
+    final ModifiableExtractedJavaRepository newRepo = JavaRepositoryFactory.INSTANCE.loadModifiableExtractedJavaRepository(JavaRepositoryFactory.OUTPUT_REPO);
+    final FileCloner cloner = FileCloner.create(FileCloner.Strategy.parse(EXTRACTED_CLONE_STRATEGY.getValue()));
+    
+    Collection<Callable<Void>> tasks = new ArrayList<>();
+    for (final ExtractedJarFile jar : resolveExtractedJars(repo, task)) {
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() {
+          if (newRepo.cloneJarFile(jar, cloner) == null) {
+            logger.severe("Unable to clone " + jar);
+          }
+          return null;
+        }
+      });
+    }
+    
+    runAll(tasks, task);
+    task.report("Cloned using " + cloner);
+    task.finish();
+  }
+  
+  private static Collection<JarFile> resolveJars(JavaRepository repo, TaskProgressLogger task) {
+    Collection<JarFile> jars = new ArrayList<>();
+    int missing = 0;
     for (String hash : FileUtils.readFileToCollection(JAR_FILTER_FILE.getValue())) {
       JarFile jar = repo.getJarFile(hash);
-      newRepo.addMavenJarFile(jar.getFile().toFile(), jar.getSourceFile() == null ? null : jar.getSourceFile().toFile(), jar.getProperties().GROUP.getValue(), jar.getProperties().NAME.getValue(), jar.getProperties().VERSION.getValue());
+      if (jar == null) {
+        logger.severe("Unable to locate jar: " + hash);
+        missing++;
+      } else {
+        jars.add(jar);
+      }
+    }
+    task.report(jars.size() + " jars to clone, " + missing + " missing");
+    return jars;
+  }
+  
+  private static Collection<ExtractedJarFile> resolveExtractedJars(ExtractedJavaRepository repo, TaskProgressLogger task) {
+    Collection<ExtractedJarFile> jars = new ArrayList<>();
+    int missing = 0;
+    for (String hash : FileUtils.readFileToCollection(JAR_FILTER_FILE.getValue())) {
+      ExtractedJarFile jar = repo.getJarFile(hash);
+      if (jar == null) {
+        logger.severe("Unable to locate jar: " + hash);
+        missing++;
+      } else {
+        jars.add(jar);
+      }
+    }
+    task.report(jars.size() + " jars to clone, " + missing + " missing");
+    return jars;
+  }
+  
+  private static void runAll(Collection<Callable<Void>> tasks, TaskProgressLogger task) {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, CLONE_THREADS.getValue()));
+    try {
+      task.start("Cloning " + tasks.size() + " jars", "jars cloned", 500);
+      Collection<Future<Void>> futures = new ArrayList<>();
+      for (Callable<Void> callable : tasks) {
+        futures.add(executor.submit(callable));
+      }
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          logger.log(Level.SEVERE, "Error cloning jar", e.getCause());
+        }
+        task.progress();
+      }
+      task.finish();
+    } catch (InterruptedException e) {
+      logger.log(Level.SEVERE, "Interrupted while cloning jars", e);
+      Thread.currentThread().interrupt();
+      task.cancel();
+    } finally {
+      executor.shutdownNow();
     }
   }
 }
@@ -22,6 +22,7 @@ import java.util.Collection;
 
 import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceRepository;
 import edu.uci.ics.sourcerer.tools.core.repo.model.ProjectLocation;
+import edu.uci.ics.sourcerer.util.io.FileCloner;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
@@ -49,5 +50,11 @@ public interface ModifiableJavaRepository extends JavaRepository, ModifiableSour
   
   public void addLibraryJarFile(File jar, File source);
   
-  public void addMavenJarFile(File jar, File source, String group, String artifact, String version);
+  /**
+   * @return true if the jar is in the repository afterwards, either
+   * because it was added or because it was already present
+   */
+  public boolean addMavenJarFile(File jar, File source, String group, String artifact, String version);
+  
+  public JarFile cloneJarFile(JarFile jar, FileCloner cloner);
 }
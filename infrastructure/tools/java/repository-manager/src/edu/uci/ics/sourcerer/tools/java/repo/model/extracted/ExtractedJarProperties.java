@@ -21,6 +21,7 @@ import edu.uci.ics.sourcerer.tools.core.repo.model.RepoFile;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JarProperties;
 import edu.uci.ics.sourcerer.util.io.properties.BooleanProperty;
 import edu.uci.ics.sourcerer.util.io.properties.Property;
+import edu.uci.ics.sourcerer.util.io.properties.StringProperty;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
@@ -28,6 +29,7 @@ import edu.uci.ics.sourcerer.util.io.properties.Property;
 public class ExtractedJarProperties extends JarProperties {
   public Property<Boolean> EXTRACTED = new BooleanProperty("extracted", this);
   public Property<Boolean> HAS_SOURCE = new BooleanProperty("has_source", this);
+  public Property<String> DUPLICATE_OF = new StringProperty("duplicate_of", this);
   
   public ExtractedJarProperties(RepoFile file) {
     super(file);
@@ -26,7 +26,9 @@ import edu.uci.ics.sourcerer.util.io.properties.Property;
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class ExtractedJavaProjectProperties extends SourceProjectProperties {
-  public Property<Boolean> EXTRACTED = new BooleanProperty("extracted", this);
+  public static final String EXTRACTED_NAME = "extracted";
+  
+  public Property<Boolean> EXTRACTED = new BooleanProperty(EXTRACTED_NAME, this);
   
   public ExtractedJavaProjectProperties(RepoFile file) {
     super(file);
@@ -21,6 +21,7 @@ import java.util.Collection;
 
 import edu.uci.ics.sourcerer.tools.core.repo.model.ProjectLocation;
 import edu.uci.ics.sourcerer.tools.core.repo.model.Repository;
+import edu.uci.ics.sourcerer.util.io.PersistentDictionary;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
@@ -41,6 +42,11 @@ public interface ExtractedJavaRepository extends Repository {
   @Override
   public Collection<? extends ExtractedJavaProject> getProjects();
   
+  /**
+   * Returns the projects whose extraction completed.
+   */
+  public Collection<? extends ExtractedJavaProject> getExtractedProjects();
+  
   public ExtractedJarFile getJarFile(String hash);
   
   public Collection<? extends ExtractedJarFile> getMavenJarFiles();
@@ -48,4 +54,6 @@ public interface ExtractedJavaRepository extends Repository {
   public Collection<? extends ExtractedJarFile> getProjectJarFiles();
   
   public Collection<? extends ExtractedJarFile> getLibraryJarFiles();
+  
+  public PersistentDictionary getFqnDictionary();
 }
@@ -23,6 +23,7 @@ import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableRepository;
 import edu.uci.ics.sourcerer.tools.core.repo.model.ProjectLocation;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JarFile;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaProject;
+import edu.uci.ics.sourcerer.util.io.FileCloner;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
@@ -49,4 +50,6 @@ public interface ModifiableExtractedJavaRepository extends ExtractedJavaReposito
   public ModifiableExtractedJavaProject getMatchingProject(JavaProject project);
   
   public ModifiableExtractedJarFile getMatchingJarFile(JarFile jar);
+  
+  public ModifiableExtractedJarFile cloneJarFile(ExtractedJarFile jar, FileCloner cloner);
 }
@@ -37,31 +37,35 @@ import edu.uci.ics.sourcerer.tools.java.repo.model.internal.IJar;
 import edu.uci.ics.sourcerer.tools.java.repo.model.internal.JarFileImpl;
 import edu.uci.ics.sourcerer.util.io.FileUtils;
 import edu.uci.ics.sourcerer.util.io.ObjectDeserializer;
+import edu.uci.ics.sourcerer.util.io.properties.PropertiesCatalog;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
  */
 public class ExtractedJarFileImpl implements ModifiableExtractedJarFile, IJar {
+  private final ExtractedJavaRepositoryImpl repo;
   private final RepoFileImpl dir;
   private final RepoFileImpl zip;
   
   private ExtractedJarProperties properties;
   
-  private ExtractedJarFileImpl(RepoFileImpl dir) {
+  private ExtractedJarFileImpl(ExtractedJavaRepositoryImpl repo, RepoFileImpl dir, PropertiesCatalog catalog) {
+    this.repo = repo;
     this.dir = dir;
     this.zip = dir.getChild(COMPRESSED_OUTPUT.getValue());
     this.properties = new ExtractedJarProperties(dir.getChild(JarFileImpl.JAR_PROPERTIES));
+    this.properties.setCatalog(catalog, JarFileImpl.getCatalogKey(dir));
   }
   
-  static ExtractedJarFileImpl create(RepoFileImpl dir, JarProperties properties) {
-    ExtractedJarFileImpl jar = new ExtractedJarFileImpl(dir);
+  static ExtractedJarFileImpl create(ExtractedJavaRepositoryImpl repo, RepoFileImpl dir, JarProperties properties, PropertiesCatalog catalog) {
+    ExtractedJarFileImpl jar = new ExtractedJarFileImpl(repo, dir, catalog);
     jar.properties.copy(properties);
     jar.properties.save();
     return jar;
   }
   
-  static ExtractedJarFileImpl create(RepoFileImpl dir) {
-    ExtractedJarFileImpl jar = new ExtractedJarFileImpl(dir);
+  static ExtractedJarFileImpl create(ExtractedJavaRepositoryImpl repo, RepoFileImpl dir, PropertiesCatalog catalog) {
+    ExtractedJarFileImpl jar = new ExtractedJarFileImpl(repo, dir, catalog);
     if (Boolean.TRUE.equals(jar.properties.EXTRACTED.getValue())) {
       return jar;
     } else {
@@ -70,8 +74,29 @@ public class ExtractedJarFileImpl implements ModifiableExtractedJarFile, IJar {
     }
   }
   
+  /**
+   * Returns the jar whose extraction this one shares, or
+   * <code>null</code> if this jar holds its own extraction.
+   */
+  ExtractedJarFileImpl getOriginal() {
+    String hash = properties.DUPLICATE_OF.getValue();
+    if (hash == null) {
+      return null;
+    } else {
+      ExtractedJarFileImpl original = repo.getJarFile(hash);
+      if (original == null) {
+        logger.severe("Unable to locate " + hash + ", the original of " + dir);
+      }
+      return original;
+    }
+  }
+  
   @Override
   public void compress() {
+    // The original owns the shared output
+    if (properties.DUPLICATE_OF.getValue() != null) {
+      return;
+    }
     Collection<File> compressed = new LinkedList<>();
     
     try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip.toFile()))) {
@@ -103,12 +128,13 @@ public class ExtractedJarFileImpl implements ModifiableExtractedJarFile, IJar {
   
   @Override
   public RepoFileImpl getCompressedFile() {
-    return zip;
+    ExtractedJarFileImpl original = getOriginal();
+    return original == null ? zip : original.getCompressedFile();
   }
   
   @Override
   public boolean isCompressed() {
-    return zip.exists();
+    return getCompressedFile().exists();
   }
   
   @Override
@@ -116,11 +142,16 @@ public class ExtractedJarFileImpl implements ModifiableExtractedJarFile, IJar {
     // TODO this is dangerous for nested maven jars
     dir.delete();
     dir.makeDirs();
+    // A reset jar holds its own extraction again
     properties.clear();
     properties.copy(jar.getProperties());
     properties.save();
   }
   
+  RepoFileImpl getJarDir() {
+    return dir;
+  }
+  
   @Override
   public ExtractedJarProperties getProperties() {
     return properties;
@@ -128,7 +159,8 @@ public class ExtractedJarFileImpl implements ModifiableExtractedJarFile, IJar {
   
   @Override
   public RepoFileImpl getExtractionDir() {
-    return dir;
+    ExtractedJarFileImpl original = getOriginal();
+    return original == null ? dir : original.getExtractionDir();
   }
   
   @Override
@@ -143,12 +175,12 @@ public class ExtractedJarFileImpl implements ModifiableExtractedJarFile, IJar {
     return dir.serialize();
   }
   
-  public static ObjectDeserializer<ExtractedJarFileImpl> makeDeserializer(RepoFileImpl dir) {
+  public static ObjectDeserializer<ExtractedJarFileImpl> makeDeserializer(final ExtractedJavaRepositoryImpl repo, RepoFileImpl dir, final PropertiesCatalog catalog) {
     final ObjectDeserializer<RepoFileImpl> dirDeserializer = dir.makeDeserializer();
     return new ObjectDeserializer<ExtractedJarFileImpl>() {
       @Override
       public ExtractedJarFileImpl deserialize(Scanner scanner) {
-        return create(dirDeserializer.deserialize(scanner));
+        return create(repo, dirDeserializer.deserialize(scanner), catalog);
       }
     };
   }
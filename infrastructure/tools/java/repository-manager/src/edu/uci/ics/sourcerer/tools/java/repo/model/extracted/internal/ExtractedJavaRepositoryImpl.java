@@ -18,14 +18,22 @@
 package edu.uci.ics.sourcerer.tools.java.repo.model.extracted.internal;
 
 import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.util.Collection;
+
 import edu.uci.ics.sourcerer.tools.core.repo.model.internal.ProjectLocationImpl;
 import edu.uci.ics.sourcerer.tools.core.repo.model.internal.RepoFileImpl;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JarFile;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JarSource;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JavaProject;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJarFile;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJarProperties;
+import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ExtractedJavaProjectProperties;
 import edu.uci.ics.sourcerer.tools.java.repo.model.extracted.ModifiableExtractedJavaRepository;
 import edu.uci.ics.sourcerer.tools.java.repo.model.internal.AbstractJavaRepository;
 import edu.uci.ics.sourcerer.tools.java.repo.model.internal.JarFileImpl;
 import edu.uci.ics.sourcerer.tools.java.repo.model.internal.JavaProjectImpl;
+import edu.uci.ics.sourcerer.util.io.FileCloner;
 import edu.uci.ics.sourcerer.util.io.ObjectDeserializer;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
 
@@ -62,12 +70,12 @@ public final class ExtractedJavaRepositoryImpl extends AbstractJavaRepository<Ex
   
   @Override
   protected ObjectDeserializer<ExtractedJarFileImpl> makeDeserializer() {
-    return ExtractedJarFileImpl.makeDeserializer(repoRoot);
+    return ExtractedJarFileImpl.makeDeserializer(this, repoRoot, getCatalog());
   }
   
   @Override
   protected ExtractedJarFileImpl loadJar(RepoFileImpl dir) {
-    return ExtractedJarFileImpl.create(dir);
+    return ExtractedJarFileImpl.create(this, dir, getCatalog());
   }
   
   @Override
@@ -80,13 +88,18 @@ public final class ExtractedJavaRepositoryImpl extends AbstractJavaRepository<Ex
     return new ExtractedJavaBatchImpl(this, dir, batch);
   }
   
+  @Override
+  public Collection<ExtractedJavaProjectImpl> getExtractedProjects() {
+    // Answered by the catalog's index of ExtractedJavaProjectProperties.EXTRACTED
+    return getProjects(ExtractedJavaProjectProperties.EXTRACTED_NAME, Boolean.TRUE.toString());
+  }
+  
   @Override
   public ExtractedJavaProjectImpl getMatchingProject(JavaProject project) {
     JavaProjectImpl cast = (JavaProjectImpl) project;
     ProjectLocationImpl loc = cast.getLocation();
     ExtractedJavaProjectImpl result = getProject(loc.getBatchNumber(), loc.getCheckoutNumber());
     if (result == null) {
-      clearCache();
       result = addProject(loc.getBatchNumber(), loc.getCheckoutNumber());
       result.getProperties().copy(project.getProperties());
       result.getProperties().save();
@@ -105,7 +118,8 @@ public final class ExtractedJavaRepositoryImpl extends AbstractJavaRepository<Ex
     ExtractedJarFileImpl result = getJarFile(jar.getProperties().HASH.getValue());
     if (result == null) {
       RepoFileImpl output = cast.getFile().getRoot().reroot(repoRoot);
-      result = ExtractedJarFileImpl.create(output, jar.getProperties());
+      result = ExtractedJarFileImpl.create(this, output, jar.getProperties(), getCatalog());
+      linkDuplicate(result);
       switch (result.getProperties().SOURCE.getValue()) {
         case JAVA_LIBRARY:
           libraryJarIndex.put(result.getProperties().HASH.getValue(), result);
@@ -123,4 +137,54 @@ public final class ExtractedJavaRepositoryImpl extends AbstractJavaRepository<Ex
     }
     return result;
   }
+  
+  @Override
+  public ExtractedJarFileImpl cloneJarFile(ExtractedJarFile jar, FileCloner cloner) {
+    ExtractedJarFileImpl cast = (ExtractedJarFileImpl) jar;
+    // A duplicate is useless without the extraction it shares
+    ExtractedJarFileImpl original = cast.getOriginal();
+    if (original != null) {
+      RepoFileImpl target = original.getJarDir().asRoot().reroot(repoRoot);
+      // Whichever clone claims the original's directory first clones it
+      if (claimJarDir(target)) {
+        cloneJar(original.getJarDir(), target, cloner);
+      }
+    }
+    return cloneJar(cast.getJarDir(), cloner);
+  }
+  
+  /**
+   * Jars are keyed by their MD5, so identical library, maven and project
+   * jars already resolve to a single extraction. The exception is a
+   * maven jar whose hash was taken by another artifact, which was added
+   * with a "0" appended to its hash. Such a jar shares the extraction of
+   * the jar holding the hash without the suffix.
+   */
+  private synchronized void linkDuplicate(ExtractedJarFileImpl result) {
+    ExtractedJarProperties props = result.getProperties();
+    String hash = props.HASH.getValue();
+    if (props.SOURCE.getValue() != JarSource.MAVEN || hash == null) {
+      return;
+    }
+    ExtractedJarFileImpl original = null;
+    // Only the suffix may be stripped, never the 32 hex digits of the MD5 itself
+    while (original == null && hash.length() > 32 && hash.endsWith("0")) {
+      hash = hash.substring(0, hash.length() - 1);
+      original = getJarFile(hash);
+    }
+    if (original != null) {
+      ExtractedJarFileImpl root = original.getOriginal();
+      if (root != null) {
+        original = root;
+      }
+      ExtractedJarProperties originalProps = original.getProperties();
+      // If the original never finished, this copy gets its own extraction
+      if (Boolean.TRUE.equals(originalProps.EXTRACTED.getValue())) {
+        props.DUPLICATE_OF.setValue(originalProps.HASH.getValue());
+        props.EXTRACTED.setValue(true);
+        props.HAS_SOURCE.setValue(originalProps.HAS_SOURCE.getValue());
+        props.save();
+      }
+    }
+  }
 }
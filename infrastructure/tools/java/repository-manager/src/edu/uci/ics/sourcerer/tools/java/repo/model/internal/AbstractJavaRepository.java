@@ -32,8 +32,10 @@ import edu.uci.ics.sourcerer.tools.core.repo.model.internal.AbstractRepoProject;
 import edu.uci.ics.sourcerer.tools.core.repo.model.internal.AbstractRepository;
 import edu.uci.ics.sourcerer.tools.core.repo.model.internal.BatchImpl;
 import edu.uci.ics.sourcerer.tools.core.repo.model.internal.RepoFileImpl;
+import edu.uci.ics.sourcerer.util.io.FileCloner;
 import edu.uci.ics.sourcerer.util.io.IOUtils;
 import edu.uci.ics.sourcerer.util.io.ObjectDeserializer;
+import edu.uci.ics.sourcerer.util.io.PersistentDictionary;
 import edu.uci.ics.sourcerer.util.io.SimpleDeserializer;
 import edu.uci.ics.sourcerer.util.io.SimpleSerializer;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
@@ -51,6 +53,7 @@ public abstract class AbstractJavaRepository<Project extends AbstractRepoProject
   public static final Argument<String> MAVEN_JAR_INDEX = new StringArgument("maven-jar-index", "maven-index.txt", "Maven jar index file.").permit();
   public static final Argument<String> LIBRARY_JARS_DIRECTORY = new StringArgument("library-jars-dir", "lib", "Directory containing Java library jars.").permit();
   public static final Argument<String> LIBRARY_JAR_INDEX = new StringArgument("library-jar-index", "library-index.txt", "Library jar index file.").permit();
+  public static final Argument<String> FQN_DICTIONARY = new StringArgument("fqn-dictionary", "fqns", "Name of the repository's FQN dictionary.").permit();
   
   protected Map<String, Jar> mavenJarIndex;
   protected Map<String, Jar> projectJarIndex;
@@ -60,6 +63,8 @@ public abstract class AbstractJavaRepository<Project extends AbstractRepoProject
   private RepoFileImpl projectJarIndexFile;
   private RepoFileImpl libraryJarIndexFile;
   
+  private PersistentDictionary fqnDictionary;
+  
   protected AbstractJavaRepository(RepoFileImpl repoRoot) {
     super(repoRoot);
     RepoFileImpl jars = this.repoRoot.getChild(JARS_DIRECTORY);
@@ -232,6 +237,80 @@ public abstract class AbstractJavaRepository<Project extends AbstractRepoProject
     }
   }
   
+  /**
+   * Clones the jar stored in <code>dir</code> of another repository into
+   * the same location in this one, and adds it to the jar index. Safe to
+   * call from several threads at once.
+   */
+  protected Jar cloneJar(RepoFileImpl dir, FileCloner cloner) {
+    RepoFileImpl target = dir.asRoot().reroot(repoRoot);
+    if (!claimJarDir(target)) {
+      logger.severe("Jar already present: " + target);
+      return null;
+    }
+    return cloneJar(dir, target, cloner);
+  }
+  
+  /**
+   * Creates <code>target</code> if it does not yet exist, so that only
+   * one of several concurrent clones of a jar goes ahead.
+   * 
+   * @return <tt>true</tt> if the caller now owns <code>target</code>
+   */
+  protected synchronized boolean claimJarDir(RepoFileImpl target) {
+    if (target.exists()) {
+      return false;
+    } else {
+      target.makeDirs();
+      return true;
+    }
+  }
+  
+  /**
+   * Clones into a <code>target</code> already claimed by the caller. A
+   * failed clone is removed, so that it is retried by a later run rather
+   * than taken for a cloned jar.
+   */
+  protected Jar cloneJar(RepoFileImpl dir, RepoFileImpl target, FileCloner cloner) {
+    if (!cloner.cloneTree(dir.toFile(), target.toFile())) {
+      target.delete();
+      return null;
+    }
+    Jar jar = loadJar(target);
+    if (jar == null) {
+      logger.severe("Unable to load cloned jar: " + target);
+      target.delete();
+      return null;
+    }
+    String hash = jar.getProperties().HASH.getValue();
+    synchronized (this) {
+      switch (jar.getProperties().SOURCE.getValue()) {
+        case JAVA_LIBRARY:
+          if (libraryJarIndex == null) {
+            loadLibraryJarIndex();
+          }
+          libraryJarIndex.put(hash, jar);
+          clearLibraryJarCache();
+          break;
+        case MAVEN:
+          if (mavenJarIndex == null) {
+            loadMavenJarIndex();
+          }
+          mavenJarIndex.put(hash, jar);
+          clearMavenJarCache();
+          break;
+        case PROJECT:
+          if (projectJarIndex == null) {
+            loadProjectJarIndex();
+          }
+          projectJarIndex.put(hash, jar);
+          clearProjectJarCache();
+          break;
+      }
+    }
+    return jar;
+  }
+  
   public Jar getJarFile(String hash) {
     TaskProgressLogger task = TaskProgressLogger.get();
     if (libraryJarIndex == null) {
@@ -259,6 +338,18 @@ public abstract class AbstractJavaRepository<Project extends AbstractRepoProject
     return jar;
   }
   
+  /**
+   * Returns the repository's FQN dictionary, opening it on first use
+   * and again after a caller has closed it. Its ids are stable, so tools
+   * may exchange them in place of FQNs.
+   */
+  public synchronized PersistentDictionary getFqnDictionary() {
+    if (fqnDictionary == null || fqnDictionary.isClosed()) {
+      fqnDictionary = PersistentDictionary.open(repoRoot.toFile(), FQN_DICTIONARY.getValue());
+    }
+    return fqnDictionary;
+  }
+  
   public Collection<Jar> getMavenJarFiles() {
     if (mavenJarIndex == null) {
       loadMavenJarIndex();
@@ -22,6 +22,7 @@ import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
 import java.util.Scanner;
 import java.util.logging.Level;
 
+import edu.uci.ics.sourcerer.tools.core.repo.model.RelativePath;
 import edu.uci.ics.sourcerer.tools.core.repo.model.internal.RepoFileImpl;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JarFile;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JarProperties;
@@ -29,6 +30,7 @@ import edu.uci.ics.sourcerer.util.io.FileUtils;
 import edu.uci.ics.sourcerer.util.io.ObjectDeserializer;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
 import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
+import edu.uci.ics.sourcerer.util.io.properties.PropertiesCatalog;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
@@ -48,11 +50,13 @@ public final class JarFileImpl implements JarFile, IJar {
     this.sourceFile = sourceFile;
   }
   
-  static JarFileImpl load(RepoFileImpl dir) {
+  static JarFileImpl load(RepoFileImpl dir, PropertiesCatalog catalog) {
     RepoFileImpl root = dir.asRoot();
     RepoFileImpl propFile = root.getChild(JAR_PROPERTIES.getValue());
-    if (propFile.exists()) {
+    String key = getCatalogKey(root);
+    if (catalog.contains(key) || propFile.exists()) {
       JarProperties properties = new JarProperties(propFile);
+      properties.setCatalog(catalog, key);
       RepoFileImpl file = root.getChild(JAR_NAME.getValue());
       RepoFileImpl sourceFile = root.getChild(SOURCE_JAR_NAME.getValue());
       if (file.exists()) {
@@ -76,14 +80,16 @@ public final class JarFileImpl implements JarFile, IJar {
     }
   }
   
-  static JarFileImpl create(RepoFileImpl dir) {
+  static JarFileImpl create(RepoFileImpl dir, PropertiesCatalog catalog) {
     RepoFileImpl root = dir.asRoot();
     RepoFileImpl propFile = root.getChild(JAR_PROPERTIES.getValue());
-    if (propFile.exists()) {
+    String key = getCatalogKey(root);
+    if (catalog.contains(key) || propFile.exists()) {
       logger.log(Level.SEVERE, "Cannot create a JarFileImpl where one already exists: " + dir);
       return null;
     } else {
       JarProperties properties = new JarProperties(propFile);
+      properties.setCatalog(catalog, key);
       RepoFileImpl file = root.getChild(JAR_NAME.getValue());
       RepoFileImpl sourceFile = root.getChild(SOURCE_JAR_NAME.getValue());
       if (file.exists()) {
@@ -98,6 +104,15 @@ public final class JarFileImpl implements JarFile, IJar {
     }
   }
 
+  /**
+   * Jar properties are cataloged under the jar directory's path
+   * relative to the repository root.
+   */
+  public static String getCatalogKey(RepoFileImpl dir) {
+    RelativePath path = dir.asRoot().getRelativePath();
+    return path.toString();
+  }
+
   @Override
   public JarProperties getProperties() {
     return properties;
@@ -140,12 +155,12 @@ public final class JarFileImpl implements JarFile, IJar {
     return file.getRoot().serialize();
   }
   
-  public static ObjectDeserializer<JarFileImpl> makeDeserializer(RepoFileImpl dir) {
+  public static ObjectDeserializer<JarFileImpl> makeDeserializer(RepoFileImpl dir, final PropertiesCatalog catalog) {
     final ObjectDeserializer<RepoFileImpl> dirDeserializer = dir.makeDeserializer();
     return new ObjectDeserializer<JarFileImpl>() {
       @Override
       public JarFileImpl deserialize(Scanner scanner) {
-        return load(dirDeserializer.deserialize(scanner));
+        return load(dirDeserializer.deserialize(scanner), catalog);
       }
     };
   }
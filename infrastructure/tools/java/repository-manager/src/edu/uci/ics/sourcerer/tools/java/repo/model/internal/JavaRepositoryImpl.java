@@ -30,10 +30,12 @@ import edu.uci.ics.sourcerer.tools.core.repo.model.ContentFile;
 import edu.uci.ics.sourcerer.tools.core.repo.model.ModifiableSourceRepository;
 import edu.uci.ics.sourcerer.tools.core.repo.model.internal.ProjectLocationImpl;
 import edu.uci.ics.sourcerer.tools.core.repo.model.internal.RepoFileImpl;
+import edu.uci.ics.sourcerer.tools.java.repo.model.JarFile;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JarProperties;
 import edu.uci.ics.sourcerer.tools.java.repo.model.JarSource;
 import edu.uci.ics.sourcerer.tools.java.repo.model.ModifiableJavaRepository;
 import edu.uci.ics.sourcerer.util.CounterSet;
+import edu.uci.ics.sourcerer.util.io.FileCloner;
 import edu.uci.ics.sourcerer.util.io.FileUtils;
 import edu.uci.ics.sourcerer.util.io.ObjectDeserializer;
 import edu.uci.ics.sourcerer.util.io.logging.TaskProgressLogger;
@@ -71,12 +73,12 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
   
   @Override
   protected ObjectDeserializer<JarFileImpl> makeDeserializer() {
-    return JarFileImpl.makeDeserializer(repoRoot);
+    return JarFileImpl.makeDeserializer(repoRoot, getCatalog());
   }
   
   @Override
   protected JarFileImpl loadJar(RepoFileImpl dir) {
-    return JarFileImpl.load(dir);
+    return JarFileImpl.load(dir, getCatalog());
   }
   
   @Override
@@ -85,6 +87,7 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
   }
   
   private boolean aggregating = false;
+  private final Map<String, String> pendingMavenJars = new HashMap<>();
   private Map<String, Collection<ContentFile>> aggregationMap;
   
   public JarFileImpl getJarFile(ContentFile file) {
@@ -187,7 +190,7 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
       FileUtils.copyFile(entry.getValue().iterator().next().getFile().toFile(), dir.getChild(JarFileImpl.JAR_NAME).toFile());
       
       // Populate the properties
-      JarFileImpl jar = JarFileImpl.create(dir);
+      JarFileImpl jar = JarFileImpl.create(dir, getCatalog());
       
       JarProperties properties = jar.getProperties();
       
@@ -229,7 +232,7 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
     }
     
     // Populate the properties
-    JarFileImpl newJar = JarFileImpl.create(dir);
+    JarFileImpl newJar = JarFileImpl.create(dir, getCatalog());
     
     JarProperties properties = newJar.getProperties();
     properties.NAME.setValue(jar.getName());
@@ -244,43 +247,83 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
   }
   
   @Override
-  public void addMavenJarFile(File jar, File source, String group, String artifact, String version) {
-    if (mavenJarIndex == null) {
-      loadMavenJarIndex();
-    }
+  public JarFileImpl cloneJarFile(JarFile jar, FileCloner cloner) {
+    return cloneJar(((JarFileImpl) jar).getFile().getRoot(), cloner);
+  }
+  
+  /**
+   * Safe to call from several threads at once. The lock only guards the
+   * claiming of the hash and directory, and the publishing of the new
+   * jar. Hashing, creating the directory, copying and saving the
+   * properties are all done outside of it.
+   */
+  @Override
+  public boolean addMavenJarFile(File jar, File source, String group, String artifact, String version) {
     String hash = FileUtils.computeHash(jar);
-    while (mavenJarIndex.containsKey(hash)) {
-      logger.info("Difficulty matching: " + group + "." + artifact + " (" + version + ")");
-      JarFileImpl mavenJar = mavenJarIndex.get(hash);
-      logger.info("  Found duplicate at: " + mavenJar);
-      JarProperties properties = mavenJar.getProperties();
-      // If it's not exactly equal, just add the duplicate, giving the original priority
-      if (group.equals(properties.GROUP.getValue()) && artifact.equals(properties.NAME.getValue()) && version.equals(properties.VERSION.getValue())) {
-        return;
-      }
-      // Add a 0 to the end of the hash
-      hash += "0";
-    } 
+    if (hash == null) {
+      return false;
+    }
     String subDir = group.replace('.', '/') + "/" + artifact + "/" + version;
 
     RepoFileImpl dir = repoRoot.getChild(JARS_DIRECTORY).getChild(MAVEN_JARS_DIRECTORY).getChild(subDir);
-
-    // Verify there's no overlap
-    if (dir.exists()) {
-      logger.log(Level.SEVERE, "Directory already exists for: " + group + "." + artifact + " (" + version + ")");
-    } else {
+    
+    synchronized (this) {
+      if (mavenJarIndex == null) {
+        loadMavenJarIndex();
+      }
+      while (mavenJarIndex.containsKey(hash) || pendingMavenJars.containsKey(hash)) {
+        logger.info("Difficulty matching: " + group + "." + artifact + " (" + version + ")");
+        JarFileImpl mavenJar = mavenJarIndex.get(hash);
+        if (mavenJar == null) {
+          logger.info("  Found duplicate at: " + pendingMavenJars.get(hash));
+          if (subDir.equals(pendingMavenJars.get(hash))) {
+            return true;
+          }
+        } else {
+          logger.info("  Found duplicate at: " + mavenJar);
+          JarProperties properties = mavenJar.getProperties();
+          // If it's not exactly equal, just add the duplicate, giving the original priority
+          if (group.equals(properties.GROUP.getValue()) && artifact.equals(properties.NAME.getValue()) && version.equals(properties.VERSION.getValue())) {
+            return true;
+          }
+        }
+        // Add a 0 to the end of the hash
+        hash += "0";
+      }
+      
+      // The same artifact with different contents, already being added under another hash
+      if (pendingMavenJars.containsValue(subDir)) {
+        logger.log(Level.SEVERE, "Directory already claimed for: " + group + "." + artifact + " (" + version + ")");
+        return false;
+      }
+      pendingMavenJars.put(hash, subDir);
+    }
+    
+    // The claim stays until the jar is in the index, or has failed
+    try {
+      // Verify there's no overlap
+      if (dir.exists()) {
+        logger.log(Level.SEVERE, "Directory already exists for: " + group + "." + artifact + " (" + version + ")");
+        return false;
+      }
       // Make the directory
       dir.makeDirs();
       
       // Copy the files
-      FileUtils.copyFile(jar, dir.getChild(JarFileImpl.JAR_NAME).toFile());
-      if (source != null && source.exists()) {
-        FileUtils.copyFile(source, dir.getChild(JarFileImpl.SOURCE_JAR_NAME).toFile());
+      boolean copied = FileUtils.copyFile(jar, dir.getChild(JarFileImpl.JAR_NAME).toFile());
+      if (copied && source != null && source.exists()) {
+        copied = FileUtils.copyFile(source, dir.getChild(JarFileImpl.SOURCE_JAR_NAME).toFile());
       }
       
       // Populate the properties
-      JarFileImpl newJar = JarFileImpl.create(dir);
-
+      JarFileImpl newJar = copied ? JarFileImpl.create(dir, getCatalog()) : null;
+      if (newJar == null) {
+        logger.severe("Unable to add maven jar: " + group + "." + artifact + " (" + version + ")");
+        // Leave no partial directory behind, so a later scan can retry
+        dir.delete();
+        return false;
+      }
+      
       JarProperties properties = newJar.getProperties();
       properties.NAME.setValue(artifact);
       properties.GROUP.setValue(group);
@@ -288,6 +331,16 @@ public final class JavaRepositoryImpl extends AbstractJavaRepository<JavaProject
       properties.HASH.setValue(hash);
       properties.VERSION.setValue(version);
       properties.save();
+      
+      synchronized (this) {
+        mavenJarIndex.put(hash, newJar);
+        clearMavenJarCache();
+      }
+      return true;
+    } finally {
+      synchronized (this) {
+        pendingMavenJars.remove(hash);
+      }
     }
   }
   
@@ -18,6 +18,8 @@
 package edu.uci.ics.sourcerer.utils.db;
 
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
 import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
 import edu.uci.ics.sourcerer.utils.db.internal.InternalDatabaseConnectionFactory;
 
@@ -28,6 +30,8 @@ public abstract class DatabaseConnectionFactory {
   public static final Argument<String> DATABASE_URL = new StringArgument("database-url", "Url of the database.");
   public static final Argument<String> DATABASE_USER = new StringArgument("database-user", "Database user account to use when connecting.");
   public static final Argument<String> DATABASE_PASSWORD = new StringArgument("database-password", null, "Password for the user account.");
+  public static final Argument<Boolean> STREAM_BULK_LOADS = new BooleanArgument("stream-bulk-loads", false, "Stream bulk loads to the database rather than staging them in temp files.").permit();
+  public static final Argument<Integer> BULK_LOAD_CHUNK_SIZE = new IntegerArgument("bulk-load-chunk-size", 16, "Megabytes of rows sent per LOAD DATA statement when streaming bulk loads.").permit();
   
   public static final DatabaseConnectionFactory INSTANCE = new InternalDatabaseConnectionFactory();
   
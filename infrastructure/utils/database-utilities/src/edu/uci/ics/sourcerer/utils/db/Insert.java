@@ -24,4 +24,10 @@ import edu.uci.ics.sourcerer.utils.db.sql.Table;
  */
 public interface Insert {
   public Table getTable();
+  
+  /**
+   * Returns a copy of this insert with the serial column set to
+   * <code>key</code> instead of being generated by the database.
+   */
+  public Insert withKey(Integer key);
 }
@@ -0,0 +1,31 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db;
+
+/**
+ * Hands out keys for a table's serial column from blocks reserved in
+ * advance, so rows that must be referenced before they are written can
+ * still be bulk loaded with an explicit key (see {@link Insert#withKey}).
+ * 
+ * Each allocator belongs to a single thread.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public interface KeyRangeAllocator {
+  public Integer allocate();
+}
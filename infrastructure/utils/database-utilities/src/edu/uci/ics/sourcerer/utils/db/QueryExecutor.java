@@ -20,6 +20,7 @@ package edu.uci.ics.sourcerer.utils.db;
 import java.io.Closeable;
 import java.io.File;
 
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
 import edu.uci.ics.sourcerer.utils.db.sql.ComparisonCondition;
 import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
 import edu.uci.ics.sourcerer.utils.db.sql.DeleteStatement;
@@ -33,6 +34,7 @@ import edu.uci.ics.sourcerer.utils.db.sql.SetStatement;
 public interface QueryExecutor extends Closeable {
   public TableLocker getTableLocker();
   public BatchInserter makeInFileInserter(File tempDir, DatabaseTable table);
+  public KeyRangeAllocator makeKeyRangeAllocator(DatabaseTable table, Insert placeholder, int blockSize);
 
   // Raw Updates
   public void executeUpdate(String sql);
@@ -47,6 +49,8 @@ public interface QueryExecutor extends Closeable {
   // Typed Updates
   public void createTable(DatabaseTable table);
   public void createTables(DatabaseTable ... tables);
+  public void createTableWithoutIndexes(DatabaseTable table, Column<?> ... retainedIndexes);
+  public void createIndexes(DatabaseTable table);
   public void dropTables(DatabaseTable ... tables);
   public void insert(Insert insert);
   public Integer insertWithKey(Insert insert);
@@ -72,14 +72,18 @@ abstract class ColumnImpl<T> implements Column<T> {
   }
 
   @Override
-  public String getIndex() {
+  public final String getIndex() {
     if (indexed) {
-      return "INDEX(" + name + ")";
+      return "INDEX(" + getIndexKey() + ")";
     } else {
       throw new IllegalArgumentException(name + " is not indexed");
     }
   }
   
+  String getIndexKey() {
+    return name;
+  }
+  
   @Override
   public boolean isNullable() {
     return nullable;
@@ -27,6 +27,7 @@ import edu.uci.ics.sourcerer.util.BitEnumSet;
 import edu.uci.ics.sourcerer.util.BitEnumSetFactory;
 import edu.uci.ics.sourcerer.utils.db.Insert;
 import edu.uci.ics.sourcerer.utils.db.sql.Column;
+import edu.uci.ics.sourcerer.utils.db.sql.Index;
 import edu.uci.ics.sourcerer.utils.db.sql.QualifiedTable;
 import edu.uci.ics.sourcerer.utils.db.sql.StringColumn;
 import edu.uci.ics.sourcerer.utils.db.sql.Table;
@@ -37,11 +38,13 @@ import edu.uci.ics.sourcerer.utils.db.sql.Table;
 public class DatabaseTableImpl implements Table {
   private String name;
   private List<Column<?>> columns;
+  private List<Index> indexes;
   private boolean serial = false;
   
   protected DatabaseTableImpl(String name) {
     this.name = name;
     this.columns = new ArrayList<>();
+    this.indexes = new ArrayList<>();
   }
   
   public final StringColumn addVarcharColumn(String name, int size, boolean nullable) {
@@ -103,6 +106,16 @@ public class DatabaseTableImpl implements Table {
     return col;
   }
   
+  /**
+   * Declares an index over several columns, in the order given. Put the
+   * equality-filtered columns first.
+   */
+  public final Index addIndex(Column<?> ... key) {
+    Index index = new IndexImpl(this, key);
+    indexes.add(index);
+    return index;
+  }
+  
   protected final Insert createInsert(String ... values) {
     if (serial) {
       if (values.length != columns.size() - 1) {
@@ -125,6 +138,10 @@ public class DatabaseTableImpl implements Table {
     return columns;
   }
   
+  public final Collection<Index> getIndexes() {
+    return indexes;
+  }
+  
   @Override
   public final String toSql() {
     return name;
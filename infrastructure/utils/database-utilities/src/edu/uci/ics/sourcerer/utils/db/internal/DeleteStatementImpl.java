@@ -60,6 +60,7 @@ final class DeleteStatementImpl extends StatementImpl implements DeleteStatement
       sql.append(";");
       prepareStatement(sql.toString());
     }
+    awaitBulkLoads();
     try {
       if (whereCondition != null) {
         whereCondition.bind(statement, 1);
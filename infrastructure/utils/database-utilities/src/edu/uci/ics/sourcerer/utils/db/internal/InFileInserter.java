@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.metrics.Instrumentation;
 import edu.uci.ics.sourcerer.utils.db.Insert;
 import edu.uci.ics.sourcerer.utils.db.BatchInserter;
 import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
@@ -54,12 +55,14 @@ class InFileInserter implements BatchInserter {
   public void insert() {
     IOUtils.close(writer);
     writer = null;
+    long start = System.nanoTime();
     executor.execute("LOAD DATA CONCURRENT LOCAL INFILE '" + tempFile.getPath().replace('\\', '/') + "' " +
     		"INTO TABLE " + table.getName() + " " +
 				"FIELDS TERMINATED BY ',' " +
 				"OPTIONALLY ENCLOSED BY '\\\'' " + 
 				"LINES STARTING BY '(' " +
 				"TERMINATED BY ')\n'");
+    Instrumentation.histogram("db.load_data").recordSince(start);
     tempFile.delete();
   }
 }
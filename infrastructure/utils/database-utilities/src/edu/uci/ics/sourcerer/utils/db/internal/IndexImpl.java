@@ -0,0 +1,100 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
+import edu.uci.ics.sourcerer.utils.db.sql.Index;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class IndexImpl implements Index {
+  private final DatabaseTableImpl table;
+  private final String name;
+  private final List<ColumnImpl<?>> columns;
+  
+  IndexImpl(DatabaseTableImpl table, Column<?> ... key) {
+    if (key.length == 0) {
+      throw new IllegalArgumentException("An index needs at least one column");
+    }
+    this.table = table;
+    this.columns = new ArrayList<>();
+    StringBuilder name = new StringBuilder();
+    for (Column<?> column : key) {
+      add(column);
+      if (name.length() > 0) {
+        name.append('_');
+      }
+      name.append(column.getName());
+    }
+    this.name = name.toString();
+  }
+  
+  private void add(Column<?> column) {
+    if (column.getTable() != table) {
+      throw new IllegalArgumentException(column + " is not from " + table.getName());
+    }
+    columns.add((ColumnImpl<?>) column);
+  }
+  
+  @Override
+  public String getName() {
+    return name;
+  }
+  
+  @Override
+  public Index covering(Column<?> ... columns) {
+    for (Column<?> column : columns) {
+      if (column instanceof StringColumnImpl && ((StringColumnImpl) column).isPrefixIndexed()) {
+        throw new IllegalArgumentException(column + " is prefix indexed, so it cannot be covered");
+      }
+      add(column);
+    }
+    return this;
+  }
+  
+  /**
+   * Lower cased names of every column in the index, in order.
+   */
+  List<String> getColumnNames() {
+    List<String> names = new ArrayList<>(columns.size());
+    for (ColumnImpl<?> column : columns) {
+      names.add(column.getName().toLowerCase());
+    }
+    return names;
+  }
+  
+  @Override
+  public String getIndex() {
+    StringBuilder sql = new StringBuilder("INDEX ");
+    sql.append(name).append(" (");
+    for (ColumnImpl<?> column : columns) {
+      sql.append(column.getIndexKey()).append(',');
+    }
+    sql.setCharAt(sql.length() - 1, ')');
+    return sql.toString();
+  }
+  
+  @Override
+  public String toString() {
+    return table.getName() + "." + name;
+  }
+}
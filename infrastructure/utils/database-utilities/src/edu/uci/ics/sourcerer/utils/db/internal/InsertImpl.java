@@ -24,30 +24,33 @@ import edu.uci.ics.sourcerer.utils.db.sql.Table;
  * @author Joel Ossher (jossher@uci.edu)
  */
 class InsertImpl implements Insert {
+  private static final String SERIAL_KEY = "NULL";
+  
   private final Table table;
-  private final String value;
+  private final String key;
+  private final String[] values;
+  private final boolean serial;
   
-  private InsertImpl(Table table, String value) {
+  /**
+   * The row is kept as its values rather than joined up front, so that
+   * the streaming inserter can encode them without building the row.
+   * 
+   * @param key the value of the serial column, or <code>null</code> if
+   * the table has none
+   */
+  private InsertImpl(Table table, String key, String[] values, boolean serial) {
     this.table = table;
-    this.value = value;
+    this.key = key;
+    this.values = values;
+    this.serial = serial;
   }
   
   static InsertImpl create(Table table, String ... values) {
-    StringBuilder builder = new StringBuilder("(");
-    for (String value : values) {
-      builder.append(value).append(',');
-    }
-    builder.setCharAt(builder.length() - 1, ')');
-    return new InsertImpl(table, builder.toString());
+    return new InsertImpl(table, null, values, false);
   }
   
   static InsertImpl makeSerial(Table table, String ... values) {
-    StringBuilder builder = new StringBuilder("(NULL,");
-    for (String value : values) {
-      builder.append(value).append(',');
-    }
-    builder.setCharAt(builder.length() - 1, ')');
-    return new InsertImpl(table, builder.toString());
+    return new InsertImpl(table, SERIAL_KEY, values, true);
   }
   
   @Override
@@ -55,8 +58,33 @@ class InsertImpl implements Insert {
     return table;
   }
   
+  @Override
+  public Insert withKey(Integer key) {
+    if (serial) {
+      return new InsertImpl(table, String.valueOf(key), values, false);
+    } else {
+      throw new IllegalStateException("Cannot assign a key to a table without a serial column: " + table.toSql());
+    }
+  }
+  
+  String getKey() {
+    return key;
+  }
+  
+  String[] getValues() {
+    return values;
+  }
+  
   @Override
   public String toString() {
-    return value;
+    StringBuilder builder = new StringBuilder("(");
+    if (key != null) {
+      builder.append(key).append(',');
+    }
+    for (String value : values) {
+      builder.append(value).append(',');
+    }
+    builder.setCharAt(builder.length() - 1, ')');
+    return builder.toString();
   }
 }
@@ -0,0 +1,101 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db.internal;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import edu.uci.ics.sourcerer.utils.db.Insert;
+import edu.uci.ics.sourcerer.utils.db.KeyRangeAllocator;
+import edu.uci.ics.sourcerer.utils.db.sql.Column;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+
+/**
+ * Reserves a block by inserting the placeholder row twice while holding
+ * a write lock on the table: once with a generated key, which becomes
+ * the start of the block, and once with an explicit key at the end of
+ * the block, which moves the auto increment counter past it. Both rows
+ * are then deleted, leaving the whole block unused and owned by this
+ * allocator.
+ * 
+ * The statements are run directly rather than through the executor, as
+ * its helpers only log failures. If any of them fails the reservation
+ * fails, rather than handing out a block that may not be reserved.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class KeyRangeAllocatorImpl implements KeyRangeAllocator {
+  private final QueryExecutorImpl executor;
+  private final DatabaseTable table;
+  private final Insert placeholder;
+  private final int blockSize;
+  
+  private int next;
+  private int limit;
+  
+  KeyRangeAllocatorImpl(QueryExecutorImpl executor, DatabaseTable table, Insert placeholder, int blockSize) {
+    if (blockSize < 2) {
+      throw new IllegalArgumentException("Block size must be at least 2: " + blockSize);
+    }
+    this.executor = executor;
+    this.table = table;
+    this.placeholder = placeholder;
+    this.blockSize = blockSize;
+  }
+  
+  @Override
+  public Integer allocate() {
+    if (next == limit) {
+      reserve();
+    }
+    return next++;
+  }
+  
+  private void reserve() {
+    Column<?> key = table.getColumns().iterator().next();
+    int first;
+    int last;
+    try (Statement statement = executor.createStatement()) {
+      statement.executeUpdate("LOCK TABLES " + table.getName() + " WRITE");
+      try {
+        statement.executeUpdate(toSql(placeholder), Statement.RETURN_GENERATED_KEYS);
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+          if (keys.next()) {
+            first = keys.getInt(1);
+          } else {
+            throw new SQLException("No key generated for " + table.getName());
+          }
+        }
+        last = first + blockSize - 1;
+        statement.executeUpdate(toSql(placeholder.withKey(last)));
+        statement.executeUpdate("DELETE FROM " + table.getName() + " WHERE " + key.getName() + " IN (" + first + "," + last + ")");
+      } finally {
+        statement.executeUpdate("UNLOCK TABLES");
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Unable to reserve a block of keys in " + table.getName(), e);
+    }
+    next = first;
+    limit = last + 1;
+  }
+  
+  private static String toSql(Insert insert) {
+    return "INSERT INTO " + insert.getTable().toSql() + " VALUES" + insert.toString();
+  }
+}
@@ -24,9 +24,20 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 
+import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
 import edu.uci.ics.sourcerer.utils.db.Insert;
+import edu.uci.ics.sourcerer.utils.db.KeyRangeAllocator;
 import edu.uci.ics.sourcerer.utils.db.QueryExecutor;
 import edu.uci.ics.sourcerer.utils.db.BatchInserter;
 import edu.uci.ics.sourcerer.utils.db.TableLocker;
@@ -34,6 +45,7 @@ import edu.uci.ics.sourcerer.utils.db.sql.Column;
 import edu.uci.ics.sourcerer.utils.db.sql.ComparisonCondition;
 import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
 import edu.uci.ics.sourcerer.utils.db.sql.DeleteStatement;
+import edu.uci.ics.sourcerer.utils.db.sql.Index;
 import edu.uci.ics.sourcerer.utils.db.sql.QueryResult;
 import edu.uci.ics.sourcerer.utils.db.sql.SelectQuery;
 import edu.uci.ics.sourcerer.utils.db.sql.SetStatement;
@@ -45,6 +57,8 @@ class QueryExecutorImpl implements QueryExecutor {
   private Connection connection;
   private java.sql.Statement statement;
   private TableLocker locker;
+  private final Set<StreamingInserter> loading = Collections.newSetFromMap(new IdentityHashMap<StreamingInserter, Boolean>());
+  private final Object bulkLoadLock = new Object();
 
   private QueryExecutorImpl(Connection connection) {
     this.connection = connection;
@@ -75,6 +89,36 @@ class QueryExecutorImpl implements QueryExecutor {
     if (statement == null) {
       throw new IllegalStateException("Statement is not open.");
     }
+    awaitBulkLoads();
+  }
+  
+  void startedBulkLoad(StreamingInserter inserter) {
+    loading.add(inserter);
+  }
+  
+  void finishedBulkLoad(StreamingInserter inserter) {
+    loading.remove(inserter);
+  }
+  
+  /**
+   * Held while a bulk load streams over this connection, as the
+   * connection can only run one statement at a time.
+   */
+  Object getBulkLoadLock() {
+    return bulkLoadLock;
+  }
+  
+  /**
+   * Waits for the bulk loads still streaming in the background over this
+   * connection. Must be called before any other statement is run on it,
+   * as a statement such as LOCK TABLES would make the load fail.
+   */
+  void awaitBulkLoads() {
+    if (!loading.isEmpty()) {
+      for (StreamingInserter inserter : new ArrayList<>(loading)) {
+        inserter.awaitPending();
+      }
+    }
   }
   
   @Override
@@ -99,7 +143,29 @@ class QueryExecutorImpl implements QueryExecutor {
   
   @Override
   public BatchInserter makeInFileInserter(File tempDir, DatabaseTable table) {
-    return InFileInserter.makeInFileInserter(tempDir, this, table);
+    if (DatabaseConnectionFactory.STREAM_BULK_LOADS.getValue() && connection instanceof com.mysql.jdbc.Connection) {
+      return StreamingInserter.makeStreamingInserter(this, table);
+    } else {
+      return InFileInserter.makeInFileInserter(tempDir, this, table);
+    }
+  }
+  
+  @Override
+  public KeyRangeAllocator makeKeyRangeAllocator(DatabaseTable table, Insert placeholder, int blockSize) {
+    return new KeyRangeAllocatorImpl(this, table, placeholder, blockSize);
+  }
+  
+  java.sql.Statement createStatement() throws SQLException {
+    awaitBulkLoads();
+    return connection.createStatement();
+  }
+  
+  /**
+   * Creates the statement for a background bulk load, without waiting
+   * for the other loads.
+   */
+  java.sql.Statement createBulkLoadStatement() throws SQLException {
+    return connection.createStatement();
   }
   
   PreparedStatement prepareStatement(String sql) {
@@ -198,6 +264,7 @@ class QueryExecutorImpl implements QueryExecutor {
   
   @Override
   public QueryResult execute(String sql) {
+    awaitBulkLoads();
     try {
       statement.execute(sql);
       return new QueryResultImpl(statement.getResultSet());
@@ -209,20 +276,90 @@ class QueryExecutorImpl implements QueryExecutor {
   
   @Override
   public void createTable(DatabaseTable table) {
+    Collection<Column<?>> indexed = new ArrayList<>();
+    for (Column<?> column : table.getColumns()) {
+      if (column.isIndexed()) {
+        indexed.add(column);
+      }
+    }
+    createTable(table, indexed, table.getIndexes());
+  }
+  
+  @Override
+  public void createTableWithoutIndexes(DatabaseTable table, Column<?> ... retainedIndexes) {
+    for (Column<?> column : retainedIndexes) {
+      if (column.getTable() != table) {
+        throw new IllegalArgumentException(column + " is not from " + table.getName());
+      }
+    }
+    createTable(table, Arrays.asList(retainedIndexes), Collections.<Index>emptyList());
+  }
+  
+  private void createTable(DatabaseTable table, Collection<Column<?>> indexed, Collection<Index> indexes) {
     StringBuilder sql = new StringBuilder("CREATE TABLE ");
     sql.append(table.getName()).append(" (");
     for (Column<?> column : table.getColumns()) {
       sql.append(column.getName()).append(" ").append(column.getType()).append(',');
     }
-    for (Column<?> column : table.getColumns()) {
-      if (column.isIndexed()) {
-        sql.append(column.getIndex()).append(',');
-      }
+    for (Column<?> column : indexed) {
+      sql.append(column.getIndex()).append(',');
+    }
+    for (Index index : indexes) {
+      sql.append(index.getIndex()).append(',');
     }
     sql.setCharAt(sql.length() - 1, ')');
     executeUpdate(sql.toString());
   }
   
+  /**
+   * Adds every declared index the table does not already have, in a
+   * single ALTER TABLE so the table is only rebuilt once. An index is
+   * present if one with the same name or the same full column list
+   * exists, so a composite index does not stand in for a single column one.
+   */
+  @Override
+  public void createIndexes(DatabaseTable table) {
+    verifyOpen();
+    Map<String, List<String>> existing = new HashMap<>();
+    try (ResultSet result = statement.executeQuery("SHOW INDEX FROM " + table.getName())) {
+      while (result.next()) {
+        String name = result.getString("Key_name").toLowerCase();
+        List<String> columns = existing.get(name);
+        if (columns == null) {
+          columns = new ArrayList<>();
+          existing.put(name, columns);
+        }
+        int seq = result.getInt("Seq_in_index");
+        while (columns.size() < seq) {
+          columns.add(null);
+        }
+        columns.set(seq - 1, result.getString("Column_name").toLowerCase());
+      }
+    } catch (SQLException e) {
+      logger.log(Level.SEVERE, "Unable to read indexes of " + table.getName(), e);
+      return;
+    }
+    Collection<List<String>> existingColumns = existing.values();
+    StringBuilder sql = new StringBuilder("ALTER TABLE ");
+    sql.append(table.getName());
+    boolean missing = false;
+    for (Column<?> column : table.getColumns()) {
+      if (column.isIndexed() && !existingColumns.contains(Collections.singletonList(column.getName().toLowerCase()))) {
+        sql.append(missing ? ", ADD " : " ADD ").append(column.getIndex());
+        missing = true;
+      }
+    }
+    for (Index index : table.getIndexes()) {
+      if (!existing.containsKey(index.getName().toLowerCase()) && !existingColumns.contains(((IndexImpl) index).getColumnNames())) {
+        sql.append(missing ? ", ADD " : " ADD ").append(index.getIndex());
+        missing = true;
+      }
+    }
+    if (missing) {
+      executeUpdate(sql.toString());
+    }
+  }
+  
   @Override
   public void createTables(DatabaseTable ... tables) {
     for (DatabaseTable table : tables) {
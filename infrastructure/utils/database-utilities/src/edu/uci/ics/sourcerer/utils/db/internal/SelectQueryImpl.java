@@ -271,6 +271,7 @@ class SelectQueryImpl implements SelectQuery {
       statement = executor.prepareStatement(sql.toString());
     }
     
+    executor.awaitBulkLoads();
     try {
       if (whereCondition != null) {
         whereCondition.bind(statement, 1);
@@ -95,6 +95,7 @@ final class SetStatementImpl extends StatementImpl implements SetStatement {
       sql.append(";");
       prepareStatement(sql.toString());
     }
+    awaitBulkLoads();
     try {
       int i = 1;
       for (AssignmentImpl<?> assignment : assignments) {
@@ -40,6 +40,10 @@ abstract class StatementImpl implements Statement {
     statement = executor.prepareStatement(sql);
   }
   
+  protected void awaitBulkLoads() {
+    executor.awaitBulkLoads();
+  }
+  
   @Override
   public void close() {
     if (statement != null) {
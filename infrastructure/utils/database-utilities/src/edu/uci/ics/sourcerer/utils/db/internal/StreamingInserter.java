@@ -0,0 +1,256 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import edu.uci.ics.sourcerer.util.io.metrics.Instrumentation;
+import edu.uci.ics.sourcerer.utils.db.BatchInserter;
+import edu.uci.ics.sourcerer.utils.db.DatabaseConnectionFactory;
+import edu.uci.ics.sourcerer.utils.db.Insert;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+
+/**
+ * Bulk loads rows by handing them to the driver as the LOCAL INFILE
+ * input stream, rather than staging them in a temp file.
+ * 
+ * Rows are encoded as UTF-8 straight into one of two reusable chunk
+ * buffers. Once a chunk reaches the configured size it is loaded in the
+ * background with its own LOAD DATA statement while the other chunk
+ * fills. Chunks are loaded one at a time and in order, so generated keys
+ * are assigned in the order the rows were added, as with the temp file.
+ * Loads share the executor's connection, so the executor waits for any
+ * pending load before it runs another statement on it, and loads from
+ * different inserters on one connection take turns.
+ * 
+ * A failed load is rethrown as an IllegalStateException by whichever
+ * call waits for it, and by every later call on the inserter, and no
+ * further chunks are loaded. The importer stops with the project still
+ * marked as begun, so the project is deleted and imported again on the
+ * next run instead of being left with missing rows.
+ * 
+ * The rows are declared as utf8 rather than left to the database
+ * default, so MySQL converts them to whatever the columns use.
+ * Supplementary characters, which utf8 cannot hold, are written as '?'.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class StreamingInserter implements BatchInserter {
+  private static final ExecutorService loaders = Executors.newCachedThreadPool(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "bulk-loader");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+  
+  private final QueryExecutorImpl executor;
+  private final String sql;
+  private final int chunkSize;
+  
+  private Chunk filling;
+  private Chunk spare;
+  private Future<?> pending;
+  private Throwable failure;
+  
+  StreamingInserter(QueryExecutorImpl executor, DatabaseTable table, int chunkSize) {
+    this.executor = executor;
+    this.sql = "LOAD DATA CONCURRENT LOCAL INFILE 'stream' " +
+        "INTO TABLE " + table.getName() + " " +
+        "CHARACTER SET utf8 " +
+        "FIELDS TERMINATED BY ',' " +
+        "OPTIONALLY ENCLOSED BY '\\\'' " + 
+        "LINES STARTING BY '(' " +
+        "TERMINATED BY ')\n'";
+    this.chunkSize = chunkSize;
+    this.filling = new Chunk(Math.min(chunkSize, 1 << 16));
+    this.spare = new Chunk(Math.min(chunkSize, 1 << 16));
+  }
+  
+  static StreamingInserter makeStreamingInserter(QueryExecutorImpl executor, DatabaseTable table) {
+    return new StreamingInserter(executor, table, DatabaseConnectionFactory.BULK_LOAD_CHUNK_SIZE.getValue() << 20);
+  }
+  
+  @Override
+  public void addInsert(Insert insert) {
+    if (filling == null) {
+      throw new IllegalStateException("Inserter already used");
+    }
+    verifyLoaded();
+    filling.append((InsertImpl) insert);
+    if (filling.size >= chunkSize) {
+      loadFilling();
+    }
+  }
+  
+  @Override
+  public void insert() {
+    if (filling == null) {
+      throw new IllegalStateException("Inserter already used");
+    }
+    verifyLoaded();
+    if (filling.size > 0) {
+      loadFilling();
+    }
+    filling = null;
+    spare = null;
+    awaitPending();
+  }
+  
+  private void loadFilling() {
+    awaitPending();
+    final Chunk chunk = filling;
+    pending = loaders.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws SQLException {
+        load(chunk);
+        return null;
+      }
+    });
+    executor.startedBulkLoad(this);
+    filling = spare;
+    filling.reset();
+    spare = chunk;
+  }
+  
+  /**
+   * Waits for the chunk being loaded, if any, throwing if its load failed.
+   */
+  void awaitPending() {
+    if (pending != null) {
+      try {
+        pending.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for bulk load: " + sql, e);
+      } catch (ExecutionException e) {
+        failure = e.getCause();
+      }
+      pending = null;
+      executor.finishedBulkLoad(this);
+    }
+    verifyLoaded();
+  }
+  
+  private void verifyLoaded() {
+    if (failure != null) {
+      throw new IllegalStateException("Error in bulk load: " + sql, failure);
+    }
+  }
+  
+  private void load(Chunk chunk) throws SQLException {
+    synchronized (executor.getBulkLoadLock()) {
+      long start = System.nanoTime();
+      try (Statement statement = executor.createBulkLoadStatement()) {
+        ((com.mysql.jdbc.Statement) statement).setLocalInfileInputStream(chunk.getInputStream());
+        statement.execute(sql);
+      } finally {
+        Instrumentation.histogram("db.load_data").recordSince(start);
+      }
+    }
+  }
+  
+  private static class Chunk {
+    private byte[] bytes;
+    private int size;
+    
+    private Chunk(int capacity) {
+      bytes = new byte[capacity];
+    }
+    
+    private void reset() {
+      size = 0;
+    }
+    
+    /**
+     * Appends the row followed by a newline, encoded as UTF-8 straight
+     * from its values.
+     */
+    private void append(InsertImpl insert) {
+      put('(');
+      String key = insert.getKey();
+      if (key != null) {
+        encode(key);
+        put(',');
+      }
+      String[] values = insert.getValues();
+      for (int i = 0; i < values.length; i++) {
+        if (i > 0) {
+          put(',');
+        }
+        encode(values[i]);
+      }
+      put(')');
+      put('\n');
+    }
+    
+    private void put(char c) {
+      ensureCapacity(size + 1);
+      bytes[size++] = (byte) c;
+    }
+    
+    private void encode(String value) {
+      int length = value.length();
+      // At most three bytes per char
+      ensureCapacity(size + 3 * length);
+      byte[] bytes = this.bytes;
+      int pos = size;
+      for (int i = 0; i < length; i++) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+          bytes[pos++] = (byte) c;
+        } else if (c < 0x800) {
+          bytes[pos++] = (byte) (0xC0 | (c >> 6));
+          bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+          i++;
+          bytes[pos++] = '?';
+        } else if (Character.isSurrogate(c)) {
+          bytes[pos++] = '?';
+        } else {
+          bytes[pos++] = (byte) (0xE0 | (c >> 12));
+          bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+          bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+        }
+      }
+      size = pos;
+    }
+    
+    private void ensureCapacity(int capacity) {
+      if (capacity > bytes.length) {
+        byte[] newBytes = new byte[Math.max(capacity, bytes.length * 2)];
+        System.arraycopy(bytes, 0, newBytes, 0, size);
+        bytes = newBytes;
+      }
+    }
+    
+    private InputStream getInputStream() {
+      return new ByteArrayInputStream(bytes, 0, size);
+    }
+  }
+}
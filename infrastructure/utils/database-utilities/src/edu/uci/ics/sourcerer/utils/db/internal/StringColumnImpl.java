@@ -82,16 +82,16 @@ class StringColumnImpl extends ColumnImpl<String> implements StringColumn {
     return this;
   }
   
+  boolean isPrefixIndexed() {
+    return indexedCharCount > 0;
+  }
+  
   @Override
-  public String getIndex() {
-    if (isIndexed()) {
-      if (indexedCharCount == 0) {
-        return super.getIndex();
-      } else {
-        return "INDEX(" + getName() + "(" + indexedCharCount + "))";
-      }
+  String getIndexKey() {
+    if (indexedCharCount == 0) {
+      return getName();
     } else {
-      throw new IllegalArgumentException(getName() + " is not indexed");
+      return getName() + "(" + indexedCharCount + ")";
     }
   }
 }
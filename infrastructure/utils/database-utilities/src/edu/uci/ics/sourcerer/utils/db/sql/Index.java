@@ -0,0 +1,33 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db.sql;
+
+/**
+ * A multi-column index declared on a {@link DatabaseTable}.
+ * 
+ * MySQL has no INCLUDE clause, so covered columns are appended to the
+ * end of the key. A query that only selects key and covered columns
+ * can then be answered from the index alone.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public interface Index {
+  public String getName();
+  public Index covering(Column<?> ... columns);
+  public String getIndex();
+}
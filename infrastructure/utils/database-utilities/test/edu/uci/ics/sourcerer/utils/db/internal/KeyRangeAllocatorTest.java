@@ -0,0 +1,181 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db.internal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.uci.ics.sourcerer.utils.db.Insert;
+import edu.uci.ics.sourcerer.utils.db.KeyRangeAllocator;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class KeyRangeAllocatorTest {
+  private static final class TestTable extends DatabaseTable {
+    private TestTable() {
+      super("test_table");
+      addSerialColumn("id");
+      addVarcharColumn("name", 32, true);
+    }
+    
+    Insert createPlaceholder() {
+      return createInsert("NULL");
+    }
+  }
+  
+  private static final TestTable TABLE = new TestTable();
+  private static final Pattern EXPLICIT_KEY = Pattern.compile("VALUES\\((\\d+),");
+  
+  private List<String> executed;
+  // Stands in for the auto increment counter of the table
+  private int autoIncrement;
+  private int lastKey;
+  private String failOn;
+  
+  @Before
+  public void initialize() {
+    executed = new ArrayList<>();
+    autoIncrement = 1;
+    failOn = null;
+  }
+  
+  private ResultSet createGeneratedKeys() {
+    return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSet.class }, new InvocationHandler() {
+      private boolean read;
+      
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+          case "next": read = !read; return read;
+          case "getInt": return lastKey;
+          default: return null;
+        }
+      }
+    });
+  }
+  
+  private QueryExecutorImpl createExecutor() {
+    final Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Statement.class }, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+        switch (method.getName()) {
+          case "executeUpdate":
+            String sql = (String) args[0];
+            executed.add(sql);
+            if (failOn != null && sql.startsWith(failOn)) {
+              throw new SQLException("Failed: " + sql);
+            }
+            if (sql.startsWith("INSERT")) {
+              Matcher matcher = EXPLICIT_KEY.matcher(sql);
+              if (matcher.find()) {
+                lastKey = Integer.parseInt(matcher.group(1));
+                autoIncrement = Math.max(autoIncrement, lastKey + 1);
+              } else {
+                lastKey = autoIncrement++;
+              }
+            }
+            return 1;
+          case "getGeneratedKeys":
+            return createGeneratedKeys();
+          default:
+            return null;
+        }
+      }
+    });
+    Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("createStatement")) {
+          return statement;
+        } else {
+          return null;
+        }
+      }
+    });
+    return QueryExecutorImpl.make(connection);
+  }
+  
+  @Test
+  public void testAllocatesConsecutiveBlocks() {
+    KeyRangeAllocator keys = createExecutor().makeKeyRangeAllocator(TABLE, TABLE.createPlaceholder(), 3);
+    Assert.assertEquals(Integer.valueOf(1), keys.allocate());
+    Assert.assertEquals(Integer.valueOf(2), keys.allocate());
+    Assert.assertEquals(Integer.valueOf(3), keys.allocate());
+    Assert.assertEquals(5, executed.size());
+    // The table's counter has moved past the block, so the next block follows it
+    Assert.assertEquals(Integer.valueOf(4), keys.allocate());
+    Assert.assertEquals(10, executed.size());
+    
+    Assert.assertEquals("LOCK TABLES test_table WRITE", executed.get(0));
+    Assert.assertEquals("INSERT INTO test_table VALUES(NULL,NULL)", executed.get(1));
+    Assert.assertEquals("INSERT INTO test_table VALUES(3,NULL)", executed.get(2));
+    Assert.assertEquals("DELETE FROM test_table WHERE id IN (1,3)", executed.get(3));
+    Assert.assertEquals("UNLOCK TABLES", executed.get(4));
+  }
+  
+  @Test
+  public void testSkipsKeysTakenByOthers() {
+    QueryExecutorImpl exec = createExecutor();
+    KeyRangeAllocator first = exec.makeKeyRangeAllocator(TABLE, TABLE.createPlaceholder(), 10);
+    KeyRangeAllocator second = exec.makeKeyRangeAllocator(TABLE, TABLE.createPlaceholder(), 10);
+    Assert.assertEquals(Integer.valueOf(1), first.allocate());
+    Assert.assertEquals(Integer.valueOf(11), second.allocate());
+    for (int i = 2; i <= 10; i++) {
+      Assert.assertEquals(Integer.valueOf(i), first.allocate());
+    }
+    Assert.assertEquals(Integer.valueOf(21), first.allocate());
+    Assert.assertEquals(Integer.valueOf(12), second.allocate());
+  }
+  
+  @Test
+  public void testFailedReservationUnlocks() {
+    KeyRangeAllocator keys = createExecutor().makeKeyRangeAllocator(TABLE, TABLE.createPlaceholder(), 5);
+    failOn = "INSERT";
+    try {
+      keys.allocate();
+      Assert.fail("Expected the reservation to fail");
+    } catch (IllegalStateException e) {
+      Assert.assertTrue(e.getCause() instanceof SQLException);
+    }
+    Assert.assertEquals("UNLOCK TABLES", executed.get(executed.size() - 1));
+    
+    // A later reservation starts from scratch
+    failOn = null;
+    Assert.assertEquals(Integer.valueOf(1), keys.allocate());
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testBlockTooSmall() {
+    createExecutor().makeKeyRangeAllocator(TABLE, TABLE.createPlaceholder(), 1);
+  }
+}
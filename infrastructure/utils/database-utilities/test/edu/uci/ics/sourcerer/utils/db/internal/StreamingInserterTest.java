@@ -0,0 +1,182 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.utils.db.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.uci.ics.sourcerer.utils.db.Insert;
+import edu.uci.ics.sourcerer.utils.db.sql.DatabaseTable;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class StreamingInserterTest {
+  private static final class TestTable extends DatabaseTable {
+    private TestTable() {
+      super("test_table");
+      addSerialColumn("id");
+      addVarcharColumn("name", 32, true);
+      addVarcharColumn("value", 32, true);
+    }
+    
+    Insert createRow(String name, String value) {
+      return createInsert(name, value);
+    }
+  }
+  
+  private static final TestTable TABLE = new TestTable();
+  
+  // Each chunk is sent as one statement, so the loads come from the loader thread
+  private List<String> loaded;
+  private int failOn;
+  
+  @Before
+  public void initialize() {
+    loaded = Collections.synchronizedList(new ArrayList<String>());
+    failOn = -1;
+  }
+  
+  private QueryExecutorImpl createExecutor() {
+    final Statement statement = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { com.mysql.jdbc.Statement.class }, new InvocationHandler() {
+      private InputStream input;
+      
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws SQLException, IOException {
+        switch (method.getName()) {
+          case "setLocalInfileInputStream":
+            input = (InputStream) args[0];
+            return null;
+          case "execute":
+            if (loaded.size() == failOn) {
+              loaded.add(null);
+              throw new SQLException("Failed: " + args[0]);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for (int b = input.read(); b != -1; b = input.read()) {
+              bytes.write(b);
+            }
+            loaded.add(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+            return false;
+          default:
+            return null;
+        }
+      }
+    });
+    Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getName().equals("createStatement")) {
+          return statement;
+        } else {
+          return null;
+        }
+      }
+    });
+    return QueryExecutorImpl.make(connection);
+  }
+  
+  private List<Insert> createRows(int count) {
+    List<Insert> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      // Non-ASCII values check the encoding
+      rows.add(TABLE.createRow("'row" + i + "'", i % 2 == 0 ? "NULL" : "'é€" + i + "'"));
+    }
+    // Rows with keys go through the same path
+    rows.add(TABLE.createRow("'keyed'", "NULL").withKey(100));
+    return rows;
+  }
+  
+  @Test
+  public void testRowsMatchInserts() {
+    StreamingInserter inserter = new StreamingInserter(createExecutor(), TABLE, 64);
+    List<Insert> rows = createRows(20);
+    StringBuilder expected = new StringBuilder();
+    for (Insert row : rows) {
+      inserter.addInsert(row);
+      expected.append(row.toString()).append('\n');
+    }
+    inserter.insert();
+    
+    Assert.assertTrue("expected several chunks, got " + loaded.size(), loaded.size() > 3);
+    StringBuilder actual = new StringBuilder();
+    for (String chunk : loaded) {
+      Assert.assertTrue(chunk, chunk.endsWith(")\n"));
+      actual.append(chunk);
+    }
+    Assert.assertEquals(expected.toString(), actual.toString());
+    Assert.assertTrue(expected.indexOf("(NULL,'row0',NULL)\n") >= 0);
+    Assert.assertTrue(expected.indexOf("(100,'keyed',NULL)\n") >= 0);
+  }
+  
+  @Test
+  public void testFailedLoadIsRethrown() {
+    QueryExecutorImpl exec = createExecutor();
+    StreamingInserter inserter = new StreamingInserter(exec, TABLE, 64);
+    failOn = 1;
+    try {
+      for (Insert row : createRows(20)) {
+        inserter.addInsert(row);
+      }
+      inserter.insert();
+      Assert.fail("Expected the load to fail");
+    } catch (IllegalStateException e) {
+      Assert.assertTrue(e.getCause() instanceof SQLException);
+    }
+    // No chunk is loaded after the failed one
+    Assert.assertEquals(2, loaded.size());
+    
+    // And the inserter keeps failing
+    try {
+      inserter.insert();
+      Assert.fail("Expected the failure to be rethrown");
+    } catch (IllegalStateException e) {
+      Assert.assertTrue(e.getCause() instanceof SQLException);
+    }
+  }
+  
+  @Test
+  public void testFailureSurfacesThroughExecutor() {
+    QueryExecutorImpl exec = createExecutor();
+    // Every row fills a chunk, so the load starts in the background at once
+    StreamingInserter inserter = new StreamingInserter(exec, TABLE, 1);
+    failOn = 0;
+    inserter.addInsert(TABLE.createRow("'row'", "NULL"));
+    try {
+      exec.executeUpdate("UPDATE test_table SET value = NULL");
+      Assert.fail("Expected the load to fail");
+    } catch (IllegalStateException e) {
+      Assert.assertTrue(e.getCause() instanceof SQLException);
+    }
+  }
+}
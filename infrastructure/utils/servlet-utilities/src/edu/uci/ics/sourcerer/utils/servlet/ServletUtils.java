@@ -87,6 +87,15 @@ public class ServletUtils {
 	  os.close();
 	}
 	
+  /**
+   * Sets the download headers and returns the response stream, for
+   * responses that are written incrementally.
+   */
+  public static OutputStream openOutputStream(HttpServletResponse response, String name) throws IOException {
+    setResponse(response, name, false);
+    return response.getOutputStream();
+  }
+  
   public static void writeFile(HttpServletResponse response, String name, File file) throws IOException {
     writeInputStream(response, name, new FileInputStream(file));
   }
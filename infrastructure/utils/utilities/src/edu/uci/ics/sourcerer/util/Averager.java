@@ -18,29 +18,41 @@ import com.google.common.collect.TreeMultiset;
 
 import edu.uci.ics.sourcerer.util.io.IOUtils;
 
+/**
+ * Summary statistics over a stream of numbers.
+ * 
+ * Averagers from {@link #create()} keep every value, so medians are exact
+ * and value maps can be written. Those from {@link #createStreaming()} use
+ * constant memory, estimating the median with a {@link QuantileSketch}.
+ */
 public class Averager <T extends Number> {
-  private double sum;
-  private int nonZero;
+  private final StreamingStatistics stats;
   private T min;
   private T max;
   private Collection<T> values;
   
-  private Averager() {
-    values = new ArrayList<>();
-    sum = 0;
-    nonZero = 0;
+  private Averager(boolean retainValues) {
+    if (retainValues) {
+      values = new ArrayList<>();
+      stats = StreamingStatistics.createMomentsOnly();
+    } else {
+      stats = StreamingStatistics.create();
+    }
   }
   
   public static <T extends Number> Averager<T> create() {
-    return new Averager<T>();
+    return new Averager<T>(true);
+  }
+  
+  public static <T extends Number> Averager<T> createStreaming() {
+    return new Averager<T>(false);
   }
   
   public void addValue(T value) {
-    if (Math.abs(value.doubleValue()) > .00000001) {
-      nonZero++;
+    if (values != null) {
+      values.add(value);
     }
-    values.add(value);
-    sum += value.doubleValue();
+    stats.addValue(value.doubleValue());
     if (min == null || value.doubleValue() < min.doubleValue()) {
       min = value;
     }
@@ -49,29 +61,46 @@ public class Averager <T extends Number> {
     }
   }
   
+  /**
+   * Both averagers must be of the same kind.
+   */
+  public void merge(Averager<T> other) {
+    if ((values == null) != (other.values == null)) {
+      throw new IllegalArgumentException("Cannot merge streaming and retaining averagers");
+    }
+    if (values != null) {
+      values.addAll(other.values);
+    }
+    stats.merge(other.stats);
+    if (other.min != null && (min == null || other.min.doubleValue() < min.doubleValue())) {
+      min = other.min;
+    }
+    if (other.max != null && (max == null || other.max.doubleValue() > max.doubleValue())) {
+      max = other.max;
+    }
+  }
+  
   public int getCount() {
-    return values.size();
+    return (int) stats.getCount();
   }
   
   public int getNonZeroCount() {
-    return nonZero;
+    return (int) stats.getNonZeroCount();
   }
   
   public double getSum() {
-    return sum;
+    return stats.getSum();
   }
   
   public double getMean() {
-    if (values.isEmpty()) {
-      return Double.NaN;
-    } else {
-      return sum / (double) values.size();
-    }
+    return stats.getMean();
   }
   
   @SuppressWarnings("unchecked")
   public double getMedian() {
-    if (values.isEmpty()) {
+    if (values == null) {
+      return stats.getMedian();
+    } else if (values.isEmpty()) {
       return Double.NaN;
     } else {
       Object[] arr = values.toArray(); 
@@ -87,11 +116,7 @@ public class Averager <T extends Number> {
   }
   
   public double getNonZeroMean() {
-    if (values.size() == 0) {
-      return Double.NaN;
-    } else {
-      return sum / (double) nonZero;
-    }
+    return stats.getNonZeroMean();
   }
   
   public T getMin() {
@@ -103,38 +128,24 @@ public class Averager <T extends Number> {
   }
   
   public double getStandardDeviation() {
-    if (values.size() == 0) {
-      return Double.NaN;
-    } else {
-      double mean = sum / (double) values.size();
-      double variance = 0;
-      for (T value : values) {
-        variance += Math.pow(value.doubleValue() - mean, 2);
-      }
-      variance /= values.size();
-      double std = Math.sqrt(variance);
-      return std;
-    }
+    return stats.getStandardDeviation();
   }
   
   public double getNonZeroStandardDeviation() {
-    if (values.size() == 0) {
-      return Double.NaN;
+    return stats.getNonZeroStandardDeviation();
+  }
+  
+  private Collection<T> getValues() {
+    if (values == null) {
+      throw new IllegalStateException("A streaming averager does not keep its values");
     } else {
-      double mean = sum / (double) values.size();
-      double variance = 0;
-      for (T value : values) {
-        variance += Math.pow(value.doubleValue() - mean, 2);
-      }
-      variance /= values.size();
-      double std = Math.sqrt(variance);
-      return std;
+      return values;
     }
   }
   
   public void writeValueMap(File file) {
     Multiset<T> counts = HashMultiset.create();
-    for (T value : values) {
+    for (T value : getValues()) {
       counts.add(value);
     }
     SortedMultiset<Integer> sorted = TreeMultiset.create();
@@ -154,7 +165,7 @@ public class Averager <T extends Number> {
   public void writeDoubleValueMap(File file, int places) {
     double mult = Math.pow(10, places);
     Multiset<Integer> counts = HashMultiset.create();
-    for (T value : values) {
+    for (T value : getValues()) {
       counts.add((int) (value.doubleValue() * mult));
     }
     try (BufferedWriter writer = IOUtils.makeBufferedWriter(file)) {
@@ -0,0 +1,185 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Open-addressing map from primitive <tt>int</tt> keys to values.
+ * Avoids the boxed keys and per-entry objects of a <tt>HashMap&lt;Integer, V&gt;</tt>.
+ * Removal is not supported.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class IntHashMap <V> {
+  private static final int MIN_CAPACITY = 16;
+  
+  private int[] keys;
+  private V[] values;
+  private int size;
+  private int mask;
+  private int resizeAt;
+  
+  private IntHashMap(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while (capacity * 3 < expectedSize * 4) {
+      capacity <<= 1;
+    }
+    allocate(capacity);
+  }
+  
+  public static <V> IntHashMap<V> create() {
+    return new IntHashMap<>(MIN_CAPACITY);
+  }
+  
+  public static <V> IntHashMap<V> create(int expectedSize) {
+    return new IntHashMap<>(expectedSize);
+  }
+  
+  @SuppressWarnings("unchecked")
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    values = (V[]) new Object[capacity];
+    mask = capacity - 1;
+    resizeAt = (capacity * 3) / 4;
+  }
+  
+  private static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+  
+  private int indexOf(int key) {
+    int i = hash(key) & mask;
+    while (values[i] != null) {
+      if (keys[i] == key) {
+        return i;
+      }
+      i = (i + 1) & mask;
+    }
+    return -1 - i;
+  }
+  
+  public V get(int key) {
+    int i = indexOf(key);
+    return i < 0 ? null : values[i];
+  }
+  
+  public boolean containsKey(int key) {
+    return indexOf(key) >= 0;
+  }
+  
+  /**
+   * Null values are not permitted, as null marks an empty slot.
+   */
+  public V put(int key, V value) {
+    if (value == null) {
+      throw new NullPointerException("IntHashMap does not permit null values");
+    }
+    int i = indexOf(key);
+    if (i >= 0) {
+      V old = values[i];
+      values[i] = value;
+      return old;
+    } else {
+      i = -1 - i;
+      keys[i] = key;
+      values[i] = value;
+      if (++size > resizeAt) {
+        rehash();
+      }
+      return null;
+    }
+  }
+  
+  private void rehash() {
+    int[] oldKeys = keys;
+    V[] oldValues = values;
+    allocate(keys.length << 1);
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldValues[j] != null) {
+        int i = hash(oldKeys[j]) & mask;
+        while (values[i] != null) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+  
+  public int size() {
+    return size;
+  }
+  
+  public boolean isEmpty() {
+    return size == 0;
+  }
+  
+  public void clear() {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+  
+  public Collection<V> values() {
+    return new AbstractCollection<V>() {
+      @Override
+      public Iterator<V> iterator() {
+        return new Iterator<V>() {
+          private int index = advance(0);
+          
+          private int advance(int i) {
+            while (i < values.length && values[i] == null) {
+              i++;
+            }
+            return i;
+          }
+          
+          @Override
+          public boolean hasNext() {
+            return index < values.length;
+          }
+
+          @Override
+          public V next() {
+            if (index >= values.length) {
+              throw new NoSuchElementException();
+            }
+            V value = values[index];
+            index = advance(index + 1);
+            return value;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+}
@@ -0,0 +1,134 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing set of primitive <tt>int</tt> values.
+ * Removal is not supported.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class IntHashSet {
+  private static final int MIN_CAPACITY = 16;
+  
+  private int[] keys;
+  private boolean[] used;
+  private int size;
+  private int mask;
+  private int resizeAt;
+  
+  private IntHashSet(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while (capacity * 3 < expectedSize * 4) {
+      capacity <<= 1;
+    }
+    allocate(capacity);
+  }
+  
+  public static IntHashSet create() {
+    return new IntHashSet(MIN_CAPACITY);
+  }
+  
+  public static IntHashSet create(int expectedSize) {
+    return new IntHashSet(expectedSize);
+  }
+  
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    used = new boolean[capacity];
+    mask = capacity - 1;
+    resizeAt = (capacity * 3) / 4;
+  }
+  
+  private static int hash(int key) {
+    int h = key * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+  
+  private int indexOf(int key) {
+    int i = hash(key) & mask;
+    while (used[i]) {
+      if (keys[i] == key) {
+        return i;
+      }
+      i = (i + 1) & mask;
+    }
+    return -1 - i;
+  }
+  
+  public boolean contains(int key) {
+    return indexOf(key) >= 0;
+  }
+  
+  /**
+   * @return true if the value was not already present
+   */
+  public boolean add(int key) {
+    int i = indexOf(key);
+    if (i >= 0) {
+      return false;
+    } else {
+      i = -1 - i;
+      keys[i] = key;
+      used[i] = true;
+      if (++size > resizeAt) {
+        rehash();
+      }
+      return true;
+    }
+  }
+  
+  public void addAll(IntHashSet other) {
+    for (int j = 0; j < other.keys.length; j++) {
+      if (other.used[j]) {
+        add(other.keys[j]);
+      }
+    }
+  }
+  
+  private void rehash() {
+    int[] oldKeys = keys;
+    boolean[] oldUsed = used;
+    allocate(keys.length << 1);
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldUsed[j]) {
+        int i = hash(oldKeys[j]) & mask;
+        while (used[i]) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = oldKeys[j];
+        used[i] = true;
+      }
+    }
+  }
+  
+  public int size() {
+    return size;
+  }
+  
+  public boolean isEmpty() {
+    return size == 0;
+  }
+  
+  public void clear() {
+    Arrays.fill(used, false);
+    size = 0;
+  }
+}
@@ -0,0 +1,210 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Mergeable KLL quantile sketch over doubles.
+ * 
+ * Values are kept in a stack of compactors, where an item on level <i>h</i>
+ * stands for 2<sup><i>h</i></sup> of the original values. When a level fills
+ * up it is sorted and every other item is promoted to the level above.
+ * Memory is O(k log(n/k)), and the rank error is roughly 1.7/k.
+ * Until the first compaction every value is kept, so quantiles are exact.
+ * 
+ * Not thread safe. Give each thread its own sketch and {@link #merge} them.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class QuantileSketch {
+  public static final int DEFAULT_K = 200;
+  private static final int MIN_CAPACITY = 8;
+  
+  private final int k;
+  private double[][] levels;
+  private int[] sizes;
+  private int height;
+  private long count;
+  private long seed;
+  
+  private QuantileSketch(int k) {
+    this.k = k;
+    levels = new double[4][];
+    sizes = new int[4];
+    levels[0] = new double[k];
+    height = 1;
+    seed = 0x2545F4914F6CDD1DL;
+  }
+  
+  public static QuantileSketch create() {
+    return new QuantileSketch(DEFAULT_K);
+  }
+  
+  public static QuantileSketch create(int k) {
+    return new QuantileSketch(Math.max(k, MIN_CAPACITY));
+  }
+  
+  public long getCount() {
+    return count;
+  }
+  
+  private int capacity(int level) {
+    int depth = height - level - 1;
+    return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(2.0 / 3.0, depth)));
+  }
+  
+  public void add(double value) {
+    append(0, value);
+    count++;
+    if (sizes[0] >= capacity(0)) {
+      compress();
+    }
+  }
+  
+  public void merge(QuantileSketch other) {
+    while (height < other.height) {
+      addLevel();
+    }
+    for (int h = 0; h < other.height; h++) {
+      for (int i = 0; i < other.sizes[h]; i++) {
+        append(h, other.levels[h][i]);
+      }
+    }
+    count += other.count;
+    compress();
+  }
+  
+  private void append(int level, double value) {
+    if (sizes[level] == levels[level].length) {
+      levels[level] = Arrays.copyOf(levels[level], Math.max(MIN_CAPACITY, levels[level].length * 2));
+    }
+    levels[level][sizes[level]++] = value;
+  }
+  
+  private void addLevel() {
+    if (height == levels.length) {
+      levels = Arrays.copyOf(levels, height * 2);
+      sizes = Arrays.copyOf(sizes, height * 2);
+    }
+    levels[height] = new double[MIN_CAPACITY];
+    sizes[height] = 0;
+    height++;
+  }
+  
+  /**
+   * Compacts every level that is over capacity, from the bottom up.
+   */
+  private void compress() {
+    for (int h = 0; h < height; h++) {
+      if (sizes[h] >= capacity(h)) {
+        if (h + 1 == height) {
+          addLevel();
+        }
+        double[] level = levels[h];
+        int size = sizes[h];
+        Arrays.sort(level, 0, size);
+        // An odd item out stays behind
+        int start = size % 2;
+        int offset = nextBit();
+        for (int i = start + offset; i < size; i += 2) {
+          append(h + 1, level[i]);
+        }
+        sizes[h] = start;
+      }
+    }
+  }
+  
+  private int nextBit() {
+    // xorshift, so that results are reproducible
+    seed ^= seed << 13;
+    seed ^= seed >>> 7;
+    seed ^= seed << 17;
+    return (int) (seed & 1);
+  }
+  
+  /**
+   * Estimates the <tt>q</tt> quantile, interpolating between neighbouring
+   * ranks as an exact median would. Returns NaN if the sketch is empty.
+   */
+  public double getQuantile(double q) {
+    if (count == 0) {
+      return Double.NaN;
+    }
+    int total = 0;
+    for (int h = 0; h < height; h++) {
+      total += sizes[h];
+    }
+    double[] values = new double[total];
+    long[] weights = new long[total];
+    int index = 0;
+    for (int h = 0; h < height; h++) {
+      for (int i = 0; i < sizes[h]; i++) {
+        values[index] = levels[h][i];
+        weights[index++] = 1L << h;
+      }
+    }
+    sortByValue(values, weights);
+    
+    long retained = 0;
+    for (long weight : weights) {
+      retained += weight;
+    }
+    double target = Math.max(0, Math.min(1, q)) * (retained - 1);
+    long lowRank = (long) Math.floor(target);
+    long highRank = (long) Math.ceil(target);
+    double low = valueAtRank(values, weights, lowRank);
+    double high = lowRank == highRank ? low : valueAtRank(values, weights, highRank);
+    return low + (high - low) * (target - lowRank);
+  }
+  
+  public double getMedian() {
+    return getQuantile(0.5);
+  }
+  
+  private static double valueAtRank(double[] values, long[] weights, long rank) {
+    long seen = 0;
+    for (int i = 0; i < values.length; i++) {
+      seen += weights[i];
+      if (rank < seen) {
+        return values[i];
+      }
+    }
+    return values[values.length - 1];
+  }
+  
+  private static void sortByValue(double[] values, long[] weights) {
+    Integer[] order = new Integer[values.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    final double[] keys = values.clone();
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return Double.compare(keys[o1], keys[o2]);
+      }
+    });
+    long[] oldWeights = weights.clone();
+    for (int i = 0; i < order.length; i++) {
+      values[i] = keys[order[i]];
+      weights[i] = oldWeights[order[i]];
+    }
+  }
+}
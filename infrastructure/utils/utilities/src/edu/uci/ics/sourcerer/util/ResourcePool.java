@@ -0,0 +1,255 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.metrics.Instrumentation;
+
+/**
+ * Pool of up to a fixed number of lazily created, expensive resources,
+ * such as database accessors. Resources are leased out one caller at a
+ * time and returned by closing the lease. Resources left idle for longer
+ * than the timeout are closed by a scheduler shared among all pools.
+ * 
+ * Leasing and returning only take locks when the pool is exhausted.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class ResourcePool <T extends Closeable> {
+  public static final Argument<Integer> RESOURCE_POOL_SIZE = new IntegerArgument("resource-pool-size", 8, "Maximum number of instances of each pooled resource, such as database accessors.").permit();
+  
+  private static final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, "resource-pool-reaper");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+  
+  private final String name;
+  private final Instantiator<T> instantiator;
+  private final long timeout;
+  private final Semaphore permits;
+  // Most recently returned first, so the tail holds the longest idle
+  private final ConcurrentLinkedDeque<Lease<T>> idle;
+  private final ScheduledFuture<?> sweeper;
+  private volatile boolean destroyed;
+  
+  private final AtomicInteger size;
+  private final AtomicLong leases;
+  private final AtomicLong waits;
+  private final AtomicLong creations;
+  private final AtomicLong expirations;
+  
+  private ResourcePool(String name, Instantiator<T> instantiator, int maxSize, long timeout) {
+    this.name = name;
+    this.instantiator = instantiator;
+    this.timeout = timeout;
+    this.permits = new Semaphore(maxSize);
+    this.idle = new ConcurrentLinkedDeque<>();
+    this.size = new AtomicInteger();
+    this.leases = new AtomicLong();
+    this.waits = new AtomicLong();
+    this.creations = new AtomicLong();
+    this.expirations = new AtomicLong();
+    long period = Math.max(timeout / 2, 1000);
+    this.sweeper = reaper.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        expire();
+      }
+    }, period, period, TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * @param timeout milliseconds a resource may sit idle before it is closed
+   */
+  public static <T extends Closeable> ResourcePool<T> create(String name, Instantiator<T> instantiator, long timeout) {
+    return new ResourcePool<>(name, instantiator, RESOURCE_POOL_SIZE.getValue(), timeout);
+  }
+  
+  public static <T extends Closeable> ResourcePool<T> create(String name, Instantiator<T> instantiator, int maxSize, long timeout) {
+    return new ResourcePool<>(name, instantiator, maxSize, timeout);
+  }
+  
+  /**
+   * Leases a resource, waiting if every resource is in use. Returns
+   * <tt>null</tt> if a new resource was needed but could not be created.
+   */
+  public Lease<T> lease() {
+    if (destroyed) {
+      throw new IllegalStateException(name + " pool has been destroyed");
+    }
+    if (!permits.tryAcquire()) {
+      waits.incrementAndGet();
+      long start = System.nanoTime();
+      permits.acquireUninterruptibly();
+      Instrumentation.histogram(name + ".pool_wait").recordSince(start);
+    }
+    leases.incrementAndGet();
+    Lease<T> lease = idle.pollFirst();
+    if (lease == null) {
+      T instance = null;
+      try {
+        instance = instantiator.create();
+      } finally {
+        // Hand back the permit if creation failed or threw
+        if (instance == null) {
+          permits.release();
+        }
+      }
+      if (instance == null) {
+        return null;
+      }
+      size.incrementAndGet();
+      creations.incrementAndGet();
+      lease = new Lease<>(this, instance);
+    }
+    lease.leased = true;
+    return lease;
+  }
+  
+  private void giveBack(Lease<T> lease) {
+    lease.lastReturned = System.currentTimeMillis();
+    if (destroyed) {
+      close(lease);
+    } else {
+      idle.offerFirst(lease);
+    }
+    permits.release();
+  }
+  
+  private void close(Lease<T> lease) {
+    IOUtils.close(lease.instance);
+    size.decrementAndGet();
+  }
+  
+  private void expire() {
+    long cutoff = System.currentTimeMillis() - timeout;
+    for (Iterator<Lease<T>> iter = idle.descendingIterator(); iter.hasNext();) {
+      Lease<T> lease = iter.next();
+      if (lease.lastReturned > cutoff) {
+        break;
+      } else if (idle.removeLastOccurrence(lease)) {
+        // Only close it if no one leased it in the meantime
+        logger.fine("Closing idle resource in " + name + " pool");
+        close(lease);
+        expirations.incrementAndGet();
+      }
+    }
+  }
+  
+  /**
+   * Closes every idle resource, and every leased resource once it is
+   * returned.
+   */
+  public void destroy() {
+    destroyed = true;
+    sweeper.cancel(false);
+    for (Lease<T> lease = idle.pollFirst(); lease != null; lease = idle.pollFirst()) {
+      close(lease);
+    }
+  }
+  
+  public String getName() {
+    return name;
+  }
+  
+  /**
+   * Number of resources currently open, whether leased or idle.
+   */
+  public int getSize() {
+    return size.get();
+  }
+  
+  public int getIdleCount() {
+    return idle.size();
+  }
+  
+  public long getLeaseCount() {
+    return leases.get();
+  }
+  
+  /**
+   * Number of leases that had to wait for another to be returned.
+   */
+  public long getWaitCount() {
+    return waits.get();
+  }
+  
+  public long getCreationCount() {
+    return creations.get();
+  }
+  
+  public long getExpirationCount() {
+    return expirations.get();
+  }
+  
+  @Override
+  public String toString() {
+    return name + " pool: " + size.get() + " open (" + idle.size() + " idle), " + leases.get() + " leases, " + waits.get() + " waits, " + creations.get() + " created, " + expirations.get() + " expired";
+  }
+  
+  public static final class Lease <T extends Closeable> implements Closeable {
+    private final ResourcePool<T> pool;
+    private final T instance;
+    private volatile boolean leased;
+    private volatile long lastReturned;
+    
+    private Lease(ResourcePool<T> pool, T instance) {
+      this.pool = pool;
+      this.instance = instance;
+    }
+    
+    public T get() {
+      return instance;
+    }
+    
+    /**
+     * Returns the resource to the pool.
+     */
+    @Override
+    public void close() {
+      if (leased) {
+        leased = false;
+        pool.giveBack(this);
+      }
+    }
+  }
+  
+  public static interface Instantiator <T extends Closeable> {
+    public T create();
+  }
+}
@@ -0,0 +1,192 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util;
+
+/**
+ * Constant memory summary statistics.
+ * 
+ * Moments are accumulated with Welford's algorithm, both over all of the
+ * values and over the non-zero ones. Quantiles come from an optional
+ * {@link QuantileSketch}. Statistics gathered on separate threads can be
+ * combined with {@link #merge}.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class StreamingStatistics {
+  private static final double ZERO = .00000001;
+  
+  private long count;
+  private double sum;
+  private double mean;
+  private double m2;
+  private double min;
+  private double max;
+  
+  private long nonZeroCount;
+  private double nonZeroMean;
+  private double nonZeroM2;
+  
+  private final QuantileSketch sketch;
+  
+  private StreamingStatistics(QuantileSketch sketch) {
+    this.sketch = sketch;
+    min = Double.NaN;
+    max = Double.NaN;
+  }
+  
+  /**
+   * Creates statistics that also track quantiles.
+   */
+  public static StreamingStatistics create() {
+    return new StreamingStatistics(QuantileSketch.create());
+  }
+  
+  /**
+   * Creates statistics that only track count, sum, mean, deviation and range.
+   */
+  public static StreamingStatistics createMomentsOnly() {
+    return new StreamingStatistics(null);
+  }
+  
+  public void addValue(int value) {
+    addValue((double) value);
+  }
+  
+  public void addValue(double value) {
+    if (count == 0) {
+      min = value;
+      max = value;
+    } else if (value < min) {
+      min = value;
+    } else if (value > max) {
+      max = value;
+    }
+    sum += value;
+    count++;
+    double delta = value - mean;
+    mean += delta / count;
+    m2 += delta * (value - mean);
+    
+    if (Math.abs(value) > ZERO) {
+      nonZeroCount++;
+      delta = value - nonZeroMean;
+      nonZeroMean += delta / nonZeroCount;
+      nonZeroM2 += delta * (value - nonZeroMean);
+    }
+    
+    if (sketch != null) {
+      sketch.add(value);
+    }
+  }
+  
+  /**
+   * Adds the values summarized by <tt>other</tt> to this.
+   */
+  public void merge(StreamingStatistics other) {
+    if (other.count == 0) {
+      return;
+    }
+    if (count == 0) {
+      min = other.min;
+      max = other.max;
+    } else {
+      min = Math.min(min, other.min);
+      max = Math.max(max, other.max);
+    }
+    sum += other.sum;
+    
+    long total = count + other.count;
+    double delta = other.mean - mean;
+    m2 += other.m2 + delta * delta * count * other.count / total;
+    mean += delta * other.count / total;
+    count = total;
+    
+    if (other.nonZeroCount > 0) {
+      total = nonZeroCount + other.nonZeroCount;
+      delta = other.nonZeroMean - nonZeroMean;
+      nonZeroM2 += other.nonZeroM2 + delta * delta * nonZeroCount * other.nonZeroCount / total;
+      nonZeroMean += delta * other.nonZeroCount / total;
+      nonZeroCount = total;
+    }
+    
+    if (sketch != null) {
+      if (other.sketch == null) {
+        throw new IllegalArgumentException("Cannot merge statistics without quantiles into statistics with them");
+      }
+      sketch.merge(other.sketch);
+    }
+  }
+  
+  public long getCount() {
+    return count;
+  }
+  
+  public long getNonZeroCount() {
+    return nonZeroCount;
+  }
+  
+  public double getSum() {
+    return sum;
+  }
+  
+  public double getMean() {
+    return count == 0 ? Double.NaN : sum / count;
+  }
+  
+  public double getNonZeroMean() {
+    return nonZeroCount == 0 ? Double.NaN : sum / nonZeroCount;
+  }
+  
+  /**
+   * Population standard deviation.
+   */
+  public double getStandardDeviation() {
+    return count == 0 ? Double.NaN : Math.sqrt(m2 / count);
+  }
+  
+  public double getNonZeroStandardDeviation() {
+    return nonZeroCount == 0 ? Double.NaN : Math.sqrt(nonZeroM2 / nonZeroCount);
+  }
+  
+  /**
+   * NaN if no values have been added.
+   */
+  public double getMin() {
+    return min;
+  }
+  
+  public double getMax() {
+    return max;
+  }
+  
+  public boolean hasQuantiles() {
+    return sketch != null;
+  }
+  
+  public double getQuantile(double q) {
+    if (sketch == null) {
+      throw new IllegalStateException("Quantiles are not being tracked");
+    } else {
+      return sketch.getQuantile(q);
+    }
+  }
+  
+  public double getMedian() {
+    return getQuantile(0.5);
+  }
+}
@@ -0,0 +1,171 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
+
+/**
+ * Clones files by linking rather than copying where possible, so that
+ * cloning large files is close to a metadata operation.
+ * <p>
+ * If the chosen strategy fails (across file systems, or on a file
+ * system without reflinks), the cloner falls back to copying for the
+ * rest of its use. Properties files are always copied, since they are
+ * rewritten in place and would otherwise change the original. Any other
+ * file rewritten in place needs a reflink or copy strategy.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class FileCloner {
+  public static final Argument<String> CLONE_STRATEGY = new StringArgument("clone-strategy", "hard-link", "How files are cloned: hard-link, reflink, symlink or copy.");
+  
+  public static enum Strategy {
+    HARD_LINK,
+    REFLINK,
+    SYMLINK,
+    COPY,
+    ;
+    
+    public static Strategy parse(String value) {
+      return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+  }
+  
+  private final Strategy strategy;
+  private volatile boolean fallingBack;
+  
+  private final AtomicInteger linkedCount = new AtomicInteger();
+  private final AtomicInteger copiedCount = new AtomicInteger();
+  private final AtomicLong copiedBytes = new AtomicLong();
+  
+  private FileCloner(Strategy strategy) {
+    this.strategy = strategy;
+  }
+  
+  public static FileCloner create(Strategy strategy) {
+    return new FileCloner(strategy);
+  }
+  
+  public static FileCloner create() {
+    return create(Strategy.parse(CLONE_STRATEGY.getValue()));
+  }
+  
+  /**
+   * Clones <code>source</code>, and everything beneath it if it is a
+   * directory, to <code>target</code>. Safe to call from several threads
+   * at once.
+   * 
+   * @return <tt>true</tt> if everything was cloned
+   */
+  public boolean cloneTree(File source, File target) {
+    if (source.isDirectory()) {
+      File[] children = source.listFiles();
+      if (children == null) {
+        logger.severe("Unable to list " + source.getPath());
+        return false;
+      }
+      target.mkdirs();
+      boolean result = true;
+      for (File child : children) {
+        result &= cloneTree(child, new File(target, child.getName()));
+      }
+      return result;
+    } else {
+      return cloneFile(source, target);
+    }
+  }
+  
+  public boolean cloneFile(File source, File target) {
+    target.getParentFile().mkdirs();
+    if (strategy != Strategy.COPY && !fallingBack && !source.getName().endsWith(".properties")) {
+      try {
+        link(source, target);
+        linkedCount.incrementAndGet();
+        return true;
+      } catch (FileAlreadyExistsException e) {
+        logger.severe("Unable to clone " + source.getPath() + ", as " + target.getPath() + " already exists");
+        return false;
+      } catch (IOException | UnsupportedOperationException e) {
+        synchronized (this) {
+          if (!fallingBack) {
+            logger.log(Level.WARNING, "Unable to clone " + source.getPath() + " with " + strategy + ", falling back to copying.", e);
+            fallingBack = true;
+          }
+        }
+      }
+    }
+    try {
+      Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+      copiedCount.incrementAndGet();
+      copiedBytes.addAndGet(source.length());
+      return true;
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to copy file from " + source.getPath() + " to " + target.getPath(), e);
+      return false;
+    }
+  }
+  
+  /**
+   * Never called for {@link Strategy#COPY}, which {@link #cloneFile} handles.
+   */
+  private void link(File source, File target) throws IOException {
+    switch (strategy) {
+      case HARD_LINK:
+        Files.createLink(target.toPath(), source.toPath());
+        break;
+      case SYMLINK:
+        Files.createSymbolicLink(target.toPath(), source.getAbsoluteFile().toPath());
+        break;
+      case REFLINK:
+        // There is no Java API for reflinks, so defer to cp
+        if (target.exists()) {
+          throw new FileAlreadyExistsException(target.getPath());
+        }
+        Process process = new ProcessBuilder("cp", "--reflink=always", source.getPath(), target.getPath()).redirectErrorStream(true).start();
+        try {
+          process.getInputStream().close();
+          if (process.waitFor() != 0) {
+            target.delete();
+            throw new IOException("cp --reflink=always failed for " + source.getPath());
+          }
+        } catch (InterruptedException e) {
+          throw new IOException("Interrupted while reflinking " + source.getPath(), e);
+        }
+        break;
+      case COPY:
+        throw new IllegalStateException("Copying is not linking");
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return linkedCount.get() + " files cloned with " + strategy + ", " + copiedCount.get() + " files (" + (copiedBytes.get() / (1024 * 1024)) + " MB) copied";
+  }
+}
@@ -23,11 +23,12 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
@@ -147,20 +148,14 @@ public class FileUtils {
   }
 
   private static boolean copyFileHelper(File source, File destination) {
-    FileInputStream in = null;
-    FileOutputStream out = null;
     try {
-      in = new FileInputStream(source);
       destination.getParentFile().mkdirs();
-      out = new FileOutputStream(destination);
-      IOUtils.writeStreamToStream(in, out);
+      // Lets the platform copy without passing the bytes through the heap
+      Files.copy(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
       return true;
     } catch (IOException e) {
       logger.log(Level.SEVERE, "Unable to copy file from " + source.getPath() + " to " + destination.getPath(), e);
       return false;
-    } finally {
-      IOUtils.close(in);
-      IOUtils.close(out);
     }
   }
   
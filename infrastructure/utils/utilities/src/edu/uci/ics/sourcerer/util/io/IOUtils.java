@@ -153,6 +153,28 @@ public final class IOUtils {
     }
   }
   
+  /**
+   * Streams the entry rather than loading it into a collection. If
+   * the iterable is never read to completion, the zip will remain open.
+   */
+  public static <T extends SimpleSerializable> Iterable<T> deserialize(Class<T> klass, File zip, String entryName, boolean trans) throws IOException {
+    ZipInputStream zis = new ZipInputStream(new FileInputStream(zip));
+    try {
+      ZipEntry entry = null;
+      while ((entry = zis.getNextEntry()) != null) {
+        if (entryName.equals(entry.getName())) {
+          Iterable<T> result = IOUtilFactory.createSimpleDeserializer(zis).deserializeToIterable(klass, true, trans);
+          zis = null;
+          return result;
+        }
+      }
+      logger.severe("Unable to locate entry " + entryName + " in " + zip.getPath());
+      return Collections.emptyList();
+    } finally {
+      close(zis);
+    }
+  }
+  
   /**
    * If the iterable is never read to completion, the file will remain open.
    */
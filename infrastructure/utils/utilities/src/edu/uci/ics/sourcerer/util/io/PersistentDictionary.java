@@ -0,0 +1,458 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+
+/**
+ * Append-only dictionary assigning stable int ids to strings. Both
+ * directions of the lookup are served from memory mapped files, so the
+ * dictionary lives off-heap and is shared through the page cache by
+ * every process that opens it.
+ * 
+ * Three files make up a dictionary:
+ * <ul>
+ *   <li><tt>name.strings</tt> holds length-prefixed UTF-8 records, in
+ *   64MB segments that no record crosses.</li>
+ *   <li><tt>name.offsets</tt> maps each id to its record's offset.</li>
+ *   <li><tt>name.index</tt> is an open addressing hash table from
+ *   string hash to id, behind a header holding the capacity, the id
+ *   count and the end of the strings file.</li>
+ * </ul>
+ * An append writes the record, offset and slot before bumping the
+ * count in the header, so an interrupted append is simply forgotten.
+ * 
+ * Any number of threads may look up and intern concurrently. Only one
+ * process may append at a time. Others open the dictionary read-only,
+ * and see the ids that existed when they opened it.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class PersistentDictionary implements Closeable {
+  public static final int NULL_ID = -1;
+  
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final int SEGMENT_BITS = 26;
+  private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+  private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+  private static final int HEADER_SIZE = 16;
+  private static final int SLOT_SIZE = 8;
+  private static final int INITIAL_CAPACITY = 1 << 16;
+  
+  private final File dir;
+  private final String name;
+  private final ReadWriteLock lock;
+  
+  private RandomAccessFile lockFile;
+  private FileLock fileLock;
+  private MapMode mode;
+  private boolean closed;
+  
+  private RandomAccessFile indexFile;
+  private RandomAccessFile offsetsFile;
+  private RandomAccessFile stringsFile;
+  private MappedByteBuffer index;
+  private MappedByteBuffer offsets;
+  private final ArrayList<MappedByteBuffer> segments;
+  
+  private int capacity;
+  private int count;
+  private long tail;
+  
+  private PersistentDictionary(File dir, String name) {
+    this.dir = dir;
+    this.name = name;
+    this.lock = new ReentrantReadWriteLock();
+    this.segments = new ArrayList<>();
+  }
+  
+  public static PersistentDictionary open(File dir, String name) {
+    PersistentDictionary dictionary = new PersistentDictionary(dir, name);
+    try {
+      dictionary.map();
+      return dictionary;
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to open dictionary: " + dictionary, e);
+      dictionary.close();
+      return null;
+    }
+  }
+  
+  private File getFile(String suffix) {
+    return new File(dir, name + suffix);
+  }
+  
+  private void map() throws IOException {
+    dir.mkdirs();
+    lockFile = new RandomAccessFile(getFile(".lock"), "rw");
+    try {
+      fileLock = lockFile.getChannel().tryLock();
+    } catch (OverlappingFileLockException e) {
+      fileLock = null;
+    }
+    if (fileLock == null) {
+      logger.warning(this + " is being appended to elsewhere, opening it read-only.");
+      mode = MapMode.READ_ONLY;
+    } else {
+      mode = MapMode.READ_WRITE;
+    }
+    
+    String access = mode == MapMode.READ_WRITE ? "rw" : "r";
+    File file = getFile(".index");
+    if (!file.exists() || file.length() < HEADER_SIZE) {
+      if (mode == MapMode.READ_ONLY) {
+        // Nothing has been written yet
+        return;
+      } else {
+        indexFile = new RandomAccessFile(file, access);
+        index = createIndex(indexFile, INITIAL_CAPACITY);
+      }
+    } else {
+      indexFile = new RandomAccessFile(file, access);
+      int existing = indexFile.readInt();
+      index = indexFile.getChannel().map(mode, 0, HEADER_SIZE + (long) existing * SLOT_SIZE);
+    }
+    capacity = index.getInt(0);
+    count = index.getInt(4);
+    tail = index.getLong(8);
+    
+    offsetsFile = new RandomAccessFile(getFile(".offsets"), access);
+    ensureOffsets(count);
+    
+    stringsFile = new RandomAccessFile(getFile(".strings"), access);
+    if (count > 0) {
+      ensureSegment((int) ((tail - 1) >>> SEGMENT_BITS));
+    }
+  }
+  
+  private MappedByteBuffer createIndex(RandomAccessFile file, int capacity) throws IOException {
+    MappedByteBuffer buffer = file.getChannel().map(MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+    buffer.putInt(0, capacity);
+    buffer.putInt(4, count);
+    buffer.putLong(8, tail);
+    return buffer;
+  }
+  
+  private void ensureOffsets(int required) throws IOException {
+    long needed = (long) required * 8;
+    if (offsets == null || offsets.capacity() < needed) {
+      long size;
+      if (mode == MapMode.READ_ONLY) {
+        size = offsetsFile.length();
+      } else if (offsets == null) {
+        size = Math.max(needed, (long) INITIAL_CAPACITY * 8);
+      } else {
+        size = Math.max(needed, (long) offsets.capacity() * 2);
+      }
+      offsets = offsetsFile.getChannel().map(mode, 0, size);
+    }
+  }
+  
+  private MappedByteBuffer ensureSegment(int segment) throws IOException {
+    while (segments.size() <= segment) {
+      long start = (long) segments.size() << SEGMENT_BITS;
+      long size = SEGMENT_SIZE;
+      if (mode == MapMode.READ_ONLY) {
+        size = Math.min(size, stringsFile.length() - start);
+      }
+      segments.add(stringsFile.getChannel().map(mode, start, size));
+    }
+    return segments.get(segment);
+  }
+  
+  private static int mix(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+  
+  private int getSlotID(int slot) {
+    int id = index.getInt(HEADER_SIZE + slot * SLOT_SIZE + 4) - 1;
+    // Slots left behind by an interrupted append count as empty
+    if (id < 0 || id >= count) {
+      return NULL_ID;
+    } else {
+      return id;
+    }
+  }
+  
+  private boolean matches(int id, byte[] bytes) {
+    long offset = offsets.getLong(id * 8);
+    ByteBuffer segment = segments.get((int) (offset >>> SEGMENT_BITS));
+    int pos = (int) (offset & SEGMENT_MASK);
+    if (segment.getInt(pos) != bytes.length) {
+      return false;
+    } else {
+      pos += 4;
+      for (int i = 0; i < bytes.length; i++) {
+        if (segment.get(pos + i) != bytes[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+  
+  /**
+   * Returns the slot holding <tt>bytes</tt>, or else the empty slot
+   * where it belongs.
+   */
+  private int probe(byte[] bytes, int hash) {
+    int mask = capacity - 1;
+    for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+      int id = getSlotID(slot);
+      if (id == NULL_ID || (index.getInt(HEADER_SIZE + slot * SLOT_SIZE) == hash && matches(id, bytes))) {
+        return slot;
+      }
+    }
+  }
+  
+  /**
+   * Returns the id of <tt>string</tt>, or {@link #NULL_ID} if it has
+   * not been interned.
+   */
+  public int getID(String string) {
+    if (string == null) {
+      return NULL_ID;
+    }
+    byte[] bytes = string.getBytes(UTF8);
+    lock.readLock().lock();
+    try {
+      if (capacity == 0) {
+        return NULL_ID;
+      } else {
+        return getSlotID(probe(bytes, string.hashCode()));
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+  
+  /**
+   * Returns the id of <tt>string</tt>, appending it if necessary. A
+   * read-only dictionary returns {@link #NULL_ID} for new strings.
+   */
+  public int intern(String string) {
+    int id = getID(string);
+    if (id != NULL_ID || string == null || mode == MapMode.READ_ONLY) {
+      return id;
+    }
+    byte[] bytes = string.getBytes(UTF8);
+    int hash = string.hashCode();
+    if (bytes.length + 4 > SEGMENT_SIZE) {
+      throw new IllegalArgumentException("String too long for dictionary: " + bytes.length + " bytes");
+    }
+    lock.writeLock().lock();
+    try {
+      int slot = probe(bytes, hash);
+      id = getSlotID(slot);
+      if (id == NULL_ID) {
+        id = count;
+        
+        // Write the record
+        int segment = (int) (tail >>> SEGMENT_BITS);
+        int pos = (int) (tail & SEGMENT_MASK);
+        if (pos + 4 + bytes.length > SEGMENT_SIZE) {
+          segment++;
+          pos = 0;
+          tail = (long) segment << SEGMENT_BITS;
+        }
+        ByteBuffer buffer = ensureSegment(segment).duplicate();
+        buffer.position(pos);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+        
+        // Write the offset and slot
+        ensureOffsets(id + 1);
+        offsets.putLong(id * 8, tail);
+        index.putInt(HEADER_SIZE + slot * SLOT_SIZE, hash);
+        index.putInt(HEADER_SIZE + slot * SLOT_SIZE + 4, id + 1);
+        
+        // Commit
+        tail += 4 + bytes.length;
+        index.putLong(8, tail);
+        index.putInt(4, ++count);
+        
+        if (count * 2 > capacity) {
+          rehash(capacity * 2);
+        }
+      }
+      return id;
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to append to dictionary: " + this, e);
+      return NULL_ID;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+  
+  /**
+   * Builds a larger table in a temporary file and renames it over the
+   * old one, so the table on disk is always complete.
+   */
+  private void rehash(int newCapacity) throws IOException {
+    File tmp = getFile(".index.tmp");
+    tmp.delete();
+    RandomAccessFile newFile = new RandomAccessFile(tmp, "rw");
+    MappedByteBuffer newIndex = createIndex(newFile, newCapacity);
+    int mask = newCapacity - 1;
+    for (int slot = 0; slot < capacity; slot++) {
+      int id = getSlotID(slot);
+      if (id != NULL_ID) {
+        int hash = index.getInt(HEADER_SIZE + slot * SLOT_SIZE);
+        int newSlot = mix(hash) & mask;
+        while (newIndex.getInt(HEADER_SIZE + newSlot * SLOT_SIZE + 4) != 0) {
+          newSlot = (newSlot + 1) & mask;
+        }
+        newIndex.putInt(HEADER_SIZE + newSlot * SLOT_SIZE, hash);
+        newIndex.putInt(HEADER_SIZE + newSlot * SLOT_SIZE + 4, id + 1);
+      }
+    }
+    newIndex.force();
+    forceAll();
+    Files.move(tmp.toPath(), getFile(".index").toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    IOUtils.close(indexFile);
+    indexFile = newFile;
+    index = newIndex;
+    capacity = newCapacity;
+  }
+  
+  public String getString(int id) {
+    lock.readLock().lock();
+    try {
+      if (id < 0 || id >= count) {
+        return null;
+      } else {
+        long offset = offsets.getLong(id * 8);
+        ByteBuffer buffer = segments.get((int) (offset >>> SEGMENT_BITS)).duplicate();
+        buffer.position((int) (offset & SEGMENT_MASK));
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+  
+  /**
+   * Returns true if another process held the append lock when this
+   * dictionary was opened, or once it has been closed. Interning new
+   * strings then returns {@link #NULL_ID}.
+   */
+  public boolean isReadOnly() {
+    lock.readLock().lock();
+    try {
+      return mode == MapMode.READ_ONLY;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+  
+  public boolean isClosed() {
+    lock.readLock().lock();
+    try {
+      return closed;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+  
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return count;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+  
+  private void forceAll() {
+    if (mode == MapMode.READ_WRITE) {
+      for (MappedByteBuffer segment : segments) {
+        segment.force();
+      }
+      if (offsets != null) {
+        offsets.force();
+      }
+      if (index != null) {
+        index.force();
+      }
+    }
+  }
+  
+  /**
+   * Forces appended strings to disk.
+   */
+  public void flush() {
+    lock.writeLock().lock();
+    try {
+      forceAll();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+  
+  @Override
+  public void close() {
+    lock.writeLock().lock();
+    try {
+      forceAll();
+      index = null;
+      offsets = null;
+      segments.clear();
+      capacity = 0;
+      count = 0;
+      mode = MapMode.READ_ONLY;
+      closed = true;
+      IOUtils.close(indexFile, offsetsFile, stringsFile);
+      if (fileLock != null) {
+        try {
+          fileLock.release();
+        } catch (IOException e) {
+          logger.log(Level.SEVERE, "Unable to release lock on " + this, e);
+        }
+        fileLock = null;
+      }
+      IOUtils.close(lockFile);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+  
+  @Override
+  public String toString() {
+    return new File(dir, name).getPath();
+  }
+}
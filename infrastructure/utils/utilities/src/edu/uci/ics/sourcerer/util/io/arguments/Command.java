@@ -22,6 +22,7 @@ import java.util.Collections;
 import java.util.LinkedList;
 
 import edu.uci.ics.sourcerer.util.io.logging.Logging;
+import edu.uci.ics.sourcerer.util.io.metrics.Instrumentation;
 
 
 /**
@@ -77,7 +78,12 @@ public abstract class Command {
 
   protected void execute() {
     Logging.initializeLogger(this);
-    action();
+    Instrumentation.initialize(this);
+    try {
+      action();
+    } finally {
+      Instrumentation.shutdown();
+    }
   }
   
   protected abstract void action();
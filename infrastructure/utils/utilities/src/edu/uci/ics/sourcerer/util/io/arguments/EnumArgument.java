@@ -29,6 +29,7 @@ public class EnumArgument <E extends Enum<E>> extends Argument<E> {
   
   public EnumArgument(String name, Class<E> enumType, E defaultValue, String description) {
     super(name, defaultValue, description);
+    this.enumType = enumType;
   }
   
   @Override
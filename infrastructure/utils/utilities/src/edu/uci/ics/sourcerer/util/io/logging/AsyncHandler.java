@@ -0,0 +1,205 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io.logging;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import edu.uci.ics.sourcerer.util.io.logging.Logging.OverflowPolicy;
+
+/**
+ * Hands records to a background writer thread instead of writing them on
+ * the logging thread.
+ * 
+ * Each handler owns a bounded ring buffer. Logging threads claim slots with
+ * a compare-and-set on the tail, so publishing never takes a lock. A single
+ * daemon writer drains every registered buffer in order into its delegate,
+ * flushing the delegate once per batch. The level and filter of this
+ * handler are checked on the logging thread, so filters may depend on the
+ * current thread; the delegate's are checked on the writer.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+final class AsyncHandler extends Handler {
+  private static final Set<AsyncHandler> handlers = new CopyOnWriteArraySet<>();
+  private static volatile long idleNanos = TimeUnit.MILLISECONDS.toNanos(100);
+  private static Thread writer;
+  
+  private final Handler delegate;
+  private final OverflowPolicy policy;
+  
+  private final AtomicReferenceArray<LogRecord> ring;
+  private final int mask;
+  private final AtomicLong tail;
+  private volatile long head;
+  private final AtomicLong discarded;
+  private final ReentrantLock drainLock;
+  private volatile boolean closed;
+  
+  private AsyncHandler(Handler delegate, int capacity, OverflowPolicy policy) {
+    this.delegate = delegate;
+    this.policy = policy;
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    ring = new AtomicReferenceArray<>(size);
+    mask = size - 1;
+    tail = new AtomicLong();
+    discarded = new AtomicLong();
+    drainLock = new ReentrantLock();
+  }
+  
+  static AsyncHandler create(Handler delegate, int capacity, OverflowPolicy policy) {
+    AsyncHandler handler = new AsyncHandler(delegate, capacity, policy);
+    delegate.setLevel(Level.ALL);
+    startWriter();
+    handlers.add(handler);
+    return handler;
+  }
+  
+  static void setIdleInterval(long millis) {
+    idleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, millis));
+  }
+  
+  private static synchronized void startWriter() {
+    if (writer == null) {
+      writer = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          while (true) {
+            if (!drainAll(false)) {
+              LockSupport.parkNanos(idleNanos);
+            }
+          }
+        }
+      }, "async-log-writer");
+      writer.setDaemon(true);
+      writer.start();
+      
+      Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          drainAll(true);
+        }
+      }, "async-log-shutdown"));
+    }
+  }
+  
+  private static boolean drainAll(boolean wait) {
+    boolean busy = false;
+    for (AsyncHandler handler : handlers) {
+      if (wait) {
+        handler.drainLock.lock();
+      } else if (!handler.drainLock.tryLock()) {
+        continue;
+      }
+      try {
+        busy |= handler.drain() > 0;
+      } finally {
+        handler.drainLock.unlock();
+      }
+    }
+    return busy;
+  }
+  
+  @Override
+  public void publish(LogRecord record) {
+    if (closed || !isLoggable(record)) {
+      return;
+    }
+    int capacity = ring.length();
+    while (true) {
+      long t = tail.get();
+      if (t - head >= capacity) {
+        if (policy == OverflowPolicy.DISCARD || (policy == OverflowPolicy.DISCARD_INFO && record.getLevel().intValue() < Level.WARNING.intValue())) {
+          discarded.incrementAndGet();
+          return;
+        } else {
+          LockSupport.unpark(writer);
+          LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+      } else if (tail.compareAndSet(t, t + 1)) {
+        ring.set((int) t & mask, record);
+        return;
+      }
+    }
+  }
+  
+  /**
+   * Must be called while holding the drain lock. Stops at the first slot
+   * that has been claimed but not yet written, so records are always
+   * handed to the delegate in the order their slots were claimed.
+   */
+  private int drain() {
+    int count = 0;
+    long h = head;
+    while (count < ring.length()) {
+      int index = (int) h & mask;
+      LogRecord record = ring.get(index);
+      if (record == null) {
+        break;
+      }
+      ring.set(index, null);
+      head = ++h;
+      delegate.publish(record);
+      count++;
+    }
+    long lost = discarded.getAndSet(0);
+    if (lost > 0) {
+      delegate.publish(new LogRecord(Level.WARNING, lost + " log records discarded: buffer full"));
+      count++;
+    }
+    if (count > 0) {
+      delegate.flush();
+    }
+    return count;
+  }
+  
+  /**
+   * Writes everything published so far before returning.
+   */
+  @Override
+  public void flush() {
+    drainLock.lock();
+    try {
+      long target = tail.get();
+      while (head < target) {
+        if (drain() == 0) {
+          Thread.yield();
+        }
+      }
+      delegate.flush();
+    } finally {
+      drainLock.unlock();
+    }
+  }
+  
+  @Override
+  public void close() {
+    closed = true;
+    flush();
+    handlers.remove(this);
+    delegate.close();
+  }
+}
@@ -19,8 +19,10 @@ package edu.uci.ics.sourcerer.util.io.logging;
 
 import static edu.uci.ics.sourcerer.util.io.arguments.Arguments.OUTPUT;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -30,10 +32,11 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.FileHandler;
+import java.util.logging.Filter;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -45,6 +48,8 @@ import edu.uci.ics.sourcerer.util.Helper;
 import edu.uci.ics.sourcerer.util.io.arguments.Argument;
 import edu.uci.ics.sourcerer.util.io.arguments.BooleanArgument;
 import edu.uci.ics.sourcerer.util.io.arguments.Command;
+import edu.uci.ics.sourcerer.util.io.arguments.EnumArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
 import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
 
 /**
@@ -59,24 +64,39 @@ public final class Logging {
   protected static final Argument<String> INFO_LOG = new StringArgument("info-log", "info.log", "Filename for the info log.").permit();
   protected static final Argument<String> RESUME_LOG = new StringArgument("resume-log", "resume.log", "Filename for the resume log.").permit();
   protected static final Argument<Boolean> CLEAR_RESUME_LOG = new BooleanArgument("clear-resume-log", false, "Clears the resume log before beginning.").permit(); 
+  protected static final Argument<Boolean> ASYNC_LOGGING = new BooleanArgument("async-logging", false, "Writes the console, error, info and thread logs from a background thread.").permit();
+  protected static final Argument<Integer> LOG_BUFFER_SIZE = new IntegerArgument("log-buffer-size", 8192, "Number of records each asynchronous log can buffer.").permit();
+  protected static final Argument<Integer> LOG_FLUSH_INTERVAL = new IntegerArgument("log-flush-interval", 100, "Milliseconds the asynchronous log writer sleeps when idle.").permit();
+  protected static final Argument<OverflowPolicy> LOG_OVERFLOW_POLICY = new EnumArgument<>("log-overflow-policy", OverflowPolicy.class, OverflowPolicy.BLOCK, "What to do when an asynchronous log buffer is full: BLOCK, DISCARD or DISCARD_INFO.").permit();
   
   public static final Level RESUME = new Level("RESUME", 10000) {};
   public static final Level THREAD_INFO = new Level("TINFO", 100000) {};
   
+  /**
+   * What a logging thread does when an asynchronous log buffer is full.
+   * DISCARD_INFO drops records below WARNING and blocks for the rest.
+   */
+  public static enum OverflowPolicy {
+    BLOCK,
+    DISCARD,
+    DISCARD_INFO;
+  }
+  
   public static Logger logger;
   
   private Logging() {}
   
-  private static boolean loggingInitialized = false;
+  private static volatile boolean loggingInitialized = false;
   private static boolean resumeLoggingInitialized = false;
+  private static boolean asyncLogging = false;
   private static StreamHandler defaultHandler;
   private static String day;
   private static String time;
   
-  private static Map<File, Handler> handlerMap = new HashMap<>();
+  private static Map<File, Handler> handlerMap = new ConcurrentHashMap<>();
   
   private static long mainThread;
-  private static Map<Long, Handler> threadHandlerMap = new HashMap<>();
+  private static Map<Long, Handler> threadHandlerMap = new ConcurrentHashMap<>();
   private static Command command;
   
   private static class FlushingStreamHandler extends StreamHandler {
@@ -90,6 +110,15 @@ public final class Logging {
     }
   }
   
+  /**
+   * Leaves flushing to the asynchronous writer, which flushes once per batch.
+   */
+  private static class BatchStreamHandler extends StreamHandler {
+    public BatchStreamHandler(OutputStream out) {
+      setOutputStream(out);
+    }
+  }
+  
   static {
     logger = Logger.getLogger("edu.uci.ics.sourcerer.util.io");
     logger.setUseParentHandlers(false);
@@ -135,6 +164,39 @@ public final class Logging {
     return getOutputDir(command) + "/" + prop.getValue().replace("%t", "" + Thread.currentThread().getName());
   }
   
+  private static boolean isMainThread() {
+    return Thread.currentThread().getId() == mainThread;
+  }
+  
+  /**
+   * FileHandler flushes after every record, which would defeat the batching
+   * of the asynchronous writer, so asynchronous logs write through a
+   * buffered stream instead.
+   */
+  private static StreamHandler createFileHandler(String path, boolean append) throws IOException {
+    if (asyncLogging) {
+      return new BatchStreamHandler(new BufferedOutputStream(new FileOutputStream(path, append)));
+    } else {
+      return new FileHandler(path, append);
+    }
+  }
+  
+  /**
+   * The filter always runs on the logging thread, so it may test the
+   * current thread. The formatter may run on the asynchronous writer.
+   */
+  private static Handler addHandler(StreamHandler handler, Formatter formatter, Filter filter) {
+    handler.setFormatter(formatter);
+    Handler result = handler;
+    if (asyncLogging) {
+      result = AsyncHandler.create(handler, LOG_BUFFER_SIZE.getValue(), LOG_OVERFLOW_POLICY.getValue());
+    }
+    result.setFilter(filter);
+    result.setLevel(Level.INFO);
+    logger.addHandler(result);
+    return result;
+  }
+  
   public synchronized static Set<String> initializeResumeLogger() {
     if (resumeLoggingInitialized) {
       throw new IllegalStateException("Resume logging may only be initialized once");
@@ -152,6 +214,7 @@ public final class Logging {
       
       Set<String> resumeSet = getResumeSet(resumeFile);
       
+      // Always synchronous: each entry must reach the file before the caller moves on
       try {
         FileHandler resumeHandler = new FileHandler(resumeFile.getPath(), true);
         resumeHandler.setLevel(RESUME);
@@ -199,63 +262,64 @@ public final class Logging {
         }
       }
       
-      StreamHandler errorHandler = null;
+      asyncLogging = ASYNC_LOGGING.getValue();
+      if (asyncLogging) {
+        AsyncHandler.setIdleInterval(LOG_FLUSH_INTERVAL.getValue());
+      }
+      
+      if (!suppressFileLogging) {
+        Formatter infoFormatter = new Formatter() {
+          @Override
+          public String format(LogRecord record) {
+            String msg = formatInfo(record);
+            if (REPORT_TO_CONSOLE.getValue()) {
+              System.out.print(msg);
+            }
+            return msg;
+          }
+        };
+        Filter infoFilter = new Filter() {
+          @Override
+          public boolean isLoggable(LogRecord record) {
+            return record.getLevel() == THREAD_INFO || (record.getLevel() == Level.INFO && isMainThread());
+          }
+        };
+        addHandler(createFileHandler(getFileHandlerPattern(command, INFO_LOG), false), infoFormatter, infoFilter);
+      }
+      
       if (suppressFileLogging) {
         Formatter errorFormatter = new Formatter() {
           @Override
           public String format(LogRecord record) {
-            if (record.getLevel() == RESUME || Thread.currentThread().getId() != mainThread) {
-              return "";
-            } else {
-              return Logging.formatError(record);
-            }
+            return Logging.formatError(record);
+          }
+        };
+        Filter errorFilter = new Filter() {
+          @Override
+          public boolean isLoggable(LogRecord record) {
+            return record.getLevel() != RESUME && isMainThread();
           }
         };
-        errorHandler = new FlushingStreamHandler(System.out);
-        errorHandler.setFormatter(errorFormatter);
+        addHandler(asyncLogging ? new BatchStreamHandler(System.out) : new FlushingStreamHandler(System.out), errorFormatter, errorFilter);
       } else {
         Formatter errorFormatter = new Formatter() {
           @Override
           public String format(LogRecord record) {
-            if (record.getLevel() != THREAD_INFO && (record.getLevel() == RESUME || Thread.currentThread().getId() != mainThread)) {
-              return "";
-            } else {
-              String msg = Logging.formatError(record);
-              if (REPORT_TO_CONSOLE.getValue() && record.getLevel() == Level.SEVERE) {
-                System.err.print(msg);
-              }
-              return msg;
+            String msg = Logging.formatError(record);
+            if (REPORT_TO_CONSOLE.getValue() && record.getLevel() == Level.SEVERE) {
+              System.err.print(msg);
             }
+            return msg;
           }
         };
-        errorHandler = new FileHandler(getFileHandlerPattern(command, ERROR_LOG));
-        errorHandler.setFormatter(errorFormatter);
-      }
-      errorHandler.setLevel(Level.INFO);
-      
-      StreamHandler infoHandler = null;
-      if (!suppressFileLogging) {
-        Formatter infoFormatter = new Formatter() {
+        Filter errorFilter = new Filter() {
           @Override
-          public String format(LogRecord record) {
-            if (record.getLevel() == THREAD_INFO || (record.getLevel() == Level.INFO && Thread.currentThread().getId() == mainThread)) {
-              String msg = formatInfo(record);
-              if (REPORT_TO_CONSOLE.getValue()) {
-                System.out.print(msg);
-              }
-              return msg;
-            } else {
-              return "";
-            }
+          public boolean isLoggable(LogRecord record) {
+            return record.getLevel() == THREAD_INFO || (record.getLevel() != RESUME && isMainThread());
           }
         };
-        infoHandler = new FileHandler(getFileHandlerPattern(command, INFO_LOG));
-        infoHandler.setFormatter(infoFormatter);
-        infoHandler.setLevel(Level.INFO);
-        logger.addHandler(infoHandler);
+        addHandler(createFileHandler(getFileHandlerPattern(command, ERROR_LOG), false), errorFormatter, errorFilter);
       }
-            
-      logger.addHandler(errorHandler);
       
       logger.removeHandler(defaultHandler);
       
@@ -267,7 +331,7 @@ public final class Logging {
     }
   }
   
-  public synchronized static void addThreadLogger() {
+  public static void addThreadLogger() {
     Thread thread = Thread.currentThread();
     if (!loggingInitialized) {
       throw new IllegalStateException("Logging must be initialized before error logs can be added.");
@@ -281,47 +345,42 @@ public final class Logging {
       Formatter formatter = new Formatter() {
         @Override
         public String format(LogRecord record) {
-          if (Thread.currentThread().getId() == id) {
-            if (record.getLevel() == RESUME || record.getLevel() == THREAD_INFO) {
-              return "";
-            } else if (record.getLevel() == Level.INFO) {
-              return Logging.formatInfo(record);
-            } else {
-              return Logging.formatError(record);
-            }
+          if (record.getLevel() == Level.INFO) {
+            return Logging.formatInfo(record);
           } else {
-            return "";
+            return Logging.formatError(record);
           }
         }
       };
+      Filter filter = new Filter() {
+        @Override
+        public boolean isLoggable(LogRecord record) {
+          return Thread.currentThread().getId() == id && record.getLevel() != RESUME && record.getLevel() != THREAD_INFO;
+        }
+      };
       
       try {
         String handlerPath = getFileHandlerPattern(command, THREAD_LOG);
-        StreamHandler handler = new FileHandler(handlerPath);
-        handler.setFormatter(formatter);
-        handler.setLevel(Level.INFO);
-        threadHandlerMap.put(id, handler);
-        logger.addHandler(handler);
+        threadHandlerMap.put(id, addHandler(createFileHandler(handlerPath, false), formatter, filter));
       } catch (IOException e) {
         logger.log(THREAD_INFO, "Error adding file logger.", e);
       }
     }
   }
   
-  public synchronized static void removeThreadLogger() {
+  public static void removeThreadLogger() {
     if (!loggingInitialized) {
       throw new IllegalStateException("Logging must be initialized before error logs can be removed.");
     }
     Thread thread = Thread.currentThread();
-    Handler handler = threadHandlerMap.get(thread.getId());
+    Handler handler = threadHandlerMap.remove(thread.getId());
     if (handler != null) {
       logger.removeHandler(handler);
       handler.close();
-      threadHandlerMap.remove(thread.getId());
     }
   }
   
-  public synchronized static void addFileLogger(File file) {
+  public static void addFileLogger(File file) {
     if (!loggingInitialized) {
       throw new IllegalStateException("Logging must be initialized before error logs can be added.");
     } else if (handlerMap.containsKey(file)) {
@@ -331,47 +390,56 @@ public final class Logging {
     Formatter formatter = new Formatter() {
       @Override
       public String format(LogRecord record) {
-        
-        if (record.getLevel() == RESUME) {
-          return "";
-        } else if (record.getLevel() == Level.INFO) {
+        if (record.getLevel() == Level.INFO) {
           return Logging.formatInfo(record);
         } else {
           return Logging.formatError(record);
         }
       }
     };
+    Filter filter = new Filter() {
+      @Override
+      public boolean isLoggable(LogRecord record) {
+        return record.getLevel() != RESUME;
+      }
+    };
     
     try {
       file.mkdirs();
-      StreamHandler handler = new FileHandler(new File(file, "log").getPath(), true);
-      handler.setFormatter(formatter);
-      handler.setLevel(Level.INFO);
-      handlerMap.put(file, handler);
-      logger.addHandler(handler);
+      Handler handler = addHandler(createFileHandler(new File(file, "log").getPath(), true), formatter, filter);
+      if (handlerMap.put(file, handler) != null) {
+        logger.removeHandler(handler);
+        handler.close();
+        throw new IllegalArgumentException("Error logging may not be added to the same file twice: " + file.getPath());
+      }
     } catch (IOException e) {
       logger.log(Level.SEVERE, "Error adding file logger.", e);
     }
   }
   
-  public synchronized static void removeFileLogger(File file) {
+  public static void removeFileLogger(File file) {
     if (!loggingInitialized) {
       throw new IllegalStateException("Logging must be initialized before error logs can be removed.");
     }
     
-    Handler handler = handlerMap.get(file);
+    Handler handler = handlerMap.remove(file);
     if (handler != null) {
       logger.removeHandler(handler);
       handler.close();
-      handlerMap.remove(file);
     }
   }
   
-  private static final DateFormat format = new SimpleDateFormat("HH:mm:ss.SSS");
-  private static synchronized String formatError(LogRecord record) {
+  private static final ThreadLocal<DateFormat> format = new ThreadLocal<DateFormat>() {
+    @Override
+    protected DateFormat initialValue() {
+      return new SimpleDateFormat("HH:mm:ss.SSS");
+    }
+  };
+  
+  private static String formatError(LogRecord record) {
     StringWriter writer = new StringWriter();
     PrintWriter pw = new PrintWriter(writer);
-    pw.print("[" + format.format(new Date(record.getMillis())) + " - " + record.getLevel() + "] ");
+    pw.print("[" + format.get().format(new Date(record.getMillis())) + " - " + record.getLevel() + "] ");
     pw.print(record.getMessage());
     if (record.getParameters() != null) {
       for (Object o : record.getParameters()) {
@@ -386,7 +454,7 @@ public final class Logging {
     return writer.toString();
   }
   
-  private static synchronized String formatInfo(LogRecord record) {
-    return "[" + format.format(new Date(record.getMillis())) + "] " + record.getMessage() + "\n";
+  private static String formatInfo(LogRecord record) {
+    return "[" + format.get().format(new Date(record.getMillis())) + "] " + record.getMessage() + "\n";
   }
 }
@@ -24,6 +24,9 @@ import java.util.LinkedList;
 import java.util.logging.Level;
 
 import edu.uci.ics.sourcerer.util.Strings;
+import edu.uci.ics.sourcerer.util.io.metrics.Instrumentation;
+import edu.uci.ics.sourcerer.util.io.metrics.LatencyHistogram;
+import edu.uci.ics.sourcerer.util.io.metrics.Meter;
 
 /**
  * @author Joel Ossher (jossher@uci.edu)
@@ -117,7 +120,9 @@ public class TaskProgressLogger {
     TaskInfo info = tasks.peek();
     if (info.progressInterval == -1) {
       throw new IllegalStateException("May not progress this task.");
-    } else if (info.progressInterval == 0) {
+    }
+    info.meter.mark();
+    if (info.progressInterval == 0) {
       info.count++;
     } else {
       if (++info.count % info.progressInterval == 0) {
@@ -162,6 +167,7 @@ public class TaskProgressLogger {
       throw new IllegalStateException("Cannot finish a non-existant task.");
     } else {
       TaskInfo info = tasks.pop();
+      info.duration.recordSince(info.startNanos);
       if (info.progressInterval == -1) {
         logger.info(getSpaces(info.indent + 1) + "Finished " + info.taskText + " in " + formatTime(info.startTime));
       } else {
@@ -206,6 +212,9 @@ public class TaskProgressLogger {
     public final String finishedText;
     public final int indent;
     public final long startTime;
+    public final long startNanos;
+    public final Meter meter;
+    public final LatencyHistogram duration;
     public int count;
     public int progressInterval;
     
@@ -214,6 +223,15 @@ public class TaskProgressLogger {
       this.finishedText = finishedText;
       this.indent = indent;
       this.startTime = System.currentTimeMillis();
+      this.startNanos = System.nanoTime();
+      if (finishedText != null && Instrumentation.isEnabled()) {
+        String name = "tasks." + Instrumentation.toMetricName(finishedText);
+        this.meter = Instrumentation.meter(name);
+        this.duration = Instrumentation.histogram(name + ".duration");
+      } else {
+        this.meter = Instrumentation.meter(null);
+        this.duration = Instrumentation.histogram(null);
+      }
       this.count = 0;
       this.progressInterval = progressInterval;
     }
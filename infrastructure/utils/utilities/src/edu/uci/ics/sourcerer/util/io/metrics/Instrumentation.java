@@ -0,0 +1,268 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io.metrics;
+
+import static edu.uci.ics.sourcerer.util.io.arguments.Arguments.OUTPUT;
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.util.io.arguments.Argument;
+import edu.uci.ics.sourcerer.util.io.arguments.Command;
+import edu.uci.ics.sourcerer.util.io.arguments.IntegerArgument;
+import edu.uci.ics.sourcerer.util.io.arguments.StringArgument;
+
+/**
+ * Registry for the process-wide meters and latency histograms.
+ * 
+ * Unless at least one exporter is requested, instrumentation is
+ * disabled and every lookup returns a shared no-op instance, so
+ * instrumented code pays only for an empty virtual call.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class Instrumentation {
+  public static final Argument<String> METRICS_EXPORTERS = new StringArgument("metrics-exporters", "", "Comma separated list of metrics exporters to enable (jmx, http, json).").permit();
+  public static final Argument<Integer> METRICS_HTTP_PORT = new IntegerArgument("metrics-http-port", 9404, "Local port on which the http exporter serves metrics.").permit();
+  public static final Argument<String> METRICS_LOG = new StringArgument("metrics-log", "metrics.jsonl", "Filename for the json lines metrics log.").permit();
+  public static final Argument<Integer> METRICS_INTERVAL = new IntegerArgument("metrics-interval", 60, "Seconds between entries in the json lines metrics log.").permit();
+  
+  private static volatile boolean enabled = false;
+  private static boolean initialized = false;
+  private static final ConcurrentMap<String, Meter> meters = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+  private static final Collection<MetricsExporter> exporters = new ArrayList<>();
+  
+  private Instrumentation() {}
+  
+  public static boolean isEnabled() {
+    return enabled;
+  }
+  
+  /**
+   * Enables instrumentation without starting any exporters.
+   */
+  public static void enable() {
+    enabled = true;
+  }
+  
+  /**
+   * Returns the meter with the given name, or a no-op meter if
+   * instrumentation is disabled or the name is null.
+   */
+  public static Meter meter(String name) {
+    if (enabled && name != null) {
+      Meter meter = meters.get(name);
+      if (meter == null) {
+        meter = new Meter(name);
+        Meter existing = meters.putIfAbsent(name, meter);
+        if (existing != null) {
+          meter = existing;
+        }
+      }
+      return meter;
+    } else {
+      return Meter.NULL;
+    }
+  }
+  
+  /**
+   * Returns the histogram with the given name, or a no-op histogram if
+   * instrumentation is disabled or the name is null.
+   */
+  public static LatencyHistogram histogram(String name) {
+    if (enabled && name != null) {
+      LatencyHistogram histogram = histograms.get(name);
+      if (histogram == null) {
+        histogram = new LatencyHistogram(name);
+        LatencyHistogram existing = histograms.putIfAbsent(name, histogram);
+        if (existing != null) {
+          histogram = existing;
+        }
+      }
+      return histogram;
+    } else {
+      return LatencyHistogram.NULL;
+    }
+  }
+  
+  static Collection<Meter> getMeters() {
+    return Collections.unmodifiableCollection(new TreeMap<>(meters).values());
+  }
+  
+  static Collection<LatencyHistogram> getHistograms() {
+    return Collections.unmodifiableCollection(new TreeMap<>(histograms).values());
+  }
+  
+  /**
+   * Converts free text (such as a task description) into a metric name.
+   */
+  public static String toMetricName(String text) {
+    StringBuilder name = new StringBuilder(text.length());
+    boolean separator = false;
+    for (char c : text.toLowerCase(Locale.ENGLISH).toCharArray()) {
+      if (Character.isLetterOrDigit(c)) {
+        if (separator && name.length() > 0) {
+          name.append('_');
+        }
+        name.append(c);
+        separator = false;
+      } else {
+        separator = true;
+      }
+    }
+    return name.toString();
+  }
+  
+  /**
+   * Starts the exporters requested by {@link #METRICS_EXPORTERS}. The
+   * command, if any, determines where the json lines log is written.
+   */
+  public synchronized static void initialize(Command command) {
+    String requested = METRICS_EXPORTERS.getValue().trim();
+    if (initialized || requested.isEmpty()) {
+      return;
+    }
+    initialized = true;
+    enabled = true;
+    for (String name : requested.split(",")) {
+      name = name.trim().toLowerCase(Locale.ENGLISH);
+      try {
+        MetricsExporter exporter = null;
+        if ("jmx".equals(name)) {
+          exporter = new JmxExporter();
+        } else if ("http".equals(name)) {
+          exporter = new HttpExporter(METRICS_HTTP_PORT.getValue());
+        } else if ("json".equals(name)) {
+          File file = new File(METRICS_LOG.getValue());
+          if (!file.isAbsolute() && OUTPUT.hasValue()) {
+            file = new File(OUTPUT.getValue(), command == null ? METRICS_LOG.getValue() : command.getName() + "/" + METRICS_LOG.getValue());
+          }
+          exporter = new JsonLinesExporter(file, METRICS_INTERVAL.getValue());
+        } else if (!name.isEmpty()) {
+          logger.severe("Unknown metrics exporter: " + name);
+        }
+        if (exporter != null) {
+          exporter.start();
+          exporters.add(exporter);
+        }
+      } catch (IOException | RuntimeException e) {
+        logger.log(Level.SEVERE, "Unable to start metrics exporter: " + name, e);
+      }
+    }
+    if (!exporters.isEmpty()) {
+      Runtime.getRuntime().addShutdownHook(new Thread("metrics-shutdown") {
+        @Override
+        public void run() {
+          shutdown();
+        }
+      });
+    }
+  }
+  
+  public synchronized static void shutdown() {
+    for (MetricsExporter exporter : exporters) {
+      exporter.close();
+    }
+    exporters.clear();
+  }
+  
+  /**
+   * Writes the current value of every metric as a single JSON object.
+   */
+  static String toJson() {
+    StringBuilder json = new StringBuilder();
+    json.append("{\"time\":").append(System.currentTimeMillis());
+    json.append(",\"meters\":{");
+    boolean first = true;
+    for (Meter meter : getMeters()) {
+      if (first) {
+        first = false;
+      } else {
+        json.append(',');
+      }
+      appendString(json, meter.getName());
+      json.append(":{\"count\":").append(meter.getCount());
+      json.append(",\"mean_rate\":").append(format(meter.getMeanRate()));
+      json.append(",\"one_minute_rate\":").append(format(meter.getOneMinuteRate()));
+      json.append('}');
+    }
+    json.append("},\"histograms\":{");
+    first = true;
+    for (LatencyHistogram histogram : getHistograms()) {
+      if (first) {
+        first = false;
+      } else {
+        json.append(',');
+      }
+      appendString(json, histogram.getName());
+      json.append(":{\"count\":").append(histogram.getCount());
+      for (Map.Entry<String, Number> entry : getHistogramValues(histogram).entrySet()) {
+        json.append(",\"").append(entry.getKey()).append("\":").append(entry.getValue());
+      }
+      json.append('}');
+    }
+    json.append("}}");
+    return json.toString();
+  }
+  
+  /**
+   * Summary values (in milliseconds) reported for every histogram.
+   */
+  static Map<String, Number> getHistogramValues(LatencyHistogram histogram) {
+    Map<String, Number> values = new TreeMap<>();
+    values.put("mean_ms", toMillis(histogram.getMean()));
+    values.put("p50_ms", toMillis(histogram.getPercentile(.5)));
+    values.put("p90_ms", toMillis(histogram.getPercentile(.9)));
+    values.put("p99_ms", toMillis(histogram.getPercentile(.99)));
+    values.put("max_ms", toMillis(histogram.getMax()));
+    return values;
+  }
+  
+  private static double toMillis(double nanos) {
+    return Math.round(nanos / 1e3) / 1e3;
+  }
+  
+  private static String format(double value) {
+    return Double.toString(Math.round(value * 1e3) / 1e3);
+  }
+  
+  private static void appendString(StringBuilder json, String value) {
+    json.append('"');
+    for (char c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < ' ') {
+        json.append(String.format("\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    json.append('"');
+  }
+}
@@ -0,0 +1,135 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Publishes every metric as a read-only attribute of a single MBean,
+ * <code>edu.uci.ics.sourcerer:type=Metrics</code>. Attributes are
+ * named <code>metric.value</code> and are regenerated on each request,
+ * so metrics registered after startup appear automatically.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class JmxExporter implements MetricsExporter {
+  private ObjectName name;
+  
+  @Override
+  public synchronized void start() {
+    try {
+      name = new ObjectName("edu.uci.ics.sourcerer:type=Metrics");
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (!server.isRegistered(name)) {
+        server.registerMBean(new MetricsBean(), name);
+      }
+    } catch (JMException e) {
+      throw new IllegalStateException("Unable to register metrics MBean", e);
+    }
+  }
+  
+  @Override
+  public synchronized void close() {
+    if (name != null) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+      } catch (JMException e) {}
+      name = null;
+    }
+  }
+  
+  private static Map<String, Object> getValues() {
+    Map<String, Object> values = new LinkedHashMap<>();
+    for (Meter meter : Instrumentation.getMeters()) {
+      values.put(meter.getName() + ".count", meter.getCount());
+      values.put(meter.getName() + ".mean_rate", meter.getMeanRate());
+      values.put(meter.getName() + ".one_minute_rate", meter.getOneMinuteRate());
+    }
+    for (LatencyHistogram histogram : Instrumentation.getHistograms()) {
+      values.put(histogram.getName() + ".count", histogram.getCount());
+      for (Map.Entry<String, Number> entry : Instrumentation.getHistogramValues(histogram).entrySet()) {
+        values.put(histogram.getName() + "." + entry.getKey(), entry.getValue().doubleValue());
+      }
+    }
+    return values;
+  }
+  
+  private static class MetricsBean implements DynamicMBean {
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+      Object value = getValues().get(attribute);
+      if (value == null) {
+        throw new AttributeNotFoundException(attribute);
+      } else {
+        return value;
+      }
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+      Map<String, Object> values = getValues();
+      AttributeList list = new AttributeList();
+      for (String attribute : attributes) {
+        Object value = values.get(attribute);
+        if (value != null) {
+          list.add(new Attribute(attribute, value));
+        }
+      }
+      return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+      throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+      return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) {
+      throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+      Collection<MBeanAttributeInfo> attributes = new ArrayList<>();
+      for (Map.Entry<String, Object> entry : getValues().entrySet()) {
+        attributes.add(new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(), entry.getKey(), true, false, false));
+      }
+      return new MBeanInfo(MetricsBean.class.getName(), "Sourcerer metrics", attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, new MBeanOperationInfo[0], null);
+    }
+  }
+}
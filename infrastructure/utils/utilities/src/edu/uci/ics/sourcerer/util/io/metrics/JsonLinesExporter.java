@@ -0,0 +1,100 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io.metrics;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+
+/**
+ * Periodically appends a snapshot of every metric to a file, one JSON
+ * object per line. A final snapshot is written when the exporter is
+ * closed.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+class JsonLinesExporter implements MetricsExporter {
+  private final File file;
+  private final int interval;
+  private ScheduledExecutorService executor;
+  private Writer writer;
+  
+  JsonLinesExporter(File file, int interval) {
+    this.file = file;
+    this.interval = Math.max(1, interval);
+  }
+  
+  @Override
+  public synchronized void start() throws IOException {
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
+    writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "metrics-json");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    executor.scheduleAtFixedRate(new Runnable() {
+      @Override
+      public void run() {
+        write();
+      }
+    }, interval, interval, TimeUnit.SECONDS);
+  }
+  
+  private synchronized void write() {
+    if (writer != null) {
+      try {
+        writer.write(Instrumentation.toJson());
+        writer.write('\n');
+        writer.flush();
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, "Unable to write metrics to " + file.getPath(), e);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+    write();
+    IOUtils.close(writer);
+    writer = null;
+  }
+}
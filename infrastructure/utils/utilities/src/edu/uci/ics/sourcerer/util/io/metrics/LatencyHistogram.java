@@ -0,0 +1,160 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records latencies (in nanoseconds) into fixed log-linear buckets, in
+ * the style of an HDR histogram. Values below 32 are recorded exactly,
+ * and every power of two above that is split into 16 linear
+ * sub-buckets, so reported percentiles are within about 6% of the
+ * true value. Recording is lock free and never allocates.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+  private static final int LINEAR_MAGNITUDE = SUB_BUCKET_BITS + 1;
+  private static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - LINEAR_MAGNITUDE) * SUB_BUCKETS;
+  
+  static final LatencyHistogram NULL = new LatencyHistogram(null) {
+    @Override
+    public void record(long nanos) {}
+    
+    @Override
+    public long getPercentile(double fraction) {
+      return 0;
+    }
+  };
+  
+  private final String name;
+  private final AtomicLongArray buckets;
+  private final AtomicLong count;
+  private final AtomicLong sum;
+  private final AtomicLong max;
+  
+  LatencyHistogram(String name) {
+    this.name = name;
+    this.buckets = name == null ? null : new AtomicLongArray(BUCKET_COUNT);
+    this.count = new AtomicLong();
+    this.sum = new AtomicLong();
+    this.max = new AtomicLong();
+  }
+  
+  /**
+   * Creates a histogram that is not registered with {@link Instrumentation}.
+   */
+  public static LatencyHistogram create(String name) {
+    if (name == null) {
+      throw new IllegalArgumentException("Histograms need a name");
+    }
+    return new LatencyHistogram(name);
+  }
+  
+  public String getName() {
+    return name;
+  }
+  
+  public void record(long nanos) {
+    if (nanos < 0) {
+      nanos = 0;
+    }
+    buckets.incrementAndGet(getBucket(nanos));
+    count.incrementAndGet();
+    sum.addAndGet(nanos);
+    for (long current = max.get(); nanos > current && !max.compareAndSet(current, nanos); current = max.get());
+  }
+  
+  /**
+   * Records the time elapsed since <code>startNanos</code>, which
+   * should come from <code>System.nanoTime()</code>.
+   */
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+  
+  public long getCount() {
+    return count.get();
+  }
+  
+  public long getMax() {
+    return max.get();
+  }
+  
+  public double getMean() {
+    long c = count.get();
+    if (c == 0) {
+      return 0;
+    } else {
+      return (double) sum.get() / c;
+    }
+  }
+  
+  /**
+   * Returns the value below which the given fraction of the recorded
+   * latencies fall, or 0 if nothing has been recorded.
+   */
+  public long getPercentile(double fraction) {
+    if (fraction < 0 || fraction > 1) {
+      throw new IllegalArgumentException("Fraction must be between 0 and 1: " + fraction);
+    }
+    long[] snapshot = new long[BUCKET_COUNT];
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      snapshot[i] = buckets.get(i);
+      total += snapshot[i];
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(fraction * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += snapshot[i];
+      if (seen >= target) {
+        return Math.min(getBucketUpperBound(i), max.get());
+      }
+    }
+    return max.get();
+  }
+  
+  static int getBucket(long value) {
+    if (value < LINEAR_LIMIT) {
+      return (int) value;
+    } else {
+      int magnitude = 63 - Long.numberOfLeadingZeros(value);
+      int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+      return LINEAR_LIMIT + (magnitude - LINEAR_MAGNITUDE) * SUB_BUCKETS + subBucket;
+    }
+  }
+  
+  static long getBucketUpperBound(int bucket) {
+    if (bucket < LINEAR_LIMIT) {
+      return bucket;
+    } else {
+      int offset = bucket - LINEAR_LIMIT;
+      int magnitude = offset / SUB_BUCKETS + LINEAR_MAGNITUDE;
+      long subBucket = offset % SUB_BUCKETS + SUB_BUCKETS;
+      return ((subBucket + 1) << (magnitude - SUB_BUCKET_BITS)) - 1;
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts events and tracks their throughput, both as a mean rate
+ * over the lifetime of the meter and as an exponentially weighted
+ * one minute rate.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class Meter {
+  private static final long TICK_INTERVAL = TimeUnit.SECONDS.toNanos(5);
+  private static final double ALPHA = 1 - Math.exp(-5.0 / 60.0);
+  
+  static final Meter NULL = new Meter(null) {
+    @Override
+    public void mark() {}
+    @Override
+    public void mark(long count) {}
+  };
+  
+  private final String name;
+  private final long startTime;
+  private final AtomicLong count;
+  private final AtomicLong uncounted;
+  private final AtomicLong lastTick;
+  private volatile boolean rateInitialized;
+  private volatile double rate;
+  
+  Meter(String name) {
+    this.name = name;
+    this.startTime = System.nanoTime();
+    this.count = new AtomicLong();
+    this.uncounted = new AtomicLong();
+    this.lastTick = new AtomicLong(startTime);
+  }
+  
+  public String getName() {
+    return name;
+  }
+  
+  public void mark() {
+    mark(1);
+  }
+  
+  public void mark(long n) {
+    tickIfNecessary();
+    count.addAndGet(n);
+    uncounted.addAndGet(n);
+  }
+  
+  public long getCount() {
+    return count.get();
+  }
+  
+  /**
+   * Events per second since the meter was created.
+   */
+  public double getMeanRate() {
+    long elapsed = System.nanoTime() - startTime;
+    if (elapsed <= 0) {
+      return 0;
+    } else {
+      return count.get() / (elapsed / 1e9);
+    }
+  }
+  
+  /**
+   * Events per second, exponentially weighted over the last minute.
+   */
+  public double getOneMinuteRate() {
+    tickIfNecessary();
+    return rate;
+  }
+  
+  private void tickIfNecessary() {
+    long last = lastTick.get();
+    long now = System.nanoTime();
+    long age = now - last;
+    if (age > TICK_INTERVAL) {
+      long newTick = now - age % TICK_INTERVAL;
+      if (lastTick.compareAndSet(last, newTick)) {
+        for (long ticks = age / TICK_INTERVAL; ticks > 0; ticks--) {
+          tick();
+        }
+      }
+    }
+  }
+  
+  private synchronized void tick() {
+    double instantRate = uncounted.getAndSet(0) / (TICK_INTERVAL / 1e9);
+    if (rateInitialized) {
+      rate += ALPHA * (instantRate - rate);
+    } else {
+      rate = instantRate;
+      rateInitialized = true;
+    }
+  }
+}
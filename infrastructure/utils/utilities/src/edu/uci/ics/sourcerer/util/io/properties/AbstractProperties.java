@@ -39,14 +39,47 @@ public abstract class AbstractProperties {
   private Properties properties;
   private File file;
   private Map<String, Property<?>> props;
+  private PropertiesCatalog catalog;
+  private String key;
   
   protected AbstractProperties(File file) {
     props = new HashMap<>();
     this.file = file;
   }
   
+  /**
+   * Backs these properties with an entry in <tt>catalog</tt>. If the
+   * catalog has no entry for <tt>key</tt>, the properties file is
+   * imported. Saves still write the properties file, so the catalog
+   * can always be rebuilt from the files.
+   */
+  public final void setCatalog(PropertiesCatalog catalog, String key) {
+    this.catalog = catalog;
+    this.key = key;
+    if (!catalog.contains(key) && file.exists()) {
+      if (properties == null) {
+        loadFile();
+      }
+      catalog.put(key, toMap());
+    }
+  }
+  
   private void initialize() {
     properties = new Properties();
+    if (catalog != null) {
+      Map<String, String> values = catalog.get(key);
+      if (values != null) {
+        properties.putAll(values);
+        return;
+      }
+    }
+    loadFile();
+  }
+  
+  private void loadFile() {
+    if (properties == null) {
+      properties = new Properties();
+    }
     if (file.exists()) {
       InputStream is = null;
       try {
@@ -60,6 +93,14 @@ public abstract class AbstractProperties {
     }
   }
   
+  private Map<String, String> toMap() {
+    Map<String, String> values = new HashMap<>();
+    for (String name : properties.stringPropertyNames()) {
+      values.put(name, properties.getProperty(name));
+    }
+    return values;
+  }
+  
   protected String getValue(String name) {
     if (properties == null) {
       initialize();
@@ -99,6 +140,9 @@ public abstract class AbstractProperties {
         properties.setProperty(prop.getName(), val);
       }
     }
+    if (catalog != null) {
+      catalog.put(key, toMap());
+    }
     OutputStream os = null;
     try {
       if (!file.exists()) {
@@ -0,0 +1,420 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io.properties;
+
+import static edu.uci.ics.sourcerer.util.io.logging.Logging.logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+import edu.uci.ics.sourcerer.util.io.IOUtils;
+
+/**
+ * Keyed store for the contents of many properties files, kept in
+ * a single append-only log.
+ * 
+ * Every update appends one record, so concurrent writers never
+ * rewrite each other's entries. The log is read sequentially once
+ * when opened, and is compacted whenever superseded records
+ * outnumber the live entries.
+ * 
+ * The log may be shared by several processes. Appends and compaction
+ * hold an exclusive lock on a companion <tt>.lock</tt> file, each
+ * record is appended through a freshly opened stream so it always lands
+ * in the current log, and compaction rereads the log under the lock so
+ * records appended by other processes survive it. Another catalog open
+ * on the same file in this process is waited for in the same way.
+ * 
+ * Records are one per line: <tt>+key\tname\tvalue...</tt> for a
+ * put, and <tt>-key</tt> for a removal.
+ * 
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public final class PropertiesCatalog implements Closeable {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final int COMPACTION_SLACK = 1024;
+  private static final long LOCK_RETRY_MILLIS = 10;
+  
+  private final File file;
+  private final File lockFile;
+  private final Map<String, Map<String, String>> entries;
+  private final Map<String, Map<String, Set<String>>> indexes;
+  private FileChannel lockChannel;
+  private boolean closed;
+  private int records;
+  
+  private PropertiesCatalog(File file) {
+    this.file = file;
+    this.lockFile = new File(file.getPath() + ".lock");
+    this.entries = new HashMap<>();
+    this.indexes = new HashMap<>();
+  }
+  
+  public static PropertiesCatalog open(File file) {
+    PropertiesCatalog catalog = new PropertiesCatalog(file);
+    FileLock lock = catalog.lock();
+    try {
+      catalog.load();
+      if (catalog.needsCompaction()) {
+        catalog.rewrite();
+      }
+    } finally {
+      catalog.release(lock);
+    }
+    return catalog;
+  }
+  
+  /**
+   * Takes the lock shared with other processes using this catalog.
+   * Returns <tt>null</tt> if it could not be taken, in which case the
+   * caller proceeds unlocked.
+   */
+  private FileLock lock() {
+    try {
+      if (lockChannel == null) {
+        file.getParentFile().mkdirs();
+        lockChannel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      }
+      while (true) {
+        try {
+          return lockChannel.lock();
+        } catch (OverlappingFileLockException e) {
+          // Held by another catalog in this JVM, which the OS lock does not wait for
+          Thread.sleep(LOCK_RETRY_MILLIS);
+        }
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to lock properties catalog: " + file.getPath(), e);
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      logger.log(Level.SEVERE, "Interrupted while locking properties catalog: " + file.getPath(), e);
+      return null;
+    }
+  }
+  
+  private void release(FileLock lock) {
+    if (lock != null) {
+      try {
+        lock.release();
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, "Unable to unlock properties catalog: " + file.getPath(), e);
+      }
+    }
+  }
+  
+  private void load() {
+    if (file.exists()) {
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8))) {
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+          records++;
+          String[] parts = line.split("\t", -1);
+          if (parts[0].startsWith("+") && parts.length % 2 == 1) {
+            Map<String, String> values = new HashMap<>();
+            for (int i = 1; i < parts.length; i += 2) {
+              values.put(unescape(parts[i]), unescape(parts[i + 1]));
+            }
+            entries.put(unescape(parts[0].substring(1)), values);
+          } else if (parts[0].startsWith("-") && parts.length == 1) {
+            entries.remove(unescape(parts[0].substring(1)));
+          } else {
+            // A partially written record, most likely from an interrupted process
+            logger.warning("Skipping malformed catalog record " + records + " in " + file.getPath());
+          }
+        }
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, "Unable to load properties catalog: " + file.getPath(), e);
+      }
+    }
+  }
+  
+  private boolean needsCompaction() {
+    return records > 2 * entries.size() + COMPACTION_SLACK;
+  }
+  
+  public synchronized boolean contains(String key) {
+    return entries.containsKey(key);
+  }
+  
+  public synchronized Map<String, String> get(String key) {
+    Map<String, String> values = entries.get(key);
+    if (values == null) {
+      return null;
+    } else {
+      return Collections.unmodifiableMap(values);
+    }
+  }
+  
+  public synchronized Set<String> getKeys() {
+    return new HashSet<>(entries.keySet());
+  }
+  
+  /**
+   * Returns the keys of every entry whose <tt>property</tt> is
+   * <tt>value</tt>. The index for a property is built on first use
+   * and maintained by subsequent updates.
+   */
+  public synchronized Set<String> getKeys(String property, String value) {
+    Set<String> keys = getIndex(property).get(value);
+    if (keys == null) {
+      return Collections.emptySet();
+    } else {
+      return new HashSet<>(keys);
+    }
+  }
+  
+  private Map<String, Set<String>> getIndex(String property) {
+    Map<String, Set<String>> index = indexes.get(property);
+    if (index == null) {
+      index = new HashMap<>();
+      for (Map.Entry<String, Map<String, String>> entry : entries.entrySet()) {
+        addToIndex(index, entry.getValue().get(property), entry.getKey());
+      }
+      indexes.put(property, index);
+    }
+    return index;
+  }
+  
+  private static void addToIndex(Map<String, Set<String>> index, String value, String key) {
+    if (value != null) {
+      Set<String> keys = index.get(value);
+      if (keys == null) {
+        keys = new HashSet<>();
+        index.put(value, keys);
+      }
+      keys.add(key);
+    }
+  }
+  
+  private static void removeFromIndex(Map<String, Set<String>> index, String value, String key) {
+    if (value != null) {
+      Set<String> keys = index.get(value);
+      if (keys != null) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          index.remove(value);
+        }
+      }
+    }
+  }
+  
+  private void reindex(String key, Map<String, String> oldValues, Map<String, String> newValues) {
+    for (Map.Entry<String, Map<String, Set<String>>> index : indexes.entrySet()) {
+      if (oldValues != null) {
+        removeFromIndex(index.getValue(), oldValues.get(index.getKey()), key);
+      }
+      if (newValues != null) {
+        addToIndex(index.getValue(), newValues.get(index.getKey()), key);
+      }
+    }
+  }
+  
+  /**
+   * Replaces the entry for <tt>key</tt>. The record is appended and
+   * flushed before this method returns.
+   */
+  public synchronized void put(String key, Map<String, String> values) {
+    Map<String, String> copy = new HashMap<>(values);
+    StringBuilder record = new StringBuilder();
+    record.append('+').append(escape(key));
+    for (Map.Entry<String, String> entry : copy.entrySet()) {
+      record.append('\t').append(escape(entry.getKey()));
+      record.append('\t').append(escape(entry.getValue()));
+    }
+    append(record);
+    reindex(key, entries.put(key, copy), copy);
+  }
+  
+  public synchronized void remove(String key) {
+    Map<String, String> old = entries.remove(key);
+    if (old != null) {
+      append(new StringBuilder().append('-').append(escape(key)));
+      reindex(key, old, null);
+    }
+  }
+  
+  private void append(StringBuilder record) {
+    if (!closed) {
+      FileLock lock = lock();
+      try {
+        // Finish off a record cut short by an interrupted process, rather than extending it
+        if (!isTerminated()) {
+          record.insert(0, '\n');
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), UTF8)) {
+          writer.write(record.append('\n').toString());
+          records++;
+        }
+      } catch (IOException e) {
+        logger.log(Level.SEVERE, "Unable to write to properties catalog: " + file.getPath(), e);
+      } finally {
+        release(lock);
+      }
+      if (needsCompaction()) {
+        compact();
+      }
+    }
+  }
+  
+  /**
+   * Whether the log is empty or ends with a complete record.
+   */
+  private boolean isTerminated() throws IOException {
+    if (file.exists()) {
+      try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+        long length = in.length();
+        if (length > 0) {
+          in.seek(length - 1);
+          return in.read() == '\n';
+        }
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * Rewrites the log so that it contains only the live entries. The
+   * log is first reread, picking up any records appended by other
+   * processes. The new log replaces the old one with a single rename,
+   * so a crash during compaction leaves the previous log intact.
+   */
+  public synchronized void compact() {
+    if (!closed) {
+      FileLock lock = lock();
+      try {
+        entries.clear();
+        indexes.clear();
+        records = 0;
+        load();
+        rewrite();
+      } finally {
+        release(lock);
+      }
+    }
+  }
+  
+  private void rewrite() {
+    File tmp = new File(file.getPath() + ".tmp");
+    try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), UTF8))) {
+      for (Map.Entry<String, Map<String, String>> entry : entries.entrySet()) {
+        out.write('+');
+        out.write(escape(entry.getKey()));
+        for (Map.Entry<String, String> value : entry.getValue().entrySet()) {
+          out.write('\t');
+          out.write(escape(value.getKey()));
+          out.write('\t');
+          out.write(escape(value.getValue()));
+        }
+        out.write('\n');
+      }
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to compact properties catalog: " + file.getPath(), e);
+      tmp.delete();
+      return;
+    }
+    try {
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      records = entries.size();
+    } catch (IOException e) {
+      logger.log(Level.SEVERE, "Unable to replace properties catalog: " + file.getPath(), e);
+      tmp.delete();
+    }
+  }
+  
+  private static String escape(String value) {
+    StringBuilder result = null;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      String replacement = null;
+      switch (c) {
+        case '\\': replacement = "\\\\"; break;
+        case '\t': replacement = "\\t"; break;
+        case '\n': replacement = "\\n"; break;
+        case '\r': replacement = "\\r"; break;
+      }
+      if (replacement != null && result == null) {
+        result = new StringBuilder(value.length() + 8).append(value, 0, i);
+      }
+      if (result != null) {
+        if (replacement == null) {
+          result.append(c);
+        } else {
+          result.append(replacement);
+        }
+      }
+    }
+    return result == null ? value : result.toString();
+  }
+  
+  private static String unescape(String value) {
+    if (value.indexOf('\\') == -1) {
+      return value;
+    } else {
+      StringBuilder result = new StringBuilder(value.length());
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        if (c == '\\' && i + 1 < value.length()) {
+          char next = value.charAt(++i);
+          switch (next) {
+            case 't': result.append('\t'); break;
+            case 'n': result.append('\n'); break;
+            case 'r': result.append('\r'); break;
+            default: result.append(next);
+          }
+        } else {
+          result.append(c);
+        }
+      }
+      return result.toString();
+    }
+  }
+  
+  @Override
+  public synchronized void close() {
+    closed = true;
+    IOUtils.close(lockChannel);
+    lockChannel = null;
+  }
+  
+  @Override
+  public String toString() {
+    return file.getPath();
+  }
+}
@@ -58,7 +58,12 @@ public abstract class Property<T> {
   }
   
   protected void copy(Property<?> other) {
-    setValue(parseValue(other.getValueAsString()));
+    String val = other.getValueAsString();
+    if (val == null) {
+      setValue(null);
+    } else {
+      setValue(parseValue(val));
+    }
   }
   
   protected String getValueAsString() {
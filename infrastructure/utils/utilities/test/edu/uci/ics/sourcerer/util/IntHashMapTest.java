@@ -0,0 +1,89 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class IntHashMapTest {
+  @Test
+  public void testPutAndGet() {
+    IntHashMap<String> map = IntHashMap.create();
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertNull(map.put(5, "five"));
+    Assert.assertNull(map.put(-3, "minus three"));
+    Assert.assertNull(map.put(0, "zero"));
+    Assert.assertEquals(3, map.size());
+    Assert.assertEquals("five", map.get(5));
+    Assert.assertEquals("minus three", map.get(-3));
+    Assert.assertEquals("zero", map.get(0));
+    Assert.assertNull(map.get(6));
+    Assert.assertFalse(map.containsKey(6));
+    
+    Assert.assertEquals("five", map.put(5, "FIVE"));
+    Assert.assertEquals("FIVE", map.get(5));
+    Assert.assertEquals(3, map.size());
+  }
+  
+  @Test
+  public void testRehash() {
+    IntHashMap<Integer> map = IntHashMap.create();
+    // Multiples of a power of two collide in the low bits of an identity hash
+    for (int i = 0; i < 10_000; i++) {
+      map.put(i << 12, i);
+    }
+    Assert.assertEquals(10_000, map.size());
+    for (int i = 0; i < 10_000; i++) {
+      Assert.assertEquals(Integer.valueOf(i), map.get(i << 12));
+    }
+    Assert.assertNull(map.get(1));
+  }
+  
+  @Test
+  public void testValues() {
+    IntHashMap<Integer> map = IntHashMap.create(100);
+    Set<Integer> expected = new HashSet<>();
+    for (int i = 0; i < 100; i++) {
+      map.put(i * 7, i);
+      expected.add(i);
+    }
+    Set<Integer> values = new HashSet<>();
+    for (Integer value : map.values()) {
+      values.add(value);
+    }
+    Assert.assertEquals(expected, values);
+    Assert.assertEquals(100, map.values().size());
+    
+    map.clear();
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertFalse(map.values().iterator().hasNext());
+    Assert.assertNull(map.get(7));
+  }
+  
+  @Test(expected = NullPointerException.class)
+  public void testNullValue() {
+    IntHashMap<String> map = IntHashMap.create();
+    map.put(1, null);
+  }
+}
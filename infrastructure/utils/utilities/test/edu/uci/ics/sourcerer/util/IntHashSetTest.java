@@ -0,0 +1,70 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class IntHashSetTest {
+  @Test
+  public void testAdd() {
+    IntHashSet set = IntHashSet.create();
+    Assert.assertTrue(set.isEmpty());
+    Assert.assertTrue(set.add(0));
+    Assert.assertTrue(set.add(-1));
+    Assert.assertFalse(set.add(0));
+    Assert.assertEquals(2, set.size());
+    Assert.assertTrue(set.contains(0));
+    Assert.assertTrue(set.contains(-1));
+    Assert.assertFalse(set.contains(1));
+  }
+  
+  @Test
+  public void testRehash() {
+    IntHashSet set = IntHashSet.create();
+    for (int i = 0; i < 10_000; i++) {
+      Assert.assertTrue(set.add(i << 12));
+    }
+    Assert.assertEquals(10_000, set.size());
+    for (int i = 0; i < 10_000; i++) {
+      Assert.assertTrue(set.contains(i << 12));
+      Assert.assertFalse(set.add(i << 12));
+    }
+    Assert.assertFalse(set.contains(1));
+  }
+  
+  @Test
+  public void testAddAll() {
+    IntHashSet a = IntHashSet.create();
+    IntHashSet b = IntHashSet.create();
+    for (int i = 0; i < 50; i++) {
+      a.add(i);
+      b.add(i + 25);
+    }
+    a.addAll(b);
+    Assert.assertEquals(75, a.size());
+    Assert.assertTrue(a.contains(74));
+    
+    a.clear();
+    Assert.assertTrue(a.isEmpty());
+    Assert.assertFalse(a.contains(10));
+  }
+}
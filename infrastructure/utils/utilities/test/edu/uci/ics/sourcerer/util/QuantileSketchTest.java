@@ -0,0 +1,89 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class QuantileSketchTest {
+  @Test
+  public void testEmpty() {
+    QuantileSketch sketch = QuantileSketch.create();
+    Assert.assertEquals(0, sketch.getCount());
+    Assert.assertTrue(Double.isNaN(sketch.getMedian()));
+  }
+  
+  @Test
+  public void testExactBelowCapacity() {
+    QuantileSketch sketch = QuantileSketch.create();
+    for (int i = 1; i <= 100; i++) {
+      sketch.add(i);
+    }
+    Assert.assertEquals(100, sketch.getCount());
+    // Same interpolation as an exact median over an even number of values
+    Assert.assertEquals(50.5, sketch.getMedian(), 0);
+    Assert.assertEquals(1, sketch.getQuantile(0), 0);
+    Assert.assertEquals(100, sketch.getQuantile(1), 0);
+  }
+  
+  @Test
+  public void testApproximateQuantiles() {
+    QuantileSketch sketch = QuantileSketch.create();
+    Random random = new Random(0);
+    int n = 1_000_000;
+    for (int i = 0; i < n; i++) {
+      sketch.add(random.nextDouble());
+    }
+    Assert.assertEquals(n, sketch.getCount());
+    for (double q : new double[] { 0.1, 0.5, 0.9, 0.99 }) {
+      Assert.assertEquals(q, sketch.getQuantile(q), 0.02);
+    }
+  }
+  
+  @Test
+  public void testMerge() {
+    QuantileSketch low = QuantileSketch.create();
+    QuantileSketch high = QuantileSketch.create();
+    for (int i = 0; i < 50_000; i++) {
+      low.add(i);
+      high.add(50_000 + i);
+    }
+    low.merge(high);
+    Assert.assertEquals(100_000, low.getCount());
+    Assert.assertEquals(50_000, low.getMedian(), 2_000);
+    Assert.assertEquals(90_000, low.getQuantile(0.9), 2_000);
+  }
+  
+  @Test
+  public void testDeterministic() {
+    QuantileSketch a = QuantileSketch.create();
+    QuantileSketch b = QuantileSketch.create();
+    Random random = new Random(1);
+    for (int i = 0; i < 100_000; i++) {
+      double value = random.nextGaussian();
+      a.add(value);
+      b.add(value);
+    }
+    Assert.assertEquals(a.getMedian(), b.getMedian(), 0);
+  }
+}
@@ -0,0 +1,260 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util;
+
+import java.io.Closeable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class ResourcePoolTest {
+  private static class Resource implements Closeable {
+    private boolean closed;
+    
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+  
+  private static class CountingInstantiator implements ResourcePool.Instantiator<Resource> {
+    private final AtomicInteger created = new AtomicInteger();
+    private volatile boolean fail;
+    private volatile boolean fatal;
+    
+    @Override
+    public Resource create() {
+      if (fatal) {
+        throw new IllegalStateException("Unable to connect");
+      } else if (fail) {
+        return null;
+      } else {
+        created.incrementAndGet();
+        return new Resource();
+      }
+    }
+  }
+  
+  private CountingInstantiator instantiator;
+  private ExecutorService executor;
+  
+  @Before
+  public void setUp() {
+    instantiator = new CountingInstantiator();
+    // A lease stuck on a leaked permit cannot be interrupted, so it must not keep the JVM alive
+    executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r);
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+  
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+  
+  /**
+   * Leases from the pool on another thread, so a lease that would block
+   * forever fails the test instead of hanging it.
+   */
+  private ResourcePool.Lease<Resource> leaseWithin(final ResourcePool<Resource> pool, long millis) throws Exception {
+    Future<ResourcePool.Lease<Resource>> future = executor.submit(new Callable<ResourcePool.Lease<Resource>>() {
+      @Override
+      public ResourcePool.Lease<Resource> call() {
+        return pool.lease();
+      }
+    });
+    return future.get(millis, TimeUnit.MILLISECONDS);
+  }
+  
+  @Test
+  public void testLeaseAndReturn() throws Exception {
+    ResourcePool<Resource> pool = ResourcePool.create("test", instantiator, 2, 60_000);
+    try {
+      ResourcePool.Lease<Resource> first = pool.lease();
+      ResourcePool.Lease<Resource> second = pool.lease();
+      Assert.assertNotSame(first.get(), second.get());
+      Assert.assertEquals(2, pool.getSize());
+      Assert.assertEquals(0, pool.getIdleCount());
+      
+      Resource resource = first.get();
+      first.close();
+      // Closing twice must not hand the resource out twice
+      first.close();
+      Assert.assertEquals(1, pool.getIdleCount());
+      
+      ResourcePool.Lease<Resource> third = pool.lease();
+      Assert.assertSame(resource, third.get());
+      Assert.assertFalse(resource.closed);
+      Assert.assertEquals(2, instantiator.created.get());
+      Assert.assertEquals(3, pool.getLeaseCount());
+      Assert.assertEquals(0, pool.getWaitCount());
+      
+      second.close();
+      third.close();
+      Assert.assertEquals(2, pool.getIdleCount());
+    } finally {
+      pool.destroy();
+    }
+  }
+  
+  @Test
+  public void testWaitForReturn() throws Exception {
+    final ResourcePool<Resource> pool = ResourcePool.create("test", instantiator, 1, 60_000);
+    try {
+      ResourcePool.Lease<Resource> held = pool.lease();
+      Future<ResourcePool.Lease<Resource>> waiting = executor.submit(new Callable<ResourcePool.Lease<Resource>>() {
+        @Override
+        public ResourcePool.Lease<Resource> call() {
+          return pool.lease();
+        }
+      });
+      Thread.sleep(100);
+      Assert.assertFalse(waiting.isDone());
+      Resource resource = held.get();
+      held.close();
+      ResourcePool.Lease<Resource> lease = waiting.get(5, TimeUnit.SECONDS);
+      Assert.assertSame(resource, lease.get());
+      Assert.assertEquals(1, pool.getWaitCount());
+      lease.close();
+    } finally {
+      pool.destroy();
+    }
+  }
+  
+  @Test
+  public void testIdleResourcesReaped() throws Exception {
+    ResourcePool<Resource> pool = ResourcePool.create("test", instantiator, 2, 100);
+    try {
+      ResourcePool.Lease<Resource> lease = pool.lease();
+      Resource resource = lease.get();
+      lease.close();
+      Assert.assertEquals(1, pool.getIdleCount());
+      
+      // The sweep runs at most once a second
+      long deadline = System.currentTimeMillis() + 5_000;
+      while (pool.getExpirationCount() == 0 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+      }
+      Assert.assertEquals(1, pool.getExpirationCount());
+      Assert.assertTrue(resource.closed);
+      Assert.assertEquals(0, pool.getSize());
+      Assert.assertEquals(0, pool.getIdleCount());
+      
+      // The next lease creates a fresh resource
+      lease = pool.lease();
+      Assert.assertNotSame(resource, lease.get());
+      Assert.assertEquals(2, instantiator.created.get());
+      lease.close();
+    } finally {
+      pool.destroy();
+    }
+  }
+  
+  @Test
+  public void testLeasedResourcesNotReaped() throws Exception {
+    ResourcePool<Resource> pool = ResourcePool.create("test", instantiator, 1, 100);
+    try {
+      ResourcePool.Lease<Resource> lease = pool.lease();
+      Thread.sleep(1_500);
+      Assert.assertEquals(0, pool.getExpirationCount());
+      Assert.assertFalse(lease.get().closed);
+      lease.close();
+    } finally {
+      pool.destroy();
+    }
+  }
+  
+  @Test
+  public void testCreateReturnsNull() throws Exception {
+    ResourcePool<Resource> pool = ResourcePool.create("test", instantiator, 1, 60_000);
+    try {
+      instantiator.fail = true;
+      Assert.assertNull(pool.lease());
+      Assert.assertNull(pool.lease());
+      Assert.assertEquals(0, pool.getSize());
+      
+      // The failed attempts must not have kept the only permit
+      instantiator.fail = false;
+      ResourcePool.Lease<Resource> lease = leaseWithin(pool, 5_000);
+      Assert.assertNotNull(lease);
+      lease.close();
+    } finally {
+      pool.destroy();
+    }
+  }
+  
+  @Test
+  public void testCreateThrows() throws Exception {
+    ResourcePool<Resource> pool = ResourcePool.create("test", instantiator, 1, 60_000);
+    try {
+      instantiator.fatal = true;
+      try {
+        pool.lease();
+        Assert.fail("Expected the instantiator's exception");
+      } catch (IllegalStateException e) {
+        Assert.assertEquals("Unable to connect", e.getMessage());
+      }
+      Assert.assertEquals(0, pool.getSize());
+      
+      // The exception must not have kept the only permit
+      instantiator.fatal = false;
+      ResourcePool.Lease<Resource> lease = leaseWithin(pool, 5_000);
+      Assert.assertNotNull(lease);
+      lease.close();
+    } finally {
+      pool.destroy();
+    }
+  }
+  
+  @Test
+  public void testDestroy() throws Exception {
+    ResourcePool<Resource> pool = ResourcePool.create("test", instantiator, 2, 60_000);
+    ResourcePool.Lease<Resource> idle = pool.lease();
+    ResourcePool.Lease<Resource> leased = pool.lease();
+    idle.close();
+    pool.destroy();
+    Assert.assertTrue(idle.get().closed);
+    Assert.assertFalse(leased.get().closed);
+    // Leased resources are closed once they come back
+    leased.close();
+    Assert.assertTrue(leased.get().closed);
+    Assert.assertEquals(0, pool.getSize());
+    try {
+      pool.lease();
+      Assert.fail("Expected the destroyed pool to refuse leases");
+    } catch (IllegalStateException e) {
+    }
+  }
+}
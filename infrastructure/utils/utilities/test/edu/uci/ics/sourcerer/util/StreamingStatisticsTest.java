@@ -0,0 +1,111 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class StreamingStatisticsTest {
+  private static final double DELTA = 1e-9;
+  
+  @Test
+  public void testEmpty() {
+    StreamingStatistics stats = StreamingStatistics.create();
+    Assert.assertEquals(0, stats.getCount());
+    Assert.assertTrue(Double.isNaN(stats.getMean()));
+    Assert.assertTrue(Double.isNaN(stats.getStandardDeviation()));
+    Assert.assertTrue(Double.isNaN(stats.getMin()));
+    Assert.assertTrue(Double.isNaN(stats.getMax()));
+  }
+  
+  @Test
+  public void testMoments() {
+    StreamingStatistics stats = StreamingStatistics.create();
+    for (int value : new int[] { 2, 4, 4, 4, 5, 5, 7, 9 }) {
+      stats.addValue(value);
+    }
+    Assert.assertEquals(8, stats.getCount());
+    Assert.assertEquals(40, stats.getSum(), DELTA);
+    Assert.assertEquals(5, stats.getMean(), DELTA);
+    Assert.assertEquals(2, stats.getStandardDeviation(), DELTA);
+    Assert.assertEquals(2, stats.getMin(), DELTA);
+    Assert.assertEquals(9, stats.getMax(), DELTA);
+    Assert.assertEquals(4.5, stats.getMedian(), DELTA);
+  }
+  
+  @Test
+  public void testNonZero() {
+    StreamingStatistics stats = StreamingStatistics.create();
+    for (double value : new double[] { 0, 1, 0, 3, 0 }) {
+      stats.addValue(value);
+    }
+    Assert.assertEquals(5, stats.getCount());
+    Assert.assertEquals(2, stats.getNonZeroCount());
+    Assert.assertEquals(2, stats.getNonZeroMean(), DELTA);
+    Assert.assertEquals(1, stats.getNonZeroStandardDeviation(), DELTA);
+    Assert.assertEquals(0.8, stats.getMean(), DELTA);
+  }
+  
+  @Test
+  public void testMerge() {
+    StreamingStatistics all = StreamingStatistics.create();
+    StreamingStatistics left = StreamingStatistics.create();
+    StreamingStatistics right = StreamingStatistics.create();
+    for (int i = 0; i < 1_000; i++) {
+      double value = (i * 37) % 101 - 20;
+      all.addValue(value);
+      if (i % 3 == 0) {
+        left.addValue(value);
+      } else {
+        right.addValue(value);
+      }
+    }
+    left.merge(right);
+    Assert.assertEquals(all.getCount(), left.getCount());
+    Assert.assertEquals(all.getSum(), left.getSum(), DELTA);
+    Assert.assertEquals(all.getMean(), left.getMean(), DELTA);
+    Assert.assertEquals(all.getStandardDeviation(), left.getStandardDeviation(), DELTA);
+    Assert.assertEquals(all.getNonZeroCount(), left.getNonZeroCount());
+    Assert.assertEquals(all.getNonZeroStandardDeviation(), left.getNonZeroStandardDeviation(), DELTA);
+    Assert.assertEquals(all.getMin(), left.getMin(), DELTA);
+    Assert.assertEquals(all.getMax(), left.getMax(), DELTA);
+  }
+  
+  @Test
+  public void testMergeIntoEmpty() {
+    StreamingStatistics empty = StreamingStatistics.createMomentsOnly();
+    StreamingStatistics other = StreamingStatistics.createMomentsOnly();
+    other.addValue(-3);
+    other.addValue(3);
+    empty.merge(other);
+    Assert.assertEquals(-3, empty.getMin(), DELTA);
+    Assert.assertEquals(3, empty.getMax(), DELTA);
+    Assert.assertEquals(3, empty.getStandardDeviation(), DELTA);
+  }
+  
+  @Test(expected = IllegalStateException.class)
+  public void testMomentsOnly() {
+    StreamingStatistics stats = StreamingStatistics.createMomentsOnly();
+    stats.addValue(1);
+    Assert.assertFalse(stats.hasQuantiles());
+    stats.getMedian();
+  }
+}
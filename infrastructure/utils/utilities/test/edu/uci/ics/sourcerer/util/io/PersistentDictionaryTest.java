@@ -0,0 +1,165 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class PersistentDictionaryTest {
+  private File dir;
+  
+  @Before
+  public void setUp() throws IOException {
+    dir = File.createTempFile("dictionary", "");
+    dir.delete();
+    dir.mkdirs();
+  }
+  
+  @After
+  public void tearDown() {
+    for (File child : dir.listFiles()) {
+      child.delete();
+    }
+    dir.delete();
+  }
+  
+  @Test
+  public void testIntern() {
+    PersistentDictionary dictionary = PersistentDictionary.open(dir, "fqns");
+    try {
+      Assert.assertFalse(dictionary.isReadOnly());
+      Assert.assertEquals(PersistentDictionary.NULL_ID, dictionary.intern(null));
+      Assert.assertEquals(PersistentDictionary.NULL_ID, dictionary.getID("java.lang.String"));
+      
+      int a = dictionary.intern("java.lang.String");
+      int b = dictionary.intern("java.lang.Object");
+      Assert.assertEquals(0, a);
+      Assert.assertEquals(1, b);
+      Assert.assertEquals(a, dictionary.intern("java.lang.String"));
+      Assert.assertEquals(b, dictionary.getID("java.lang.Object"));
+      Assert.assertEquals("java.lang.String", dictionary.getString(a));
+      Assert.assertNull(dictionary.getString(2));
+      Assert.assertEquals(2, dictionary.size());
+      
+      // Same hash code, different strings
+      Assert.assertEquals("Aa".hashCode(), "BB".hashCode());
+      int aa = dictionary.intern("Aa");
+      int bb = dictionary.intern("BB");
+      Assert.assertTrue(aa != bb);
+      Assert.assertEquals("Aa", dictionary.getString(aa));
+      Assert.assertEquals("BB", dictionary.getString(bb));
+      
+      // Multi-byte characters
+      int unicode = dictionary.intern("caf\u00e9.\u4e2d");
+      Assert.assertEquals("caf\u00e9.\u4e2d", dictionary.getString(unicode));
+    } finally {
+      dictionary.close();
+    }
+  }
+  
+  @Test
+  public void testRehash() {
+    PersistentDictionary dictionary = PersistentDictionary.open(dir, "fqns");
+    try {
+      // Enough to grow the index and offsets several times over
+      for (int i = 0; i < 200_000; i++) {
+        Assert.assertEquals(i, dictionary.intern("type" + i));
+      }
+      Assert.assertEquals(200_000, dictionary.size());
+      for (int i = 0; i < 200_000; i++) {
+        Assert.assertEquals(i, dictionary.getID("type" + i));
+        Assert.assertEquals("type" + i, dictionary.getString(i));
+      }
+      Assert.assertFalse(new File(dir, "fqns.index.tmp").exists());
+    } finally {
+      dictionary.close();
+    }
+  }
+  
+  @Test
+  public void testReopen() {
+    PersistentDictionary dictionary = PersistentDictionary.open(dir, "fqns");
+    for (int i = 0; i < 100_000; i++) {
+      dictionary.intern("type" + i);
+    }
+    dictionary.close();
+    Assert.assertTrue(dictionary.isClosed());
+    Assert.assertTrue(dictionary.isReadOnly());
+    Assert.assertEquals(PersistentDictionary.NULL_ID, dictionary.intern("closed"));
+    
+    dictionary = PersistentDictionary.open(dir, "fqns");
+    try {
+      Assert.assertFalse(dictionary.isClosed());
+      Assert.assertFalse(dictionary.isReadOnly());
+      Assert.assertEquals(100_000, dictionary.size());
+      for (int i = 0; i < 100_000; i += 997) {
+        Assert.assertEquals(i, dictionary.getID("type" + i));
+        Assert.assertEquals("type" + i, dictionary.getString(i));
+      }
+      // Ids keep counting from where the last append stopped
+      Assert.assertEquals(100_000, dictionary.intern("new"));
+    } finally {
+      dictionary.close();
+    }
+  }
+  
+  @Test
+  public void testReadOnlyOpen() {
+    PersistentDictionary writer = PersistentDictionary.open(dir, "fqns");
+    try {
+      int a = writer.intern("java.lang.String");
+      writer.flush();
+      
+      // The append lock is held, so a second instance is read-only
+      PersistentDictionary reader = PersistentDictionary.open(dir, "fqns");
+      try {
+        Assert.assertTrue(reader.isReadOnly());
+        Assert.assertEquals(1, reader.size());
+        Assert.assertEquals(a, reader.getID("java.lang.String"));
+        Assert.assertEquals("java.lang.String", reader.getString(a));
+        Assert.assertEquals(PersistentDictionary.NULL_ID, reader.intern("java.lang.Object"));
+        
+        // Later appends are not seen by a reader that is already open
+        int b = writer.intern("java.lang.Object");
+        Assert.assertEquals(PersistentDictionary.NULL_ID, reader.getID("java.lang.Object"));
+        Assert.assertNull(reader.getString(b));
+      } finally {
+        reader.close();
+      }
+    } finally {
+      writer.close();
+    }
+    
+    // With the lock released, the next instance may append again
+    PersistentDictionary dictionary = PersistentDictionary.open(dir, "fqns");
+    try {
+      Assert.assertFalse(dictionary.isReadOnly());
+      Assert.assertEquals(2, dictionary.size());
+    } finally {
+      dictionary.close();
+    }
+  }
+}
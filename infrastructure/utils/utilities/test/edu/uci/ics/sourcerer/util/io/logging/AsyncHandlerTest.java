@@ -0,0 +1,240 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import edu.uci.ics.sourcerer.util.io.logging.Logging.OverflowPolicy;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class AsyncHandlerTest {
+  /**
+   * Records what the writer hands it. When blocking, the first publish
+   * parks the writer until released, which keeps the ring from draining.
+   */
+  private static class RecordingHandler extends Handler {
+    private final List<String> messages = new ArrayList<>();
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch released;
+    private volatile boolean closed;
+    
+    RecordingHandler(boolean blocking) {
+      released = new CountDownLatch(blocking ? 1 : 0);
+    }
+    
+    @Override
+    public void publish(LogRecord record) {
+      synchronized (messages) {
+        messages.add(record.getMessage());
+      }
+      entered.countDown();
+      try {
+        released.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+    
+    List<String> getMessages() {
+      synchronized (messages) {
+        return new ArrayList<>(messages);
+      }
+    }
+    
+    void release() {
+      released.countDown();
+    }
+  }
+  
+  private static LogRecord record(Level level, String message) {
+    return new LogRecord(level, message);
+  }
+  
+  /**
+   * Parks the writer inside the delegate and fills the two slot ring
+   * behind it.
+   */
+  private static AsyncHandler createFull(RecordingHandler delegate, OverflowPolicy policy) throws InterruptedException {
+    AsyncHandler handler = AsyncHandler.create(delegate, 2, policy);
+    handler.publish(record(Level.INFO, "first"));
+    Assert.assertTrue(delegate.entered.await(5, TimeUnit.SECONDS));
+    handler.publish(record(Level.INFO, "a"));
+    handler.publish(record(Level.INFO, "b"));
+    return handler;
+  }
+  
+  private static Thread publishInBackground(final AsyncHandler handler, final LogRecord record) {
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        handler.publish(record);
+      }
+    });
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+  
+  private static void assertInOrder(List<String> messages, String ... expected) {
+    int last = -1;
+    for (String message : expected) {
+      int index = messages.indexOf(message);
+      Assert.assertTrue(message + " missing from " + messages, index >= 0);
+      Assert.assertTrue(message + " out of order in " + messages, index > last);
+      last = index;
+    }
+  }
+  
+  @Test(timeout = 30_000)
+  public void testOrderPerThread() throws InterruptedException {
+    final int threads = 4;
+    final int records = 2_000;
+    RecordingHandler delegate = new RecordingHandler(false);
+    final AsyncHandler handler = AsyncHandler.create(delegate, 64, OverflowPolicy.BLOCK);
+    Thread[] publishers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      final int id = t;
+      publishers[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < records; i++) {
+            handler.publish(record(Level.INFO, id + ":" + i));
+          }
+        }
+      });
+      publishers[t].start();
+    }
+    for (Thread publisher : publishers) {
+      publisher.join();
+    }
+    handler.close();
+    
+    List<String> messages = delegate.getMessages();
+    Assert.assertEquals(threads * records, messages.size());
+    int[] next = new int[threads];
+    for (String message : messages) {
+      int colon = message.indexOf(':');
+      int id = Integer.parseInt(message.substring(0, colon));
+      Assert.assertEquals(next[id]++, Integer.parseInt(message.substring(colon + 1)));
+    }
+  }
+  
+  @Test(timeout = 30_000)
+  public void testBlockWaitsForSpace() throws InterruptedException {
+    RecordingHandler delegate = new RecordingHandler(true);
+    try {
+      AsyncHandler handler = createFull(delegate, OverflowPolicy.BLOCK);
+      Thread blocked = publishInBackground(handler, record(Level.INFO, "c"));
+      blocked.join(200);
+      Assert.assertTrue(blocked.isAlive());
+      
+      delegate.release();
+      blocked.join();
+      handler.close();
+      Assert.assertEquals(List.of("first", "a", "b", "c"), delegate.getMessages());
+    } finally {
+      delegate.release();
+    }
+  }
+  
+  @Test(timeout = 30_000)
+  public void testDiscardDropsEverything() throws InterruptedException {
+    RecordingHandler delegate = new RecordingHandler(true);
+    try {
+      AsyncHandler handler = createFull(delegate, OverflowPolicy.DISCARD);
+      handler.publish(record(Level.INFO, "c"));
+      handler.publish(record(Level.SEVERE, "d"));
+      
+      delegate.release();
+      handler.close();
+      List<String> messages = delegate.getMessages();
+      assertInOrder(messages, "first", "a", "b");
+      Assert.assertTrue(messages.contains("2 log records discarded: buffer full"));
+      Assert.assertFalse(messages.contains("c"));
+      Assert.assertFalse(messages.contains("d"));
+      Assert.assertEquals(4, messages.size());
+    } finally {
+      delegate.release();
+    }
+  }
+  
+  @Test(timeout = 30_000)
+  public void testDiscardInfoBlocksForWarnings() throws InterruptedException {
+    RecordingHandler delegate = new RecordingHandler(true);
+    try {
+      AsyncHandler handler = createFull(delegate, OverflowPolicy.DISCARD_INFO);
+      handler.publish(record(Level.INFO, "c"));
+      Thread blocked = publishInBackground(handler, record(Level.WARNING, "d"));
+      blocked.join(200);
+      Assert.assertTrue(blocked.isAlive());
+      
+      delegate.release();
+      blocked.join();
+      handler.close();
+      List<String> messages = delegate.getMessages();
+      assertInOrder(messages, "first", "a", "b", "d");
+      Assert.assertTrue(messages.contains("1 log records discarded: buffer full"));
+      Assert.assertFalse(messages.contains("c"));
+      Assert.assertEquals(5, messages.size());
+    } finally {
+      delegate.release();
+    }
+  }
+  
+  @Test(timeout = 30_000)
+  public void testCloseFlushes() {
+    AsyncHandler.setIdleInterval(60_000);
+    try {
+      RecordingHandler delegate = new RecordingHandler(false);
+      AsyncHandler handler = AsyncHandler.create(delegate, 1_024, OverflowPolicy.BLOCK);
+      List<String> expected = new ArrayList<>();
+      for (int i = 0; i < 500; i++) {
+        expected.add("record " + i);
+        handler.publish(record(Level.INFO, "record " + i));
+      }
+      handler.close();
+      Assert.assertEquals(expected, delegate.getMessages());
+      Assert.assertTrue(delegate.closed);
+      
+      handler.publish(record(Level.SEVERE, "after close"));
+      handler.flush();
+      Assert.assertEquals(expected, delegate.getMessages());
+    } finally {
+      AsyncHandler.setIdleInterval(100);
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class LatencyHistogramTest {
+  @Test
+  public void testEmpty() {
+    LatencyHistogram histogram = LatencyHistogram.create("empty");
+    Assert.assertEquals(0, histogram.getCount());
+    Assert.assertEquals(0, histogram.getPercentile(0.5));
+    Assert.assertEquals(0, histogram.getMean(), 0);
+  }
+  
+  @Test
+  public void testSmallValuesAreExact() {
+    LatencyHistogram histogram = LatencyHistogram.create("small");
+    for (int i = 1; i <= 20; i++) {
+      histogram.record(i);
+    }
+    Assert.assertEquals(20, histogram.getCount());
+    Assert.assertEquals(20, histogram.getMax());
+    Assert.assertEquals(10.5, histogram.getMean(), 0);
+    Assert.assertEquals(10, histogram.getPercentile(0.5));
+    Assert.assertEquals(19, histogram.getPercentile(0.95));
+    Assert.assertEquals(20, histogram.getPercentile(1));
+    Assert.assertEquals(1, histogram.getPercentile(0));
+  }
+  
+  @Test
+  public void testRelativeError() {
+    LatencyHistogram histogram = LatencyHistogram.create("large");
+    for (long i = 1; i <= 100_000; i++) {
+      histogram.record(i * 1_000);
+    }
+    for (double fraction : new double[] { 0.5, 0.9, 0.99, 0.999 }) {
+      double exact = fraction * 100_000_000;
+      long estimate = histogram.getPercentile(fraction);
+      // Each power of two is split into 16 buckets, and percentiles report the upper bound
+      Assert.assertTrue(estimate >= exact);
+      Assert.assertTrue(estimate <= exact * (1 + 1.0 / 16));
+    }
+    Assert.assertEquals(100_000_000, histogram.getPercentile(1));
+  }
+  
+  @Test
+  public void testNegativeRecordedAsZero() {
+    LatencyHistogram histogram = LatencyHistogram.create("negative");
+    histogram.record(-5);
+    Assert.assertEquals(1, histogram.getCount());
+    Assert.assertEquals(0, histogram.getPercentile(1));
+  }
+  
+  @Test
+  public void testBucketBounds() {
+    long previous = -1;
+    for (int bucket = 0; bucket < 500; bucket++) {
+      long upper = LatencyHistogram.getBucketUpperBound(bucket);
+      Assert.assertTrue(upper > previous);
+      Assert.assertEquals(bucket, LatencyHistogram.getBucket(upper));
+      Assert.assertEquals(bucket + 1, LatencyHistogram.getBucket(upper + 1));
+      previous = upper;
+    }
+    Assert.assertEquals(LatencyHistogram.getBucket(Long.MAX_VALUE), LatencyHistogram.getBucket(Long.MAX_VALUE - 1));
+  }
+  
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadFraction() {
+    LatencyHistogram.create("bad").getPercentile(1.5);
+  }
+  
+  @Test
+  public void testDisabled() {
+    LatencyHistogram.NULL.record(100);
+    Assert.assertEquals(0, LatencyHistogram.NULL.getCount());
+    Assert.assertEquals(0, LatencyHistogram.NULL.getPercentile(0.99));
+  }
+}
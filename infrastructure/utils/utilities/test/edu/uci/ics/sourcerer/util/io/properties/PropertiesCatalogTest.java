@@ -0,0 +1,281 @@
+/* 
+ * Sourcerer: an infrastructure for large-scale source code analysis.
+ * Copyright (C) by contributors. See CONTRIBUTORS.txt for full list.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.uci.ics.sourcerer.util.io.properties;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Joel Ossher (jossher@uci.edu)
+ */
+public class PropertiesCatalogTest {
+  private File dir;
+  private File file;
+  
+  @Before
+  public void setUp() throws IOException {
+    dir = File.createTempFile("catalog", "");
+    dir.delete();
+    dir.mkdirs();
+    file = new File(dir, "catalog.txt");
+  }
+  
+  @After
+  public void tearDown() {
+    for (File child : dir.listFiles()) {
+      child.delete();
+    }
+    dir.delete();
+  }
+  
+  private static Map<String, String> values(String... pairs) {
+    Map<String, String> values = new HashMap<>();
+    for (int i = 0; i < pairs.length; i += 2) {
+      values.put(pairs[i], pairs[i + 1]);
+    }
+    return values;
+  }
+  
+  private int countRecords() throws IOException {
+    int count = 0;
+    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+      while (reader.readLine() != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+  
+  @Test
+  public void testReopen() {
+    try (PropertiesCatalog catalog = PropertiesCatalog.open(file)) {
+      catalog.put("a", values("name", "tab\there", "path", "line\nbreak\\"));
+      catalog.put("b", values("name", "b"));
+      catalog.put("c", values("name", "c"));
+      catalog.remove("c");
+    }
+    try (PropertiesCatalog catalog = PropertiesCatalog.open(file)) {
+      Assert.assertEquals(values("name", "tab\there", "path", "line\nbreak\\"), catalog.get("a"));
+      Assert.assertEquals(values("name", "b"), catalog.get("b"));
+      Assert.assertFalse(catalog.contains("c"));
+      Assert.assertNull(catalog.get("c"));
+    }
+  }
+  
+  @Test
+  public void testMalformedRecord() throws IOException {
+    try (PropertiesCatalog catalog = PropertiesCatalog.open(file)) {
+      catalog.put("a", values("name", "a"));
+    }
+    // Simulate a record cut short by an interrupted process
+    try (Writer writer = new FileWriter(file, true)) {
+      writer.write("+b\tname\n");
+    }
+    try (PropertiesCatalog catalog = PropertiesCatalog.open(file)) {
+      Assert.assertEquals(Collections.singleton("a"), catalog.getKeys());
+    }
+  }
+  
+  @Test
+  public void testAppendAfterTruncatedRecord() throws IOException {
+    try (PropertiesCatalog catalog = PropertiesCatalog.open(file)) {
+      catalog.put("a", values("name", "a"));
+    }
+    // The interrupted process did not even get to the newline
+    try (Writer writer = new FileWriter(file, true)) {
+      writer.write("+b\tname");
+    }
+    try (PropertiesCatalog catalog = PropertiesCatalog.open(file)) {
+      catalog.put("c", values("name", "c"));
+    }
+    try (PropertiesCatalog catalog = PropertiesCatalog.open(file)) {
+      Assert.assertEquals(values("name", "a"), catalog.get("a"));
+      Assert.assertEquals(values("name", "c"), catalog.get("c"));
+      Assert.assertFalse(catalog.contains("b"));
+    }
+    Assert.assertEquals(3, countRecords());
+  }
+  
+  @Test
+  public void testConcurrentCatalogsInOneProcess() throws Exception {
+    try (PropertiesCatalog first = PropertiesCatalog.open(file);
+         PropertiesCatalog second = PropertiesCatalog.open(file)) {
+      final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+      List<Thread> writers = new ArrayList<>();
+      for (final PropertiesCatalog catalog : new PropertiesCatalog[] { first, second }) {
+        for (int t = 0; t < 2; t++) {
+          final String prefix = catalog.hashCode() + "-" + t + "-";
+          writers.add(new Thread() {
+            @Override
+            public void run() {
+              try {
+                for (int i = 0; i < 200; i++) {
+                  catalog.put(prefix + i, values("name", prefix + i));
+                }
+              } catch (Throwable e) {
+                errors.add(e);
+              }
+            }
+          });
+        }
+      }
+      for (Thread writer : writers) {
+        writer.start();
+      }
+      for (Thread writer : writers) {
+        writer.join(30_000);
+      }
+      Assert.assertEquals(Collections.emptyList(), errors);
+    }
+    try (PropertiesCatalog catalog = PropertiesCatalog.open(file)) {
+      Assert.assertEquals(800, catalog.getKeys().size());
+    }
+  }
+  
+  @Test
+  public void testIndex() {
+    try (PropertiesCatalog catalog = PropertiesCatalog.open(file)) {
+      catalog.put("a", values("extracted", "true"));
+      catalog.put("b", values("extracted", "false"));
+      Assert.assertEquals(Collections.singleton("a"), catalog.getKeys("extracted", "true"));
+      
+      catalog.put("b", values("extracted", "true"));
+      catalog.put("c", values("name", "c"));
+      Assert.assertEquals(2, catalog.getKeys("extracted", "true").size());
+      Assert.assertTrue(catalog.getKeys("extracted", "false").isEmpty());
+      
+      catalog.remove("a");
+      Assert.assertEquals(Collections.singleton("b"), catalog.getKeys("extracted", "true"));
+      
+      catalog.compact();
+      Assert.assertEquals(Collections.singleton("b"), catalog.getKeys("extracted", "true"));
+    }
+  }
+  
+  @Test
+  public void testAutomaticCompaction() throws IOException {
+    try (PropertiesCatalog catalog = PropertiesCatalog.open(file)) {
+      catalog.put("b", values("name", "b"));
+      for (int i = 0; i < 5_000; i++) {
+        catalog.put("a", values("count", Integer.toString(i)));
+      }
+      // Superseded records never outnumber the live entries by more than the slack
+      Assert.assertTrue(countRecords() < 1_100);
+      Assert.assertEquals(values("count", "4999"), catalog.get("a"));
+    }
+    try (PropertiesCatalog catalog = PropertiesCatalog.open(file)) {
+      Assert.assertEquals(values("count", "4999"), catalog.get("a"));
+      Assert.assertEquals(values("name", "b"), catalog.get("b"));
+    }
+  }
+  
+  @Test
+  public void testCompactionKeepsOtherWriters() throws IOException {
+    try (PropertiesCatalog first = PropertiesCatalog.open(file);
+         PropertiesCatalog second = PropertiesCatalog.open(file)) {
+      first.put("a", values("name", "a"));
+      first.put("a", values("name", "a2"));
+      second.put("b", values("name", "b"));
+      second.remove("a");
+      second.put("a", values("name", "a3"));
+      first.compact();
+      Assert.assertEquals(2, countRecords());
+      Assert.assertEquals(values("name", "a3"), first.get("a"));
+      Assert.assertEquals(values("name", "b"), first.get("b"));
+    }
+  }
+  
+  @Test
+  public void testLockReleased() throws IOException {
+    try (PropertiesCatalog catalog = PropertiesCatalog.open(file)) {
+      catalog.put("a", values("name", "a"));
+      catalog.compact();
+      try (FileChannel channel = FileChannel.open(new File(file.getPath() + ".lock").toPath(), StandardOpenOption.WRITE)) {
+        FileLock lock = channel.tryLock();
+        Assert.assertNotNull(lock);
+        lock.release();
+      }
+    }
+  }
+  
+  @Test
+  public void testLockBlocksAppend() throws Exception {
+    try (PropertiesCatalog catalog = PropertiesCatalog.open(file)) {
+      // The lock is shared between processes, so it is held from another JVM
+      Process holder = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(), "-cp", System.getProperty("java.class.path"), LockHolder.class.getName(), file.getPath() + ".lock").start();
+      try {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(holder.getInputStream()));
+        Assert.assertEquals("locked", reader.readLine());
+        
+        final PropertiesCatalog shared = catalog;
+        Thread writer = new Thread() {
+          @Override
+          public void run() {
+            shared.put("a", values("name", "a"));
+          }
+        };
+        writer.start();
+        writer.join(500);
+        Assert.assertTrue(writer.isAlive());
+        Assert.assertEquals(0, file.length());
+        
+        holder.getOutputStream().close();
+        writer.join(10_000);
+        Assert.assertFalse(writer.isAlive());
+        Assert.assertEquals(values("name", "a"), catalog.get("a"));
+        Assert.assertEquals(1, countRecords());
+      } finally {
+        holder.destroy();
+      }
+    }
+  }
+  
+  /**
+   * Holds the catalog lock until its input is closed.
+   */
+  public static class LockHolder {
+    public static void main(String[] args) throws IOException {
+      try (FileChannel channel = FileChannel.open(new File(args[0]).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+        FileLock lock = channel.lock();
+        System.out.println("locked");
+        System.out.flush();
+        while (System.in.read() != -1) {
+        }
+        lock.release();
+      }
+    }
+  }
+}